@@ -1,5 +1,5 @@
 /*
- * (C) Copyright IBM Corp. 2016,2019
+ * (C) Copyright IBM Corp. 2016,2020
  *
  * SPDX-License-Identifier: Apache-2.0
  */
@@ -39,4 +39,12 @@ public interface AuditLogService {
      * 
      */
     void initialize(PropertyGroup auditLogProperties) throws Exception;
+
+    /**
+     * Sends any audit log entries which have not been sent yet and releases the
+     * resources used by the audit log service.
+     */
+    default void stop() {
+        // No Operation
+    }
 }
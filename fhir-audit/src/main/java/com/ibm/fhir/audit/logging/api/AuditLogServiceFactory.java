@@ -1,5 +1,5 @@
 /*
- * (C) Copyright IBM Corp. 2016,2019
+ * (C) Copyright IBM Corp. 2016,2020
  *
  * SPDX-License-Identifier: Apache-2.0
  */
@@ -98,6 +98,15 @@ public class AuditLogServiceFactory {
         log.exiting(CLASSNAME, METHODNAME);
     }
 
+    /**
+     * Stops the cached audit log service, if one was created, so that any buffered audit log entries are sent.
+     */
+    public static synchronized void stopService() {
+        if (serviceInstance != null) {
+            serviceInstance.stop();
+        }
+    }
+
     /**
      * Resets the singleton instance of the audit logger service object that is cached by this factory class, 
      * then creates, caches, and returns a new service object instance.
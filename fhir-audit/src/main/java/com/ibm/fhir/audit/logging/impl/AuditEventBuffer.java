@@ -0,0 +1,297 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.audit.logging.impl;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A bounded buffer of serialized audit events which are passed to a {@link BatchSender}
+ * in batches by a background drainer thread, so that the threads logging the events
+ * don't wait for the events to be delivered.
+ */
+public class AuditEventBuffer {
+    private static final Logger logger = java.util.logging.Logger.getLogger(AuditEventBuffer.class.getName());
+
+    // How long the drainer waits for the next event before checking whether it was stopped
+    private static final long POLL_INTERVAL_MILLIS = 500;
+    // How often a warning is logged while events are dropped
+    private static final long DROP_WARNING_INTERVAL = 1000;
+
+    /**
+     * What to do with an event when the buffer is full.
+     */
+    public enum OverflowPolicy {
+        /**
+         * Wait for the drainer to make room for the event.
+         */
+        BLOCK,
+        /**
+         * Discard the event and count it.
+         */
+        DROP,
+        /**
+         * Append the event to the local spill file.
+         */
+        SPILL;
+
+        public static OverflowPolicy from(String value) {
+            for (OverflowPolicy policy : values()) {
+                if (policy.name().equalsIgnoreCase(value)) {
+                    return policy;
+                }
+            }
+            throw new IllegalArgumentException("Invalid audit overflow policy: " + value);
+        }
+    }
+
+    /**
+     * Delivers a batch of serialized audit events.
+     */
+    @FunctionalInterface
+    public interface BatchSender {
+        /**
+         * Delivers the events, returning only once they have been delivered.
+         *
+         * @param events the events to deliver
+         * @throws BatchSendException if some of the events could not be delivered
+         * @throws Exception if the batch could not be delivered, in which case none of its events are assumed
+         *                   to have been delivered
+         */
+        void send(List<String> events) throws Exception;
+    }
+
+    /**
+     * Reports the events of a batch which could not be delivered, so that only those are spilled.
+     */
+    public static class BatchSendException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        private final List<String> failedEvents;
+
+        public BatchSendException(String message, List<String> failedEvents, Throwable cause) {
+            super(message, cause);
+            this.failedEvents = failedEvents;
+        }
+
+        /**
+         * @return the events which could not be delivered
+         */
+        public List<String> getFailedEvents() {
+            return failedEvents;
+        }
+    }
+
+    private static class QueuedEvent {
+        private final String event;
+        private final long enqueueTime;
+
+        private QueuedEvent(String event) {
+            this.event = event;
+            this.enqueueTime = System.currentTimeMillis();
+        }
+    }
+
+    private final BlockingQueue<QueuedEvent> queue;
+    private final int batchSize;
+    private final OverflowPolicy overflowPolicy;
+    private final Path spillFile;
+    private final BatchSender sender;
+    // Serializes the appends to the spill file; separate from the lock held by stop() while it waits for the drainer
+    private final Object spillLock = new Object();
+
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong spilledCount = new AtomicLong();
+    private volatile long lagMillis = 0;
+
+    private volatile boolean running = false;
+    private Thread drainer;
+
+    /**
+     * @param capacity the maximum number of events waiting to be sent
+     * @param batchSize the maximum number of events passed to the sender at once
+     * @param overflowPolicy what to do with an event when the buffer is full
+     * @param spillFile the file which events are appended to when they can't be sent; may be null
+     *                  unless the overflow policy is {@link OverflowPolicy#SPILL}
+     * @param sender delivers the batches of events
+     */
+    public AuditEventBuffer(int capacity, int batchSize, OverflowPolicy overflowPolicy, Path spillFile, BatchSender sender) {
+        if (capacity < 1 || batchSize < 1) {
+            throw new IllegalArgumentException("The capacity and batch size must be positive");
+        }
+        if (overflowPolicy == OverflowPolicy.SPILL) {
+            Objects.requireNonNull(spillFile, "spillFile");
+        }
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = batchSize;
+        this.overflowPolicy = Objects.requireNonNull(overflowPolicy, "overflowPolicy");
+        this.spillFile = spillFile;
+        this.sender = Objects.requireNonNull(sender, "sender");
+    }
+
+    /**
+     * Starts the drainer thread.
+     */
+    public synchronized void start() {
+        if (drainer == null) {
+            running = true;
+            drainer = new Thread(this::drain, "fhir-audit-drainer");
+            drainer.setDaemon(true);
+            drainer.start();
+        }
+    }
+
+    /**
+     * Stops accepting events, waits for the drainer thread to send the events already in the buffer,
+     * and then stops it.
+     *
+     * @param timeoutMillis how long to wait for the buffered events to be sent
+     * @throws InterruptedException
+     */
+    public synchronized void stop(long timeoutMillis) throws InterruptedException {
+        running = false;
+        if (drainer != null) {
+            drainer.join(timeoutMillis);
+            if (drainer.isAlive()) {
+                logger.warning("Audit event buffer stopped with " + queue.size() + " events not sent");
+                drainer.interrupt();
+            }
+            drainer = null;
+        }
+    }
+
+    /**
+     * Adds an event to the buffer, applying the overflow policy if the buffer is full.
+     *
+     * @param event the serialized audit event
+     * @throws InterruptedException if interrupted while waiting for room in the buffer
+     * @throws IOException if the event could not be written to the spill file
+     * @throws IllegalStateException if the buffer is not running
+     */
+    public void add(String event) throws InterruptedException, IOException {
+        if (!running) {
+            throw new IllegalStateException("The audit event buffer is not running");
+        }
+
+        QueuedEvent queuedEvent = new QueuedEvent(event);
+        if (queue.offer(queuedEvent)) {
+            return;
+        }
+
+        switch (overflowPolicy) {
+        case BLOCK:
+            queue.put(queuedEvent);
+            break;
+        case DROP:
+            long dropped = droppedCount.incrementAndGet();
+            if (dropped % DROP_WARNING_INTERVAL == 1) {
+                logger.warning("Audit event buffer is full; " + dropped + " events dropped so far");
+            }
+            break;
+        case SPILL:
+            spill(event);
+            break;
+        }
+    }
+
+    /**
+     * @return the number of events waiting to be sent
+     */
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    /**
+     * @return the number of events discarded because the buffer was full
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * @return the number of events written to the spill file instead of being sent
+     */
+    public long getSpilledCount() {
+        return spilledCount.get();
+    }
+
+    /**
+     * @return how long the oldest event of the last batch waited in the buffer before it was sent, in milliseconds
+     */
+    public long getLagMillis() {
+        return lagMillis;
+    }
+
+    private void drain() {
+        List<QueuedEvent> batch = new ArrayList<>(batchSize);
+        // keep going after a stop until everything that was accepted has been sent
+        while (running || !queue.isEmpty()) {
+            try {
+                QueuedEvent first = queue.poll(POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                lagMillis = System.currentTimeMillis() - first.enqueueTime;
+                send(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void send(List<QueuedEvent> batch) {
+        List<String> events = new ArrayList<>(batch.size());
+        for (QueuedEvent queuedEvent : batch) {
+            events.add(queuedEvent.event);
+        }
+
+        try {
+            sender.send(events);
+            if (logger.isLoggable(Level.FINE)) {
+                logger.fine("Sent " + events.size() + " audit events; queue depth: " + queue.size()
+                        + ", lag: " + lagMillis + "ms, dropped: " + droppedCount.get() + ", spilled: " + spilledCount.get());
+            }
+        } catch (Exception e) {
+            List<String> failedEvents = (e instanceof BatchSendException) ? ((BatchSendException) e).getFailedEvents() : events;
+            logger.log(Level.WARNING, "Failed to send " + failedEvents.size() + " of " + events.size() + " audit events", e);
+            if (spillFile != null) {
+                for (String event : failedEvents) {
+                    try {
+                        spill(event);
+                    } catch (IOException ioe) {
+                        logger.log(Level.SEVERE, "Failed to write audit event to " + spillFile, ioe);
+                    }
+                }
+            }
+        }
+    }
+
+    private void spill(String event) throws IOException {
+        synchronized (spillLock) {
+            Files.write(spillFile, (event + System.lineSeparator()).getBytes(StandardCharsets.UTF_8),
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        }
+        spilledCount.incrementAndGet();
+    }
+}
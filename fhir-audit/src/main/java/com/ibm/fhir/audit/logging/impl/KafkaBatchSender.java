@@ -0,0 +1,81 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.audit.logging.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+
+import com.ibm.fhir.audit.logging.impl.AuditEventBuffer.BatchSendException;
+
+/**
+ * Sends the batches of an {@link AuditEventBuffer} to a kafka topic.
+ *
+ * <p>The records of a batch are sent asynchronously and the producer is flushed once per batch. Since a failed
+ * send is only reported through the future of its record, each future is then checked, and the events whose
+ * records failed are reported with a {@link BatchSendException} so that the buffer can spill them.
+ */
+public class KafkaBatchSender implements AuditEventBuffer.BatchSender {
+    private final Producer<String, String> producer;
+    private final String topic;
+
+    /**
+     * @param producer the kafka producer
+     * @param topic the topic which the events are sent to
+     */
+    public KafkaBatchSender(Producer<String, String> producer, String topic) {
+        this.producer = Objects.requireNonNull(producer, "producer");
+        this.topic = Objects.requireNonNull(topic, "topic");
+    }
+
+    @Override
+    public void send(List<String> events) throws BatchSendException, InterruptedException {
+        List<Future<RecordMetadata>> futures = new ArrayList<>(events.size());
+        List<String> failedEvents = new ArrayList<>();
+        Exception firstFailure = null;
+
+        for (String event : events) {
+            try {
+                futures.add(producer.send(new ProducerRecord<>(topic, event)));
+            } catch (RuntimeException e) {
+                // the record was rejected before it was sent
+                futures.add(null);
+                if (firstFailure == null) {
+                    firstFailure = e;
+                }
+            }
+        }
+        producer.flush();
+
+        for (int i = 0; i < futures.size(); i++) {
+            Future<RecordMetadata> future = futures.get(i);
+            if (future == null) {
+                failedEvents.add(events.get(i));
+                continue;
+            }
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                failedEvents.add(events.get(i));
+                if (firstFailure == null) {
+                    firstFailure = e;
+                }
+            }
+        }
+
+        if (!failedEvents.isEmpty()) {
+            throw new BatchSendException("Failed to send " + failedEvents.size() + " audit events to kafka topic '" + topic + "'",
+                    failedEvents, firstFailure);
+        }
+    }
+}
@@ -7,6 +7,7 @@
 package com.ibm.fhir.audit.logging.impl;
 
 import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
@@ -16,7 +17,6 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.apache.kafka.clients.producer.KafkaProducer;
-import org.apache.kafka.clients.producer.ProducerRecord;
 
 import com.ibm.fhir.audit.cadf.model.CadfAttachment;
 import com.ibm.fhir.audit.cadf.model.CadfCredential;
@@ -30,6 +30,7 @@ import com.ibm.fhir.audit.cadf.model.enums.Outcome;
 import com.ibm.fhir.audit.cadf.model.enums.ResourceType;
 import com.ibm.fhir.audit.kafka.Environment;
 import com.ibm.fhir.audit.kafka.EventStreamsCredentials;
+import com.ibm.fhir.audit.logging.impl.AuditEventBuffer.OverflowPolicy;
 import com.ibm.fhir.audit.logging.api.AuditLogEventType;
 import com.ibm.fhir.audit.logging.api.AuditLogService;
 import com.ibm.fhir.audit.logging.beans.AuditLogEntry;
@@ -50,6 +51,10 @@ public class WhcAuditCadfLogService implements AuditLogService {
     private static final String PROPERTY_AUDIT_GEO_CITY = "geoCity";
     private static final String PROPERTY_AUDIT_GEO_STATE = "geoState";
     private static final String PROPERTY_AUDIT_GEO_COUNTRY = "geoCounty";
+    private static final String PROPERTY_AUDIT_QUEUE_SIZE = "queueSize";
+    private static final String PROPERTY_AUDIT_BATCH_SIZE = "batchSize";
+    private static final String PROPERTY_AUDIT_OVERFLOW_POLICY = "overflowPolicy";
+    private static final String PROPERTY_AUDIT_SPILL_FILE = "spillFile";
     private static final String HEALTHCHECKOP = "healthcheck";
 
     private static final String KAFKA_USERNAME = "token";
@@ -57,8 +62,15 @@ public class WhcAuditCadfLogService implements AuditLogService {
     private static final String DEFAULT_AUDIT_GEO_CITY = "Dallas";
     private static final String DEFAULT_AUDIT_GEO_STATE = "TX";
     private static final String DEFAULT_AUDIT_GEO_COUNTRY = "US";
+    private static final int DEFAULT_AUDIT_QUEUE_SIZE = 10000;
+    private static final int DEFAULT_AUDIT_BATCH_SIZE = 100;
+    private static final String DEFAULT_AUDIT_OVERFLOW_POLICY = "block";
+    private static final String DEFAULT_AUDIT_SPILL_FILE = "fhir-audit-spill.log";
+    // How long stop() waits for the buffered events to be sent
+    private static final long STOP_TIMEOUT_MILLIS = 30000;
 
     private KafkaProducer<String, String> producer = null;
+    private AuditEventBuffer eventBuffer = null;
     private static String bootstrapServers = null;
     private static String apiKey = null;
     private static String auditTopic = DEFAULT_AUDIT_KAFKA_TOPIC;
@@ -120,11 +132,19 @@ public class WhcAuditCadfLogService implements AuditLogService {
         }
 
         // Now, let's get the audit topic from FHIR config, if not found, then use the default topic
+        int queueSize = DEFAULT_AUDIT_QUEUE_SIZE;
+        int batchSize = DEFAULT_AUDIT_BATCH_SIZE;
+        String overflowPolicy = DEFAULT_AUDIT_OVERFLOW_POLICY;
+        String spillFile = DEFAULT_AUDIT_SPILL_FILE;
         if (auditLogProperties != null) {
             auditTopic = auditLogProperties.getStringProperty(PROPERTY_AUDIT_KAFKA_TOPIC, DEFAULT_AUDIT_KAFKA_TOPIC);
             geoCity    = auditLogProperties.getStringProperty(PROPERTY_AUDIT_GEO_CITY, DEFAULT_AUDIT_GEO_CITY);
             geoState   = auditLogProperties.getStringProperty(PROPERTY_AUDIT_GEO_STATE, DEFAULT_AUDIT_GEO_STATE);
             geoCountry = auditLogProperties.getStringProperty(PROPERTY_AUDIT_GEO_COUNTRY, DEFAULT_AUDIT_GEO_COUNTRY);
+            queueSize  = auditLogProperties.getIntProperty(PROPERTY_AUDIT_QUEUE_SIZE, DEFAULT_AUDIT_QUEUE_SIZE);
+            batchSize  = auditLogProperties.getIntProperty(PROPERTY_AUDIT_BATCH_SIZE, DEFAULT_AUDIT_BATCH_SIZE);
+            overflowPolicy = auditLogProperties.getStringProperty(PROPERTY_AUDIT_OVERFLOW_POLICY, DEFAULT_AUDIT_OVERFLOW_POLICY);
+            spillFile  = auditLogProperties.getStringProperty(PROPERTY_AUDIT_SPILL_FILE, DEFAULT_AUDIT_SPILL_FILE);
         }
 
         Properties kafkaProps = new Properties();
@@ -145,6 +165,10 @@ public class WhcAuditCadfLogService implements AuditLogService {
         if (this.producer == null) {
             throw new FHIRException("Failed to init kafka producer!");
         } else {
+            // Events are sent to kafka by a background thread so that requests don't wait for the round trip
+            this.eventBuffer = new AuditEventBuffer(queueSize, batchSize, OverflowPolicy.from(overflowPolicy),
+                    Paths.get(spillFile), new KafkaBatchSender(this.producer, auditTopic));
+            this.eventBuffer.start();
             logger.info("Initialized Audit logger.");
             this.isEnabled = true;
         }
@@ -168,15 +192,20 @@ public class WhcAuditCadfLogService implements AuditLogService {
 
         if (eventObject != null) {
             String eventString = CadfEvent.Writer.generate(eventObject);
-            ProducerRecord<String, String> record = new ProducerRecord<>(auditTopic, eventString);
-            // Block till the message is sent to kafka server.
-            this.producer.send(record).get();
+            this.eventBuffer.add(eventString);
         }
 
         logger.exiting(CLASSNAME, METHODNAME);
 
     }
 
+    /**
+     * @return the audit event buffer, or null if the service isn't initialized
+     */
+    public AuditEventBuffer getEventBuffer() {
+        return this.eventBuffer;
+    }
+
     @Override
     public boolean isEnabled() {
         return this.isEnabled;
@@ -256,8 +285,16 @@ public class WhcAuditCadfLogService implements AuditLogService {
         return event;
     }
 
-    // release kafka resource for producer
+    // send the buffered events, then release kafka resource for producer
+    @Override
     public void stop() {
+        if (this.eventBuffer != null) {
+            try {
+                this.eventBuffer.stop(STOP_TIMEOUT_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
         if (this.producer != null) {
             try {
                 this.producer.close();
@@ -0,0 +1,111 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.audit.cadf.test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.testng.annotations.Test;
+
+import com.ibm.fhir.audit.logging.impl.AuditEventBuffer;
+import com.ibm.fhir.audit.logging.impl.AuditEventBuffer.OverflowPolicy;
+
+public class AuditEventBufferTest {
+
+    @Test
+    public void testFlushOnStop() throws Exception {
+        List<String> sent = Collections.synchronizedList(new ArrayList<>());
+        List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch release = new CountDownLatch(1);
+        AuditEventBuffer buffer = new AuditEventBuffer(10, 3, OverflowPolicy.BLOCK, null, events -> {
+            release.await();
+            batchSizes.add(events.size());
+            sent.addAll(events);
+        });
+        buffer.start();
+        for (int i = 0; i < 7; i++) {
+            buffer.add("event" + i);
+        }
+        release.countDown();
+        buffer.stop(10000);
+
+        assertEquals(sent.size(), 7);
+        assertEquals(sent.get(0), "event0");
+        assertEquals(sent.get(6), "event6");
+        for (int batchSize : batchSizes) {
+            assertTrue(batchSize <= 3);
+        }
+        assertEquals(buffer.getQueueDepth(), 0);
+    }
+
+    @Test
+    public void testDropWhenFull() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AuditEventBuffer buffer = new AuditEventBuffer(2, 1, OverflowPolicy.DROP, null, events -> release.await());
+        buffer.start();
+        // the first event may already be held by the drainer, so at most 3 fit
+        for (int i = 0; i < 5; i++) {
+            buffer.add("event" + i);
+        }
+        assertTrue(buffer.getDroppedCount() >= 2);
+        release.countDown();
+        buffer.stop(10000);
+    }
+
+    @Test
+    public void testSpillWhenFull() throws Exception {
+        Path spillFile = Files.createTempFile("fhir-audit-spill", ".log");
+        try {
+            CountDownLatch release = new CountDownLatch(1);
+            AuditEventBuffer buffer = new AuditEventBuffer(2, 1, OverflowPolicy.SPILL, spillFile, events -> release.await());
+            buffer.start();
+            for (int i = 0; i < 5; i++) {
+                buffer.add("event" + i);
+            }
+            release.countDown();
+            buffer.stop(10000);
+
+            List<String> spilled = Files.readAllLines(spillFile, StandardCharsets.UTF_8);
+            assertEquals(spilled.size(), buffer.getSpilledCount());
+            assertTrue(spilled.size() >= 2);
+        } finally {
+            Files.deleteIfExists(spillFile);
+        }
+    }
+
+    @Test
+    public void testSpillWhenSendFails() throws Exception {
+        Path spillFile = Files.createTempFile("fhir-audit-spill", ".log");
+        try {
+            AuditEventBuffer buffer = new AuditEventBuffer(10, 10, OverflowPolicy.BLOCK, spillFile, events -> {
+                throw new IllegalStateException("kafka is down");
+            });
+            buffer.start();
+            buffer.add("event0");
+            buffer.add("event1");
+            buffer.stop(10000);
+
+            assertEquals(Files.readAllLines(spillFile, StandardCharsets.UTF_8), Arrays.asList("event0", "event1"));
+        } finally {
+            Files.deleteIfExists(spillFile);
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testInvalidOverflowPolicy() {
+        OverflowPolicy.from("ignore");
+    }
+}
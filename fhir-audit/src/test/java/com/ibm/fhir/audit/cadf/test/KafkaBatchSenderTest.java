@@ -0,0 +1,111 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.audit.cadf.test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.fail;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Future;
+
+import org.apache.kafka.clients.producer.Callback;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.errors.TimeoutException;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.testng.annotations.Test;
+
+import com.ibm.fhir.audit.logging.impl.AuditEventBuffer;
+import com.ibm.fhir.audit.logging.impl.AuditEventBuffer.BatchSendException;
+import com.ibm.fhir.audit.logging.impl.AuditEventBuffer.OverflowPolicy;
+import com.ibm.fhir.audit.logging.impl.KafkaBatchSender;
+
+public class KafkaBatchSenderTest {
+    private static final String TOPIC = "audit";
+
+    /**
+     * A producer which only completes its sends when it is flushed, failing those of the given events,
+     * like a kafka producer which reports the failures through the futures of the records and not by throwing.
+     */
+    private static class FailingProducer extends MockProducer<String, String> {
+        private final List<String> failingEvents;
+        private final List<String> pendingEvents = new ArrayList<>();
+
+        private FailingProducer(String... failingEvents) {
+            super(false, new StringSerializer(), new StringSerializer());
+            this.failingEvents = Arrays.asList(failingEvents);
+        }
+
+        @Override
+        public synchronized Future<RecordMetadata> send(ProducerRecord<String, String> record, Callback callback) {
+            pendingEvents.add(record.value());
+            return super.send(record, callback);
+        }
+
+        @Override
+        public synchronized void flush() {
+            for (String event : pendingEvents) {
+                if (failingEvents.contains(event)) {
+                    errorNext(new TimeoutException("Expiring record for " + event));
+                } else {
+                    completeNext();
+                }
+            }
+            pendingEvents.clear();
+        }
+    }
+
+    @Test
+    public void testSend() throws Exception {
+        MockProducer<String, String> producer = new MockProducer<>(true, new StringSerializer(), new StringSerializer());
+        new KafkaBatchSender(producer, TOPIC).send(Arrays.asList("event0", "event1"));
+
+        assertEquals(producer.history().size(), 2);
+        assertEquals(producer.history().get(0).topic(), TOPIC);
+        assertEquals(producer.history().get(1).value(), "event1");
+    }
+
+    @Test
+    public void testAsyncFailure() throws Exception {
+        KafkaBatchSender sender = new KafkaBatchSender(new FailingProducer("event1"), TOPIC);
+        try {
+            sender.send(Arrays.asList("event0", "event1", "event2"));
+            fail();
+        } catch (BatchSendException e) {
+            assertEquals(e.getFailedEvents(), Collections.singletonList("event1"));
+        }
+        // the failures of a previous batch don't affect the next one
+        sender.send(Arrays.asList("event3"));
+    }
+
+    @Test
+    public void testSpillFailedEvents() throws Exception {
+        Path spillFile = Files.createTempFile("fhir-audit-spill", ".log");
+        try {
+            AuditEventBuffer buffer = new AuditEventBuffer(10, 10, OverflowPolicy.BLOCK, spillFile,
+                    new KafkaBatchSender(new FailingProducer("event1", "event2"), TOPIC));
+            buffer.start();
+            for (int i = 0; i < 4; i++) {
+                buffer.add("event" + i);
+            }
+            buffer.stop(10000);
+
+            // only the events which failed are spilled, whichever batches they were sent in
+            assertEquals(Files.readAllLines(spillFile, StandardCharsets.UTF_8), Arrays.asList("event1", "event2"));
+            assertEquals(buffer.getSpilledCount(), 2);
+        } finally {
+            Files.deleteIfExists(spillFile);
+        }
+    }
+}
@@ -1,5 +1,5 @@
 /*
- * (C) Copyright IBM Corp. 2019
+ * (C) Copyright IBM Corp. 2019, 2020
  *
  * SPDX-License-Identifier: Apache-2.0
  */
@@ -29,7 +29,12 @@ public class FHIRParserBenchmark {
     @State(Scope.Thread)
     public static class FHIRParsers {
         FHIRParser jsonParser = FHIRParser.parser(Format.JSON);
+        FHIRParser jsonStreamParser = FHIRParser.parser(Format.JSON);
         FHIRParser xmlParser = FHIRParser.parser(Format.XML);
+
+        public FHIRParsers() {
+            jsonStreamParser.setProperty(FHIRParser.PROPERTY_JSON_STREAMING, true);
+        }
     }
     
     @State(Scope.Benchmark)
@@ -61,6 +66,11 @@ public class FHIRParserBenchmark {
         return parsers.jsonParser.parse(new StringReader(state.JSON_SPEC_EXAMPLE));
     }
     
+    @Benchmark
+    public Resource benchmarkJsonStreamParser(FHIRParsers parsers, FHIRParserState state) throws Exception {
+        return parsers.jsonStreamParser.parse(new StringReader(state.JSON_SPEC_EXAMPLE));
+    }
+    
     @Benchmark
     public Resource benchmarkXMLParser(FHIRParsers parsers, FHIRParserState state) throws Exception {
         return parsers.xmlParser.parse(new StringReader(state.XML_SPEC_EXAMPLE));
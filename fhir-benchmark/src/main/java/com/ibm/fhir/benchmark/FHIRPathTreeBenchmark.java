@@ -0,0 +1,114 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.benchmark;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+import org.openjdk.jmh.runner.options.VerboseMode;
+
+import com.ibm.fhir.benchmark.util.BenchmarkUtil;
+import com.ibm.fhir.model.format.Format;
+import com.ibm.fhir.model.parser.FHIRParser;
+import com.ibm.fhir.model.resource.Resource;
+import com.ibm.fhir.path.FHIRPathTree;
+import com.ibm.fhir.path.evaluator.FHIRPathEvaluator;
+import com.ibm.fhir.path.evaluator.FHIRPathEvaluator.CompiledExpression;
+import com.ibm.fhir.path.evaluator.FHIRPathEvaluator.EvaluationContext;
+
+/**
+ * Compares the latency and allocation rate of eager and lazy FHIRPath trees, both for building the tree alone and
+ * for building it and evaluating the kind of expressions used by search parameter extraction.
+ */
+public class FHIRPathTreeBenchmark {
+    private static final String[] EXPRESSIONS = {
+        "Resource.id",
+        "Resource.meta.lastUpdated",
+        "Resource.meta.profile",
+        "Resource.meta.security",
+        "Resource.meta.tag",
+        "ExplanationOfBenefit.patient",
+        "ExplanationOfBenefit.created",
+        "ExplanationOfBenefit.status",
+        "Bundle.identifier",
+        "Bundle.timestamp",
+        "Bundle.type"
+    };
+
+    @State(Scope.Benchmark)
+    public static class FHIRPathTreeState {
+        @Param({ "explanationofbenefit-example", "bundle-transaction", "document-example-dischargesummary" })
+        public String exampleName;
+
+        public Resource resource;
+        public List<CompiledExpression> compiledExpressions;
+
+        @Setup
+        public void setUp() throws Exception {
+            resource = FHIRParser.parser(Format.JSON).parse(new StringReader(BenchmarkUtil.getSpecExample(Format.JSON, exampleName)));
+            compiledExpressions = new ArrayList<>();
+            for (String expression : EXPRESSIONS) {
+                compiledExpressions.add(FHIRPathEvaluator.compile(expression));
+            }
+        }
+    }
+
+    @Benchmark
+    public FHIRPathTree benchmarkEagerTree(FHIRPathTreeState state) {
+        return FHIRPathTree.tree(state.resource);
+    }
+
+    @Benchmark
+    public FHIRPathTree benchmarkLazyTree(FHIRPathTreeState state) {
+        return FHIRPathTree.lazyTree(state.resource);
+    }
+
+    @Benchmark
+    public void benchmarkEagerTreeExpressions(FHIRPathTreeState state, Blackhole bh) throws Exception {
+        evaluate(FHIRPathTree.tree(state.resource), state, bh);
+    }
+
+    @Benchmark
+    public void benchmarkLazyTreeExpressions(FHIRPathTreeState state, Blackhole bh) throws Exception {
+        evaluate(FHIRPathTree.lazyTree(state.resource), state, bh);
+    }
+
+    private static void evaluate(FHIRPathTree tree, FHIRPathTreeState state, Blackhole bh) throws Exception {
+        for (CompiledExpression compiledExpression : state.compiledExpressions) {
+            bh.consume(compiledExpression.evaluate(new EvaluationContext(tree)));
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options opt = new OptionsBuilder()
+                .include(".*" + FHIRPathTreeBenchmark.class.getSimpleName() + ".*")
+                .jvmArgsPrepend("-Xms2g", "-Xmx2g")
+                .verbosity(VerboseMode.NORMAL)
+                .warmupIterations(1)
+                .warmupTime(TimeValue.seconds(10))
+                .measurementIterations(2)
+                .measurementTime(TimeValue.seconds(10))
+                .forks(1)
+                .mode(Mode.AverageTime)
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(opt).run();
+    }
+}
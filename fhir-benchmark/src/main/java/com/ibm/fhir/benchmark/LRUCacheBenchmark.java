@@ -0,0 +1,91 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.benchmark;
+
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import com.ibm.fhir.core.util.ConcurrentLRUCache;
+import com.ibm.fhir.core.util.LRUCache;
+
+/**
+ * Compares the synchronized {@link LRUCache} with {@link ConcurrentLRUCache} under an increasing number of threads.
+ * Keys are drawn from a range that is twice the size of the cache, so both hits and evictions are exercised.
+ */
+public class LRUCacheBenchmark {
+    private static final int MAX_ENTRIES = 512;
+    private static final int KEY_RANGE = 2 * MAX_ENTRIES;
+
+    @State(Scope.Benchmark)
+    public static class LRUCacheState {
+        @Param({"LRUCache", "ConcurrentLRUCache"})
+        public String cacheType;
+
+        public Map<Integer, Integer> cache;
+
+        @Setup
+        public void setUp() {
+            cache = "LRUCache".equals(cacheType) ? LRUCache.createLRUCache(MAX_ENTRIES) : ConcurrentLRUCache.createCache(MAX_ENTRIES);
+            for (int i = 0; i < MAX_ENTRIES; i++) {
+                cache.put(i, i);
+            }
+        }
+    }
+
+    private static Integer computeIfAbsent(LRUCacheState state) {
+        // skew the key distribution so that most lookups are hits
+        int key = ThreadLocalRandom.current().nextInt(8) == 0 ? ThreadLocalRandom.current().nextInt(KEY_RANGE) : ThreadLocalRandom.current().nextInt(MAX_ENTRIES / 4);
+        return state.cache.computeIfAbsent(key, k -> k);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Integer benchmark1Thread(LRUCacheState state) {
+        return computeIfAbsent(state);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Integer benchmark4Threads(LRUCacheState state) {
+        return computeIfAbsent(state);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public Integer benchmark16Threads(LRUCacheState state) {
+        return computeIfAbsent(state);
+    }
+
+    @Benchmark
+    @Threads(32)
+    public Integer benchmark32Threads(LRUCacheState state) {
+        return computeIfAbsent(state);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options opt = new OptionsBuilder()
+                .include(".*" + LRUCacheBenchmark.class.getSimpleName() + ".*")
+                .warmupIterations(1)
+                .warmupTime(TimeValue.seconds(5))
+                .measurementIterations(2)
+                .measurementTime(TimeValue.seconds(5))
+                .forks(1)
+                .build();
+        new Runner(opt).run();
+    }
+}
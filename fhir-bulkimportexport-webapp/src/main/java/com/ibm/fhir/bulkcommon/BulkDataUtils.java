@@ -6,15 +6,15 @@
 
 package com.ibm.fhir.bulkcommon;
 
-import java.io.BufferedReader;
+import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.io.StringReader;
 import java.net.URL;
 import java.net.URLDecoder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -55,9 +55,6 @@ import com.ibm.cloud.objectstorage.services.s3.model.UploadPartRequest;
 import com.ibm.cloud.objectstorage.services.s3.model.UploadPartResult;
 import com.ibm.fhir.bulkimport.ImportTransientUserData;
 import com.ibm.fhir.exception.FHIROperationException;
-import com.ibm.fhir.model.format.Format;
-import com.ibm.fhir.model.parser.FHIRParser;
-import com.ibm.fhir.model.parser.exception.FHIRParserException;
 import com.ibm.fhir.model.resource.OperationOutcome;
 import com.ibm.fhir.model.resource.Resource;
 import com.ibm.fhir.model.util.FHIRUtil;
@@ -161,18 +158,15 @@ public class BulkDataUtils {
     }
 
     /**
-     * @param resReader - the buffer reader to read FHIR resource from.
+     * @param resReader - the line reader to read FHIR resource from.
      * @param numOfProcessedLines - number of the already processed lines.
-     * @param fhirResources - List holds the FHIR resources.
+     * @param fhirResourceLines - List holds the lines of the FHIR resources, which are parsed by the ChunkWriter.
      * @param isSkipProcessed - if need to skip the processed lines before read.
-     * @return - the number of parsing failures.
      * @throws Exception
      */
-    private static int getFhirResourceFromBufferReader(BufferedReader resReader, int numOfProcessedLines, List<Resource> fhirResources,
-            boolean isSkipProcessed, String dataSource) throws Exception {
-        int exported = 0;
+    private static void getFhirResourceLinesFromLineReader(NdjsonLineReader resReader, int numOfProcessedLines, List<String> fhirResourceLines,
+            boolean isSkipProcessed) throws Exception {
         int lineRed = 0;
-        int parseFailures = 0;
 
         String resLine = null;
         do {
@@ -182,27 +176,19 @@ public class BulkDataUtils {
                 if (isSkipProcessed && lineRed <= numOfProcessedLines) {
                     continue;
                 }
-                try {
-                    fhirResources.add(FHIRParser.parser(Format.JSON).parse(new StringReader(resLine)));
-                    exported++;
-                    if (exported == Constants.IMPORT_NUMOFFHIRRESOURCES_PERREAD) {
-                        break;
-                    }
-                } catch (FHIRParserException e) {
-                    // Log and skip the invalid FHIR resource.
-                    parseFailures++;
-                    logger.log(Level.INFO, "getFhirResourceFromBufferReader: " + "Failed to parse line "
-                            + (numOfProcessedLines + exported + parseFailures) + " of [" + dataSource + "].", e);
-                    continue;
+                fhirResourceLines.add(resLine);
+                if (fhirResourceLines.size() == Constants.IMPORT_NUMOFFHIRRESOURCES_PERREAD) {
+                    break;
                 }
             }
         } while (resLine != null);
-        return parseFailures;
     }
 
     public static void cleanupTransientUserData(ImportTransientUserData transientUserData, boolean isAbort) throws Exception {
         if (transientUserData.getInputStream() != null) {
-            if (isAbort && transientUserData.getInputStream() instanceof S3ObjectInputStream) {
+            // A range of an object is read from an open-ended ranged GET, so the rest of the object is never read either.
+            if ((isAbort || transientUserData.getImportPartitionRangeIndex() >= 0)
+                    && transientUserData.getInputStream() instanceof S3ObjectInputStream) {
                 // For S3 input stream, if the read is not finished successfully, we have to abort it first.
                 ((S3ObjectInputStream)transientUserData.getInputStream()).abort();
             }
@@ -210,9 +196,9 @@ public class BulkDataUtils {
             transientUserData.setInputStream(null);
         }
 
-        if (transientUserData.getBufferReader() != null) {
-            transientUserData.getBufferReader().close();
-            transientUserData.setBufferReader(null);
+        if (transientUserData.getLineReader() != null) {
+            transientUserData.getLineReader().close();
+            transientUserData.setLineReader(null);
         }
     }
 
@@ -220,33 +206,42 @@ public class BulkDataUtils {
      * @param cosClient - COS/S3 client.
      * @param bucketName - COS/S3 bucket name to read from.
      * @param itemName - COS/S3 object name to read from.
-     * @param numOfLinesToSkip - number of lines to skip before read.
-     * @param fhirResources - List holds the FHIR resources.
-     * @param transientUserData - transient user data for the chunk.
-     * @return - number of parsing failures.
+     * @param numOfLinesToSkip - number of lines to skip before read, only used by checkpoints without the offset of the next line.
+     * @param fhirResourceLines - List holds the lines of the FHIR resources.
+     * @param transientUserData - transient user data for the chunk, holds the offset of the next line to read.
+     * @param rangeEnd - the end of the byte range to read the lines from, or -1 to read the whole object.
      * @throws Exception
      */
-    public static int readFhirResourceFromObjectStore(AmazonS3 cosClient, String bucketName, String itemName,
-           int numOfLinesToSkip, List<Resource> fhirResources, ImportTransientUserData transientUserData) throws Exception {
-        int parseFailures = 0;
+    public static void readFhirResourceFromObjectStore(AmazonS3 cosClient, String bucketName, String itemName,
+           int numOfLinesToSkip, List<String> fhirResourceLines, ImportTransientUserData transientUserData, long rangeEnd) throws Exception {
         int retryTimes = Constants.IMPORT_RETRY_TIMES;
         do {
             try {
-                if (transientUserData.getBufferReader() == null) {
-                    S3Object item = cosClient.getObject(new GetObjectRequest(bucketName, itemName));
+                if (transientUserData.getLineReader() == null) {
+                    long offset = transientUserData.getNextLineOffset();
+                    GetObjectRequest request = new GetObjectRequest(bucketName, itemName);
+                    if (offset > 0) {
+                        // Start one byte early to tell whether the offset is at the start of a line.
+                        request.setRange(offset - 1);
+                    }
+                    S3Object item = cosClient.getObject(request);
                     S3ObjectInputStream s3InStream = item.getObjectContent();
                     transientUserData.setInputStream(s3InStream);
-                    BufferedReader resReader = new BufferedReader(new InputStreamReader(s3InStream));
-                    transientUserData.setBufferReader(resReader);
+                    transientUserData.setLineReader(new NdjsonLineReader(new NdjsonRangeInputStream(
+                            new BufferedInputStream(s3InStream), offset, rangeEnd < 0 ? Long.MAX_VALUE : rangeEnd)));
                     // Skip the already processed lines after opening the input stream for first read.
-                    parseFailures = getFhirResourceFromBufferReader(transientUserData.getBufferReader(), numOfLinesToSkip, fhirResources, true, itemName);
+                    getFhirResourceLinesFromLineReader(transientUserData.getLineReader(), offset == 0 ? numOfLinesToSkip : 0,
+                            fhirResourceLines, true);
                 } else {
-                    parseFailures = getFhirResourceFromBufferReader(transientUserData.getBufferReader(), numOfLinesToSkip, fhirResources, false, itemName);
+                    getFhirResourceLinesFromLineReader(transientUserData.getLineReader(), numOfLinesToSkip, fhirResourceLines, false);
                 }
+                transientUserData.setNextLineOffset(transientUserData.getLineReader().getLineStartPosition());
                 break;
             } catch (Exception ex) {
-                // Prepare for retry, skip all the processed lines in previous batches and this batch.
-                numOfLinesToSkip = numOfLinesToSkip + fhirResources.size() + parseFailures;
+                // Prepare for retry, continue from the line after the last whole line read, even if the stream failed in the middle of a line.
+                if (transientUserData.getLineReader() != null) {
+                    transientUserData.setNextLineOffset(transientUserData.getLineReader().getLineStartPosition());
+                }
                 cleanupTransientUserData(transientUserData, true);
                 logger.warning("readFhirResourceFromObjectStore: Error proccesing file [" + itemName + "] - " + ex.getMessage());
                 if ((retryTimes--) > 0) {
@@ -257,8 +252,6 @@ public class BulkDataUtils {
                 }
             }
         } while (retryTimes > 0);
-
-        return parseFailures;
     }
 
 
@@ -269,35 +262,36 @@ public class BulkDataUtils {
 
     /**
      * @param filePath - file path to the ndjson file.
-     * @param numOfLinesToSkip - number of lines to skip before read.
-     * @param fhirResources - List holds the FHIR resources.
-     * @param transientUserData - transient user data for the chunk.
-     * @return - number of parsing failures.
+     * @param numOfLinesToSkip - number of lines to skip before read, only used by checkpoints without the offset of the next line.
+     * @param fhirResourceLines - List holds the lines of the FHIR resources.
+     * @param transientUserData - transient user data for the chunk, holds the offset of the next line to read.
+     * @param rangeEnd - the end of the byte range to read the lines from, or -1 to read the whole file.
      * @throws Exception
      */
-    public static int readFhirResourceFromLocalFile(String filePath, int numOfLinesToSkip, List<Resource> fhirResources,
-            ImportTransientUserData transientUserData) throws Exception {
-        int parseFailures = 0;
-
+    public static void readFhirResourceFromLocalFile(String filePath, int numOfLinesToSkip, List<String> fhirResourceLines,
+            ImportTransientUserData transientUserData, long rangeEnd) throws Exception {
         try {
-            if (transientUserData.getBufferReader() == null) {
-                BufferedReader resReader = Files.newBufferedReader(Paths.get(filePath));
-                transientUserData.setBufferReader(resReader);
+            if (transientUserData.getLineReader() == null) {
+                long offset = transientUserData.getNextLineOffset();
+                // Start one byte early to tell whether the offset is at the start of a line.
+                FileChannel fileChannel = FileChannel.open(Paths.get(filePath)).position(Math.max(offset - 1, 0));
+                transientUserData.setLineReader(new NdjsonLineReader(new NdjsonRangeInputStream(
+                        new BufferedInputStream(Channels.newInputStream(fileChannel)), offset, rangeEnd < 0 ? Long.MAX_VALUE : rangeEnd)));
                 // Skip the already processed lines after opening the input stream for first read.
-                parseFailures = getFhirResourceFromBufferReader(transientUserData.getBufferReader(), numOfLinesToSkip, fhirResources, true, filePath);
+                getFhirResourceLinesFromLineReader(transientUserData.getLineReader(), offset == 0 ? numOfLinesToSkip : 0,
+                        fhirResourceLines, true);
             } else {
-                parseFailures = getFhirResourceFromBufferReader(transientUserData.getBufferReader(), numOfLinesToSkip, fhirResources, false, filePath);
+                getFhirResourceLinesFromLineReader(transientUserData.getLineReader(), numOfLinesToSkip, fhirResourceLines, false);
             }
+            transientUserData.setNextLineOffset(transientUserData.getLineReader().getLineStartPosition());
         } catch (Exception ex) {
             // Clean up.
-            fhirResources.clear();
+            fhirResourceLines.clear();
             cleanupTransientUserData(transientUserData, true);
             // Log the error and throw exception to fail the job, the job can be continued from the current checkpoint after the problem is solved.
             logger.warning("readFhirResourceFromLocalFile: Error proccesing file [" + filePath + "] - " + ex.getMessage());
             throw ex;
         }
-
-        return parseFailures;
     }
 
 
@@ -309,31 +303,28 @@ public class BulkDataUtils {
     /**
      * @param dataUrl - URL to the ndjson file.
      * @param numOfLinesToSkip - number of lines to skip before read.
-     * @param fhirResources - List holds the FHIR resources.
+     * @param fhirResourceLines - List holds the lines of the FHIR resources.
      * @param transientUserData - transient user data for the chunk.
-     * @return - number of parsing failures.
      * @throws Exception
      */
-    public static int readFhirResourceFromHttps(String dataUrl, int numOfLinesToSkip, List<Resource> fhirResources,
+    public static void readFhirResourceFromHttps(String dataUrl, int numOfLinesToSkip, List<String> fhirResourceLines,
             ImportTransientUserData transientUserData) throws Exception {
-        int parseFailures = 0;
         int retryTimes = Constants.IMPORT_RETRY_TIMES;
         do {
             try {
-                if (transientUserData.getBufferReader() == null) {
+                if (transientUserData.getLineReader() == null) {
                     InputStream inputStream = new URL(dataUrl).openConnection().getInputStream();
                     transientUserData.setInputStream(inputStream);
-                    BufferedReader resReader = new BufferedReader(new InputStreamReader(inputStream));
-                    transientUserData.setBufferReader(resReader);
+                    transientUserData.setLineReader(new NdjsonLineReader(inputStream, 0));
                     // Skip the already processed lines after opening the input stream for first read.
-                    parseFailures = getFhirResourceFromBufferReader(transientUserData.getBufferReader(), numOfLinesToSkip, fhirResources, true, dataUrl);
+                    getFhirResourceLinesFromLineReader(transientUserData.getLineReader(), numOfLinesToSkip, fhirResourceLines, true);
                 } else {
-                    parseFailures = getFhirResourceFromBufferReader(transientUserData.getBufferReader(), numOfLinesToSkip, fhirResources, false, dataUrl);
+                    getFhirResourceLinesFromLineReader(transientUserData.getLineReader(), numOfLinesToSkip, fhirResourceLines, false);
                 }
                 break;
             } catch (Exception ex) {
                 // Prepare for retry, skip all the processed lines in previous batches and this batch.
-                numOfLinesToSkip = numOfLinesToSkip + fhirResources.size() + parseFailures;
+                numOfLinesToSkip = numOfLinesToSkip + fhirResourceLines.size();
                 cleanupTransientUserData(transientUserData, true);
                 logger.warning("readFhirResourceFromHttps: Error proccesing file [" + dataUrl + "] - " + ex.getMessage());
                 if ((retryTimes--) > 0) {
@@ -344,8 +335,6 @@ public class BulkDataUtils {
                 }
             }
         } while (retryTimes > 0);
-
-        return parseFailures;
     }
 
 
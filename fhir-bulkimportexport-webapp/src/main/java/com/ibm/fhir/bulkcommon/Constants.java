@@ -25,12 +25,21 @@ public class Constants {
     public static final byte[] NDJSON_LINESEPERATOR = "\r\n".getBytes();
 
     public static final int IMPORT_MAX_PARTITIONPROCESSING_THREADNUMBER = 10;
+    // Each partition of a system export uses its own DB connection.
+    public static final int EXPORT_MAX_PARTITIONPROCESSING_THREADNUMBER = 5;
     // The number of resources to commit to DB in each batch, the slower the DB connection, the smaller
     // this value should be set.
     public static final int IMPORT_NUMOFFHIRRESOURCES_PERREAD = 20;
     public static final String IMPORT_INPUT_RESOURCE_TYPE = "type";
     public static final String IMPORT_INPUT_RESOURCE_URL = "url";
     public static final int IMPORT_INFLY_RATE_NUMOFFHIRRESOURCES = 2000;
+    // Local files and COS/S3 objects bigger than this are imported in ranges of this size by separate partitions.
+    public static final long IMPORT_PARTITION_RANGE_SIZE = 104857600;
+    // The number of threads parsing and validating the resources to import of each partition, when the container's
+    // managed executor service is not available.
+    public static final int IMPORT_PARSE_VALIDATE_THREADNUMBER = Math.max(2, Runtime.getRuntime().availableProcessors());
+    // The maximum number of resources a partition has waiting to be parsed and validated ahead of the DB writes.
+    public static final int IMPORT_MAX_NUMOFFHIRRESOURCES_INPARSE = 64;
 
 
     // Job parameters
@@ -51,6 +60,13 @@ public class Constants {
     // Partition work item info generated in ImportPartitionMapper.
     public static final String IMPORT_PARTITTION_WORKITEM = "import.partiton.workitem";
     public static final String IMPORT_PARTITTION_RESOURCE_TYPE = "import.partiton.resourcetype";   
+    // The byte range of the work item imported by the partition, only set if the work item is split into ranges.
+    public static final String IMPORT_PARTITION_RANGE_INDEX = "import.partition.range.index";
+    public static final String IMPORT_PARTITION_RANGE_START = "import.partition.range.start";
+    public static final String IMPORT_PARTITION_RANGE_END = "import.partition.range.end";
+
+    // Partition work item info generated in ExportPartitionMapper.
+    public static final String EXPORT_PARTITION_RESOURCE_TYPE = "export.partition.resourcetype";
 
     // Control if push OperationOutcomes to COS/S3.
     public static final boolean IMPORT_IS_COLLECT_OPERATIONOUTCOMES = true;
@@ -0,0 +1,113 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.bulkcommon;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Reads the UTF-8 lines of an NDJSON file and keeps track of the position in the file of the next line,
+ * so that the import can be continued from that line without reading the lines before it again.
+ */
+public class NdjsonLineReader implements Closeable {
+    private static final int BUFFER_SIZE = 65536;
+
+    private final InputStream in;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int bufferPos = 0;
+    private int bufferLimit = 0;
+    private byte[] line = new byte[1024];
+
+    // The position in the file of the next line to read, which only moves forward when a whole line is returned,
+    // so that it can be used to continue the import after the stream failed in the middle of a line.
+    private long lineStartPosition;
+
+    /**
+     * @param in the file content, positioned at the start of a line
+     * @param position the position in the file of the first byte of the stream
+     */
+    public NdjsonLineReader(InputStream in, long position) {
+        this.in = in;
+        this.lineStartPosition = position;
+    }
+
+    /**
+     * @param in the lines of a range of the file
+     */
+    public NdjsonLineReader(NdjsonRangeInputStream in) {
+        this(in, in.getPosition());
+    }
+
+    /**
+     * Reads the next line, without the line terminator.
+     *
+     * @return the line, or null if there are no more lines
+     * @throws IOException
+     */
+    public String readLine() throws IOException {
+        int lineLength = 0;
+        // The number of bytes of the line read so far, including a carriage return.
+        long lineBytes = 0;
+        boolean isLineRead = false;
+        while (true) {
+            if (bufferPos == bufferLimit) {
+                bufferLimit = in.read(buffer, 0, buffer.length);
+                bufferPos = 0;
+                if (bufferLimit <= 0) {
+                    bufferLimit = 0;
+                    break;
+                }
+            }
+            isLineRead = true;
+            int start = bufferPos;
+            while (bufferPos < bufferLimit && buffer[bufferPos] != '\n') {
+                bufferPos++;
+            }
+            int length = bufferPos - start;
+            if (lineLength + length > line.length) {
+                line = Arrays.copyOf(line, Math.max(line.length * 2, lineLength + length));
+            }
+            System.arraycopy(buffer, start, line, lineLength, length);
+            lineLength += length;
+            lineBytes += length;
+            if (bufferPos < bufferLimit) {
+                // Consume the new line.
+                bufferPos++;
+                lineStartPosition += lineBytes + 1;
+                if (lineLength > 0 && line[lineLength - 1] == '\r') {
+                    lineLength--;
+                }
+                return new String(line, 0, lineLength, StandardCharsets.UTF_8);
+            }
+        }
+        // The last line of the file may not end with a new line.
+        if (!isLineRead) {
+            return null;
+        }
+        lineStartPosition += lineBytes;
+        if (lineLength > 0 && line[lineLength - 1] == '\r') {
+            lineLength--;
+        }
+        return new String(line, 0, lineLength, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return the position in the file of the next line to read, which is the end of the last line returned
+     *         even if a part of the next line was already read
+     */
+    public long getLineStartPosition() {
+        return lineStartPosition;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.bulkcommon;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads the lines of an NDJSON file which start within a byte range of the file, so that a big file
+ * can be split into ranges which are imported concurrently without knowing where its lines end.
+ * <p>
+ * A line belongs to the range which contains its first byte, so the line which is cut by the start of
+ * the range is skipped (it belongs to the previous range), and the line which is cut by the end of the
+ * range is read to its end.
+ * <p>
+ * The wrapped stream must be positioned at {@code rangeStart - 1}, or at 0 for the first range, so that
+ * a line which starts exactly at {@code rangeStart} can be told apart from a line which is cut by it.
+ */
+public class NdjsonRangeInputStream extends FilterInputStream {
+    private static final int EOF = -1;
+    private static final int BUFFER_SIZE = 65536;
+
+    private final long rangeEnd;
+    // The bytes read from the wrapped stream which haven't been returned yet.
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int bufferPos = 0;
+    private int bufferLimit = 0;
+    // The position in the file of the next byte to return, which is buffer[bufferPos].
+    private long position;
+    private boolean isAtLineStart = true;
+    private boolean isEnd = false;
+
+    /**
+     * @param in the file content, positioned at rangeStart - 1 if rangeStart is greater than 0
+     * @param rangeStart the position in the file of the first byte of the range
+     * @param rangeEnd the position in the file after the last byte of the range
+     * @throws IOException
+     */
+    public NdjsonRangeInputStream(InputStream in, long rangeStart, long rangeEnd) throws IOException {
+        super(in);
+        this.rangeEnd = rangeEnd;
+        if (rangeStart > 0) {
+            // Skip the rest of the line which ends at or after rangeStart - 1.
+            position = rangeStart - 1;
+            while (true) {
+                if (!fill()) {
+                    isEnd = true;
+                    break;
+                }
+                int newLine = indexOfNewLine(bufferPos);
+                if (newLine >= 0) {
+                    position += newLine + 1 - bufferPos;
+                    bufferPos = newLine + 1;
+                    break;
+                }
+                position += bufferLimit - bufferPos;
+                bufferPos = bufferLimit;
+            }
+        }
+    }
+
+    /**
+     * Reads more bytes from the wrapped stream if all the buffered bytes were returned.
+     *
+     * @return false if there are no more bytes
+     */
+    private boolean fill() throws IOException {
+        while (bufferPos == bufferLimit) {
+            int count = in.read(buffer, 0, buffer.length);
+            if (count == EOF) {
+                return false;
+            }
+            bufferPos = 0;
+            bufferLimit = count;
+        }
+        return true;
+    }
+
+    /**
+     * @return the index of the first new line in the buffer at or after from, or -1
+     */
+    private int indexOfNewLine(int from) {
+        for (int i = from; i < bufferLimit; i++) {
+            if (buffer[i] == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (isEnd || (isAtLineStart && position >= rangeEnd) || !fill()) {
+            isEnd = true;
+            return EOF;
+        }
+        int b = buffer[bufferPos++] & 0xff;
+        position++;
+        isAtLineStart = b == '\n';
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (isEnd || (isAtLineStart && position >= rangeEnd) || !fill()) {
+            isEnd = true;
+            return EOF;
+        }
+        int count = Math.min(len, bufferLimit - bufferPos);
+        // The last line of the range ends with the first new line at or after rangeEnd - 1.
+        long lastLineEndFrom = rangeEnd - 1 - position;
+        if (lastLineEndFrom < count) {
+            int newLine = indexOfNewLine(bufferPos + (int) Math.max(lastLineEndFrom, 0));
+            if (newLine >= 0 && newLine < bufferPos + count) {
+                count = newLine + 1 - bufferPos;
+            }
+        }
+        System.arraycopy(buffer, bufferPos, b, off, count);
+        bufferPos += count;
+        position += count;
+        isAtLineStart = b[off + count - 1] == '\n';
+        return count;
+    }
+
+    /**
+     * @return the position in the file of the next byte to read
+     */
+    public long getPosition() {
+        return position;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = 0;
+        while (skipped < n && read() != EOF) {
+            skipped++;
+        }
+        return skipped;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return 0;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public synchronized void mark(int readlimit) {
+        // Not supported
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+        throw new IOException("mark/reset not supported");
+    }
+}
@@ -10,7 +10,7 @@ import java.util.logging.Logger;
 
 import javax.batch.api.BatchProperty;
 import javax.batch.api.chunk.CheckpointAlgorithm;
-import javax.batch.runtime.context.JobContext;
+import javax.batch.runtime.context.StepContext;
 import javax.inject.Inject;
 
 import com.ibm.fhir.bulkcommon.Constants;
@@ -23,7 +23,7 @@ import com.ibm.fhir.bulkcommon.Constants;
 public class CheckPointAlgorithm implements CheckpointAlgorithm {
     private final static Logger logger = Logger.getLogger(CheckPointAlgorithm.class.getName());
     @Inject
-    JobContext jobContext;
+    StepContext stepCtx;
 
     /**
      * The cos.pagesperobject.
@@ -75,7 +75,7 @@ public class CheckPointAlgorithm implements CheckpointAlgorithm {
      */
     @Override
     public boolean isReadyToCheckpoint() {
-        TransientUserData chunkData = (TransientUserData) jobContext.getTransientUserData();
+        TransientUserData chunkData = (TransientUserData) stepCtx.getTransientUserData();
 
         if (chunkData != null) {
             if (chunkData.isSingleCosObject()) {
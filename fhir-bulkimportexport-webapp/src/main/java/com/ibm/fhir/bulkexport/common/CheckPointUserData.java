@@ -26,6 +26,8 @@ public class CheckPointUserData implements java.io.Serializable {
     private int currentPartResourceNum = 0;
     // One resource type can have 0 to multiple typeFilters, indexOfCurrentTypeFilter is used to tell the currently processed typeFilter.
     private int indexOfCurrentTypeFilter;
+    // The continuation token for the next page of the current search, if the persistence layer issued one.
+    private String continuationToken;
 
     public CheckPointUserData(int pageNum, String uploadId, List<PartETag> cosDataPacks, int partNum, int indexOfCurrentResourceType, int indexOfCurrentTypeFilter) {
         super();
@@ -38,8 +40,10 @@ public class CheckPointUserData implements java.io.Serializable {
     }
 
     public static CheckPointUserData fromTransientUserData(TransientUserData userData) {
-        return new CheckPointUserData(userData.getPageNum(), userData.getUploadId(), userData.getCosDataPacks(),
+        CheckPointUserData checkPointData = new CheckPointUserData(userData.getPageNum(), userData.getUploadId(), userData.getCosDataPacks(),
                 userData.getPartNum(), userData.getIndexOfCurrentResourceType(), userData.getIndexOfCurrentTypeFilter());
+        checkPointData.setContinuationToken(userData.getContinuationToken());
+        return checkPointData;
     }
 
     public int getPageNum() {
@@ -114,4 +118,12 @@ public class CheckPointUserData implements java.io.Serializable {
         this.indexOfCurrentTypeFilter = indexOfCurrentTypeFilter;
     }
 
+    public String getContinuationToken() {
+        return continuationToken;
+    }
+
+    public void setContinuationToken(String continuationToken) {
+        this.continuationToken = continuationToken;
+    }
+
 }
@@ -0,0 +1,54 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.bulkexport.common;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Set;
+
+import com.ibm.fhir.bulkcommon.Constants;
+import com.ibm.fhir.persistence.RawResourceConsumer;
+
+/**
+ * Bulk export Chunk implementation - copies the JSON of each resource found by a raw search
+ * to the buffer as an NDJSON line, without parsing and generating it again.
+ *
+ */
+public class NdjsonResourceBuffer implements RawResourceConsumer {
+    private final ByteArrayOutputStream bufferStream;
+    // The ids of the resources already exported, or null if no duplication check is needed.
+    private final Set<String> loadedResourceIds;
+    private final byte[] copyBuffer = new byte[8192];
+    private int resourceNum = 0;
+
+    public NdjsonResourceBuffer(ByteArrayOutputStream bufferStream, Set<String> loadedResourceIds) {
+        this.bufferStream = bufferStream;
+        this.loadedResourceIds = loadedResourceIds;
+    }
+
+    @Override
+    public void accept(String logicalId, InputStream json) throws IOException {
+        if (loadedResourceIds != null && !loadedResourceIds.add(logicalId)) {
+            return;
+        }
+
+        int len;
+        while ((len = json.read(copyBuffer)) != -1) {
+            bufferStream.write(copyBuffer, 0, len);
+        }
+        bufferStream.write(Constants.NDJSON_LINESEPERATOR);
+        resourceNum++;
+    }
+
+    /**
+     * @return the number of resources written to the buffer
+     */
+    public int getResourceNum() {
+        return resourceNum;
+    }
+}
@@ -24,8 +24,10 @@ public class TransientUserData extends CheckPointUserData {
     }
 
     public static TransientUserData fromCheckPointUserData(CheckPointUserData checkPointData) {
-        return new TransientUserData(checkPointData.getPageNum(), checkPointData.getUploadId(),
+        TransientUserData userData = new TransientUserData(checkPointData.getPageNum(), checkPointData.getUploadId(),
                 checkPointData.getCosDataPacks(), checkPointData.getPartNum(), checkPointData.getIndexOfCurrentResourceType(), checkPointData.getIndexOfCurrentTypeFilter());
+        userData.setContinuationToken(checkPointData.getContinuationToken());
+        return userData;
     }
 
     public ByteArrayOutputStream getBufferStream() {
@@ -16,7 +16,7 @@ import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
 import javax.batch.api.BatchProperty;
-import javax.batch.runtime.context.JobContext;
+import javax.batch.runtime.context.StepContext;
 import javax.inject.Inject;
 
 import com.ibm.cloud.objectstorage.services.s3.model.PartETag;
@@ -46,7 +46,7 @@ public class ChunkReader extends com.ibm.fhir.bulkexport.patient.ChunkReader {
     String fhirSearchPatientGroupId;
 
     @Inject
-    JobContext jobContext;
+    StepContext stepCtx;
 
     public ChunkReader() {
         super();
@@ -98,7 +98,7 @@ public class ChunkReader extends com.ibm.fhir.bulkexport.patient.ChunkReader {
             throw new Exception("readItem: missing group id for this group export job!");
         }
 
-        TransientUserData chunkData = (TransientUserData) jobContext.getTransientUserData();
+        TransientUserData chunkData = (TransientUserData) stepCtx.getTransientUserData();
         if (chunkData != null && pageNum > chunkData.getLastPageNum()) {
             if (resourceTypes.size() == indexOfCurrentResourceType + 1) {
                 // No more resource type and page to read, so return null to end the reading.
@@ -124,7 +124,7 @@ public class ChunkReader extends com.ibm.fhir.bulkexport.patient.ChunkReader {
 
         if (chunkData == null) {
             chunkData = new TransientUserData(pageNum, null, new ArrayList<PartETag>(), 1, 0, 0);
-            jobContext.setTransientUserData(chunkData);
+            stepCtx.setTransientUserData(chunkData);
         } else {
             chunkData.setIndexOfCurrentResourceType(indexOfCurrentResourceType);
             chunkData.setPageNum(pageNum);
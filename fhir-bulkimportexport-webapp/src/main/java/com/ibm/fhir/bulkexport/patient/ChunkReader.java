@@ -10,6 +10,7 @@ import java.io.IOException;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -21,13 +22,14 @@ import java.util.stream.Collectors;
 
 import javax.batch.api.BatchProperty;
 import javax.batch.api.chunk.AbstractItemReader;
-import javax.batch.runtime.context.JobContext;
+import javax.batch.runtime.context.StepContext;
 import javax.inject.Inject;
 
 import com.ibm.cloud.objectstorage.services.s3.model.PartETag;
 import com.ibm.fhir.bulkcommon.BulkDataUtils;
 import com.ibm.fhir.bulkcommon.Constants;
 import com.ibm.fhir.bulkexport.common.CheckPointUserData;
+import com.ibm.fhir.bulkexport.common.NdjsonResourceBuffer;
 import com.ibm.fhir.bulkexport.common.TransientUserData;
 import com.ibm.fhir.config.FHIRRequestContext;
 import com.ibm.fhir.model.format.Format;
@@ -52,6 +54,8 @@ import com.ibm.fhir.search.util.SearchUtil;
 public class ChunkReader extends AbstractItemReader {
     private final static Logger logger = Logger.getLogger(ChunkReader.class.getName());
     protected int pageNum = 1;
+    // Lets the next page of patients continue after the last patient of the previous one instead of skipping pageNum - 1 pages.
+    protected String continuationToken = null;
     protected int indexOfCurrentResourceType = 0;
     // Control the number of records to read in each "item".
     protected int pageSize = Constants.DEFAULT_SEARCH_PAGE_SIZE;
@@ -119,7 +123,7 @@ public class ChunkReader extends AbstractItemReader {
     String fhirTypeFilters;
 
     @Inject
-    JobContext jobContext;
+    StepContext stepCtx;
 
     /**
      * @see AbstractItemReader#AbstractItemReader()
@@ -129,7 +133,7 @@ public class ChunkReader extends AbstractItemReader {
     }
 
     protected void fillChunkDataBuffer(List<String> patientIds) throws Exception {
-        TransientUserData chunkData = (TransientUserData) jobContext.getTransientUserData();
+        TransientUserData chunkData = (TransientUserData) stepCtx.getTransientUserData();
         int indexOfCurrentTypeFilter = 0;
         int compartmentPageNum = 1;
         int resSubTotal = 0;
@@ -159,21 +163,33 @@ public class ChunkReader extends AbstractItemReader {
                     queryParameters.put(Constants.FHIR_SEARCH_LASTUPDATED, searchCriteria);
                 }
 
-                queryParameters.put("_sort", Arrays.asList(new String[] { Constants.FHIR_SEARCH_LASTUPDATED }));
-
+                // No _sort, so that the default ordering by resource id lets each page continue after the previous one.
                 for (String patientId : patientIds) {
+                    String compartmentContinuationToken = null;
 
                     searchContext = SearchUtil.parseQueryParameters("Patient", patientId,
                             ModelSupport.getResourceType(resourceTypes.get(indexOfCurrentResourceType)), queryParameters, true);
                     do {
                         searchContext.setPageSize(pageSize);
                         searchContext.setPageNumber(compartmentPageNum);
+                        searchContext.setContinuationToken(compartmentContinuationToken);
                         FHIRTransactionHelper txn = new FHIRTransactionHelper(fhirPersistence.getTransaction());
                         txn.enroll();
                         FHIRPersistenceContext persistenceContext = FHIRPersistenceContextFactory.createPersistenceContext(null, searchContext);
-                        List<Resource> resources = fhirPersistence.search(persistenceContext, resourceType).getResource();
+                        List<Resource> resources;
+                        if (fhirPersistence.isRawSearchSupported()) {
+                            // Copies the stored JSON of each resource straight to the chunk buffer.
+                            NdjsonResourceBuffer rawResourceBuffer = new NdjsonResourceBuffer(chunkData.getBufferStream(),
+                                    isDoDuplicationCheck ? loadedResourceIds : null);
+                            fhirPersistence.searchRaw(persistenceContext, resourceType, rawResourceBuffer);
+                            resSubTotal += rawResourceBuffer.getResourceNum();
+                            resources = Collections.emptyList();
+                        } else {
+                            resources = fhirPersistence.search(persistenceContext, resourceType).getResource();
+                        }
                         txn.unenroll();
                         compartmentPageNum++;
+                        compartmentContinuationToken = searchContext.getNextContinuationToken();
 
                         for (Resource res : resources) {
                             if (res == null || (isDoDuplicationCheck && loadedResourceIds.contains(res.getId()))) {
@@ -221,7 +237,7 @@ public class ChunkReader extends AbstractItemReader {
 
     @Override
     public Object readItem() throws Exception {
-        TransientUserData chunkData = (TransientUserData) jobContext.getTransientUserData();
+        TransientUserData chunkData = (TransientUserData) stepCtx.getTransientUserData();
         if (chunkData != null && pageNum > chunkData.getLastPageNum()) {
             if (resourceTypes.size() == indexOfCurrentResourceType + 1) {
                 // No more resource type and page to read, so return null to end the reading.
@@ -229,6 +245,7 @@ public class ChunkReader extends AbstractItemReader {
             } else {
                 // More resource types to read, so reset pageNum, partNum and move resource type index to the next.
                 pageNum = 1;
+                continuationToken = null;
                 chunkData.setPartNum(1);
                 indexOfCurrentResourceType++;
                 isDoDuplicationCheck = false;
@@ -253,10 +270,11 @@ public class ChunkReader extends AbstractItemReader {
             queryParameters.put(Constants.FHIR_SEARCH_LASTUPDATED, searchCreterial);
         }
 
-        queryParameters.put("_sort", Arrays.asList(new String[] { Constants.FHIR_SEARCH_LASTUPDATED }));
+        // No _sort, so that the default ordering by resource id lets each page continue after the previous one.
         searchContext = SearchUtil.parseQueryParameters(Patient.class, queryParameters);
         searchContext.setPageSize(pageSize);
         searchContext.setPageNumber(pageNum);
+        searchContext.setContinuationToken(continuationToken);
         List<Resource> resources = null;
         FHIRTransactionHelper txn = new FHIRTransactionHelper(fhirPersistence.getTransaction());
         txn.enroll();
@@ -264,15 +282,18 @@ public class ChunkReader extends AbstractItemReader {
         resources = fhirPersistence.search(persistenceContext, Patient.class).getResource();
         txn.unenroll();
         pageNum++;
+        continuationToken = searchContext.getNextContinuationToken();
 
         if (chunkData == null) {
             chunkData = new TransientUserData(pageNum, null, new ArrayList<PartETag>(), 1, 0, 0);
             chunkData.setLastPageNum(searchContext.getLastPageNumber());
-            jobContext.setTransientUserData(chunkData);
+            chunkData.setContinuationToken(continuationToken);
+            stepCtx.setTransientUserData(chunkData);
         } else {
             chunkData.setPageNum(pageNum);
             chunkData.setIndexOfCurrentResourceType(indexOfCurrentResourceType);
             chunkData.setLastPageNum(searchContext.getLastPageNumber());
+            chunkData.setContinuationToken(continuationToken);
         }
 
         if (resources != null) {
@@ -295,7 +316,8 @@ public class ChunkReader extends AbstractItemReader {
             CheckPointUserData checkPointData = (CheckPointUserData) checkpoint;
             pageNum = checkPointData.getPageNum();
             indexOfCurrentResourceType = checkPointData.getIndexOfCurrentResourceType();
-            jobContext.setTransientUserData(TransientUserData.fromCheckPointUserData(checkPointData));
+            continuationToken = checkPointData.getContinuationToken();
+            stepCtx.setTransientUserData(TransientUserData.fromCheckPointUserData(checkPointData));
         }
 
         if (fhirTenant == null) {
@@ -338,7 +360,7 @@ public class ChunkReader extends AbstractItemReader {
 
     @Override
     public Serializable checkpointInfo() throws Exception {
-        return CheckPointUserData.fromTransientUserData((TransientUserData) jobContext.getTransientUserData());
+        return CheckPointUserData.fromTransientUserData((TransientUserData) stepCtx.getTransientUserData());
     }
 
 }
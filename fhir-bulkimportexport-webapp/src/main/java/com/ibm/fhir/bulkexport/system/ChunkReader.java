@@ -6,10 +6,12 @@
 
 package com.ibm.fhir.bulkexport.system;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -20,13 +22,14 @@ import java.util.logging.Logger;
 
 import javax.batch.api.BatchProperty;
 import javax.batch.api.chunk.AbstractItemReader;
-import javax.batch.runtime.context.JobContext;
+import javax.batch.runtime.context.StepContext;
 import javax.inject.Inject;
 
 import com.ibm.cloud.objectstorage.services.s3.model.PartETag;
 import com.ibm.fhir.bulkcommon.BulkDataUtils;
 import com.ibm.fhir.bulkcommon.Constants;
 import com.ibm.fhir.bulkexport.common.CheckPointUserData;
+import com.ibm.fhir.bulkexport.common.NdjsonResourceBuffer;
 import com.ibm.fhir.bulkexport.common.TransientUserData;
 import com.ibm.fhir.config.FHIRRequestContext;
 import com.ibm.fhir.model.format.Format;
@@ -50,6 +53,8 @@ public class ChunkReader extends AbstractItemReader {
     private final static Logger logger = Logger.getLogger(ChunkReader.class.getName());
     boolean isSingleCosObject = false;
     int pageNum = 1;
+    // Lets the next page continue after the last resource of the previous one instead of skipping pageNum - 1 pages.
+    String continuationToken = null;
     int indexOfCurrentResourceType = 0;
     // Control the number of records to read in each "item".
     int pageSize = Constants.DEFAULT_SEARCH_PAGE_SIZE;
@@ -87,6 +92,13 @@ public class ChunkReader extends AbstractItemReader {
     @BatchProperty(name = "fhir.resourcetype")
     String fhirResourceType;
 
+    /**
+     * The resource type exported by the current partition of a partitioned export, or null if the step isn't partitioned.
+     */
+    @Inject
+    @BatchProperty(name = Constants.EXPORT_PARTITION_RESOURCE_TYPE)
+    String exportPartitionResourceType;
+
     /**
      * Fhir Search from date.
      */
@@ -123,14 +135,14 @@ public class ChunkReader extends AbstractItemReader {
     String cosBucketObjectName;
 
     @Inject
-    JobContext jobContext;
+    StepContext stepCtx;
 
     public ChunkReader() {
         super();
     }
 
     private void fillChunkDataBuffer(List<Resource> resources) throws Exception {
-        TransientUserData chunkData = (TransientUserData) jobContext.getTransientUserData();
+        TransientUserData chunkData = (TransientUserData) stepCtx.getTransientUserData();
         int resSubTotal = 0;
         if (chunkData != null) {
             for (Resource res : resources) {
@@ -171,7 +183,7 @@ public class ChunkReader extends AbstractItemReader {
     @Override
     public Object readItem() throws Exception {
 
-        TransientUserData chunkData = (TransientUserData) jobContext.getTransientUserData();
+        TransientUserData chunkData = (TransientUserData) stepCtx.getTransientUserData();
         // If the search already reaches the last page, then check if need to move to the next typeFilter or next resource type.
         if (chunkData != null && pageNum > chunkData.getLastPageNum()) {
             Class<? extends Resource> resourceType = ModelSupport.getResourceType(resourceTypes.get(indexOfCurrentResourceType));
@@ -183,6 +195,7 @@ public class ChunkReader extends AbstractItemReader {
                 } else {
                     // More resource types to read, so reset pageNum, partNum and move resource type index to the next and reset indexOfCurrentTypeFilter.
                     pageNum = 1;
+                    continuationToken = null;
                     chunkData.setPartNum(1);
                     indexOfCurrentResourceType++;
                     indexOfCurrentTypeFilter = 0;
@@ -192,6 +205,7 @@ public class ChunkReader extends AbstractItemReader {
             } else {
              // If there is more typeFilter to process for current resource type, then reset pageNum only and move to the next typeFilter.
                 pageNum = 1;
+                continuationToken = null;
                 indexOfCurrentTypeFilter++;
             }
         }
@@ -223,33 +237,52 @@ public class ChunkReader extends AbstractItemReader {
             queryParameters.put(Constants.FHIR_SEARCH_LASTUPDATED, searchCriteria);
         }
 
-        queryParameters.put("_sort", Arrays.asList(new String[] { Constants.FHIR_SEARCH_LASTUPDATED }));
+        // No _sort, so that the default ordering by resource id lets each page continue after the previous one.
         searchContext = SearchUtil.parseQueryParameters(resourceType, queryParameters);
         searchContext.setPageSize(pageSize);
         searchContext.setPageNumber(pageNum);
+        searchContext.setContinuationToken(continuationToken);
         List<Resource> resources = null;
+        // Copies the stored JSON of each resource straight to the page buffer when the persistence layer supports it.
+        ByteArrayOutputStream rawPageBuffer = null;
+        NdjsonResourceBuffer rawResourceBuffer = null;
         FHIRTransactionHelper txn = new FHIRTransactionHelper(fhirPersistence.getTransaction());
         txn.enroll();
         persistenceContext = FHIRPersistenceContextFactory.createPersistenceContext(null, searchContext);
-        resources = fhirPersistence.search(persistenceContext, resourceType).getResource();
+        if (fhirPersistence.isRawSearchSupported()) {
+            rawPageBuffer = new ByteArrayOutputStream();
+            rawResourceBuffer = new NdjsonResourceBuffer(rawPageBuffer, isDoDuplicationCheck ? loadedResourceIds : null);
+            fhirPersistence.searchRaw(persistenceContext, resourceType, rawResourceBuffer);
+            resources = new ArrayList<>();
+        } else {
+            resources = fhirPersistence.search(persistenceContext, resourceType).getResource();
+        }
         txn.unenroll();
         pageNum++;
+        continuationToken = searchContext.getNextContinuationToken();
 
         if (chunkData == null) {
             chunkData = new TransientUserData(pageNum, null, new ArrayList<PartETag>(), 1, 0, 0);
             chunkData.setLastPageNum(searchContext.getLastPageNumber());
+            chunkData.setContinuationToken(continuationToken);
             if (isSingleCosObject) {
                 chunkData.setSingleCosObject(true);
             }
-            jobContext.setTransientUserData(chunkData);
+            stepCtx.setTransientUserData(chunkData);
         } else {
             chunkData.setPageNum(pageNum);
             chunkData.setIndexOfCurrentResourceType(indexOfCurrentResourceType);
             chunkData.setIndexOfCurrentTypeFilter(indexOfCurrentTypeFilter);
             chunkData.setLastPageNum(searchContext.getLastPageNumber());
+            chunkData.setContinuationToken(continuationToken);
         }
 
-        if (resources != null) {
+        if (rawResourceBuffer != null) {
+            rawPageBuffer.writeTo(chunkData.getBufferStream());
+            chunkData.setCurrentPartResourceNum(chunkData.getCurrentPartResourceNum() + rawResourceBuffer.getResourceNum());
+            logger.fine("readItem: loaded resources number - " + rawResourceBuffer.getResourceNum() + "; Bufferred data size - "
+                    + chunkData.getBufferStream().size());
+        } else if (resources != null) {
             logger.fine("readItem: loaded resources number - " + resources.size());
             fillChunkDataBuffer(resources);
         } else {
@@ -266,7 +299,8 @@ public class ChunkReader extends AbstractItemReader {
             pageNum = checkPointData.getPageNum();
             indexOfCurrentResourceType = checkPointData.getIndexOfCurrentResourceType();
             indexOfCurrentTypeFilter = checkPointData.getIndexOfCurrentTypeFilter();
-            jobContext.setTransientUserData(TransientUserData.fromCheckPointUserData(checkPointData));
+            continuationToken = checkPointData.getContinuationToken();
+            stepCtx.setTransientUserData(TransientUserData.fromCheckPointUserData(checkPointData));
         }
 
         if (fhirTenant == null) {
@@ -286,10 +320,11 @@ public class ChunkReader extends AbstractItemReader {
             }
         }
 
+        List<String> jobResourceTypes = Arrays.asList(fhirResourceType.split("\\s*,\\s*"));
         if (cosBucketObjectName != null
                 && cosBucketObjectName.trim().length() > 0
                 // Single COS object uploading is for single resource type export only.
-                && resourceTypes.size() == 1) {
+                && jobResourceTypes.size() == 1) {
             isSingleCosObject = true;
             logger.info("open: Use single COS object for uploading!");
         }
@@ -298,7 +333,12 @@ public class ChunkReader extends AbstractItemReader {
         FHIRPersistenceHelper fhirPersistenceHelper = new FHIRPersistenceHelper();
         fhirPersistence = fhirPersistenceHelper.getFHIRPersistenceImplementation();
 
-        resourceTypes = Arrays.asList(fhirResourceType.split("\\s*,\\s*"));
+        // Each partition of a partitioned export reads a single resource type.
+        if (exportPartitionResourceType != null) {
+            resourceTypes = Collections.singletonList(exportPartitionResourceType);
+        } else {
+            resourceTypes = jobResourceTypes;
+        }
         searchParametersForResoureTypes = BulkDataUtils.getSearchParemetersFromTypeFilters(fhirTypeFilters);
     }
 
@@ -309,7 +349,7 @@ public class ChunkReader extends AbstractItemReader {
 
     @Override
     public Serializable checkpointInfo() throws Exception {
-        return CheckPointUserData.fromTransientUserData((TransientUserData) jobContext.getTransientUserData());
+        return CheckPointUserData.fromTransientUserData((TransientUserData) stepCtx.getTransientUserData());
     }
 
 }
@@ -17,6 +17,7 @@ import java.util.logging.Logger;
 import javax.batch.api.BatchProperty;
 import javax.batch.api.chunk.AbstractItemWriter;
 import javax.batch.runtime.context.JobContext;
+import javax.batch.runtime.context.StepContext;
 import javax.inject.Inject;
 
 import com.ibm.cloud.objectstorage.services.s3.AmazonS3;
@@ -102,9 +103,19 @@ public class ChunkWriter extends AbstractItemWriter {
     @BatchProperty(name = "fhir.resourcetype")
     String fhirResourceType;
 
+    /**
+     * The resource type exported by the current partition of a partitioned export, or null if the step isn't partitioned.
+     */
+    @Inject
+    @BatchProperty(name = Constants.EXPORT_PARTITION_RESOURCE_TYPE)
+    String exportPartitionResourceType;
+
     @Inject
     JobContext jobContext;
 
+    @Inject
+    StepContext stepCtx;
+
     /**
      * @see javax.batch.api.chunk.AbstractItemWriter#AbstractItemWriter()
      */
@@ -125,7 +136,7 @@ public class ChunkWriter extends AbstractItemWriter {
 
         List<String> ResourceTypes = getResourceTypes();
 
-        TransientUserData chunkData = (TransientUserData) jobContext.getTransientUserData();
+        TransientUserData chunkData = (TransientUserData) stepCtx.getTransientUserData();
         if (chunkData == null) {
             logger.warning("pushFhirJsons2Cos: chunkData is null, this should never happen!");
             throw new Exception("pushFhirJsons2Cos: chunkData is null, this should never happen!");
@@ -145,7 +156,7 @@ public class ChunkWriter extends AbstractItemWriter {
             if (chunkData.getPageNum() > chunkData.getLastPageNum()) {
                 BulkDataUtils.finishMultiPartUpload(cosClient, cosBucketName, cosBucketObjectName, chunkData.getUploadId(),
                         chunkData.getCosDataPacks());
-                jobContext.setExitStatus(cosBucketObjectName + "; " + ResourceTypes.get(chunkData.getIndexOfCurrentResourceType())
+                stepCtx.setExitStatus(cosBucketObjectName + "; " + ResourceTypes.get(chunkData.getIndexOfCurrentResourceType())
                     + "[" + chunkData.getCurrentPartResourceNum() + "]");
             }
 
@@ -181,28 +192,33 @@ public class ChunkWriter extends AbstractItemWriter {
             logger.info(
                     "pushFhirJsons2Cos: " + itemName + "(" + dataLength + " bytes) was successfully written to COS");
             // Job exit status, e.g, Patient[1000,1000,200]:Observation[1000,1000,200]
-            if (jobContext.getExitStatus() == null) {
-                jobContext.setExitStatus(ResourceTypes.get(chunkData.getIndexOfCurrentResourceType())
+            if (stepCtx.getExitStatus() == null) {
+                stepCtx.setExitStatus(ResourceTypes.get(chunkData.getIndexOfCurrentResourceType())
                         + "[" + chunkData.getCurrentPartResourceNum());
                 if (chunkData.getPageNum() > chunkData.getLastPageNum()) {
-                    jobContext.setExitStatus(jobContext.getExitStatus() + "]");
+                    stepCtx.setExitStatus(stepCtx.getExitStatus() + "]");
                 }
             } else {
                 if (chunkData.getPartNum() == 1) {
-                    jobContext.setExitStatus(jobContext.getExitStatus() + ":"
+                    stepCtx.setExitStatus(stepCtx.getExitStatus() + ":"
                             + ResourceTypes.get(chunkData.getIndexOfCurrentResourceType()) + "["
                             + chunkData.getCurrentPartResourceNum());
                 } else {
-                    jobContext.setExitStatus(jobContext.getExitStatus() + "," + chunkData.getCurrentPartResourceNum());
+                    stepCtx.setExitStatus(stepCtx.getExitStatus() + "," + chunkData.getCurrentPartResourceNum());
                 }
                 if (chunkData.getPageNum() > chunkData.getLastPageNum()) {
-                    jobContext.setExitStatus(jobContext.getExitStatus() + "]");
+                    stepCtx.setExitStatus(stepCtx.getExitStatus() + "]");
                 }
             }
             chunkData.setPartNum(chunkData.getPartNum() + 1);
             chunkData.getBufferStream().reset();
             chunkData.setCurrentPartResourceNum(0);
         }
+
+        // The exit status of each partition is merged into the job exit status by the ExportPartitionAnalyzer.
+        if (exportPartitionResourceType == null) {
+            jobContext.setExitStatus(stepCtx.getExitStatus());
+        }
     }
 
     /**
@@ -229,7 +245,7 @@ public class ChunkWriter extends AbstractItemWriter {
             cosClient.createBucket(req);
         }
 
-        TransientUserData chunkData = (TransientUserData) jobContext.getTransientUserData();
+        TransientUserData chunkData = (TransientUserData) stepCtx.getTransientUserData();
         if (chunkData == null) {
             logger.warning("writeItems: chunkData is null, this should never happen!");
             throw new Exception("writeItems: chunkData is null, this should never happen!");
@@ -0,0 +1,65 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.bulkexport.system;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import javax.batch.api.BatchProperty;
+import javax.batch.api.partition.PartitionAnalyzer;
+import javax.batch.runtime.BatchStatus;
+import javax.batch.runtime.context.JobContext;
+import javax.inject.Inject;
+
+/**
+ * Bulk system export Chunk implementation - the partition analyzer, which merges the exit statuses of
+ * the partitions into the job exit status, e.g, Patient[1000,1000,200]:Observation[1000,1000,200],
+ * in the order of the exported resource types.
+ *
+ */
+public class ExportPartitionAnalyzer implements PartitionAnalyzer {
+    @Inject
+    JobContext jobContext;
+
+    /**
+     * Fhir ResourceType.
+     */
+    @Inject
+    @BatchProperty(name = "fhir.resourcetype")
+    String fhirResourceType;
+
+    // The latest exit status of each partition, by resource type.
+    private Map<String, String> partitionExitStatuses = new HashMap<>();
+
+    public ExportPartitionAnalyzer() {
+        // No Operation
+    }
+
+    @Override
+    public void analyzeStatus(BatchStatus batchStatus, String exitStatus) {
+
+    }
+
+    @Override
+    public void analyzeCollectorData(Serializable data) {
+        if (data == null) {
+            return;
+        }
+        String[] partitionExitStatus = (String[]) data;
+        partitionExitStatuses.put(partitionExitStatus[0], partitionExitStatus[1]);
+
+        List<String> resourceTypes = Arrays.asList(fhirResourceType.split("\\s*,\\s*"));
+        jobContext.setExitStatus(resourceTypes.stream()
+                .filter(partitionExitStatuses::containsKey)
+                .map(partitionExitStatuses::get)
+                .collect(Collectors.joining(":")));
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.bulkexport.system;
+
+import java.io.Serializable;
+
+import javax.batch.api.BatchProperty;
+import javax.batch.api.partition.PartitionCollector;
+import javax.batch.runtime.context.StepContext;
+import javax.inject.Inject;
+
+import com.ibm.fhir.bulkcommon.Constants;
+
+/**
+ * Bulk system export Chunk implementation - the partition collector, which passes the exit status
+ * of each partition, e.g, Patient[1000,1000,200], to the ExportPartitionAnalyzer.
+ *
+ */
+public class ExportPartitionCollector implements PartitionCollector {
+    @Inject
+    StepContext stepCtx;
+
+    /**
+     * The resource type exported by the current partition.
+     */
+    @Inject
+    @BatchProperty(name = Constants.EXPORT_PARTITION_RESOURCE_TYPE)
+    String exportPartitionResourceType;
+
+    public ExportPartitionCollector() {
+        // The injected properties are not available at class construction time
+        // These values are lazy injected BEFORE calling 'collectPartitionData'.
+    }
+
+    @Override
+    public Serializable collectPartitionData() throws Exception {
+        // Nothing has been written to COS yet for this partition.
+        if (stepCtx.getExitStatus() == null) {
+            return null;
+        }
+        return new String[] { exportPartitionResourceType, stepCtx.getExitStatus() };
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.bulkexport.system;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+import javax.batch.api.BatchProperty;
+import javax.batch.api.partition.PartitionMapper;
+import javax.batch.api.partition.PartitionPlan;
+import javax.batch.api.partition.PartitionPlanImpl;
+import javax.inject.Inject;
+
+import com.ibm.fhir.bulkcommon.Constants;
+
+/**
+ * Bulk system export Chunk implementation - the partition mapper, which exports each resource type
+ * in its own partition so that the resource types are exported concurrently.
+ *
+ */
+public class ExportPartitionMapper implements PartitionMapper {
+
+    /**
+     * Fhir ResourceType.
+     */
+    @Inject
+    @BatchProperty(name = "fhir.resourcetype")
+    String fhirResourceType;
+
+    public ExportPartitionMapper() {
+        // No Operation
+    }
+
+    @Override
+    public PartitionPlan mapPartitions() throws Exception {
+        List<String> resourceTypes = Arrays.asList(fhirResourceType.split("\\s*,\\s*"));
+
+        PartitionPlanImpl pp = new PartitionPlanImpl();
+        pp.setPartitions(resourceTypes.size());
+        pp.setThreads(Math.min(Constants.EXPORT_MAX_PARTITIONPROCESSING_THREADNUMBER, resourceTypes.size()));
+        Properties[] partitionProps = new Properties[resourceTypes.size()];
+
+        int propCount = 0;
+        for (String resourceType : resourceTypes) {
+            Properties p = new Properties();
+            p.setProperty(Constants.EXPORT_PARTITION_RESOURCE_TYPE, resourceType);
+
+            partitionProps[propCount++] = p;
+        }
+        pp.setPartitionProperties(partitionProps);
+
+        return pp;
+    }
+}
@@ -21,7 +21,6 @@ import javax.inject.Inject;
 import com.ibm.cloud.objectstorage.services.s3.AmazonS3;
 import com.ibm.fhir.bulkcommon.BulkDataUtils;
 import com.ibm.fhir.bulkcommon.Constants;
-import com.ibm.fhir.model.resource.Resource;
 
 /**
  * Bulk import Chunk implementation - the Reader.
@@ -98,6 +97,27 @@ public class ChunkReader extends AbstractItemReader {
     @BatchProperty(name = Constants.IMPORT_PARTITTION_RESOURCE_TYPE)
     String importPartitionResourceType;
 
+    /**
+     * The index of the byte range of the work item to process, null if the whole work item is processed.
+     */
+    @Inject
+    @BatchProperty(name = Constants.IMPORT_PARTITION_RANGE_INDEX)
+    String importPartitionRangeIndex;
+
+    /**
+     * The start of the byte range of the work item to process.
+     */
+    @Inject
+    @BatchProperty(name = Constants.IMPORT_PARTITION_RANGE_START)
+    String importPartitionRangeStart;
+
+    /**
+     * The end of the byte range of the work item to process.
+     */
+    @Inject
+    @BatchProperty(name = Constants.IMPORT_PARTITION_RANGE_END)
+    String importPartitionRangeEnd;
+
     public ChunkReader() {
         super();
     }
@@ -108,7 +128,8 @@ public class ChunkReader extends AbstractItemReader {
         if (!stepCtx.getBatchStatus().equals(BatchStatus.STARTED)) {
             return null;
         }
-        List<Resource> loadedFhirResources = new ArrayList<Resource>();
+        // The lines are parsed and validated by the ChunkWriter, in parallel with the persistence of the resources.
+        List<String> loadedFhirResources = new ArrayList<String>();
         if (logger.isLoggable(Level.FINE)) {
             logger.fine("readItem: get work item:" + importPartitionWorkitem + " resource type: " + importPartitionResourceType);
         }
@@ -116,20 +137,25 @@ public class ChunkReader extends AbstractItemReader {
         ImportTransientUserData chunkData = (ImportTransientUserData) stepCtx.getTransientUserData();
         numOfLinesToSkip = chunkData.getNumOfProcessedResources();
 
+        long rangeEnd = -1;
+        if (isRangePartition()) {
+            rangeEnd = Long.parseLong(importPartitionRangeEnd);
+        }
+
         long readStartTimeInMilliSeconds = System.currentTimeMillis();
         int numOfLoaded = 0;
-        int numOfParseFailures = 0;
         switch (BulkImportDataSourceStorageType.from(dataSourceStorageType)) {
         case HTTPS:
-            numOfParseFailures = BulkDataUtils.readFhirResourceFromHttps(importPartitionWorkitem, numOfLinesToSkip, loadedFhirResources, chunkData);
+            BulkDataUtils.readFhirResourceFromHttps(importPartitionWorkitem, numOfLinesToSkip, loadedFhirResources, chunkData);
             break;
         case FILE:
-            numOfParseFailures = BulkDataUtils.readFhirResourceFromLocalFile(importPartitionWorkitem, numOfLinesToSkip, loadedFhirResources, chunkData);
+            BulkDataUtils.readFhirResourceFromLocalFile(importPartitionWorkitem, numOfLinesToSkip, loadedFhirResources, chunkData,
+                    rangeEnd);
             break;
         case AWSS3:
         case IBMCOS:
-            numOfParseFailures = BulkDataUtils.readFhirResourceFromObjectStore(cosClient, cosBucketName, importPartitionWorkitem,
-                    numOfLinesToSkip, loadedFhirResources, chunkData);
+            BulkDataUtils.readFhirResourceFromObjectStore(cosClient, cosBucketName, importPartitionWorkitem,
+                    numOfLinesToSkip, loadedFhirResources, chunkData, rangeEnd);
             break;
         default:
             logger.warning("readItem: Data source storage type not found!");
@@ -137,7 +163,6 @@ public class ChunkReader extends AbstractItemReader {
         }
 
         chunkData.setTotalReadMilliSeconds(chunkData.getTotalReadMilliSeconds() + (System.currentTimeMillis() - readStartTimeInMilliSeconds));
-        chunkData.setNumOfParseFailures(chunkData.getNumOfParseFailures() + numOfParseFailures);
         numOfLoaded = loadedFhirResources.size();
         if (logger.isLoggable(Level.FINE)) {
             logger.fine("readItem: loaded " + numOfLoaded + " " + importPartitionResourceType + " from " + importPartitionWorkitem);
@@ -172,19 +197,30 @@ public class ChunkReader extends AbstractItemReader {
         } else {
             ImportTransientUserData chunkData = new ImportTransientUserData(importPartitionWorkitem, numOfLinesToSkip, importPartitionResourceType);
             long importFileSize = 0;
-            switch (BulkImportDataSourceStorageType.from(dataSourceStorageType)) {
-            case HTTPS:
-                importFileSize = BulkDataUtils.getHttpsFileSize(importPartitionWorkitem);
-                break;
-            case FILE:
-                importFileSize = BulkDataUtils.getLocalFileSize(importPartitionWorkitem);
-                break;
-            case AWSS3:
-            case IBMCOS:
-                importFileSize = BulkDataUtils.getCosFileSize(cosClient, cosBucketName, importPartitionWorkitem);
-                break;
-            default:
-                throw new IllegalStateException ("Doesn't support data source storage type '" + dataSourceStorageType + "'!");
+            if (isRangePartition()) {
+                int rangeIndex = Integer.parseInt(importPartitionRangeIndex);
+                chunkData.setImportPartitionRangeIndex(rangeIndex);
+                // Each range of the work item gets its own operation outcomes, e.g,
+                // test1.ndjson_1_oo_success.ndjson and test1.ndjson_1_oo_errors.ndjson for the 1st range.
+                chunkData.setUniqueIDForImportOperationOutcomes(importPartitionWorkitem + "_" + (rangeIndex + 1) + "_oo_success.ndjson");
+                chunkData.setUniqueIDForImportFailureOperationOutcomes(importPartitionWorkitem + "_" + (rangeIndex + 1) + "_oo_errors.ndjson");
+                importFileSize = Long.parseLong(importPartitionRangeEnd) - Long.parseLong(importPartitionRangeStart);
+                chunkData.setNextLineOffset(Long.parseLong(importPartitionRangeStart));
+            } else {
+                switch (BulkImportDataSourceStorageType.from(dataSourceStorageType)) {
+                case HTTPS:
+                    importFileSize = BulkDataUtils.getHttpsFileSize(importPartitionWorkitem);
+                    break;
+                case FILE:
+                    importFileSize = BulkDataUtils.getLocalFileSize(importPartitionWorkitem);
+                    break;
+                case AWSS3:
+                case IBMCOS:
+                    importFileSize = BulkDataUtils.getCosFileSize(cosClient, cosBucketName, importPartitionWorkitem);
+                    break;
+                default:
+                    throw new IllegalStateException ("Doesn't support data source storage type '" + dataSourceStorageType + "'!");
+                }
             }
             chunkData.setImportFileSize(importFileSize);
             chunkData.setInFlyRateBeginMilliSeconds(System.currentTimeMillis());
@@ -194,6 +230,10 @@ public class ChunkReader extends AbstractItemReader {
 
     }
 
+    private boolean isRangePartition() {
+        return importPartitionRangeIndex != null && !importPartitionRangeIndex.isEmpty();
+    }
+
     @Override
     public void close() throws Exception {
 
@@ -7,9 +7,15 @@
 package com.ibm.fhir.bulkimport;
 
 import java.io.ByteArrayInputStream;
-import java.util.HashSet;
+import java.io.Serializable;
+import java.io.StringReader;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -17,6 +23,8 @@ import javax.batch.api.BatchProperty;
 import javax.batch.api.chunk.AbstractItemWriter;
 import javax.batch.runtime.context.StepContext;
 import javax.inject.Inject;
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
 
 import com.ibm.cloud.objectstorage.services.s3.AmazonS3;
 import com.ibm.fhir.bulkcommon.BulkDataUtils;
@@ -25,6 +33,8 @@ import com.ibm.fhir.config.FHIRRequestContext;
 import com.ibm.fhir.exception.FHIROperationException;
 import com.ibm.fhir.model.format.Format;
 import com.ibm.fhir.model.generator.FHIRGenerator;
+import com.ibm.fhir.model.parser.FHIRParser;
+import com.ibm.fhir.model.parser.exception.FHIRParserException;
 import com.ibm.fhir.model.resource.OperationOutcome;
 import com.ibm.fhir.model.resource.Resource;
 import com.ibm.fhir.model.util.FHIRUtil;
@@ -41,6 +51,12 @@ import com.ibm.fhir.validation.exception.FHIRValidationException;
  */
 public class ChunkWriter extends AbstractItemWriter {
     private static final Logger logger = Logger.getLogger(ChunkWriter.class.getName());
+    // The executor service of the container, which runs the parsing and validation of the resources.
+    private static final String MANAGED_EXECUTOR_JNDI_NAME = "java:comp/DefaultManagedExecutorService";
+    // Parses and validates the resources; the executor service of the container if it is available, or else
+    // a thread pool of this writer which is shut down when the writer is closed.
+    private ExecutorService parseValidateExecutor = null;
+    private boolean isParseValidateExecutorOwned = false;
     AmazonS3 cosClient = null;
 
     @Inject
@@ -122,15 +138,40 @@ public class ChunkWriter extends AbstractItemWriter {
         super();
     }
 
+    @Override
+    public void open(Serializable checkpoint) throws Exception {
+        try {
+            parseValidateExecutor = (ExecutorService) new InitialContext().lookup(MANAGED_EXECUTOR_JNDI_NAME);
+        } catch (NamingException e) {
+            logger.fine("open: No managed executor service, parsing and validating with a thread pool of the writer.");
+            parseValidateExecutor = Executors.newFixedThreadPool(Constants.IMPORT_PARSE_VALIDATE_THREADNUMBER, new ThreadFactory() {
+                private final AtomicInteger threadNumber = new AtomicInteger();
+
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "fhir-import-parser-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            isParseValidateExecutorOwned = true;
+        }
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (isParseValidateExecutorOwned) {
+            parseValidateExecutor.shutdownNow();
+            isParseValidateExecutorOwned = false;
+        }
+        parseValidateExecutor = null;
+    }
+
     // This is for the warning triggered by IMPORT_IS_COLLECT_OPERATIONOUTCOMES which controls if upload OperationOutcomes to COS/S3.
     @Override
     public void writeItems(List<java.lang.Object> arg0) throws Exception {
-        boolean isValidationOn = false;
-        Set<String> failValidationIds = new HashSet<>();
+        boolean isValidationOn = fhirValidation != null && fhirValidation.equalsIgnoreCase("Y");
 
-        if (fhirValidation != null) {
-            isValidationOn = fhirValidation.equalsIgnoreCase("Y");
-        }
         if (fhirTenant == null) {
             fhirTenant = "default";
             logger.info("writeItems: Set tenant to default!");
@@ -147,53 +188,58 @@ public class ChunkWriter extends AbstractItemWriter {
         FHIRPersistenceContext persistenceContext = FHIRPersistenceContextFactory.createPersistenceContext(null);
         FHIRTransactionHelper txn = new FHIRTransactionHelper(fhirPersistence.getTransaction());
 
-        int processedNum = 0, succeededNum =0, failedNum = 0;
+        int processedNum = 0, succeededNum =0, failedNum = 0, parseFailedNum = 0;
         ImportTransientUserData chunkData = (ImportTransientUserData) stepCtx.getTransientUserData();
 
-        // Validate the resources first if required.
-        if (isValidationOn) {
-            long validationStartTimeInMilliSeconds = System.currentTimeMillis();
-            for (Object objResJsonList : arg0) {
-                @SuppressWarnings("unchecked")
-                List<Resource> fhirResourceList = (List<Resource>) objResJsonList;
-
-                for (Resource fhirResource : fhirResourceList) {
-                    try {
-                        BulkDataUtils.validateInput(fhirResource);
-                    } catch (FHIRValidationException|FHIROperationException e) {
-                        logger.warning("Failed to validate '" + fhirResource.getId() + "' due to error: " + e.getMessage());
-                        failedNum++;
-                        failValidationIds.add(fhirResource.getId());
-                        if (Constants.IMPORT_IS_COLLECT_OPERATIONOUTCOMES) {
-                            OperationOutcome operationOutCome = FHIRUtil.buildOperationOutcome(e, false);
-                            FHIRGenerator.generator(Format.JSON).generate(operationOutCome, chunkData.getBufferStreamForImportError());
-                            chunkData.getBufferStreamForImportError().write(Constants.NDJSON_LINESEPERATOR);
-                        }
-                    }
-                }
-            }
-            chunkData.setTotalValidationMilliSeconds(chunkData.getTotalValidationMilliSeconds()
-                    + (System.currentTimeMillis() - validationStartTimeInMilliSeconds));
+        List<String> fhirResourceLines = new ArrayList<>();
+        for (Object objResJsonList : arg0) {
+            @SuppressWarnings("unchecked")
+            List<String> fhirResourceLineList = (List<String>) objResJsonList;
+            fhirResourceLines.addAll(fhirResourceLineList);
         }
 
-        // Begin writing the resources into DB.
-        long writeStartTimeInMilliSeconds = System.currentTimeMillis();
+        // The lines are parsed and validated by the worker threads while the resources before them are written into DB,
+        // at most IMPORT_MAX_NUMOFFHIRRESOURCES_INPARSE ahead of the writes. The resources are written in the order of the lines.
+        OrderedTaskRunner<String, ParsedResource> parsedResources = new OrderedTaskRunner<>(parseValidateExecutor,
+                Constants.IMPORT_MAX_NUMOFFHIRRESOURCES_INPARSE, fhirResourceLines.iterator(),
+                line -> new ParseValidateTask(line, isValidationOn));
+        long writeMilliSeconds = 0;
         // Acquire a DB connection which will be used in the batch.
         // This doesn't really start the transaction, because the transaction has already been started by the JavaBatch
         // framework at this time point.
         txn.enroll();
-        for (Object objResJsonList : arg0) {
-            @SuppressWarnings("unchecked")
-            List<Resource> fhirResourceList = (List<Resource>) objResJsonList;
+        try {
+            while (parsedResources.hasNext()) {
+                // Fails the chunk for anything other than a parsing or validation failure.
+                ParsedResource parsedResource = parsedResources.next();
+                processedNum++;
+                chunkData.setTotalParseMilliSeconds(chunkData.getTotalParseMilliSeconds() + parsedResource.parseMilliSeconds);
+                chunkData.setTotalValidationMilliSeconds(chunkData.getTotalValidationMilliSeconds() + parsedResource.validationMilliSeconds);
+
+                if (parsedResource.resource == null) {
+                    // Log and skip the invalid FHIR resource.
+                    parseFailedNum++;
+                    logger.log(Level.INFO, "writeItems: Failed to parse line " + (chunkData.getNumOfProcessedResources() + processedNum)
+                            + " of [" + chunkData.getImportPartitionWorkitem() + "].", parsedResource.exception);
+                    continue;
+                }
 
-            for (Resource fhirResource : fhirResourceList) {
-                try {
-                    String id = fhirResource.getId();
-                    processedNum++;
+                Resource fhirResource = parsedResource.resource;
+                if (parsedResource.exception != null) {
                     // Skip the resources which failed the validation
-                    if (failValidationIds.contains(id)) {
-                        continue;
+                    logger.warning("Failed to validate '" + fhirResource.getId() + "' due to error: " + parsedResource.exception.getMessage());
+                    failedNum++;
+                    if (Constants.IMPORT_IS_COLLECT_OPERATIONOUTCOMES) {
+                        OperationOutcome operationOutCome = FHIRUtil.buildOperationOutcome(parsedResource.exception, false);
+                        FHIRGenerator.generator(Format.JSON).generate(operationOutCome, chunkData.getBufferStreamForImportError());
+                        chunkData.getBufferStreamForImportError().write(Constants.NDJSON_LINESEPERATOR);
                     }
+                    continue;
+                }
+
+                long writeStartTimeInMilliSeconds = System.currentTimeMillis();
+                try {
+                    String id = fhirResource.getId();
                     OperationOutcome operationOutcome =
                             fhirPersistence.update(persistenceContext, id, fhirResource).getOutcome();
                     succeededNum++;
@@ -210,15 +256,21 @@ public class ChunkWriter extends AbstractItemWriter {
                         chunkData.getBufferStreamForImportError().write(Constants.NDJSON_LINESEPERATOR);
                     }
                 }
+                writeMilliSeconds += System.currentTimeMillis() - writeStartTimeInMilliSeconds;
             }
+        } finally {
+            // If the chunk fails, the resources still being parsed are not needed anymore.
+            parsedResources.close();
+            // Release the DB connection.
+            // This doesn't really commit the transaction, because the transaction was started and will be committed
+            // by the JavaBatch framework.
+            txn.unenroll();
         }
-        // Release the DB connection.
-        // This doesn't really commit the transaction, because the transaction was started and will be committed
-        // by the JavaBatch framework.
-        txn.unenroll();
 
-        chunkData.setTotalWriteMilliSeconds(chunkData.getTotalWriteMilliSeconds() + (System.currentTimeMillis() - writeStartTimeInMilliSeconds));
-        chunkData.setNumOfProcessedResources(chunkData.getNumOfProcessedResources() + processedNum + chunkData.getNumOfParseFailures());
+        chunkData.setNumOfParseFailures(chunkData.getNumOfParseFailures() + parseFailedNum);
+        chunkData.setTotalWriteMilliSeconds(chunkData.getTotalWriteMilliSeconds() + writeMilliSeconds);
+        // The parse failures are already counted as processed.
+        chunkData.setNumOfProcessedResources(chunkData.getNumOfProcessedResources() + processedNum);
         chunkData.setNumOfImportedResources(chunkData.getNumOfImportedResources() + succeededNum);
         chunkData.setNumOfImportFailures(chunkData.getNumOfImportFailures() + failedNum + chunkData.getNumOfParseFailures());
         // Reset NumOfParseFailures for next batch.
@@ -232,6 +284,50 @@ public class ChunkWriter extends AbstractItemWriter {
         }
     }
 
+    /**
+     * The result of parsing and validating a line of the imported file.
+     */
+    private static class ParsedResource {
+        // null if the line could not be parsed.
+        private Resource resource;
+        // The parsing or validation failure.
+        private Exception exception;
+        private long parseMilliSeconds;
+        private long validationMilliSeconds;
+    }
+
+    private static class ParseValidateTask implements Callable<ParsedResource> {
+        private final String line;
+        private final boolean isValidationOn;
+
+        private ParseValidateTask(String line, boolean isValidationOn) {
+            this.line = line;
+            this.isValidationOn = isValidationOn;
+        }
+
+        @Override
+        public ParsedResource call() throws Exception {
+            ParsedResource parsedResource = new ParsedResource();
+            long parseStartTimeInMilliSeconds = System.currentTimeMillis();
+            try {
+                parsedResource.resource = FHIRParser.parser(Format.JSON).parse(new StringReader(line));
+            } catch (FHIRParserException e) {
+                parsedResource.exception = e;
+            }
+            parsedResource.parseMilliSeconds = System.currentTimeMillis() - parseStartTimeInMilliSeconds;
+
+            if (isValidationOn && parsedResource.resource != null) {
+                long validationStartTimeInMilliSeconds = System.currentTimeMillis();
+                try {
+                    BulkDataUtils.validateInput(parsedResource.resource);
+                } catch (FHIRValidationException|FHIROperationException e) {
+                    parsedResource.exception = e;
+                }
+                parsedResource.validationMilliSeconds = System.currentTimeMillis() - validationStartTimeInMilliSeconds;
+            }
+            return parsedResource;
+        }
+    }
 
     private void pushImportOperationOutcomes2COS(ImportTransientUserData chunkData) throws Exception{
         // Create the COS/S3 client if it's not created yet.
@@ -26,6 +26,8 @@ public class ImportCheckPointData implements Serializable {
     private long totalReadMilliSeconds = 0;
     private long totalWriteMilliSeconds = 0;
     private long totalValidationMilliSeconds = 0;
+    // Parsing and validation run on several threads in parallel with the writes, so their totals can add up to more than the elapsed time.
+    private long totalParseMilliSeconds = 0;
     private long importFileSize = 0;
 
     private long inFlyRateBeginMilliSeconds = 0;
@@ -37,6 +39,10 @@ public class ImportCheckPointData implements Serializable {
     private int numOfParseFailures = 0;
     // Fhir resource type processed in this partition.
     private String importPartitionResourceType;
+    // The index of the byte range of the work item imported by the partition, or -1 if the whole work item is imported.
+    private int importPartitionRangeIndex = -1;
+    // The byte offset in the work item of the next line to import, so a restart doesn't need to read the imported lines again.
+    private long nextLineOffset = 0;
 
     // COS/S3 object name for import OperationOutcomes.
     private String uniqueIDForImportOperationOutcomes = null;
@@ -161,14 +167,34 @@ public class ImportCheckPointData implements Serializable {
         this.importPartitionResourceType = importPartitionResourceType;
     }
 
+    public int getImportPartitionRangeIndex() {
+        return importPartitionRangeIndex;
+    }
+
+    public void setImportPartitionRangeIndex(int importPartitionRangeIndex) {
+        this.importPartitionRangeIndex = importPartitionRangeIndex;
+    }
+
+    public long getNextLineOffset() {
+        return nextLineOffset;
+    }
+
+    public void setNextLineOffset(long nextLineOffset) {
+        this.nextLineOffset = nextLineOffset;
+    }
+
     public static ImportCheckPointData fromImportTransientUserData(ImportTransientUserData userData) {
-        return new ImportCheckPointData(userData.getImportPartitionWorkitem(), userData.getNumOfProcessedResources(),
+        ImportCheckPointData checkPointData = new ImportCheckPointData(userData.getImportPartitionWorkitem(), userData.getNumOfProcessedResources(),
                 userData.getImportPartitionResourceType(), userData.getNumOfImportedResources(), userData.getNumOfImportFailures(),
                 userData.getUniqueIDForImportFailureOperationOutcomes(), userData.getUniqueIDForImportOperationOutcomes(),
                 userData.getUploadIdForOperationOutcomes(), userData.getDataPacksForOperationOutcomes(), userData.getPartNumForOperationOutcomes(),
                 userData.getUploadIdForFailureOperationOutcomes(), userData.getDataPacksForFailureOperationOutcomes(), userData.getPartNumForFailureOperationOutcomes(),
                 userData.getTotalReadMilliSeconds(), userData.getTotalValidationMilliSeconds(), userData.getTotalWriteMilliSeconds(),
                 userData.getImportFileSize(), userData.getInFlyRateBeginMilliSeconds());
+        checkPointData.setImportPartitionRangeIndex(userData.getImportPartitionRangeIndex());
+        checkPointData.setNextLineOffset(userData.getNextLineOffset());
+        checkPointData.setTotalParseMilliSeconds(userData.getTotalParseMilliSeconds());
+        return checkPointData;
     }
 
     public String getUniqueIDForImportOperationOutcomes() {
@@ -267,6 +293,14 @@ public class ImportCheckPointData implements Serializable {
         this.totalValidationMilliSeconds = totalValidationMilliSeconds;
     }
 
+    public long getTotalParseMilliSeconds() {
+        return totalParseMilliSeconds;
+    }
+
+    public void setTotalParseMilliSeconds(long totalParseMilliSeconds) {
+        this.totalParseMilliSeconds = totalParseMilliSeconds;
+    }
+
     public long getImportFileSize() {
         return importFileSize;
     }
@@ -11,6 +11,7 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
@@ -86,10 +87,38 @@ public class ImportJobListener implements JobListener {
             inputUrlSequenceMap.put(DSTypeInfo + ":" + DSDataLocationInfo, sequnceNum++);
         }
 
-        String resultInExitStatus[] = new String[sequnceNum];
+        // A big file is imported in ranges by separate partitions, so the partition summaries of the same file are added up,
+        // and the summary of each range is appended after the total, e.g, [7:1:3:0:4:1] for a file split into 2 ranges.
+        int[] numOfImportedResources = new int[sequnceNum];
+        int[] numOfImportFailures = new int[sequnceNum];
+        Map<Integer, TreeMap<Integer, ImportCheckPointData>> rangeSummaries = new HashMap<>();
         for (ImportCheckPointData partitionSummary : partitionSummaries) {
             int index = inputUrlSequenceMap.get(partitionSummary.getImportPartitionResourceType() + ":" + partitionSummary.getImportPartitionWorkitem());
-            resultInExitStatus[index] = partitionSummary.getNumOfImportedResources() + ":" + partitionSummary.getNumOfImportFailures();
+            numOfImportedResources[index] += partitionSummary.getNumOfImportedResources();
+            numOfImportFailures[index] += partitionSummary.getNumOfImportFailures();
+            if (partitionSummary.getImportPartitionRangeIndex() >= 0) {
+                rangeSummaries.computeIfAbsent(index, k -> new TreeMap<>()).put(partitionSummary.getImportPartitionRangeIndex(), partitionSummary);
+            }
+        }
+
+        String resultInExitStatus[] = new String[sequnceNum];
+        for (int index = 0; index < sequnceNum; index++) {
+            StringBuilder result = new StringBuilder();
+            result.append(numOfImportedResources[index]).append(":").append(numOfImportFailures[index]);
+            TreeMap<Integer, ImportCheckPointData> rangeSummariesOfInput = rangeSummaries.get(index);
+            if (rangeSummariesOfInput != null) {
+                // The ranges of a stopped job may not be all finished yet.
+                for (int rangeIndex = 0; rangeIndex <= rangeSummariesOfInput.lastKey(); rangeIndex++) {
+                    ImportCheckPointData rangeSummary = rangeSummariesOfInput.get(rangeIndex);
+                    if (rangeSummary == null) {
+                        result.append(":0:0");
+                    } else {
+                        result.append(":").append(rangeSummary.getNumOfImportedResources())
+                            .append(":").append(rangeSummary.getNumOfImportFailures());
+                    }
+                }
+            }
+            resultInExitStatus[index] = result.toString();
         }
 
         jobContext.setExitStatus(Arrays.toString(resultInExitStatus));
@@ -104,6 +133,7 @@ public class ImportJobListener implements JobListener {
                 partitionSummaryInMap.setNumOfProcessedResources(partitionSummaryInMap.getNumOfProcessedResources() + partitionSummary.getNumOfProcessedResources());
                 partitionSummaryInMap.setTotalReadMilliSeconds(partitionSummaryInMap.getTotalReadMilliSeconds() + partitionSummary.getTotalReadMilliSeconds());
                 partitionSummaryInMap.setTotalValidationMilliSeconds(partitionSummaryInMap.getTotalValidationMilliSeconds() + partitionSummary.getTotalValidationMilliSeconds());
+                partitionSummaryInMap.setTotalParseMilliSeconds(partitionSummaryInMap.getTotalParseMilliSeconds() + partitionSummary.getTotalParseMilliSeconds());
                 partitionSummaryInMap.setTotalWriteMilliSeconds(partitionSummaryInMap.getTotalWriteMilliSeconds() + partitionSummary.getTotalWriteMilliSeconds());
                 partitionSummaryInMap.setImportFileSize(partitionSummaryInMap.getImportFileSize() + partitionSummary.getImportFileSize());
             }
@@ -114,7 +144,7 @@ public class ImportJobListener implements JobListener {
 
         // log the simple metrics.
         logger.info(" ---- Fhir resources imported in " + jobProcessingSeconds + "seconds ----");
-        logger.info("ResourceType \t| Imported \t| Failed \t| TotalReadMilliSeconds \t| TotalWriteMilliSeconds \t| TotalValidationMilliSeconds"
+        logger.info("ResourceType \t| Imported \t| Failed \t| TotalReadMilliSeconds \t| TotalWriteMilliSeconds \t| TotalParseMilliSeconds \t| TotalValidationMilliSeconds"
                     + " \t| TotalSize \t| AverageSize");
         int totalImportedFhirResources = 0;
         for (ImportCheckPointData importedResourceTypeSummary : importedResourceTypeSummaries.values()) {
@@ -123,6 +153,7 @@ public class ImportJobListener implements JobListener {
                         + importedResourceTypeSummary.getNumOfImportFailures() + "\t|"
                         + importedResourceTypeSummary.getTotalReadMilliSeconds() + "\t|"
                         + importedResourceTypeSummary.getTotalWriteMilliSeconds() + "\t|"
+                        + importedResourceTypeSummary.getTotalParseMilliSeconds() + "\t|"
                         + importedResourceTypeSummary.getTotalValidationMilliSeconds() + "\t|"
                         + importedResourceTypeSummary.getImportFileSize() + "\t|"
                         + importedResourceTypeSummary.getImportFileSize()/(importedResourceTypeSummary.getNumOfImportedResources() + importedResourceTypeSummary.getNumOfImportFailures()));
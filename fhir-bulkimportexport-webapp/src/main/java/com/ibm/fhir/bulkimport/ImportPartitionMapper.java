@@ -138,11 +138,18 @@ public class ImportPartitionMapper implements PartitionMapper {
     class FhirDataSource {
         private String type;
         private String url;
+        // The size in bytes, or -1 if the data source is not to be split into ranges.
+        private long size;
 
         public FhirDataSource(String type, String url) {
+            this(type, url, -1);
+        }
+
+        public FhirDataSource(String type, String url, long size) {
             super();
             this.type = type;
             this.url = url;
+            this.size = size;
         }
 
         public String getType() {
@@ -161,9 +168,17 @@ public class ImportPartitionMapper implements PartitionMapper {
             this.url = url;
         }
 
+        public long getSize() {
+            return size;
+        }
+
+        public void setSize(long size) {
+            this.size = size;
+        }
+
         @Override
         public String toString() {
-            return "FhirDataSource [type=" + type + ", url=" + url + "]";
+            return "FhirDataSource [type=" + type + ", url=" + url + ", size=" + size + "]";
         }
     }
 
@@ -219,7 +234,7 @@ public class ImportPartitionMapper implements PartitionMapper {
                     logger.info("getFhirDataSourcesForObjectStore: ObjectStorge Object(" + objectSummary.getKey()
                             + ") - " + objectSummary.getSize() + " bytes.");
                     if (objectSummary.getSize() > 0) {
-                        fhirDataSources.add(new FhirDataSource(dsTypeInfo, objectSummary.getKey()));
+                        fhirDataSources.add(new FhirDataSource(dsTypeInfo, objectSummary.getKey(), objectSummary.getSize()));
                     }
                 }
             }
@@ -238,9 +253,11 @@ public class ImportPartitionMapper implements PartitionMapper {
 
             switch (type) {
             case HTTPS:
-            case FILE:
                 fhirDataSources.add(new FhirDataSource(dsTypeInfo, dsDataLocationInfo));
                 break;
+            case FILE:
+                fhirDataSources.add(new FhirDataSource(dsTypeInfo, dsDataLocationInfo, BulkDataUtils.getLocalFileSize(dsDataLocationInfo)));
+                break;
             case AWSS3:
             case IBMCOS:
                 fhirDataSources.addAll(getFhirDataSourcesForObjectStore(dsTypeInfo, dsDataLocationInfo));
@@ -259,21 +276,38 @@ public class ImportPartitionMapper implements PartitionMapper {
 
         List<FhirDataSource> fhirDataSources =
                 getFhirDataSources(dataSourceArray, BulkImportDataSourceStorageType.from(dataSourceStorageType));
-        PartitionPlanImpl pp = new PartitionPlanImpl();
-        pp.setPartitions(fhirDataSources.size());
-        pp.setThreads(Math.min(Constants.IMPORT_MAX_PARTITIONPROCESSING_THREADNUMBER, fhirDataSources.size()));
-        Properties[] partitionProps = new Properties[fhirDataSources.size()];
-
-        int propCount = 0;
+        List<Properties> partitionProps = new ArrayList<>();
         for (FhirDataSource fhirDataSource : fhirDataSources) {
-            Properties p = new Properties();
-            p.setProperty(Constants.IMPORT_PARTITTION_WORKITEM, fhirDataSource.getUrl());
-            p.setProperty(Constants.IMPORT_PARTITTION_RESOURCE_TYPE, fhirDataSource.getType());
-
-            partitionProps[propCount++] = p;
+            if (fhirDataSource.getSize() > Constants.IMPORT_PARTITION_RANGE_SIZE) {
+                // Split the big file into ranges which are imported concurrently, each range starts with the first
+                // line which starts in it, so the ranges don't need to be aligned with the lines of the file here.
+                int rangeIndex = 0;
+                for (long rangeStart = 0; rangeStart < fhirDataSource.getSize(); rangeStart += Constants.IMPORT_PARTITION_RANGE_SIZE) {
+                    Properties p = getPartitionProperties(fhirDataSource);
+                    p.setProperty(Constants.IMPORT_PARTITION_RANGE_INDEX, String.valueOf(rangeIndex++));
+                    p.setProperty(Constants.IMPORT_PARTITION_RANGE_START, String.valueOf(rangeStart));
+                    p.setProperty(Constants.IMPORT_PARTITION_RANGE_END,
+                            String.valueOf(Math.min(rangeStart + Constants.IMPORT_PARTITION_RANGE_SIZE, fhirDataSource.getSize())));
+                    partitionProps.add(p);
+                }
+                logger.info("mapPartitions: " + fhirDataSource.getUrl() + " is split into " + rangeIndex + " ranges.");
+            } else {
+                partitionProps.add(getPartitionProperties(fhirDataSource));
+            }
         }
-        pp.setPartitionProperties(partitionProps);
+
+        PartitionPlanImpl pp = new PartitionPlanImpl();
+        pp.setPartitions(partitionProps.size());
+        pp.setThreads(Math.min(Constants.IMPORT_MAX_PARTITIONPROCESSING_THREADNUMBER, partitionProps.size()));
+        pp.setPartitionProperties(partitionProps.toArray(new Properties[partitionProps.size()]));
 
         return pp;
     }
+
+    private Properties getPartitionProperties(FhirDataSource fhirDataSource) {
+        Properties p = new Properties();
+        p.setProperty(Constants.IMPORT_PARTITTION_WORKITEM, fhirDataSource.getUrl());
+        p.setProperty(Constants.IMPORT_PARTITTION_RESOURCE_TYPE, fhirDataSource.getType());
+        return p;
+    }
 }
\ No newline at end of file
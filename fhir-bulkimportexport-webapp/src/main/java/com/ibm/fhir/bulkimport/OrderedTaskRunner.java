@@ -0,0 +1,89 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.bulkimport;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/**
+ * Runs a task for each input on an executor and returns the results in the order of the inputs.
+ * At most maxInProgress tasks are submitted ahead of the result being returned, so that a slow consumer of
+ * the results holds back the submission of new tasks.
+ * The tasks which are still queued or running when the runner is closed are cancelled, so the runner must be
+ * closed when the results are not needed anymore, for example because one of the tasks failed.
+ */
+public class OrderedTaskRunner<I, R> implements AutoCloseable {
+    private final ExecutorService executor;
+    private final int maxInProgress;
+    private final Iterator<I> inputs;
+    private final Function<I, Callable<R>> taskFactory;
+    private final Deque<Future<R>> inProgress = new ArrayDeque<>();
+
+    /**
+     * @param executor the executor which runs the tasks
+     * @param maxInProgress the maximum number of tasks submitted ahead of the next result
+     * @param inputs the inputs
+     * @param taskFactory creates the task of an input
+     */
+    public OrderedTaskRunner(ExecutorService executor, int maxInProgress, Iterator<I> inputs, Function<I, Callable<R>> taskFactory) {
+        if (maxInProgress < 1) {
+            throw new IllegalArgumentException("maxInProgress must be at least 1");
+        }
+        this.executor = executor;
+        this.maxInProgress = maxInProgress;
+        this.inputs = inputs;
+        this.taskFactory = taskFactory;
+    }
+
+    /**
+     * @return true if there are more results
+     */
+    public boolean hasNext() {
+        return inputs.hasNext() || !inProgress.isEmpty();
+    }
+
+    /**
+     * Waits for the result of the next input, after submitting the tasks of the following inputs.
+     *
+     * @return the result of the next input
+     * @throws Exception the exception thrown by the task of the next input
+     */
+    public R next() throws Exception {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        while (inputs.hasNext() && inProgress.size() < maxInProgress) {
+            inProgress.add(executor.submit(taskFactory.apply(inputs.next())));
+        }
+        try {
+            return inProgress.poll().get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception) {
+                throw (Exception) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Cancels the tasks whose results were not returned yet.
+     */
+    @Override
+    public void close() {
+        for (Future<R> future : inProgress) {
+            future.cancel(true);
+        }
+        inProgress.clear();
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.bulkcommon;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertNull;
+import static org.testng.AssertJUnit.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.testng.annotations.Test;
+
+public class NdjsonLineReaderTest {
+    private static final String NDJSON = "{\"id\":\"1\"}\r\n{\"name\":\"éè\"}\n\n{\"id\":\"333\"}";
+
+    @Test
+    public void testPositions() throws Exception {
+        byte[] content = NDJSON.getBytes(StandardCharsets.UTF_8);
+        try (NdjsonLineReader reader = new NdjsonLineReader(new ByteArrayInputStream(content), 0)) {
+            assertEquals("{\"id\":\"1\"}", reader.readLine());
+            assertEquals(12, reader.getLineStartPosition());
+            assertEquals("{\"name\":\"éè\"}", reader.readLine());
+            assertEquals(28, reader.getLineStartPosition());
+            assertEquals("", reader.readLine());
+            assertEquals(29, reader.getLineStartPosition());
+            assertEquals("{\"id\":\"333\"}", reader.readLine());
+            assertEquals(content.length, reader.getLineStartPosition());
+            assertNull(reader.readLine());
+        }
+    }
+
+    @Test
+    public void testResumeFromPosition() throws Exception {
+        byte[] content = NDJSON.getBytes(StandardCharsets.UTF_8);
+        List<String> expected = Arrays.asList("{\"id\":\"1\"}", "{\"name\":\"éè\"}", "", "{\"id\":\"333\"}");
+        // Read one line at a time, reopening the content at the position of the next line each time.
+        List<String> lines = new ArrayList<>();
+        long position = 0;
+        while (true) {
+            int offset = (int) Math.max(position - 1, 0);
+            NdjsonLineReader reader = new NdjsonLineReader(new NdjsonRangeInputStream(
+                    new ByteArrayInputStream(content, offset, content.length - offset), position, Long.MAX_VALUE));
+            String line = reader.readLine();
+            reader.close();
+            if (line == null) {
+                break;
+            }
+            lines.add(line);
+            position = reader.getLineStartPosition();
+        }
+        assertEquals(expected, lines);
+    }
+
+    @Test
+    public void testResumeAfterFailureInLine() throws Exception {
+        byte[] content = NDJSON.getBytes(StandardCharsets.UTF_8);
+        List<String> lines = new ArrayList<>();
+        long position;
+        // The stream fails in the middle of the second line, after part of it was read into the buffer.
+        try (NdjsonLineReader reader = new NdjsonLineReader(new FailingInputStream(content, 20, 4), 0)) {
+            lines.add(reader.readLine());
+            try {
+                reader.readLine();
+                fail();
+            } catch (IOException e) {
+                // expected
+            }
+            position = reader.getLineStartPosition();
+        }
+        assertEquals(12, position);
+
+        // Continuing from the checkpoint reads the second line again instead of skipping it.
+        int offset = (int) position - 1;
+        try (NdjsonLineReader reader = new NdjsonLineReader(new NdjsonRangeInputStream(
+                new ByteArrayInputStream(content, offset, content.length - offset), position, Long.MAX_VALUE))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+        }
+        assertEquals(Arrays.asList("{\"id\":\"1\"}", "{\"name\":\"éè\"}", "", "{\"id\":\"333\"}"), lines);
+    }
+
+    /**
+     * Returns the content in small chunks and fails once a given number of bytes were read.
+     */
+    private static class FailingInputStream extends InputStream {
+        private final ByteArrayInputStream in;
+        private final int failAt;
+        private final int chunkSize;
+        private int count = 0;
+
+        FailingInputStream(byte[] content, int failAt, int chunkSize) {
+            this.in = new ByteArrayInputStream(content);
+            this.failAt = failAt;
+            this.chunkSize = chunkSize;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) == -1 ? -1 : b[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (count >= failAt) {
+                throw new IOException("connection reset");
+            }
+            int n = in.read(b, off, Math.min(Math.min(len, chunkSize), failAt - count));
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+    }
+}
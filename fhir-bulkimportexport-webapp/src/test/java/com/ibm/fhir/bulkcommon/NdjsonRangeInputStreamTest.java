@@ -0,0 +1,87 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.bulkcommon;
+
+import static org.testng.AssertJUnit.assertEquals;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.testng.annotations.Test;
+
+public class NdjsonRangeInputStreamTest {
+    private static final String NDJSON = "{\"id\":\"1\"}\n{\"id\":\"22\"}\n\n{\"id\":\"333\"}\n{\"id\":\"4\"}";
+
+    @Test
+    public void testEachLineReadOnce() throws Exception {
+        byte[] content = NDJSON.getBytes(StandardCharsets.UTF_8);
+        List<String> expected = Arrays.asList(NDJSON.split("\n"));
+        // Split the content into 2 ranges at every possible position.
+        for (int split = 0; split <= content.length; split++) {
+            List<String> lines = new ArrayList<>();
+            lines.addAll(readRange(content, 0, split));
+            lines.addAll(readRange(content, split, content.length));
+            assertEquals("split at " + split, expected, lines);
+        }
+    }
+
+    @Test
+    public void testRangesOfOneByte() throws Exception {
+        byte[] content = NDJSON.getBytes(StandardCharsets.UTF_8);
+        List<String> lines = new ArrayList<>();
+        for (int start = 0; start < content.length; start++) {
+            lines.addAll(readRange(content, start, start + 1));
+        }
+        assertEquals(Arrays.asList(NDJSON.split("\n")), lines);
+    }
+
+    @Test
+    public void testBulkRead() throws Exception {
+        byte[] content = NDJSON.getBytes(StandardCharsets.UTF_8);
+        // The lines of the first range are returned by a single read, up to the end of the line cut by the range end.
+        int rangeEnd = NDJSON.indexOf("333");
+        try (NdjsonRangeInputStream in = new NdjsonRangeInputStream(new BulkOnlyInputStream(content, 0), 0, rangeEnd)) {
+            byte[] b = new byte[content.length];
+            int count = in.read(b, 0, b.length);
+            assertEquals(NDJSON.indexOf("{\"id\":\"4\"}"), count);
+            assertEquals(-1, in.read(b, 0, b.length));
+            assertEquals(count, in.getPosition());
+        }
+    }
+
+    private List<String> readRange(byte[] content, int rangeStart, int rangeEnd) throws Exception {
+        int offset = Math.max(rangeStart - 1, 0);
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new NdjsonRangeInputStream(
+                new BulkOnlyInputStream(content, offset), rangeStart, rangeEnd), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * Fails single byte reads, so that the tests check that the wrapped stream is read in bulk.
+     */
+    private static class BulkOnlyInputStream extends ByteArrayInputStream {
+        BulkOnlyInputStream(byte[] content, int offset) {
+            super(content, offset, content.length - offset);
+        }
+
+        @Override
+        public synchronized int read() {
+            throw new UnsupportedOperationException("single byte read");
+        }
+    }
+}
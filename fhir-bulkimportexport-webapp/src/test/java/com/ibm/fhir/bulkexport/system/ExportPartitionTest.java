@@ -0,0 +1,116 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.bulkexport.system;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+import java.lang.reflect.Proxy;
+import java.util.Properties;
+
+import javax.batch.api.partition.PartitionPlan;
+import javax.batch.runtime.context.JobContext;
+import javax.batch.runtime.context.StepContext;
+
+import org.testng.annotations.Test;
+
+import com.ibm.fhir.bulkcommon.Constants;
+
+/**
+ * Tests the partitioning of system export by resource type, and the merging of the exit statuses of the partitions
+ * into the job exit status.
+ */
+public class ExportPartitionTest {
+
+    @Test
+    public void testOnePartitionPerResourceType() throws Exception {
+        ExportPartitionMapper mapper = new ExportPartitionMapper();
+        mapper.fhirResourceType = "Patient, Observation,Condition";
+
+        PartitionPlan plan = mapper.mapPartitions();
+
+        assertEquals(plan.getPartitions(), 3);
+        assertEquals(plan.getThreads(), 3);
+        Properties[] partitionProps = plan.getPartitionProperties();
+        assertEquals(partitionProps.length, 3);
+        assertEquals(partitionProps[0].getProperty(Constants.EXPORT_PARTITION_RESOURCE_TYPE), "Patient");
+        assertEquals(partitionProps[1].getProperty(Constants.EXPORT_PARTITION_RESOURCE_TYPE), "Observation");
+        assertEquals(partitionProps[2].getProperty(Constants.EXPORT_PARTITION_RESOURCE_TYPE), "Condition");
+    }
+
+    @Test
+    public void testPartitionThreadsLimited() throws Exception {
+        ExportPartitionMapper mapper = new ExportPartitionMapper();
+        mapper.fhirResourceType = "Patient,Observation,Condition,Encounter,Procedure,Immunization,Claim";
+
+        PartitionPlan plan = mapper.mapPartitions();
+
+        assertEquals(plan.getPartitions(), 7);
+        assertEquals(plan.getThreads(), Constants.EXPORT_MAX_PARTITIONPROCESSING_THREADNUMBER);
+    }
+
+    @Test
+    public void testCollector() throws Exception {
+        ExportPartitionCollector collector = collector("Patient", null);
+        // nothing has been exported by the partition yet
+        assertNull(collector.collectPartitionData());
+
+        collector = collector("Patient", "Patient[1000,200]");
+        assertEquals((String[]) collector.collectPartitionData(), new String[] { "Patient", "Patient[1000,200]" });
+    }
+
+    @Test
+    public void testAnalyzerMergesInResourceTypeOrder() throws Exception {
+        ExitStatusHolder job = new ExitStatusHolder();
+        ExportPartitionAnalyzer analyzer = new ExportPartitionAnalyzer();
+        analyzer.fhirResourceType = "Patient,Observation,Condition";
+        analyzer.jobContext = job.proxy(JobContext.class);
+
+        // the partitions report in any order, and report again after each checkpoint
+        analyzer.analyzeCollectorData(collector("Observation", "Observation[1000]").collectPartitionData());
+        assertEquals(job.exitStatus, "Observation[1000]");
+        analyzer.analyzeCollectorData(collector("Patient", "Patient[1000]").collectPartitionData());
+        analyzer.analyzeCollectorData(collector("Condition", null).collectPartitionData());
+        assertEquals(job.exitStatus, "Patient[1000]:Observation[1000]");
+
+        analyzer.analyzeCollectorData(collector("Observation", "Observation[1000,1000,200]").collectPartitionData());
+        analyzer.analyzeCollectorData(collector("Condition", "Condition[5]").collectPartitionData());
+        analyzer.analyzeCollectorData(collector("Patient", "Patient[1000,300]").collectPartitionData());
+        assertEquals(job.exitStatus, "Patient[1000,300]:Observation[1000,1000,200]:Condition[5]");
+    }
+
+    private static ExportPartitionCollector collector(String resourceType, String exitStatus) {
+        ExitStatusHolder step = new ExitStatusHolder();
+        step.exitStatus = exitStatus;
+        ExportPartitionCollector collector = new ExportPartitionCollector();
+        collector.exportPartitionResourceType = resourceType;
+        collector.stepCtx = step.proxy(StepContext.class);
+        return collector;
+    }
+
+    /**
+     * Backs the exit status of a JobContext or StepContext, which is all the partition artifacts use.
+     */
+    private static class ExitStatusHolder {
+        private String exitStatus;
+
+        private <T> T proxy(Class<T> contextType) {
+            return contextType.cast(Proxy.newProxyInstance(contextType.getClassLoader(), new Class<?>[] { contextType },
+                    (proxy, method, args) -> {
+                        switch (method.getName()) {
+                        case "getExitStatus":
+                            return exitStatus;
+                        case "setExitStatus":
+                            exitStatus = (String) args[0];
+                            return null;
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                        }
+                    }));
+        }
+    }
+}
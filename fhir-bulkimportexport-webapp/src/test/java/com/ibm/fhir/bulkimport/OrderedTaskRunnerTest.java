@@ -0,0 +1,108 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.bulkimport;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Tests the ordering, the backpressure and the cancellation of the tasks of the OrderedTaskRunner,
+ * which parses and validates the resources of bulk import ahead of the DB writes.
+ */
+public class OrderedTaskRunnerTest {
+    private ExecutorService executor;
+
+    @BeforeMethod
+    public void createExecutor() {
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void shutdownExecutor() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testResultsInInputOrder() throws Exception {
+        List<Integer> inputs = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            inputs.add(i);
+        }
+        // the tasks submitted whose result wasn't returned yet
+        AtomicInteger ahead = new AtomicInteger();
+        AtomicInteger maxAhead = new AtomicInteger();
+
+        List<Integer> results = new ArrayList<>();
+        try (OrderedTaskRunner<Integer, Integer> runner = new OrderedTaskRunner<>(executor, 3, inputs.iterator(), input -> {
+            maxAhead.accumulateAndGet(ahead.incrementAndGet(), Math::max);
+            return () -> {
+                // the later tasks of each group finish first
+                Thread.sleep(3 - input % 3);
+                return input;
+            };
+        })) {
+            while (runner.hasNext()) {
+                results.add(runner.next());
+                ahead.decrementAndGet();
+            }
+        }
+
+        assertEquals(results, inputs);
+        assertEquals(maxAhead.get(), 3);
+    }
+
+    @Test
+    public void testTaskFailureCancelsRemaining() throws Exception {
+        CountDownLatch blocked = new CountDownLatch(1);
+        AtomicBoolean completed = new AtomicBoolean();
+
+        List<String> results = new ArrayList<>();
+        try (OrderedTaskRunner<String, String> runner = new OrderedTaskRunner<>(executor, 3,
+                Arrays.asList("a", "fail", "b", "c").iterator(), input -> () -> {
+                    switch (input) {
+                    case "fail":
+                        throw new IllegalStateException("Unable to parse");
+                    case "b":
+                        // only completes if it isn't cancelled
+                        blocked.await(30, TimeUnit.SECONDS);
+                        completed.set(true);
+                        return input;
+                    default:
+                        return input;
+                    }
+                })) {
+            while (runner.hasNext()) {
+                results.add(runner.next());
+            }
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals(e.getMessage(), "Unable to parse");
+        }
+
+        assertEquals(results, Arrays.asList("a"));
+        // the task of "b" was cancelled while it was queued or running
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        assertFalse(completed.get());
+    }
+}
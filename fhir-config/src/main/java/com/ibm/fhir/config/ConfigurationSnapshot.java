@@ -0,0 +1,112 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.config;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.json.JsonObject;
+import javax.json.JsonValue;
+
+/**
+ * This class holds the properties of a single configuration (for example, a tenant's fhir-server-config.json file)
+ * in a flat map from hierarchical property name (e.g. "fhirServer/core/defaultPrettyPrint") to the value of the
+ * property, already converted to the type returned by {@link PropertyGroup#convertJsonValue(JsonValue)}.
+ *
+ * <p>A snapshot is built once from a PropertyGroup and never changes afterwards, so that retrieving a property is
+ * a single map lookup. When the configuration is re-loaded, the caller replaces the whole snapshot with a new one.
+ * Array values are unmodifiable lists, and each object value is a single PropertyGroup instance shared by all
+ * callers.
+ */
+public class ConfigurationSnapshot {
+
+    /**
+     * The error raised while converting a property value, which is reported when the property is retrieved.
+     */
+    private static class InvalidValue {
+        private final Exception exception;
+
+        private InvalidValue(Exception exception) {
+            this.exception = exception;
+        }
+    }
+
+    private final JsonObject source;
+    private final Map<String, Object> values = new HashMap<>();
+
+    /**
+     * @param propertyGroup
+     *            the top-level property group of the configuration
+     */
+    public ConfigurationSnapshot(PropertyGroup propertyGroup) {
+        this.source = propertyGroup.getJsonObj();
+        if (source != null) {
+            flatten("", source);
+        }
+    }
+
+    /**
+     * Adds the properties of a JsonObject, and those of the objects it contains, to the map of values.
+     */
+    private void flatten(String prefix, JsonObject jsonObj) {
+        for (Map.Entry<String, JsonValue> entry : jsonObj.entrySet()) {
+            // interned so that lookups with a constant property name compare by identity
+            String propertyName = (prefix + entry.getKey()).intern();
+            JsonValue jsonValue = entry.getValue();
+            try {
+                Object value = PropertyGroup.convertJsonValue(jsonValue);
+                if (value instanceof List) {
+                    value = Collections.unmodifiableList((List<?>) value);
+                }
+                values.put(propertyName, value);
+            } catch (Exception e) {
+                values.put(propertyName, new InvalidValue(e));
+            }
+            if (jsonValue.getValueType() == JsonValue.ValueType.OBJECT) {
+                flatten(propertyName + PropertyGroup.PATH_ELEMENT_SEPARATOR, (JsonObject) jsonValue);
+            }
+        }
+    }
+
+    /**
+     * Returns true if this snapshot was built from the passed property group. The underlying JsonObjects are compared
+     * by identity, since the configuration cache creates new objects when the configuration file changes.
+     *
+     * @param propertyGroup
+     *            the current top-level property group of the configuration, or null
+     */
+    public boolean isCurrent(PropertyGroup propertyGroup) {
+        return propertyGroup != null && propertyGroup.getJsonObj() == source;
+    }
+
+    /**
+     * Retrieves the value of a property.
+     *
+     * @param propertyName
+     *            the hierarchical name of the property to be retrieved (e.g. "level1/level2/prop1")
+     * @return an instance of Boolean, Integer, Double, String, PropertyGroup or List&lt;Object&gt;, or null if the
+     *         property wasn't found
+     * @throws Exception
+     *             if the value of the property could not be converted
+     */
+    public Object getValue(String propertyName) throws Exception {
+        Object value = values.get(propertyName);
+        if (value instanceof InvalidValue) {
+            throw ((InvalidValue) value).exception;
+        }
+        return value;
+    }
+
+    /**
+     * @return the number of properties in this snapshot, including property groups
+     */
+    public int size() {
+        return values.size();
+    }
+}
@@ -1,5 +1,5 @@
 /*
- * (C) Copyright IBM Corp. 2017,2019
+ * (C) Copyright IBM Corp. 2017,2020
  *
  * SPDX-License-Identifier: Apache-2.0
  */
@@ -10,8 +10,6 @@ import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import javax.json.JsonValue;
-
 /**
  * This class contains a set of static helper methods related to configuration parameters.
  * The functions in this class will try to first retrieve a config property from the current
@@ -46,41 +44,45 @@ public class FHIRConfigHelper {
     }
 
     /**
-     * This function retrieves the specified property as a generic JsonValue. First we try to retrieve the property from
+     * This function retrieves the value of the specified property. First we try to retrieve the property from
      * the current tenant's config, and then if not found we'll also look in the "default" config.
+     * The properties are retrieved from the snapshots of the configurations, in which each property value
+     * has already been converted to the corresponding java.lang.* type.
      * 
      * @param propertyName
      *            the hierarchical name of the property to be retrieved (e.g. "level1/level2/prop1")
-     * @return a JsonValue representing the property's value or null if it wasn't found in either config
+     * @return the property's value (see {@link PropertyGroup#convertJsonValue}) or null if it wasn't found in either config
+     * @throws Exception if the value of the property could not be converted
      */
-    private static JsonValue getPropertyFromTenantOrDefault(String propertyName) {
-        JsonValue result = null;
+    private static Object getPropertyFromTenantOrDefault(String propertyName) throws Exception {
+        Object result = null;
 
-        PropertyGroup pg = null;
+        ConfigurationSnapshot snapshot = null;
         String tenantId = FHIRRequestContext.get().getTenantId();
 
-        // First, try to retrieve the configuration (property group) associated with the
+        // First, try to retrieve the configuration snapshot associated with the
         // current thread's tenant-id.
         try {
-            pg = FHIRConfiguration.getInstance().loadConfigurationForTenant(tenantId);
-            if (pg != null) {
-                result = pg.getJsonValue(propertyName);
-            }
+            snapshot = FHIRConfiguration.getInstance().loadSnapshotForTenant(tenantId);
         } catch (Exception e) {
             log.log(Level.WARNING, "Error loading configuration for tenant-id '" + tenantId + "': " + e.getMessage());
         }
+        if (snapshot != null) {
+            result = snapshot.getValue(propertyName);
+        }
 
         // If we didn't find the property in the tenant-specific config, then
         // let's try to find it in the default config.
         if (result == null && !tenantId.equals(FHIRConfiguration.DEFAULT_TENANT_ID)) {
+            snapshot = null;
             try {
-                pg = FHIRConfiguration.getInstance().loadConfiguration();
-                if (pg != null) {
-                    result = pg.getJsonValue(propertyName);
-                }
+                snapshot = FHIRConfiguration.getInstance().loadSnapshotForTenant(FHIRConfiguration.DEFAULT_TENANT_ID);
             } catch (Exception e) {
                 log.log(Level.WARNING, "Error loading default configuration: " + e.getMessage());
             }
+            if (snapshot != null) {
+                result = snapshot.getValue(propertyName);
+            }
         }
 
         return result;
@@ -100,47 +102,43 @@ public class FHIRConfigHelper {
     private static <T> T getTypedProperty(Class<T> expectedDataType, String propertyName, T defaultValue) {
         T result = null;
 
-        // Find the property as a generic JsonValue from either the current tenant's config or the default config.
-        JsonValue jsonValue = getPropertyFromTenantOrDefault(propertyName);
-
-        // If found, then convert the value to the expected type.
-        if (jsonValue != null) {
-            Object obj = null;
-            try {
-                obj = PropertyGroup.convertJsonValue(jsonValue);
-                if (obj != null) {
-                    // If the property was of the expected type, then just do the assignment.
-                    // Otherwise, we'll try to do some simple conversions (e.g. String --> Boolean).
-                    if (expectedDataType.isAssignableFrom(obj.getClass())) {
-                        result = (T) obj;
-                    } else {
-                        if (obj instanceof String) {
-                            if (Boolean.class.equals(expectedDataType)) {
-                                result = (T) Boolean.valueOf((String) obj);
-                            } else if (Integer.class.equals(expectedDataType)) {
-                                result = (T) Integer.valueOf((String) obj);
-                            } else if (Double.class.equals(expectedDataType)) {
-                                result = (T) Double.valueOf((String) obj);
-                            } else {
-                                throw new RuntimeException("Expected property " + propertyName + " to be of type " + expectedDataType.getName() + ", but was of type "
-                                        + obj.getClass().getName());
-                            }
-                        } else if (obj instanceof Boolean) {
-                            if (String.class.equals(expectedDataType)) {
-                                result = (T) ((Boolean)obj).toString();
-                            } else {
-                                throw new RuntimeException("Expected property " + propertyName + " to be of type " + expectedDataType.getName() + ", but was of type "
-                                        + obj.getClass().getName());
-                            }
+        // Find the property from either the current tenant's config or the default config, and
+        // if found, then convert the value to the expected type.
+        Object obj = null;
+        try {
+            obj = getPropertyFromTenantOrDefault(propertyName);
+            if (obj != null) {
+                // If the property was of the expected type, then just do the assignment.
+                // Otherwise, we'll try to do some simple conversions (e.g. String --> Boolean).
+                if (expectedDataType.isAssignableFrom(obj.getClass())) {
+                    result = (T) obj;
+                } else {
+                    if (obj instanceof String) {
+                        if (Boolean.class.equals(expectedDataType)) {
+                            result = (T) Boolean.valueOf((String) obj);
+                        } else if (Integer.class.equals(expectedDataType)) {
+                            result = (T) Integer.valueOf((String) obj);
+                        } else if (Double.class.equals(expectedDataType)) {
+                            result = (T) Double.valueOf((String) obj);
+                        } else {
+                            throw new RuntimeException("Expected property " + propertyName + " to be of type " + expectedDataType.getName() + ", but was of type "
+                                    + obj.getClass().getName());
+                        }
+                    } else if (obj instanceof Boolean) {
+                        if (String.class.equals(expectedDataType)) {
+                            result = (T) ((Boolean)obj).toString();
                         } else {
                             throw new RuntimeException("Expected property " + propertyName + " to be of type " + expectedDataType.getName() + ", but was of type "
                                     + obj.getClass().getName());
                         }
+                    } else {
+                        throw new RuntimeException("Expected property " + propertyName + " to be of type " + expectedDataType.getName() + ", but was of type "
+                                + obj.getClass().getName());
                     }
                 }
-            } catch (Exception e) {
-                throw new RuntimeException("Unexpected error converting property '" + propertyName + "' to native type.", e);
             }
+        } catch (Exception e) {
+            throw new RuntimeException("Unexpected error converting property '" + propertyName + "' to native type.", e);
         }
 
         return (result != null ? result : defaultValue);
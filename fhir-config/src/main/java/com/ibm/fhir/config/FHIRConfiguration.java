@@ -9,6 +9,8 @@ package com.ibm.fhir.config;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Logger;
 
 /**
@@ -33,6 +35,10 @@ public class FHIRConfiguration {
     public static final String PROPERTY_CHECK_REFERENCE_TYPES = "fhirServer/core/checkReferenceTypes";
     public static final String PROPERTY_CONDITIONAL_DELETE_MAX_NUMBER = "fhirServer/core/conditionalDeleteMaxNumber";
     public static final String PROPERTY_SERVER_REGISTRY_RESOURCE_PROVIDER_ENABLED = "fhirServer/core/serverRegistryResourceProviderEnabled";
+    public static final String PROPERTY_JSON_PARSER_STREAMING = "fhirServer/core/jsonParserStreaming";
+    public static final String PROPERTY_PARALLEL_SEARCH_PARAMETER_EXTRACTION = "fhirServer/core/parallelSearchParameterExtraction";
+    public static final String PROPERTY_BATCH_PARALLELISM = "fhirServer/core/batchParallelism";
+    public static final String PROPERTY_PRECOMPUTE_VALUE_SET_EXPANSIONS = "fhirServer/core/precomputeValueSetExpansions";
 
     public static final String PROPERTY_SEARCH_PARAMETER_FILTER = "fhirServer/searchParameterFilter";
 
@@ -76,10 +82,18 @@ public class FHIRConfiguration {
     public static final String PROPERTY_JDBC_ENABLE_CODE_SYSTEMS_CACHE = "fhirServer/persistence/jdbc/enableCodeSystemsCache";
     public static final String PROPERTY_JDBC_ENABLE_PARAMETER_NAMES_CACHE = "fhirServer/persistence/jdbc/enableParameterNamesCache";
     public static final String PROPERTY_JDBC_ENABLE_RESOURCE_TYPES_CACHE = "fhirServer/persistence/jdbc/enableResourceTypesCache";
+    public static final String PROPERTY_JDBC_ENABLE_RESOURCE_CACHE = "fhirServer/persistence/jdbc/enableResourceCache";
+    public static final String PROPERTY_JDBC_RESOURCE_CACHE_SIZE = "fhirServer/persistence/jdbc/resourceCacheSize";
+    public static final String PROPERTY_JDBC_RESOURCE_CACHE_TYPES = "fhirServer/persistence/jdbc/resourceCacheTypes";
+    public static final String PROPERTY_JDBC_PARAMETER_BATCH_SIZE = "fhirServer/persistence/jdbc/parameterBatchSize";
+    public static final String PROPERTY_JDBC_SKIP_UNCHANGED_UPDATES = "fhirServer/persistence/jdbc/skipUnchangedUpdates";
 
     // fhir-search - Bounding area
     public static final String PROPERTY_SEARCH_BOUNDING_AREA_RADIUS_TYPE = "fhirServer/search/useBoundingRadius";
 
+    // fhir-search - _total used when the request doesn't specify one
+    public static final String PROPERTY_SEARCH_DEFAULT_TOTAL = "fhirServer/search/defaultTotal";
+
     // bulkdata
     // JavaBatch Job id encryption key
     public static final String PROPERTY_BULKDATA_BATCHJOBID_ENCRYPTION_KEY = "fhirServer/bulkdata/bulkDataBatchJobIdEncryptionKey";
@@ -121,6 +135,11 @@ public class FHIRConfiguration {
      */
     private TenantSpecificPropertyGroupCache configCache = new TenantSpecificPropertyGroupCache();
 
+    /**
+     * The flattened snapshots of the cached PropertyGroup's keyed by tenant-id.
+     */
+    private Map<String, ConfigurationSnapshot> snapshots = new ConcurrentHashMap<>();
+
     /**
      * This method is used to configure an explicit top-level directory where FHIR Server configuration
      * information is expected to reside.
@@ -175,6 +194,30 @@ public class FHIRConfiguration {
         return configCache.getCachedObjectForTenant(tenantId);
     }
 
+    /**
+     * Returns a snapshot of the configuration for the specified tenant id, from which properties can be retrieved
+     * without walking the configuration's JSON structure. The snapshot is built once for each load of the
+     * configuration and replaced when the configuration is re-loaded.
+     *
+     * @param tenantId
+     *            a shortname representing the tenant whose configuration will be loaded
+     * @return the snapshot of this tenant's configuration or null if it doesn't exist
+     * @throws Exception
+     */
+    public ConfigurationSnapshot loadSnapshotForTenant(String tenantId) throws Exception {
+        PropertyGroup pg = loadConfigurationForTenant(tenantId);
+        if (pg == null) {
+            snapshots.remove(tenantId);
+            return null;
+        }
+        ConfigurationSnapshot snapshot = snapshots.get(tenantId);
+        if (snapshot == null || !snapshot.isCurrent(pg)) {
+            snapshot = new ConfigurationSnapshot(pg);
+            snapshots.put(tenantId, snapshot);
+        }
+        return snapshot;
+    }
+
     /**
      * Clears the entire cache of configuration objects. This can be used perhaps during testing when you need to clear
      * and re-load the configuration.
@@ -182,6 +225,7 @@ public class FHIRConfiguration {
     public void clearConfiguration() {
         synchronized (configCache) {
             configCache.clearCache();
+            snapshots.clear();
         }
     }
 
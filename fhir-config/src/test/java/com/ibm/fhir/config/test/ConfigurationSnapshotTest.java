@@ -0,0 +1,103 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.config.test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import javax.json.Json;
+import javax.json.JsonBuilderFactory;
+import javax.json.JsonObject;
+
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.ibm.fhir.config.ConfigurationSnapshot;
+import com.ibm.fhir.config.FHIRConfiguration;
+import com.ibm.fhir.config.PropertyGroup;
+
+public class ConfigurationSnapshotTest {
+    private static final JsonBuilderFactory BUILDER_FACTORY = Json.createBuilderFactory(null);
+    private PropertyGroup propertyGroup;
+
+    @BeforeClass
+    public void setup() {
+        JsonObject jsonObj =
+                BUILDER_FACTORY.createObjectBuilder()
+                        .add("level1", BUILDER_FACTORY.createObjectBuilder()
+                                .add("level2", BUILDER_FACTORY.createObjectBuilder()
+                                        .add("stringProp", "stringValue")
+                                        .add("encodedProp", "{xor}LDo8LTor")
+                                        .add("intProp", 123)
+                                        .add("doubleProp", 1.5)
+                                        .add("booleanProp", true)
+                                        .add("arrayProp", BUILDER_FACTORY.createArrayBuilder()
+                                                .add("Patient")
+                                                .add("Observation"))))
+                        .build();
+        propertyGroup = new PropertyGroup(jsonObj);
+    }
+
+    @Test
+    public void testValues() throws Exception {
+        ConfigurationSnapshot snapshot = new ConfigurationSnapshot(propertyGroup);
+        assertEquals(snapshot.getValue("level1/level2/stringProp"), "stringValue");
+        assertEquals(snapshot.getValue("level1/level2/encodedProp"), "secret");
+        assertEquals(snapshot.getValue("level1/level2/intProp"), 123);
+        assertEquals(snapshot.getValue("level1/level2/doubleProp"), 1.5);
+        assertEquals(snapshot.getValue("level1/level2/booleanProp"), Boolean.TRUE);
+        assertEquals(snapshot.getValue("level1/level2/arrayProp"), Arrays.asList("Patient", "Observation"));
+        assertNull(snapshot.getValue("level1/level2/missingProp"));
+        assertNull(snapshot.getValue("level1/missing/stringProp"));
+        assertNull(snapshot.getValue("level1/level2/stringProp/child"));
+        assertEquals(snapshot.size(), 8);
+    }
+
+    @Test
+    public void testPropertyGroups() throws Exception {
+        ConfigurationSnapshot snapshot = new ConfigurationSnapshot(propertyGroup);
+        PropertyGroup level2 = (PropertyGroup) snapshot.getValue("level1/level2");
+        assertNotNull(level2);
+        assertEquals(level2.getStringProperty("stringProp"), "stringValue");
+        // the same instance is returned each time
+        assertSame(snapshot.getValue("level1/level2"), level2);
+    }
+
+    @Test(expectedExceptions = UnsupportedOperationException.class)
+    public void testListUnmodifiable() throws Exception {
+        ConfigurationSnapshot snapshot = new ConfigurationSnapshot(propertyGroup);
+        @SuppressWarnings("unchecked")
+        List<Object> list = (List<Object>) snapshot.getValue("level1/level2/arrayProp");
+        list.set(0, "Encounter");
+    }
+
+    @Test
+    public void testIsCurrent() {
+        ConfigurationSnapshot snapshot = new ConfigurationSnapshot(propertyGroup);
+        assertTrue(snapshot.isCurrent(propertyGroup));
+        // the underlying JsonObjects are compared by identity
+        assertTrue(snapshot.isCurrent(new PropertyGroup(propertyGroup.getJsonObj())));
+        assertFalse(snapshot.isCurrent(new PropertyGroup(BUILDER_FACTORY.createObjectBuilder().build())));
+        assertFalse(snapshot.isCurrent(null));
+    }
+
+    @Test
+    public void testSnapshotReused() throws Exception {
+        FHIRConfiguration.setConfigHome("target/test-classes");
+        ConfigurationSnapshot snapshot = FHIRConfiguration.getInstance().loadSnapshotForTenant("default");
+        assertNotNull(snapshot);
+        assertSame(FHIRConfiguration.getInstance().loadSnapshotForTenant("default"), snapshot);
+        assertNull(FHIRConfiguration.getInstance().loadSnapshotForTenant("not-a-tenant"));
+    }
+}
@@ -23,6 +23,7 @@ import org.testng.annotations.Test;
 import com.ibm.fhir.config.FHIRConfigHelper;
 import com.ibm.fhir.config.FHIRConfiguration;
 import com.ibm.fhir.config.FHIRRequestContext;
+import com.ibm.fhir.core.FileChangeMonitor;
 
 public class FHIRConfigHelperTest {
 
@@ -192,6 +193,9 @@ public class FHIRConfigHelperTest {
         pw.println(jsonString);
         pw.close();
 
+        // The config cache is updated in the background; make sure the change is seen right away.
+        FileChangeMonitor.getInstance().refresh();
+
         s = FHIRConfigHelper.getStringProperty("fhirServer/property1", null);
         assertNotNull(s);
         assertEquals("property1Value2", s);
@@ -1,5 +1,5 @@
 /*
- * (C) Copyright IBM Corp. 2017,2019
+ * (C) Copyright IBM Corp. 2017,2020
  *
  * SPDX-License-Identifier: Apache-2.0
  */
@@ -18,12 +18,28 @@ public class CachedObjectHolder<T> {
     private String fileName;
     private long lastModified;
     private T cachedObject;
+    private boolean monitored;
+    private volatile boolean stale;
 
     public CachedObjectHolder(String fileName, T cachedObject) {
+        this(fileName, cachedObject, false);
+    }
+
+    /**
+     * @param fileName
+     *            the file the cached object was derived from
+     * @param cachedObject
+     *            the cached object, or null if the file doesn't exist
+     * @param monitored
+     *            true if changes to the file are reported through {@link #markStale()} by a
+     *            {@link FileChangeMonitor}, in which case {@link #isStale()} doesn't access the file
+     */
+    public CachedObjectHolder(String fileName, T cachedObject, boolean monitored) {
         setFileName(fileName);
         File f = new File(fileName);
         setLastModified(f.lastModified());
         setCachedObject(cachedObject);
+        this.monitored = monitored;
     }
     
     public CachedObjectHolder(T cachedObject) {
@@ -54,12 +70,27 @@ public class CachedObjectHolder<T> {
         this.cachedObject = cachedObject;
     }
 
+    public boolean isMonitored() {
+        return monitored;
+    }
+
+    /**
+     * Marks the cached object as stale, so that it is re-loaded the next time it is needed.
+     */
+    public void markStale() {
+        this.stale = true;
+    }
+
     /**
      * @return true iff the file from which the cached object was initially derived has been 
-     * modified since the object was cached.
+     * modified since the object was cached, or the object was marked as stale.
+     * For a monitored object, only the latter is checked.
      */
     public boolean isStale() {
-        if (fileName != null) {
+        if (stale) {
+            return true;
+        }
+        if (fileName != null && !monitored) {
             File f = new File(fileName);
             return !f.exists() || f.lastModified() > getLastModified();
         }
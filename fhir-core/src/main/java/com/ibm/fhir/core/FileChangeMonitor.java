@@ -0,0 +1,398 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.core;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * This class notifies listeners when a file is created, modified or deleted, so that objects derived from the file
+ * can be kept in memory without checking the file on each access.
+ *
+ * <p>The directory containing each registered file is watched with a {@link WatchService} and the listeners are
+ * called from a single background thread. Files whose directory cannot be watched (for example because it doesn't
+ * exist yet) are instead polled at a fixed interval; polling can also be used for all files by setting the
+ * {@value #PROPERTY_USE_POLLING} system property to true, which is needed for file systems such as NFS which don't
+ * deliver native change events. The interval, in milliseconds, is set with the {@value #PROPERTY_POLL_INTERVAL}
+ * system property and defaults to {@value #DEFAULT_POLL_INTERVAL}.
+ */
+public class FileChangeMonitor {
+    private static final String CLASSNAME = FileChangeMonitor.class.getName();
+    private static final Logger log = Logger.getLogger(CLASSNAME);
+
+    public static final String PROPERTY_POLL_INTERVAL = "com.ibm.fhir.core.fileChangeMonitor.pollInterval";
+    public static final String PROPERTY_USE_POLLING = "com.ibm.fhir.core.fileChangeMonitor.usePolling";
+    public static final long DEFAULT_POLL_INTERVAL = 2000;
+
+    private static final FileChangeMonitor INSTANCE = new FileChangeMonitor(Long.getLong(PROPERTY_POLL_INTERVAL, DEFAULT_POLL_INTERVAL),
+        Boolean.getBoolean(PROPERTY_USE_POLLING));
+
+    /**
+     * Receives the change notifications of a registered file.
+     */
+    @FunctionalInterface
+    public interface Listener {
+        /**
+         * Called from the monitor thread after the file was created, modified or deleted.
+         *
+         * @param file
+         *            the absolute, normalized path of the file
+         */
+        void fileChanged(Path file);
+    }
+
+    /**
+     * The registration of a listener for a single file.
+     */
+    public final class Registration {
+        private final WatchedFile watchedFile;
+        private final Listener listener;
+
+        private Registration(WatchedFile watchedFile, Listener listener) {
+            this.watchedFile = watchedFile;
+            this.listener = listener;
+        }
+
+        /**
+         * @return the registered file
+         */
+        public Path getFile() {
+            return watchedFile.file;
+        }
+
+        /**
+         * Stops the notifications of this registration.
+         */
+        public void cancel() {
+            unregister(this);
+        }
+    }
+
+    /**
+     * A registered file and the state it had when it was last checked.
+     */
+    private static class WatchedFile {
+        private final Path file;
+        private final Path dir;
+        private final List<Registration> registrations = new CopyOnWriteArrayList<>();
+        private volatile boolean watched;
+        private volatile boolean exists;
+        private volatile long lastModified;
+        private volatile long length;
+
+        private WatchedFile(Path file) {
+            this.file = file;
+            this.dir = file.getParent();
+            update();
+        }
+
+        /**
+         * Updates the recorded state of the file.
+         *
+         * @return true if the file was created, modified or deleted since the state was last recorded
+         */
+        private boolean update() {
+            File f = file.toFile();
+            boolean exists = f.exists();
+            long lastModified = exists ? f.lastModified() : 0;
+            // the length catches most rewrites within the modification time granularity of the file system
+            long length = exists ? f.length() : 0;
+            boolean changed = exists != this.exists || lastModified != this.lastModified || length != this.length;
+            this.exists = exists;
+            this.lastModified = lastModified;
+            this.length = length;
+            return changed;
+        }
+    }
+
+    private final long pollInterval;
+    private final WatchService watchService;
+    // guarded by this
+    private final Map<Path, WatchedFile> files = new HashMap<>();
+    private final Map<Path, WatchKey> watchKeys = new HashMap<>();
+    private Thread thread;
+    private volatile boolean closed;
+    // held while files are checked and listeners are called, so refresh() returns after any pending notification
+    private final Object dispatchLock = new Object();
+
+    /**
+     * @return the monitor shared by the caches of this JVM
+     */
+    public static FileChangeMonitor getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Creates a monitor other than the shared one, mainly for testing.
+     *
+     * @param pollInterval
+     *            the interval, in milliseconds, at which files which can't be watched are checked
+     * @param usePolling
+     *            true to poll all files instead of using a WatchService
+     */
+    public FileChangeMonitor(long pollInterval, boolean usePolling) {
+        this.pollInterval = pollInterval > 0 ? pollInterval : DEFAULT_POLL_INTERVAL;
+        WatchService watchService = null;
+        if (!usePolling) {
+            try {
+                watchService = FileSystems.getDefault().newWatchService();
+            } catch (IOException | UnsupportedOperationException e) {
+                log.log(Level.WARNING, "Unable to create a WatchService, file changes will be detected by polling", e);
+            }
+        }
+        this.watchService = watchService;
+    }
+
+    /**
+     * Registers a listener to be notified when a file is created, modified or deleted. The file doesn't need to exist.
+     *
+     * @param file
+     *            the file to monitor
+     * @param listener
+     *            the listener
+     * @return the registration, which can be used to stop the notifications
+     */
+    public synchronized Registration register(Path file, Listener listener) {
+        if (closed) {
+            throw new IllegalStateException("The file change monitor is closed");
+        }
+        Path path = file.toAbsolutePath().normalize();
+        WatchedFile watchedFile = files.get(path);
+        if (watchedFile == null) {
+            // start watching before recording the state of the file, so that no change is missed in between
+            boolean watched = watch(path.getParent());
+            watchedFile = new WatchedFile(path);
+            watchedFile.watched = watched;
+            files.put(path, watchedFile);
+        }
+        Registration registration = new Registration(watchedFile, listener);
+        watchedFile.registrations.add(registration);
+        if (thread == null) {
+            thread = new Thread(this::run, "fhir-file-change-monitor");
+            thread.setDaemon(true);
+            thread.start();
+        }
+        return registration;
+    }
+
+    /**
+     * @param file
+     *            the file
+     * @return true if at least one listener is registered for the file
+     */
+    public synchronized boolean isRegistered(Path file) {
+        return files.containsKey(file.toAbsolutePath().normalize());
+    }
+
+    private synchronized void unregister(Registration registration) {
+        WatchedFile watchedFile = registration.watchedFile;
+        watchedFile.registrations.remove(registration);
+        if (watchedFile.registrations.isEmpty() && files.remove(watchedFile.file) != null) {
+            boolean dirUsed = false;
+            for (WatchedFile other : files.values()) {
+                if (watchedFile.dir.equals(other.dir)) {
+                    dirUsed = true;
+                    break;
+                }
+            }
+            if (!dirUsed) {
+                WatchKey key = watchKeys.remove(watchedFile.dir);
+                if (key != null) {
+                    key.cancel();
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks every registered file and notifies the listeners of those which changed, without waiting for the
+     * background thread. This is useful when a caller needs a change it just made to be seen right away, such as
+     * in tests.
+     */
+    public void refresh() {
+        synchronized (dispatchLock) {
+            List<WatchedFile> changed = new ArrayList<>();
+            for (WatchedFile watchedFile : snapshot()) {
+                if (watchedFile.update()) {
+                    changed.add(watchedFile);
+                }
+            }
+            notifyListeners(changed);
+        }
+    }
+
+    /**
+     * Stops the background thread and drops all the registrations.
+     */
+    public void close() {
+        closed = true;
+        synchronized (this) {
+            files.clear();
+            watchKeys.clear();
+            if (thread != null) {
+                thread.interrupt();
+            }
+        }
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                log.log(Level.FINE, "Unable to close the WatchService", e);
+            }
+        }
+    }
+
+    /**
+     * @return true if the directory is watched
+     */
+    private synchronized boolean watch(Path dir) {
+        if (watchService == null || dir == null) {
+            return false;
+        }
+        if (watchKeys.containsKey(dir)) {
+            return true;
+        }
+        if (!dir.toFile().isDirectory()) {
+            return false;
+        }
+        try {
+            watchKeys.put(dir, dir.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE));
+            return true;
+        } catch (IOException | UnsupportedOperationException e) {
+            log.log(Level.FINE, "Unable to watch directory '" + dir + "', polling it instead", e);
+            return false;
+        }
+    }
+
+    private synchronized List<WatchedFile> snapshot() {
+        return new ArrayList<>(files.values());
+    }
+
+    private void run() {
+        long nextPoll = System.currentTimeMillis() + pollInterval;
+        while (!closed) {
+            try {
+                WatchKey key = null;
+                long timeout = Math.max(nextPoll - System.currentTimeMillis(), 1);
+                if (watchService != null) {
+                    key = watchService.poll(timeout, TimeUnit.MILLISECONDS);
+                } else {
+                    Thread.sleep(timeout);
+                }
+                if (key != null) {
+                    processEvents(key);
+                }
+                if (System.currentTimeMillis() >= nextPoll) {
+                    poll();
+                    nextPoll = System.currentTimeMillis() + pollInterval;
+                }
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                // closed
+            } catch (RuntimeException e) {
+                log.log(Level.WARNING, "Unexpected error while monitoring file changes", e);
+            }
+        }
+    }
+
+    /**
+     * Notifies the listeners of the files of a watched directory which changed.
+     *
+     * <p>The events only trigger a check of the recorded state of the files, so that a change which was already
+     * seen by {@link #refresh()} or by an earlier event, or a write which produces several events, results in a
+     * single notification.
+     */
+    private void processEvents(WatchKey key) {
+        synchronized (dispatchLock) {
+            Path dir = (Path) key.watchable();
+            List<WatchEvent<?>> events = key.pollEvents();
+            boolean valid = key.reset();
+
+            // when events were lost, every file is checked
+            boolean overflow = false;
+            for (WatchEvent<?> event : events) {
+                if (event.kind() == OVERFLOW) {
+                    overflow = true;
+                    break;
+                }
+            }
+
+            List<WatchedFile> changed = new ArrayList<>();
+            for (WatchedFile watchedFile : snapshot()) {
+                boolean inDir = dir.equals(watchedFile.dir);
+                if (!inDir && !overflow) {
+                    continue;
+                }
+                if (watchedFile.update()) {
+                    changed.add(watchedFile);
+                }
+                if (inDir && !valid) {
+                    watchedFile.watched = false;
+                }
+            }
+            if (!valid) {
+                // the directory was deleted, so its files are polled until it comes back
+                synchronized (this) {
+                    watchKeys.remove(dir);
+                }
+            }
+            notifyListeners(changed);
+        }
+    }
+
+    /**
+     * Checks the files which aren't watched, and starts watching their directory if it can now be watched.
+     */
+    private void poll() {
+        synchronized (dispatchLock) {
+            List<WatchedFile> changed = new ArrayList<>();
+            for (WatchedFile watchedFile : snapshot()) {
+                if (!watchedFile.watched) {
+                    // start watching first, so that a change made right after the check isn't missed
+                    watchedFile.watched = watch(watchedFile.dir);
+                    if (watchedFile.update()) {
+                        changed.add(watchedFile);
+                    }
+                }
+            }
+            notifyListeners(changed);
+        }
+    }
+
+    private void notifyListeners(List<WatchedFile> changed) {
+        for (WatchedFile watchedFile : changed) {
+            if (log.isLoggable(Level.FINE)) {
+                log.fine("Detected a change of file '" + watchedFile.file + "'");
+            }
+            for (Registration registration : watchedFile.registrations) {
+                try {
+                    registration.listener.fileChanged(watchedFile.file);
+                } catch (RuntimeException e) {
+                    log.log(Level.WARNING, "Error while handling the change of file '" + watchedFile.file + "'", e);
+                }
+            }
+        }
+    }
+}
@@ -1,5 +1,5 @@
 /*
- * (C) Copyright IBM Corp. 2017,2019
+ * (C) Copyright IBM Corp. 2017,2020
  *
  * SPDX-License-Identifier: Apache-2.0
  */
@@ -7,8 +7,10 @@
 package com.ibm.fhir.core;
 
 import java.io.File;
+import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -17,18 +19,30 @@ import java.util.logging.Logger;
  * we need to implement a tenant-specific cache of file-based objects.
  * Examples include: configuration parameters, structure definitions, search parameters, etc.
  * 
+ * <p>Lookups are served from memory. The file of each tenant whose directory exists, whether the file itself exists
+ * or not, is registered with the {@link FileChangeMonitor}, which re-loads the cached object in the background when the file changes and swaps it
+ * into the cache, so that lookups see either the old or the new object. If the new object can't be loaded,
+ * the cached one is marked as stale and the next lookup loads it again, reporting the error to the caller.
+ * Tenants without a directory are neither cached nor monitored, since the tenant id of a request is not checked
+ * against the configured tenants and would otherwise let each unknown tenant id add an entry that is never removed.
+ * 
  * @author padams
  */
 public abstract class TenantSpecificFileBasedCache<T> {
     private static final Logger log = Logger.getLogger(TenantSpecificFileBasedCache.class.getName());
 
-    private Map<String, CachedObjectHolder<T>> cache;
-    
+    private final Map<String, CachedObjectHolder<T>> cache = new ConcurrentHashMap<>();
+
+    // The file monitor registrations, by tenant-id; guarded by the cache lock.
+    private final Map<String, FileChangeMonitor.Registration> registrations = new HashMap<>();
+
+    // Serializes the loading, re-loading and removal of cached objects.
+    private final Object lock = new Object();
+
     // cacheType is used only in trace messages.
     private String cacheType = "<unknown>";
     
     public TenantSpecificFileBasedCache() {
-        cache = new HashMap<String, CachedObjectHolder<T>>();
     }
     
     public TenantSpecificFileBasedCache(String cacheType) {
@@ -41,7 +55,11 @@ public abstract class TenantSpecificFileBasedCache<T> {
      * This might be useful during testing when you need to clear out the entire cache and re-load.
      */
     public void clearCache() {
-        synchronized(cache) {
+        synchronized (lock) {
+            for (FileChangeMonitor.Registration registration : registrations.values()) {
+                registration.cancel();
+            }
+            registrations.clear();
             cache.clear();
         }
     }
@@ -64,7 +82,7 @@ public abstract class TenantSpecificFileBasedCache<T> {
 
             // If we didn't find it or it was stale, then we'll need to lock the cache.
             if (holder == null || holder.isStale()) {
-                synchronized (cache) {
+                synchronized (lock) {
 
                     // Check again to see if we can retrieve the cached object from the cache.
                     holder = cache.get(tenantId);
@@ -79,31 +97,87 @@ public abstract class TenantSpecificFileBasedCache<T> {
                     // Now check to see if we need to load a new object and add it to the cache.
                     if (holder == null) {
                         String fileName = getCacheEntryFilename(tenantId);
-                        File f = new File(fileName);
-                        T cachedObject = null;
-                        
-                        // If the file exists, then try to load it.
-                        if (f.exists()) {
-                            cachedObject = createCachedObject(f);
-                        }
-                        
-                        // If we were able to load the object from disk, then add it to the cache.
-                        if (cachedObject != null) {
-                            holder = new CachedObjectHolder<T>(fileName, cachedObject);
-                            cache.put(tenantId, holder);
-                            log.fine("Loaded " + this.cacheType + " for tenant-id '" + tenantId + "' and added it to the cache.");
-                        } else {
-                            log.fine("Tenant-specific " + this.cacheType + " for tenant '" + tenantId + "' not found, skipping...");
+
+                        File dir = new File(fileName).getAbsoluteFile().getParentFile();
+                        if (dir == null || !dir.isDirectory()) {
+                            log.fine("Directory of " + this.cacheType + " for tenant '" + tenantId + "' not found, skipping...");
+                            return null;
                         }
+
+                        // Start monitoring the file before reading it, so that no change is missed.
+                        monitor(tenantId, fileName);
+
+                        // The absence of the file is cached as well, until the file is created.
+                        holder = load(tenantId, fileName);
+                        cache.put(tenantId, holder);
                     }
                 }
             }
 
-            return (holder != null ? holder.getCachedObject() : null);
+            return holder.getCachedObject();
         } finally {
             if (log.isLoggable(Level.FINEST)) {
                 log.exiting(this.getClass().getName(), "getCachedObjectForTenant");
             }
         }
     }
+
+    /**
+     * Loads the object for a tenant from its file; the caller must hold the cache lock.
+     */
+    private CachedObjectHolder<T> load(String tenantId, String fileName) throws Exception {
+        File f = new File(fileName);
+        T cachedObject = null;
+
+        // If the file exists, then try to load it.
+        if (f.exists()) {
+            cachedObject = createCachedObject(f);
+        }
+
+        if (cachedObject != null) {
+            log.fine("Loaded " + this.cacheType + " for tenant-id '" + tenantId + "' and added it to the cache.");
+        } else {
+            log.fine("Tenant-specific " + this.cacheType + " for tenant '" + tenantId + "' not found, skipping...");
+        }
+        return new CachedObjectHolder<T>(fileName, cachedObject, true);
+    }
+
+    /**
+     * Registers the file of a tenant with the file monitor, unless it is already registered;
+     * the caller must hold the cache lock.
+     */
+    private void monitor(String tenantId, String fileName) {
+        Path file = new File(fileName).toPath().toAbsolutePath().normalize();
+        FileChangeMonitor.Registration registration = registrations.get(tenantId);
+        if (registration != null) {
+            if (registration.getFile().equals(file)) {
+                return;
+            }
+            // The file name changed, for example because the config home was changed.
+            registration.cancel();
+        }
+        registrations.put(tenantId, FileChangeMonitor.getInstance().register(file, changed -> reload(tenantId, changed)));
+    }
+
+    /**
+     * Called by the file monitor when the file of a tenant has changed.
+     * The new object is loaded and swapped in for the cached one, which remains visible in the meantime.
+     */
+    private void reload(String tenantId, Path changed) {
+        synchronized (lock) {
+            CachedObjectHolder<T> holder = cache.get(tenantId);
+            if (holder == null || !changed.equals(new File(holder.getFileName()).toPath().toAbsolutePath().normalize())) {
+                // Not cached, or cached from another file; the next lookup loads it.
+                return;
+            }
+            try {
+                cache.put(tenantId, load(tenantId, holder.getFileName()));
+                log.fine("Re-loaded " + this.cacheType + " for tenant-id '" + tenantId + "' after its file changed.");
+            } catch (Exception e) {
+                log.log(Level.WARNING, "Unable to re-load " + this.cacheType + " for tenant-id '" + tenantId
+                        + "', it will be loaded again on its next use", e);
+                holder.markStale();
+            }
+        }
+    }
 }
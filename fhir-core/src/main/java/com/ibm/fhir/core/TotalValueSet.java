@@ -0,0 +1,47 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.ibm.fhir.core;
+
+/**
+ * An enumeration of the values of the _total search result parameter.
+ *
+ * @see <a href="https://www.hl7.org/fhir/r4/search.html#total">https://www.hl7.org/fhir/r4/search.html#total</a>
+ */
+public enum TotalValueSet {
+    /**
+     * There is no need to populate the total count; the client won't use it
+     */
+    NONE("none"),
+
+    /**
+     * A rough estimate of the number of matching resources is sufficient
+     */
+    ESTIMATE("estimate"),
+
+    /**
+     * The client requests that the server provide an exact total of the number of matching resources
+     */
+    ACCURATE("accurate");
+
+    private final String value;
+
+    TotalValueSet(String value) {
+        this.value = value;
+    }
+
+    public java.lang.String value() {
+        return value;
+    }
+
+    public static TotalValueSet from(String value) {
+        for (TotalValueSet t : TotalValueSet.values()) {
+            if (t.value.equals(value)) {
+                return t;
+            }
+        }
+        throw new IllegalArgumentException(value);
+    }
+}
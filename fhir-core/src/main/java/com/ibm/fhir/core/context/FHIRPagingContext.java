@@ -1,11 +1,13 @@
 /*
- * (C) Copyright IBM Corp. 2016,2019
+ * (C) Copyright IBM Corp. 2016, 2020
  *
  * SPDX-License-Identifier: Apache-2.0
  */
 
 package com.ibm.fhir.core.context;
 
+import com.ibm.fhir.core.TotalValueSet;
+
 public interface FHIRPagingContext {
     int getLastPageNumber();
     int getPageNumber();
@@ -17,4 +19,28 @@ public interface FHIRPagingContext {
     void setTotalCount(int totalCount);
     boolean isLenient();
     void setLenient(boolean lenient);
+
+    /**
+     * An opaque token, issued with the previous page, which lets the persistence layer continue
+     * directly after the last result of that page instead of skipping over the preceding pages.
+     * May be null, in which case the page number alone determines the page.
+     */
+    String getContinuationToken();
+    void setContinuationToken(String continuationToken);
+
+    /**
+     * The opaque token to use for the next page, if the persistence layer supports one for this request.
+     */
+    String getNextContinuationToken();
+    void setNextContinuationToken(String nextContinuationToken);
+
+    /**
+     * How the total number of matches should be computed, as requested by the _total parameter or
+     * the configured default. May be null, in which case an accurate total is computed.
+     * <p>
+     * When the total isn't computed accurately, the persistence layer sets the last page number to the
+     * page after the current one if there are more results, or to the current page otherwise.
+     */
+    TotalValueSet getTotalParameter();
+    void setTotalParameter(TotalValueSet totalParameter);
 }
@@ -1,11 +1,12 @@
 /*
- * (C) Copyright IBM Corp. 2016,2019
+ * (C) Copyright IBM Corp. 2016, 2020
  *
  * SPDX-License-Identifier: Apache-2.0
  */
 
 package com.ibm.fhir.core.context.impl;
 
+import com.ibm.fhir.core.TotalValueSet;
 import com.ibm.fhir.core.context.FHIRPagingContext;
 
 public class FHIRPagingContextImpl implements FHIRPagingContext {
@@ -18,6 +19,9 @@ public class FHIRPagingContextImpl implements FHIRPagingContext {
     protected int pageSize;
     protected int totalCount;
     protected boolean lenient = true;
+    protected String continuationToken;
+    protected String nextContinuationToken;
+    protected TotalValueSet totalParameter;
     
     public FHIRPagingContextImpl() {
         this.pageNumber = DEFAULT_PAGE_NUMBER;
@@ -74,4 +78,34 @@ public class FHIRPagingContextImpl implements FHIRPagingContext {
     public void setLenient(boolean lenient) {
         this.lenient = lenient;
     }
+
+    @Override
+    public String getContinuationToken() {
+        return continuationToken;
+    }
+
+    @Override
+    public void setContinuationToken(String continuationToken) {
+        this.continuationToken = continuationToken;
+    }
+
+    @Override
+    public String getNextContinuationToken() {
+        return nextContinuationToken;
+    }
+
+    @Override
+    public void setNextContinuationToken(String nextContinuationToken) {
+        this.nextContinuationToken = nextContinuationToken;
+    }
+
+    @Override
+    public TotalValueSet getTotalParameter() {
+        return totalParameter;
+    }
+
+    @Override
+    public void setTotalParameter(TotalValueSet totalParameter) {
+        this.totalParameter = totalParameter;
+    }
 }
@@ -0,0 +1,251 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.core.util;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * A bounded, thread-safe cache with approximate Least Recently Used (LRU) eviction
+ *
+ * <p>Entries are stored in a {@link ConcurrentHashMap} and evicted using the CLOCK (second chance) algorithm: reads
+ * are lock-free and only set a reference bit on the entry, while writes that push the cache over its maximum size
+ * evict entries that have not been referenced since they were last considered for eviction.
+ *
+ * <p>Unlike {@link Map#computeIfAbsent(Object, Function)} on a {@link ConcurrentHashMap}, the mapping function passed
+ * to {@link #computeIfAbsent(Object, Function)} is invoked without holding any lock; it may therefore be invoked more
+ * than once for the same key when multiple threads miss at the same time, and it may safely access the cache itself.
+ *
+ * <p>Null keys and values are not supported.
+ *
+ * @param <K> the type of keys maintained by this cache
+ * @param <V> the type of cached values
+ */
+public class ConcurrentLRUCache<K, V> extends AbstractMap<K, V> {
+    private final int maxEntries;
+    private final ConcurrentHashMap<K, Node<K, V>> map;
+    private final ConcurrentLinkedQueue<Node<K, V>> clock = new ConcurrentLinkedQueue<>();
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+
+    private ConcurrentLRUCache(int maxEntries) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("maxEntries must be greater than 0");
+        }
+        this.maxEntries = maxEntries;
+        this.map = new ConcurrentHashMap<>(maxEntries + maxEntries / 3 + 1);
+    }
+
+    @Override
+    public V get(Object key) {
+        Node<K, V> node = map.get(key);
+        if (node == null) {
+            missCount.increment();
+            return null;
+        }
+        hitCount.increment();
+        return node.access();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return map.containsKey(key);
+    }
+
+    @Override
+    public V put(K key, V value) {
+        Objects.requireNonNull(value);
+        Node<K, V> node = new Node<>(key, value);
+        Node<K, V> previous = map.put(key, node);
+        if (previous != null) {
+            clock.remove(previous);
+        }
+        clock.offer(node);
+        evictIfNecessary();
+        return (previous != null) ? previous.value : null;
+    }
+
+    @Override
+    public V putIfAbsent(K key, V value) {
+        Objects.requireNonNull(value);
+        Node<K, V> node = new Node<>(key, value);
+        Node<K, V> existing = map.putIfAbsent(key, node);
+        if (existing != null) {
+            return existing.access();
+        }
+        clock.offer(node);
+        evictIfNecessary();
+        return null;
+    }
+
+    @Override
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+        Objects.requireNonNull(mappingFunction);
+        Node<K, V> node = map.get(key);
+        if (node != null) {
+            hitCount.increment();
+            return node.access();
+        }
+        missCount.increment();
+        V value = mappingFunction.apply(key);
+        if (value == null) {
+            return null;
+        }
+        V existing = putIfAbsent(key, value);
+        return (existing != null) ? existing : value;
+    }
+
+    @Override
+    public V remove(Object key) {
+        Node<K, V> node = map.remove(key);
+        if (node == null) {
+            return null;
+        }
+        clock.remove(node);
+        return node.value;
+    }
+
+    @Override
+    public void clear() {
+        map.clear();
+        clock.clear();
+    }
+
+    @Override
+    public int size() {
+        return map.size();
+    }
+
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        return new AbstractSet<Entry<K, V>>() {
+            @Override
+            public Iterator<Entry<K, V>> iterator() {
+                Iterator<Node<K, V>> iterator = map.values().iterator();
+                return new Iterator<Entry<K, V>>() {
+                    @Override
+                    public boolean hasNext() {
+                        return iterator.hasNext();
+                    }
+
+                    @Override
+                    public Entry<K, V> next() {
+                        Node<K, V> node = iterator.next();
+                        return new SimpleImmutableEntry<>(node.key, node.value);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return map.size();
+            }
+        };
+    }
+
+    /**
+     * The number of lookups that found a cached value
+     *
+     * @return
+     *     the hit count
+     */
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    /**
+     * The number of lookups that did not find a cached value
+     *
+     * @return
+     *     the miss count
+     */
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    /**
+     * The number of entries that were evicted to keep the cache within its maximum size
+     *
+     * @return
+     *     the eviction count
+     */
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    /**
+     * The maximum number of entries in this cache
+     *
+     * @return
+     *     the maximum number of entries
+     */
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    private void evictIfNecessary() {
+        if (map.size() <= maxEntries) {
+            return;
+        }
+        // every node is visited at most twice: once to clear its reference bit and once to evict it
+        int remaining = 2 * map.size();
+        while (map.size() > maxEntries && remaining-- > 0) {
+            Node<K, V> node = clock.poll();
+            if (node == null) {
+                return;
+            }
+            if (node.referenced) {
+                // second chance
+                node.referenced = false;
+                clock.offer(node);
+            } else if (map.remove(node.key, node)) {
+                evictionCount.increment();
+            }
+        }
+    }
+
+    /**
+     * Static factory method for creating ConcurrentLRUCache instances
+     *
+     * @param maxEntries
+     *     the maximum number of entries in the cache
+     * @return
+     *     a new ConcurrentLRUCache instance
+     */
+    public static <K, V> ConcurrentLRUCache<K, V> createCache(int maxEntries) {
+        return new ConcurrentLRUCache<>(maxEntries);
+    }
+
+    private static class Node<K, V> {
+        private final K key;
+        private final V value;
+        // benign data race: a lost update only affects which entry is evicted
+        private boolean referenced;
+
+        private Node(K key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        private V access() {
+            if (!referenced) {
+                referenced = true;
+            }
+            return value;
+        }
+    }
+}
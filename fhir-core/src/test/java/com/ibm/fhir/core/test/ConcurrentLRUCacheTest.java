@@ -0,0 +1,103 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.core.test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.annotations.Test;
+
+import com.ibm.fhir.core.util.ConcurrentLRUCache;
+
+public class ConcurrentLRUCacheTest {
+    @Test
+    public void testGetPutRemove() {
+        ConcurrentLRUCache<String, String> cache = ConcurrentLRUCache.createCache(2);
+        assertNull(cache.put("a", "1"));
+        assertEquals(cache.put("a", "2"), "1");
+        assertEquals(cache.get("a"), "2");
+        assertNull(cache.get("b"));
+        assertEquals(cache.remove("a"), "2");
+        assertTrue(cache.isEmpty());
+        assertEquals(cache.getHitCount(), 1);
+        assertEquals(cache.getMissCount(), 1);
+    }
+
+    @Test
+    public void testEviction() {
+        ConcurrentLRUCache<Integer, Integer> cache = ConcurrentLRUCache.createCache(3);
+        cache.put(1, 1);
+        cache.put(2, 2);
+        cache.put(3, 3);
+
+        // referenced entries get a second chance
+        cache.get(1);
+        cache.put(4, 4);
+
+        assertEquals(cache.size(), 3);
+        assertTrue(cache.containsKey(1));
+        assertFalse(cache.containsKey(2));
+        assertEquals(cache.getEvictionCount(), 1);
+
+        for (int i = 5; i < 100; i++) {
+            cache.put(i, i);
+            assertEquals(cache.size(), 3);
+        }
+        assertEquals(cache.getEvictionCount(), 96);
+    }
+
+    @Test
+    public void testComputeIfAbsent() {
+        ConcurrentLRUCache<String, Integer> cache = ConcurrentLRUCache.createCache(10);
+        AtomicInteger count = new AtomicInteger();
+        assertEquals(cache.computeIfAbsent("a", k -> count.incrementAndGet()), Integer.valueOf(1));
+        assertEquals(cache.computeIfAbsent("a", k -> count.incrementAndGet()), Integer.valueOf(1));
+        assertEquals(count.get(), 1);
+
+        // null values are not cached
+        assertNull(cache.computeIfAbsent("b", k -> null));
+        assertFalse(cache.containsKey("b"));
+
+        // the mapping function may access the cache
+        assertEquals(cache.computeIfAbsent("c", k -> cache.computeIfAbsent("d", j -> 4) + 1), Integer.valueOf(5));
+        assertEquals(cache.size(), 3);
+    }
+
+    @Test
+    public void testConcurrentAccess() throws Exception {
+        ConcurrentLRUCache<Integer, Integer> cache = ConcurrentLRUCache.createCache(64);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                int seed = t;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 10000; i++) {
+                        int key = (i * 31 + seed) % 256;
+                        assertEquals(cache.computeIfAbsent(key, k -> k * 2), Integer.valueOf(key * 2));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertTrue(cache.size() <= 64);
+        assertEquals(cache.getHitCount() + cache.getMissCount(), 80000);
+    }
+}
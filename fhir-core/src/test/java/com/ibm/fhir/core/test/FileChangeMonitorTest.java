@@ -0,0 +1,232 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.core.test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.ibm.fhir.core.FileChangeMonitor;
+import com.ibm.fhir.core.TenantSpecificFileBasedCache;
+
+public class FileChangeMonitorTest {
+    private Path dir;
+
+    @BeforeClass
+    public void createDir() throws Exception {
+        dir = Files.createTempDirectory("fhir-file-change-monitor");
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void deleteDir() throws Exception {
+        for (File f : dir.toFile().listFiles()) {
+            f.delete();
+        }
+        Files.deleteIfExists(dir);
+    }
+
+    @Test
+    public void testWatch() throws Exception {
+        FileChangeMonitor monitor = new FileChangeMonitor(60000, false);
+        try {
+            Path file = dir.resolve("watched.txt");
+            CountDownLatch latch = new CountDownLatch(1);
+            monitor.register(file, changed -> latch.countDown());
+            write(file, "created");
+            // the directory is watched, or polled at the default interval if the platform can't watch it
+            assertTrue(latch.await(30, TimeUnit.SECONDS));
+        } finally {
+            monitor.close();
+        }
+    }
+
+    @Test
+    public void testPolling() throws Exception {
+        FileChangeMonitor monitor = new FileChangeMonitor(100, true);
+        try {
+            Path file = dir.resolve("polled.txt");
+            CountDownLatch created = new CountDownLatch(1);
+            CountDownLatch deleted = new CountDownLatch(2);
+            monitor.register(file, changed -> {
+                created.countDown();
+                deleted.countDown();
+            });
+            write(file, "created");
+            assertTrue(created.await(10, TimeUnit.SECONDS));
+            Files.delete(file);
+            assertTrue(deleted.await(10, TimeUnit.SECONDS));
+        } finally {
+            monitor.close();
+        }
+    }
+
+    @Test
+    public void testMissingDirectory() throws Exception {
+        FileChangeMonitor monitor = new FileChangeMonitor(100, false);
+        try {
+            Path subdir = dir.resolve("subdir");
+            Path file = subdir.resolve("file.txt");
+            CountDownLatch latch = new CountDownLatch(1);
+            monitor.register(file, changed -> latch.countDown());
+            Files.createDirectory(subdir);
+            write(file, "created");
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+        } finally {
+            monitor.close();
+            Files.deleteIfExists(dir.resolve("subdir").resolve("file.txt"));
+            Files.deleteIfExists(dir.resolve("subdir"));
+        }
+    }
+
+    @Test
+    public void testRefreshAndCancel() throws Exception {
+        FileChangeMonitor monitor = new FileChangeMonitor(60000, true);
+        try {
+            Path file = dir.resolve("refreshed.txt");
+            AtomicInteger count = new AtomicInteger();
+            FileChangeMonitor.Registration registration = monitor.register(file, changed -> count.incrementAndGet());
+
+            monitor.refresh();
+            assertEquals(count.get(), 0);
+
+            write(file, "created");
+            monitor.refresh();
+            assertEquals(count.get(), 1);
+
+            registration.cancel();
+            Files.delete(file);
+            monitor.refresh();
+            assertEquals(count.get(), 1);
+        } finally {
+            monitor.close();
+        }
+    }
+
+    @Test
+    public void testSingleNotification() throws Exception {
+        FileChangeMonitor monitor = new FileChangeMonitor(100, false);
+        try {
+            Path file = dir.resolve("notified.txt");
+            AtomicInteger count = new AtomicInteger();
+            monitor.register(file, changed -> count.incrementAndGet());
+
+            write(file, "created");
+            monitor.refresh();
+            assertEquals(count.get(), 1);
+
+            // the events of a change which was already seen don't notify the listeners again
+            Thread.sleep(1000);
+            assertEquals(count.get(), 1);
+        } finally {
+            monitor.close();
+        }
+    }
+
+    @Test
+    public void testCache() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        TenantSpecificFileBasedCache<String> cache = new TenantSpecificFileBasedCache<String>("test") {
+            @Override
+            public String getCacheEntryFilename(String tenantId) {
+                return dir.resolve(tenantId + ".txt").toString();
+            }
+
+            @Override
+            public String createCachedObject(File file) throws Exception {
+                loads.incrementAndGet();
+                return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+            }
+        };
+        try {
+            Path file = dir.resolve("tenant1.txt");
+
+            // the absence of the file is cached too
+            assertNull(cache.getCachedObjectForTenant("tenant1"));
+            assertNull(cache.getCachedObjectForTenant("tenant1"));
+
+            write(file, "v1");
+            FileChangeMonitor.getInstance().refresh();
+            assertEquals(cache.getCachedObjectForTenant("tenant1"), "v1");
+            assertEquals(cache.getCachedObjectForTenant("tenant1"), "v1");
+            assertEquals(loads.get(), 1);
+
+            write(file, "v2");
+            FileChangeMonitor.getInstance().refresh();
+            assertEquals(cache.getCachedObjectForTenant("tenant1"), "v2");
+            assertEquals(loads.get(), 2);
+
+            Files.delete(file);
+            FileChangeMonitor.getInstance().refresh();
+            assertNull(cache.getCachedObjectForTenant("tenant1"));
+            assertEquals(loads.get(), 2);
+        } finally {
+            cache.clearCache();
+        }
+    }
+
+    @Test
+    public void testCacheUnknownTenant() throws Exception {
+        TenantSpecificFileBasedCache<String> cache = new TenantSpecificFileBasedCache<String>("test") {
+            @Override
+            public String getCacheEntryFilename(String tenantId) {
+                return dir.resolve(tenantId).resolve("config.txt").toString();
+            }
+
+            @Override
+            public String createCachedObject(File file) throws Exception {
+                return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+            }
+        };
+        Path tenantDir = dir.resolve("tenant2");
+        Path file = tenantDir.resolve("config.txt");
+        try {
+            // a tenant without a directory is neither monitored nor cached
+            assertNull(cache.getCachedObjectForTenant("tenant2"));
+            assertFalse(FileChangeMonitor.getInstance().isRegistered(file));
+
+            // so it is found as soon as it is created
+            Files.createDirectory(tenantDir);
+            write(file, "v1");
+            assertEquals(cache.getCachedObjectForTenant("tenant2"), "v1");
+            assertTrue(FileChangeMonitor.getInstance().isRegistered(file));
+        } finally {
+            cache.clearCache();
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(tenantDir);
+        }
+        assertFalse(FileChangeMonitor.getInstance().isRegistered(file));
+    }
+
+    /**
+     * Writes a file and moves its modification time forward, so that the change is seen
+     * even when the file system only records whole seconds. The content is written to a
+     * temporary file which is then moved into place, so that the monitor sees a single change
+     * however its events are delivered.
+     */
+    private void write(Path file, String content) throws Exception {
+        long lastModified = file.toFile().exists() ? file.toFile().lastModified() : 0;
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.write(tmp, content.getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(tmp, FileTime.fromMillis(Math.max(System.currentTimeMillis(), lastModified + 1000)));
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
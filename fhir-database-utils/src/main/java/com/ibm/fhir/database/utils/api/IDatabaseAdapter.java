@@ -311,9 +311,18 @@ public interface IDatabaseAdapter {
      *
      * @param schemaName
      * @param sequenceName
+     * @param incrementBy
      * @param cache
      */
-    public void createSequence(String schemaName, String sequenceName, int cache);
+    public void createSequence(String schemaName, String sequenceName, int incrementBy, int cache);
+
+    /**
+     * Change the increment of an existing sequence
+     * @param schemaName
+     * @param sequenceName
+     * @param incrementBy
+     */
+    public void alterSequenceIncrementBy(String schemaName, String sequenceName, int incrementBy);
 
     /**
      *
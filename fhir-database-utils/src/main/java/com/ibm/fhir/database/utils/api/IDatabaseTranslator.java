@@ -1,5 +1,5 @@
 /*
- * (C) Copyright IBM Corp. 2019
+ * (C) Copyright IBM Corp. 2019, 2020
  *
  * SPDX-License-Identifier: Apache-2.0
  */
@@ -145,4 +145,20 @@ public interface IDatabaseTranslator {
      * @return
      */
     boolean clobSupportsInline();
+
+    /**
+     * Get the statement which returns the optimizer's plan for the given query, including its
+     * estimate of the number of rows, without running the query
+     * @param sql the query, which may contain bind markers
+     * @return the statement, or null if the estimate can't be read from a statement on this database
+     */
+    String explainQuery(String sql);
+
+    /**
+     * Read the optimizer's estimate of the number of rows from the first row returned by the
+     * statement built by {@link #explainQuery(String)}
+     * @param planRow
+     * @return the estimate, or -1 if the row doesn't contain one
+     */
+    long getRowEstimate(String planRow);
 }
@@ -421,21 +421,30 @@ public abstract class CommonDatabaseAdapter implements IDatabaseAdapter, IDataba
     }
 
     @Override
-    public void createSequence(String schemaName, String sequenceName, int cache) {
+    public void createSequence(String schemaName, String sequenceName, int incrementBy, int cache) {
         /*
          * <CODE>CREATE SEQUENCE fhir_sequence
              AS BIGINT
      START WITH 1000
+   INCREMENT BY 1000
           CACHE 1000
        NO CYCLE;</CODE>
     */
         // The move to start with 1000 gives room for manual creation and update of sequences.
         final String sname = DataDefinitionUtil.getQualifiedName(schemaName, sequenceName);
-        final String ddl = "CREATE SEQUENCE " + sname + " AS BIGINT START WITH 1000 CACHE " + cache + " NO CYCLE";
+        final String ddl = "CREATE SEQUENCE " + sname + " AS BIGINT START WITH 1000 INCREMENT BY " + incrementBy
+                + " CACHE " + cache + " NO CYCLE";
         runStatement(ddl);
 
     }
 
+    @Override
+    public void alterSequenceIncrementBy(String schemaName, String sequenceName, int incrementBy) {
+        final String sname = DataDefinitionUtil.getQualifiedName(schemaName, sequenceName);
+        final String ddl = "ALTER SEQUENCE " + sname + " INCREMENT BY " + incrementBy;
+        runStatement(ddl);
+    }
+
     @Override
     public void dropSequence(String schemaName, String sequenceName) {
         final String sname = DataDefinitionUtil.getQualifiedName(schemaName, sequenceName);
@@ -121,6 +121,23 @@ public class Db2Adapter extends CommonDatabaseAdapter {
         runStatement(ddl);
     }
 
+    @Override
+    public void createSequence(String schemaName, String sequenceName, int incrementBy, int cache) {
+        // The DB2 stored procedures take a single value for each NEXT VALUE, so the values between the
+        // increments would be lost. The sequence is created with an increment of 1 instead, and DB2
+        // caches its values itself.
+        super.createSequence(schemaName, sequenceName, 1, cache);
+    }
+
+    @Override
+    public void alterSequenceIncrementBy(String schemaName, String sequenceName, int incrementBy) {
+        // See createSequence; the increment of 1 is kept
+        if (logger.isLoggable(Level.FINE)) {
+            logger.fine("Keeping the increment of sequence " + DataDefinitionUtil.getQualifiedName(schemaName, sequenceName)
+                    + " at 1 on DB2");
+        }
+    }
+
     @Override
     public void activateRowAccessControl(String schemaName, String tableName) {
         final String qualifiedTableName = DataDefinitionUtil.getQualifiedName(schemaName, tableName);
@@ -1,5 +1,5 @@
 /*
- * (C) Copyright IBM Corp. 2019
+ * (C) Copyright IBM Corp. 2019, 2020
  *
  * SPDX-License-Identifier: Apache-2.0
  */
@@ -184,4 +184,15 @@ public class Db2Translator implements IDatabaseTranslator {
     public boolean clobSupportsInline() {
         return true;
     }
+
+    @Override
+    public String explainQuery(String sql) {
+        // EXPLAIN writes the plan to the explain tables, which aren't part of the schema
+        return null;
+    }
+
+    @Override
+    public long getRowEstimate(String planRow) {
+        return -1;
+    }
 }
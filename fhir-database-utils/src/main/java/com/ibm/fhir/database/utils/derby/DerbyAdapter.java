@@ -184,18 +184,43 @@ public class DerbyAdapter extends CommonDatabaseAdapter {
     }
 
     @Override
-    public void createSequence(String schemaName, String sequenceName, int cache) {
+    public void createSequence(String schemaName, String sequenceName, int incrementBy, int cache) {
         /* CREATE SEQUENCE fhir_sequence
          *     AS BIGINT
          *     START WITH 1
+         *     INCREMENT BY 1000
          *     CACHE 1000
          *     NO CYCLE;
         */
         // Derby doesn't support CACHE
+        createSequence(schemaName, sequenceName, 1L, incrementBy);
+    }
+
+    @Override
+    public void alterSequenceIncrementBy(String schemaName, String sequenceName, int incrementBy) {
+        // Derby only supports ALTER SEQUENCE ... RESTART WITH, so the sequence is re-created
+        // with the new increment, starting with the value it would have returned next
         final String sname = DataDefinitionUtil.getQualifiedName(schemaName, sequenceName);
-        final String ddl = "CREATE SEQUENCE " + sname + " AS BIGINT START WITH 1 NO CYCLE";
-        runStatement(ddl);
+        Long nextValue = runStatement(new DerbyPeekSequence(schemaName, sequenceName));
+        if (nextValue == null) {
+            throw new IllegalStateException("Sequence not found: " + sname);
+        }
 
+        runStatement("DROP SEQUENCE " + sname + " RESTRICT");
+        createSequence(schemaName, sequenceName, nextValue, incrementBy);
+    }
+
+    /**
+     * Create the sequence with the given start value
+     * @param schemaName
+     * @param sequenceName
+     * @param startWith
+     * @param incrementBy
+     */
+    private void createSequence(String schemaName, String sequenceName, long startWith, int incrementBy) {
+        final String sname = DataDefinitionUtil.getQualifiedName(schemaName, sequenceName);
+        final String ddl = "CREATE SEQUENCE " + sname + " AS BIGINT START WITH " + startWith + " INCREMENT BY " + incrementBy + " NO CYCLE";
+        runStatement(ddl);
     }
 
     @Override
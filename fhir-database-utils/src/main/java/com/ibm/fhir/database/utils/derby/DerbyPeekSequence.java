@@ -0,0 +1,59 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.database.utils.derby;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import com.ibm.fhir.database.utils.api.IDatabaseSupplier;
+import com.ibm.fhir.database.utils.api.IDatabaseTranslator;
+import com.ibm.fhir.database.utils.common.DataDefinitionUtil;
+
+/**
+ * Get the value a Derby sequence will return next, without using it up
+ */
+public class DerbyPeekSequence implements IDatabaseSupplier<Long> {
+
+    // The schema of the sequence
+    private final String schemaName;
+
+    // The name of the sequence
+    private final String sequenceName;
+
+    /**
+     * Public constructor
+     * @param schemaName
+     * @param sequenceName
+     */
+    public DerbyPeekSequence(String schemaName, String sequenceName) {
+        this.schemaName = DataDefinitionUtil.assertValidName(schemaName);
+        this.sequenceName = DataDefinitionUtil.assertValidName(sequenceName);
+    }
+
+    @Override
+    public Long run(IDatabaseTranslator translator, Connection c) {
+        Long result = null;
+        final String sql = "VALUES SYSCS_UTIL.SYSCS_PEEK_AT_SEQUENCE(?, ?)";
+
+        try (PreparedStatement ps = c.prepareStatement(sql)) {
+            // the catalog stores the names in upper case
+            ps.setString(1, schemaName.toUpperCase());
+            ps.setString(2, sequenceName.toUpperCase());
+            ResultSet rs = ps.executeQuery();
+            if (rs.next()) {
+                result = rs.getLong(1);
+            }
+        }
+        catch (SQLException x) {
+            throw translator.translate(x);
+        }
+
+        return result;
+    }
+}
@@ -163,4 +163,15 @@ public class DerbyTranslator implements IDatabaseTranslator {
     public boolean clobSupportsInline() {
         return false;
     }
+
+    @Override
+    public String explainQuery(String sql) {
+        // the runtime statistics are only available after the query has run
+        return null;
+    }
+
+    @Override
+    public long getRowEstimate(String planRow) {
+        return -1;
+    }
 }
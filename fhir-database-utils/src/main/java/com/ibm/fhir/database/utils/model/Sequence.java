@@ -14,7 +14,11 @@ import com.ibm.fhir.database.utils.api.IDatabaseAdapter;
  * Sequence related to the SQL sequence
  */
 public class Sequence extends BaseObject {
+    // The version which added the increment to the sequences
+    private static final int INCREMENT_BY_VERSION = 2;
+
     private final int cache;
+    private final int incrementBy;
 
     /**
      * Public constructor
@@ -24,28 +28,45 @@ public class Sequence extends BaseObject {
      * @param cache
      */
     public Sequence(String schemaName, String sequenceName, int version, int cache) {
+        this(schemaName, sequenceName, version, cache, 1);
+    }
+
+    /**
+     * Public constructor
+     *
+     * @param schemaName
+     * @param sequenceName
+     * @param version
+     * @param cache
+     * @param incrementBy the increment of the sequence, which is changed by version 2 of the sequence
+     */
+    public Sequence(String schemaName, String sequenceName, int version, int cache, int incrementBy) {
         super(schemaName, sequenceName, DatabaseObjectType.SEQUENCE, version);
         this.cache = cache;
+        this.incrementBy = incrementBy;
     }
 
     @Override
     public void apply(IDatabaseAdapter target) {
-        target.createSequence(getSchemaName(), getObjectName(), this.cache);
+        target.createSequence(getSchemaName(), getObjectName(), this.incrementBy, this.cache);
     }
 
     @Override
     public void apply(Integer priorVersion, IDatabaseAdapter target) {
-        if (priorVersion != null && priorVersion > 0 && this.version > priorVersion) {
-            throw new UnsupportedOperationException("Upgrading sequences is not supported");
-        }
-
-        // Only if VERSION1 then we want to apply, else fall through
-        // Re-creating a sequence can have unintended consequences.
-        if (this.version == 1 && (priorVersion == null || priorVersion == 0)) {
+        if (priorVersion == null || priorVersion == 0) {
+            // Re-creating a sequence can have unintended consequences, so it's only created if it's new
             apply(target);
+        } else if (this.version > priorVersion) {
+            if (this.version > INCREMENT_BY_VERSION) {
+                throw new UnsupportedOperationException("Upgrading sequences is not supported");
+            }
+            // The sequence keeps its current value, only the increment of the following values changes.
+            // Earlier versions of the sequence always increment by 1.
+            if (this.incrementBy != 1) {
+                target.alterSequenceIncrementBy(getSchemaName(), getObjectName(), this.incrementBy);
+            }
         }
     }
-
     @Override
     public void drop(IDatabaseAdapter target) {
         target.dropSequence(getSchemaName(), getObjectName());
@@ -191,16 +191,27 @@ public class PostgreSqlAdapter extends CommonDatabaseAdapter {
     }
 
     @Override
-    public void createSequence(String schemaName, String sequenceName, int cache) {
+    public void createSequence(String schemaName, String sequenceName, int incrementBy, int cache) {
         /* CREATE SEQUENCE fhir_sequence
          *     AS BIGINT
          *     START WITH 1000
+         *     INCREMENT BY 1000
          *     CACHE 1000
          *     NO CYCLE;
         */
-        // PostgreSql doesn't support CACHE
+        // PostgreSql caches the values per session, and the values a session doesn't use are lost, so don't cache
+        // the values of a sequence which the FHIR server allocates in blocks anyway.
         final String sname = DataDefinitionUtil.getQualifiedName(schemaName, sequenceName);
-        final String ddl = "CREATE SEQUENCE " + sname + " AS BIGINT START WITH 1000 CACHE 1000 NO CYCLE";
+        final int sessionCache = incrementBy > 1 ? 1 : 1000;
+        final String ddl = "CREATE SEQUENCE " + sname + " AS BIGINT START WITH 1000 INCREMENT BY " + incrementBy
+                + " CACHE " + sessionCache + " NO CYCLE";
+        runStatement(ddl);
+    }
+
+    @Override
+    public void alterSequenceIncrementBy(String schemaName, String sequenceName, int incrementBy) {
+        final String sname = DataDefinitionUtil.getQualifiedName(schemaName, sequenceName);
+        final String ddl = "ALTER SEQUENCE " + sname + " INCREMENT BY " + incrementBy + " CACHE 1";
         runStatement(ddl);
     }
 
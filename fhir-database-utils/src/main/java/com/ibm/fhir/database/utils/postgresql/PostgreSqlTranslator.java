@@ -9,6 +9,8 @@ package com.ibm.fhir.database.utils.postgresql;
 import java.sql.SQLException;
 import java.util.Properties;
 import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import com.ibm.fhir.database.utils.api.ConnectionDetails;
 import com.ibm.fhir.database.utils.api.ConnectionException;
@@ -24,6 +26,9 @@ import com.ibm.fhir.database.utils.api.UniqueConstraintViolationException;
 public class PostgreSqlTranslator implements IDatabaseTranslator {
     private static final Logger logger = Logger.getLogger(PostgreSqlTranslator.class.getName());
 
+    // the estimate in the first line of the plan, e.g. "Hash Join  (cost=1.14..2.31 rows=42 width=8)"
+    private static final Pattern PLAN_ROWS = Pattern.compile(" rows=(\\d+) ");
+
     @Override
     public String addForUpdate(String sql) {
         return sql + " FOR UPDATE";
@@ -152,4 +157,15 @@ public class PostgreSqlTranslator implements IDatabaseTranslator {
     public boolean clobSupportsInline() {
         return false;
     }
+
+    @Override
+    public String explainQuery(String sql) {
+        return "EXPLAIN " + sql;
+    }
+
+    @Override
+    public long getRowEstimate(String planRow) {
+        Matcher m = PLAN_ROWS.matcher(planRow);
+        return m.find() ? Long.parseLong(m.group(1)) : -1;
+    }
 }
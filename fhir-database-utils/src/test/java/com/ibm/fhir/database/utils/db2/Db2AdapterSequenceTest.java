@@ -0,0 +1,74 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.database.utils.db2;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.testng.annotations.Test;
+
+import com.ibm.fhir.database.utils.api.IDatabaseStatement;
+import com.ibm.fhir.database.utils.api.IDatabaseSupplier;
+import com.ibm.fhir.database.utils.api.IDatabaseTarget;
+import com.ibm.fhir.database.utils.api.IDatabaseTranslator;
+import com.ibm.fhir.database.utils.model.Sequence;
+
+/**
+ * Tests that sequences keep an increment of 1 on DB2, whose stored procedures take one value per call
+ */
+public class Db2AdapterSequenceTest {
+    private static final String schemaName = "schema1";
+    private static final String sequenceName = "sequence1";
+
+    @Test
+    public void testCreateSequence() {
+        RecordingTarget target = new RecordingTarget();
+        new Sequence(schemaName, sequenceName, 2, 1000, 1000).apply(null, new Db2Adapter(target));
+
+        assertEquals(target.statements.size(), 1);
+        assertEquals(target.statements.get(0), "CREATE SEQUENCE " + schemaName + "." + sequenceName
+                + " AS BIGINT START WITH 1000 INCREMENT BY 1 CACHE 1000 NO CYCLE");
+    }
+
+    @Test
+    public void testUpgradeSequence() {
+        RecordingTarget target = new RecordingTarget();
+        new Sequence(schemaName, sequenceName, 2, 1000, 1000).apply(1, new Db2Adapter(target));
+
+        assertTrue(target.statements.isEmpty(), target.statements.toString());
+    }
+
+    /**
+     * Records the DDL instead of running it
+     */
+    private static class RecordingTarget implements IDatabaseTarget {
+        private final List<String> statements = new ArrayList<>();
+
+        @Override
+        public void runStatement(IDatabaseTranslator translator, String ddl) {
+            statements.add(ddl);
+        }
+
+        @Override
+        public void runStatementWithInt(IDatabaseTranslator translator, String sql, int value) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void runStatement(IDatabaseTranslator translator, IDatabaseStatement statement) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public <T> T runStatement(IDatabaseTranslator translator, IDatabaseSupplier<T> supplier) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
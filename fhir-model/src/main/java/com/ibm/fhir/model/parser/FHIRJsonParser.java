@@ -51,6 +51,7 @@ public class FHIRJsonParser extends FHIRAbstractParser {
     private static final JsonReaderFactory JSON_READER_FACTORY = Json.createReaderFactory(null);
 
     private final Stack<java.lang.String> stack = new Stack<>();
+    private FHIRJsonStreamParser streamParser;
 
     FHIRJsonParser() {
         // only visible to subclasses or classes/interfaces in the same package (e.g. FHIRParser)
@@ -62,6 +63,9 @@ public class FHIRJsonParser extends FHIRAbstractParser {
     }
 
     public <T extends Resource> T parseAndFilter(InputStream in, Collection<java.lang.String> elementsToInclude) throws FHIRParserException {
+        if (elementsToInclude == null && isStreaming()) {
+            return getStreamParser().parse(in);
+        }
         try (JsonReader jsonReader = JSON_READER_FACTORY.createReader(nonClosingInputStream(in), StandardCharsets.UTF_8)) {
             JsonObject jsonObject = jsonReader.readObject();
             return parseAndFilter(jsonObject, elementsToInclude);
@@ -78,6 +82,9 @@ public class FHIRJsonParser extends FHIRAbstractParser {
     }
 
     public <T extends Resource> T parseAndFilter(Reader reader, Collection<java.lang.String> elementsToInclude) throws FHIRParserException {
+        if (elementsToInclude == null && isStreaming()) {
+            return getStreamParser().parse(reader);
+        }
         try (JsonReader jsonReader = JSON_READER_FACTORY.createReader(nonClosingReader(reader))) {
             JsonObject jsonObject = jsonReader.readObject();
             return parseAndFilter(jsonObject, elementsToInclude);
@@ -113,12 +120,24 @@ public class FHIRJsonParser extends FHIRAbstractParser {
 
     @Override
     public boolean isPropertySupported(java.lang.String name) {
-        if (FHIRParser.PROPERTY_IGNORE_UNRECOGNIZED_ELEMENTS.equals(name)) {
+        if (FHIRParser.PROPERTY_IGNORE_UNRECOGNIZED_ELEMENTS.equals(name) || FHIRParser.PROPERTY_JSON_STREAMING.equals(name)) {
             return true;
         }
         return false;
     }
 
+    private boolean isStreaming() {
+        return getPropertyOrDefault(FHIRParser.PROPERTY_JSON_STREAMING, java.lang.Boolean.FALSE, java.lang.Boolean.class);
+    }
+
+    private FHIRJsonStreamParser getStreamParser() {
+        if (streamParser == null) {
+            streamParser = new FHIRJsonStreamParser();
+        }
+        streamParser.setProperty(FHIRParser.PROPERTY_IGNORE_UNRECOGNIZED_ELEMENTS, getPropertyOrDefault(FHIRParser.PROPERTY_IGNORE_UNRECOGNIZED_ELEMENTS, java.lang.Boolean.FALSE, java.lang.Boolean.class));
+        return streamParser;
+    }
+
     private Resource parseResource(java.lang.String elementName, JsonObject jsonObject, int elementIndex) {
         if (jsonObject == null) {
             return null;
@@ -16,24 +16,32 @@ import java.io.Reader;
 import java.io.StringReader;
 import java.io.StringWriter;
 import java.io.Writer;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 import javax.json.Json;
 import javax.json.JsonArray;
+import javax.json.JsonArrayBuilder;
 import javax.json.JsonObject;
+import javax.json.JsonObjectBuilder;
 import javax.json.JsonReaderFactory;
 import javax.json.JsonString;
 import javax.json.JsonValue;
+import javax.json.stream.JsonParser;
+import javax.json.stream.JsonParser.Event;
 
 import com.ibm.fhir.model.format.Format;
 import com.ibm.fhir.model.generator.FHIRGenerator;
 import com.ibm.fhir.model.generator.exception.FHIRGeneratorException;
 import com.ibm.fhir.model.resource.Resource;
+import com.ibm.fhir.model.type.Element;
 
 public final class JsonSupport {
     private static final JsonReaderFactory JSON_READER_FACTORY = Json.createReaderFactory(null);
@@ -225,4 +233,173 @@ public final class JsonSupport {
         }
         return resourceType;
     }
+
+    /**
+     * Advance the parser and require that the next event starts a JSON object
+     */
+    public static void requireObject(JsonParser parser, String key) {
+        Event event = parser.next();
+        if (event != Event.START_OBJECT) {
+            throw new IllegalArgumentException("Expected: JsonObject but found: " + getValueType(event) + " for element: " + key);
+        }
+    }
+    /**
+     * Advance the parser and require that the next event starts a JSON array
+     */
+    public static void requireArray(JsonParser parser, String key) {
+        Event event = parser.next();
+        if (event != Event.START_ARRAY) {
+            throw new IllegalArgumentException("Expected: JsonArray but found: " + getValueType(event) + " for element: " + key);
+        }
+    }
+
+    /**
+     * Advance the parser to the next member of a JSON array of objects
+     *
+     * @return true if the parser is positioned at the start of the next object, false if the end of the array was reached
+     */
+    public static boolean nextObject(JsonParser parser, String key) {
+        Event event = parser.next();
+        if (event == Event.END_ARRAY) {
+            return false;
+        }
+        if (event != Event.START_OBJECT) {
+            throw new IllegalArgumentException("Expected: JsonObject but found: " + getValueType(event) + " for element: " + key);
+        }
+        return true;
+    }
+
+    /**
+     * Skip over the value that starts with the passed event
+     */
+    public static void skipValue(JsonParser parser, Event event) {
+        if (event == Event.START_OBJECT || event == Event.START_ARRAY) {
+            // JsonParser.skipObject/skipArray are not supported by every provider (e.g. parsers over a JsonStructure)
+            int depth = 1;
+            while (depth > 0) {
+                switch (parser.next()) {
+                case START_OBJECT:
+                case START_ARRAY:
+                    depth++;
+                    break;
+                case END_OBJECT:
+                case END_ARRAY:
+                    depth--;
+                    break;
+                default:
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException if a different choice of the same choice element has already been parsed
+     */
+    public static String checkChoiceElement(String elementName, String key) {
+        if (elementName != null && !elementName.equals(key)) {
+            throw new IllegalArgumentException("Found multiple values for choice element: '" + elementName + "' and '" + key + "'");
+        }
+        return key;
+    }
+
+    /**
+     * Read the remainder of a JSON object whose member with the passed key has just been read from the parser
+     */
+    public static JsonObject readJsonObject(JsonParser parser, String key) {
+        JsonObjectBuilder builder = Json.createObjectBuilder();
+        while (key != null) {
+            builder.add(key, readJsonValue(parser, parser.next()));
+            key = (parser.next() == Event.KEY_NAME) ? parser.getString() : null;
+        }
+        return builder.build();
+    }
+
+    private static JsonValue readJsonValue(JsonParser parser, Event event) {
+        switch (event) {
+        case START_OBJECT:
+            return readJsonObject(parser, (parser.next() == Event.KEY_NAME) ? parser.getString() : null);
+        case START_ARRAY:
+            JsonArrayBuilder builder = Json.createArrayBuilder();
+            while ((event = parser.next()) != Event.END_ARRAY) {
+                builder.add(readJsonValue(parser, event));
+            }
+            return builder.build();
+        case VALUE_STRING:
+            return Json.createValue(parser.getString());
+        case VALUE_NUMBER:
+            return parser.isIntegralNumber() ? Json.createValue(parser.getLong()) : Json.createValue(parser.getBigDecimal());
+        case VALUE_TRUE:
+            return JsonValue.TRUE;
+        case VALUE_FALSE:
+            return JsonValue.FALSE;
+        default:
+            return JsonValue.NULL;
+        }
+    }
+
+    public static JsonValue.ValueType getValueType(Event event) {
+        switch (event) {
+        case START_ARRAY:
+            return JsonValue.ValueType.ARRAY;
+        case START_OBJECT:
+            return JsonValue.ValueType.OBJECT;
+        case VALUE_STRING:
+            return JsonValue.ValueType.STRING;
+        case VALUE_NUMBER:
+            return JsonValue.ValueType.NUMBER;
+        case VALUE_TRUE:
+            return JsonValue.ValueType.TRUE;
+        case VALUE_FALSE:
+            return JsonValue.ValueType.FALSE;
+        case VALUE_NULL:
+            return JsonValue.ValueType.NULL;
+        default:
+            throw new IllegalArgumentException("Unexpected event: " + event);
+        }
+    }
+
+    /**
+     * Collects the builders for a repeating primitive element whose values (e.g. "given") and
+     * ids/extensions (e.g. "_given") arrive in separate, index-aligned JSON arrays
+     */
+    public static class PrimitiveArray<B extends Element.Builder> {
+        private final Supplier<B> supplier;
+        private final List<B> builders = new ArrayList<>();
+        private int valueCount = -1;
+        private int elementCount = -1;
+
+        public PrimitiveArray(Supplier<B> supplier) {
+            this.supplier = supplier;
+        }
+
+        public B getBuilder(int index) {
+            while (builders.size() <= index) {
+                builders.add(supplier.get());
+            }
+            return builders.get(index);
+        }
+
+        public void setValueCount(int valueCount) {
+            this.valueCount = valueCount;
+        }
+
+        public void setElementCount(int elementCount) {
+            this.elementCount = elementCount;
+        }
+
+        /**
+         * @return the builders for the values of the array with the passed key
+         * @throws IllegalArgumentException if the "_" array cannot be aligned with the value array
+         */
+        public List<B> getBuilders(String key) {
+            if (valueCount == -1) {
+                throw new IllegalArgumentException("Found array with key '_" + key + "' but could not find matching array with key: '" + key + "'");
+            }
+            if (elementCount != -1 && elementCount < valueCount) {
+                throw new IllegalArgumentException("Could not find element at index: " + elementCount);
+            }
+            return builders.subList(0, valueCount);
+        }
+    }
 }
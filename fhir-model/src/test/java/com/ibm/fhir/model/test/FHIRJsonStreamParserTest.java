@@ -0,0 +1,154 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.model.test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.io.BufferedReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.testng.annotations.Test;
+
+import com.ibm.fhir.examples.ExamplesUtil;
+import com.ibm.fhir.examples.Index;
+import com.ibm.fhir.model.format.Format;
+import com.ibm.fhir.model.parser.FHIRParser;
+import com.ibm.fhir.model.parser.exception.FHIRParserException;
+import com.ibm.fhir.model.resource.Patient;
+import com.ibm.fhir.model.resource.Resource;
+
+/**
+ * Compares the streaming JSON parser against the JsonObject-based JSON parser
+ */
+public class FHIRJsonStreamParserTest {
+    @Test
+    public void testExamples() throws Exception {
+        List<String> failures = new ArrayList<>();
+        try (BufferedReader indexReader = new BufferedReader(ExamplesUtil.indexReader(Index.MINIMAL_JSON))) {
+            String line;
+            while ((line = indexReader.readLine()) != null) {
+                String[] tokens = line.trim().split("\\s+");
+                if (tokens.length != 2) {
+                    continue;
+                }
+                String example;
+                try (Reader reader = ExamplesUtil.resourceReader(tokens[1])) {
+                    example = new BufferedReader(reader).lines().collect(Collectors.joining("\n"));
+                }
+                Resource expected = null;
+                try {
+                    expected = parser(false).parse(new StringReader(example));
+                } catch (FHIRParserException e) {
+                    // the streaming parser must reject the same input
+                }
+                try {
+                    Resource actual = parser(true).parse(new StringReader(example));
+                    if (expected == null || !expected.equals(actual)) {
+                        failures.add(tokens[1]);
+                    }
+                } catch (FHIRParserException e) {
+                    if (expected != null) {
+                        failures.add(tokens[1] + ": " + e.getMessage());
+                    }
+                }
+            }
+        }
+        assertTrue(failures.isEmpty(), failures.toString());
+    }
+
+    @Test
+    public void testEdgeCases() throws Exception {
+        try (Reader reader = ExamplesUtil.resourceReader("JSON/json-edge-cases.json")) {
+            String example = new BufferedReader(reader).lines().collect(Collectors.joining("\n"));
+            Patient expected = parser(false).parse(new StringReader(example));
+            Patient actual = parser(true).parse(new StringReader(example));
+            assertEquals(actual, expected);
+        }
+    }
+
+    @Test
+    public void testResourceTypeNotFirst() throws Exception {
+        String json = "{\"id\":\"1\",\"active\":true,\"resourceType\":\"Patient\",\"contained\":[{\"id\":\"2\",\"resourceType\":\"Organization\",\"name\":\"Acme\"}]}";
+        Patient patient = parser(true).parse(new StringReader(json));
+        assertEquals(patient.getId(), "1");
+        assertEquals(patient.getContained().size(), 1);
+        assertEquals(patient, parser(false).parse(new StringReader(json)));
+    }
+
+    @Test
+    public void testPrimitiveElementBeforeValue() throws Exception {
+        String json = "{\"resourceType\":\"Patient\",\"name\":[{\"_given\":[null,{\"id\":\"g2\"}],\"given\":[\"Peter\",\"James\"]}],\"_active\":{\"id\":\"a\"},\"active\":false}";
+        Patient patient = parser(true).parse(new StringReader(json));
+        assertEquals(patient.getName().get(0).getGiven().get(1).getId(), "g2");
+        assertEquals(patient.getActive().getId(), "a");
+        assertEquals(patient, parser(false).parse(new StringReader(json)));
+    }
+
+    @Test
+    public void testPrimitiveElementArrayWithoutValues() throws Exception {
+        String json = "{\"resourceType\":\"Patient\",\"name\":[{\"_given\":[{\"id\":\"g1\"}]}]}";
+        try {
+            parser(true).parse(new StringReader(json));
+            fail();
+        } catch (FHIRParserException e) {
+            assertTrue(e.getMessage().startsWith("Found array with key '_given'"));
+            assertEquals(e.getPath(), "Patient.name[0]");
+        }
+    }
+
+    @Test
+    public void testChoiceElementConflict() throws Exception {
+        String json = "{\"resourceType\":\"Observation\",\"status\":\"final\",\"code\":{\"text\":\"x\"},\"valueString\":\"a\",\"valueBoolean\":true}";
+        try {
+            parser(true).parse(new StringReader(json));
+            fail();
+        } catch (FHIRParserException e) {
+            assertEquals(e.getPath(), "Observation");
+        }
+    }
+
+    @Test
+    public void testUnrecognizedElements() throws Exception {
+        String example;
+        try (Reader reader = ExamplesUtil.resourceReader("JSON/observation-unrecognized-elements.json")) {
+            example = new BufferedReader(reader).lines().collect(Collectors.joining("\n"));
+        }
+        try {
+            parser(true).parse(new StringReader(example));
+            fail();
+        } catch (FHIRParserException e) {
+            assertTrue(e.getMessage().startsWith("Unrecognized element"));
+        }
+        FHIRParser parser = parser(true);
+        parser.setProperty(FHIRParser.PROPERTY_IGNORE_UNRECOGNIZED_ELEMENTS, true);
+        assertNotNull(parser.parse(new StringReader(example)));
+    }
+
+    @Test
+    public void testWrongType() throws Exception {
+        String json = "{\"resourceType\":\"Patient\",\"active\":true,\"gender\":1}";
+        try {
+            parser(true).parse(new StringReader(json));
+            fail();
+        } catch (FHIRParserException e) {
+            assertTrue(e.getMessage().startsWith("Expected: JsonString but found: NUMBER for element: gender"));
+        }
+    }
+
+    private FHIRParser parser(boolean streaming) {
+        FHIRParser parser = FHIRParser.parser(Format.JSON);
+        parser.setProperty(FHIRParser.PROPERTY_JSON_STREAMING, streaming);
+        return parser;
+    }
+}
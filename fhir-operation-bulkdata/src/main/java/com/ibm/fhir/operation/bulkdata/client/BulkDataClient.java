@@ -559,11 +559,23 @@ public class BulkDataClient {
             List<String> responseCounts = Arrays.asList(exitStatus.split(","));
             Iterator<String> iter = responseCounts.iterator();
             for (Input input : inputs) {
-                String[] counts = iter.next().replace("[", "").replace("]", "").split(":");
-                outputs.add(new PollingLocationResponse.Output("OperationOutcome",
-                        input.getUrl() + "_oo_success.ndjson", counts[0]));
-                errors.add(new PollingLocationResponse.Output("OperationOutcome", input.getUrl() + "_oo_errors.ndjson",
-                        counts[1]));
+                String[] counts = iter.next().replace("[", "").replace("]", "").trim().split(":");
+                if (counts.length > 2) {
+                    // The input was imported in ranges, each with its own OperationOutcomes, the counts of the ranges
+                    // follow the total counts of the input.
+                    for (int i = 2; i + 1 < counts.length; i += 2) {
+                        int range = i / 2;
+                        outputs.add(new PollingLocationResponse.Output("OperationOutcome",
+                                input.getUrl() + "_" + range + "_oo_success.ndjson", counts[i]));
+                        errors.add(new PollingLocationResponse.Output("OperationOutcome",
+                                input.getUrl() + "_" + range + "_oo_errors.ndjson", counts[i + 1]));
+                    }
+                } else {
+                    outputs.add(new PollingLocationResponse.Output("OperationOutcome",
+                            input.getUrl() + "_oo_success.ndjson", counts[0]));
+                    errors.add(new PollingLocationResponse.Output("OperationOutcome", input.getUrl() + "_oo_errors.ndjson",
+                            counts[1]));
+                }
             }
             result.setOutput(outputs);
             result.setError(errors);
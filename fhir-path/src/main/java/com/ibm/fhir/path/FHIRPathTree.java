@@ -6,34 +6,57 @@
 
 package com.ibm.fhir.path;
 
+import static com.ibm.fhir.model.util.ModelSupport.delimit;
+import static com.ibm.fhir.model.util.ModelSupport.isKeyword;
+
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.time.Year;
 import java.time.YearMonth;
 import java.time.ZonedDateTime;
+import java.util.AbstractCollection;
 import java.util.Base64;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Stack;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.ibm.fhir.model.resource.Resource;
 import com.ibm.fhir.model.type.Element;
 import com.ibm.fhir.model.type.Quantity;
+import com.ibm.fhir.model.visitor.DefaultVisitor;
 import com.ibm.fhir.model.visitor.PathAwareVisitor;
+import com.ibm.fhir.model.visitor.Visitable;
 
 /**
  * A tree of {@link FHIRPathNode} nodes created from a {@link Resource} or an {@link Element}
+ * 
+ * <p>A tree created with {@link #tree(Resource)} or {@link #tree(Element)} contains a node for every element of the
+ * resource or element. A tree created with {@link #lazyTree(Resource)} or {@link #lazyTree(Element)} only creates the
+ * children of a node (and their paths) the first time they are navigated to, which is cheaper when an expression
+ * only visits a small part of a large resource. Both kinds of tree may be shared by multiple threads.
  */
 public class FHIRPathTree {
     private final FHIRPathNode root;
     private final Map<String, FHIRPathNode> pathNodeMap;
+    private final boolean lazy;
     
     private FHIRPathTree(FHIRPathNode root, Map<String, FHIRPathNode> pathNodeMap) {
         this.root = root;
         this.pathNodeMap = Collections.unmodifiableMap(pathNodeMap);
+        this.lazy = false;
+    }
+    
+    private FHIRPathTree(FHIRPathNode root, ConcurrentHashMap<String, FHIRPathNode> pathNodeMap) {
+        this.root = root;
+        // nodes are added to the map as they are created
+        this.pathNodeMap = pathNodeMap;
+        this.lazy = true;
     }
     
     /**
@@ -55,7 +78,21 @@ public class FHIRPathTree {
      *     the node at the location given by the path parameter if exists, otherwise null
      */
     public FHIRPathNode getNode(String path) {
-        return pathNodeMap.get(path);
+        FHIRPathNode node = pathNodeMap.get(path);
+        if (node == null && lazy && path != null) {
+            node = findNode(path);
+        }
+        return node;
+    }
+    
+    /**
+     * Indicates whether the nodes of this FHIRPathTree are created on first navigation
+     * 
+     * @return
+     *     true if this FHIRPathTree was created by one of the lazyTree factory methods, otherwise false
+     */
+    public boolean isLazy() {
+        return lazy;
     }
     
     /**
@@ -73,12 +110,36 @@ public class FHIRPathTree {
         
         int index = node.path().lastIndexOf(".");
         if (index != -1) {
+            // in a lazy tree, the parent of a node was created before the node itself
             return pathNodeMap.get(node.path().substring(0, index));
         }
         
         return null;
     }
     
+    /**
+     * Navigate from the root of a lazy tree to the node at the location given by the path parameter, creating the nodes
+     * along the way
+     */
+    private FHIRPathNode findNode(String path) {
+        FHIRPathNode node = root;
+        if (!path.equals(node.path()) && !path.startsWith(node.path() + ".")) {
+            return null;
+        }
+        while (node != null && !path.equals(node.path())) {
+            FHIRPathNode next = null;
+            for (FHIRPathNode child : node.children()) {
+                String childPath = child.path();
+                if (childPath != null && (path.equals(childPath) || path.startsWith(childPath + "."))) {
+                    next = child;
+                    break;
+                }
+            }
+            node = next;
+        }
+        return node;
+    }
+    
     /**
      * Static factory method for creating FHIRPathTree instances from a {@link Resource}
      * 
@@ -113,6 +174,239 @@ public class FHIRPathTree {
         return new FHIRPathTree(visitor.getRoot(), visitor.getPathNodeMap());
     }
     
+    /**
+     * Static factory method for creating lazy FHIRPathTree instances from a {@link Resource}
+     * 
+     * @param resource
+     *     the resource
+     * @return
+     *     a new FHIRPathTree instance whose nodes are created on first navigation
+     */
+    public static FHIRPathTree lazyTree(Resource resource) {
+        Objects.requireNonNull(resource);
+        return lazyTree((Visitable) resource);
+    }
+    
+    /**
+     * Static factory method for creating lazy FHIRPathTree instances from an {@link Element}
+     * 
+     * @param element
+     *     the element
+     * @return
+     *     a new FHIRPathTree instance whose nodes are created on first navigation
+     */
+    public static FHIRPathTree lazyTree(Element element) {
+        Objects.requireNonNull(element);
+        return lazyTree((Visitable) element);
+    }
+    
+    private static FHIRPathTree lazyTree(Visitable visitable) {
+        ConcurrentHashMap<String, FHIRPathNode> pathNodeMap = new ConcurrentHashMap<>();
+        
+        LazyBuildingVisitor visitor = new LazyBuildingVisitor(pathNodeMap, null);
+        visitable.accept(visitor);
+        
+        FHIRPathNode root = visitor.getRoot();
+        pathNodeMap.put(root.path(), root);
+        
+        return new FHIRPathTree(root, pathNodeMap);
+    }
+    
+    /**
+     * The children of a node in a lazy tree, created the first time they are accessed
+     */
+    private static class LazyChildren extends AbstractCollection<FHIRPathNode> {
+        private final Map<String, FHIRPathNode> pathNodeMap;
+        private final Visitable visitable;
+        private final String path;
+        private volatile Collection<FHIRPathNode> children;
+        
+        private LazyChildren(Map<String, FHIRPathNode> pathNodeMap, Visitable visitable, String path) {
+            this.pathNodeMap = pathNodeMap;
+            this.visitable = visitable;
+            this.path = path;
+        }
+        
+        private Collection<FHIRPathNode> children() {
+            Collection<FHIRPathNode> result = children;
+            if (result == null) {
+                synchronized (this) {
+                    result = children;
+                    if (result == null) {
+                        LazyBuildingVisitor visitor = new LazyBuildingVisitor(pathNodeMap, path);
+                        visitable.accept(visitor);
+                        result = children = visitor.getRootChildren();
+                    }
+                }
+            }
+            return result;
+        }
+        
+        @Override
+        public Iterator<FHIRPathNode> iterator() {
+            return children().iterator();
+        }
+        
+        @Override
+        public int size() {
+            return children().size();
+        }
+    }
+    
+    /**
+     * Builds a node and its children, leaving the children of the children to be built by {@link LazyChildren}
+     */
+    private static class LazyBuildingVisitor extends DefaultVisitor {
+        private final Map<String, FHIRPathNode> pathNodeMap;
+        private final String rootPath;
+        private final Stack<FHIRPathAbstractNode.Builder> builderStack = new Stack<>();
+        private final Stack<String> pathStack = new Stack<>();
+        private FHIRPathNode root;
+        private Collection<FHIRPathNode> rootChildren;
+        
+        /**
+         * @param pathNodeMap
+         *     the map to which the created nodes are added
+         * @param rootPath
+         *     the path of the visited element or resource, or null if it is the root of the tree
+         */
+        private LazyBuildingVisitor(Map<String, FHIRPathNode> pathNodeMap, String rootPath) {
+            super(true);
+            this.pathNodeMap = pathNodeMap;
+            this.rootPath = rootPath;
+        }
+        
+        private FHIRPathNode getRoot() {
+            return root;
+        }
+        
+        private Collection<FHIRPathNode> getRootChildren() {
+            return rootChildren;
+        }
+        
+        private String path(String elementName, int elementIndex) {
+            if (isKeyword(elementName)) {
+                elementName = delimit(elementName);
+            }
+            if (elementIndex != -1) {
+                elementName = elementName + "[" + elementIndex + "]";
+            }
+            if (pathStack.isEmpty()) {
+                return (rootPath != null) ? rootPath : elementName;
+            }
+            return pathStack.peek() + "." + elementName;
+        }
+        
+        private void build(Visitable visitable) {
+            String path = pathStack.pop();
+            FHIRPathAbstractNode.Builder builder = builderStack.pop();
+            
+            if (builderStack.isEmpty()) {
+                rootChildren = Collections.unmodifiableCollection(builder.children);
+                if (rootPath == null) {
+                    root = builder.path(path).build();
+                }
+            } else {
+                builder.children = new LazyChildren(pathNodeMap, visitable, path);
+                FHIRPathNode node = builder.path(path).build();
+                pathNodeMap.put(path, node);
+                builderStack.peek().children(node);
+            }
+        }
+        
+        @Override
+        public boolean preVisit(Element element) {
+            // the grandchildren are built when the children of a child are first accessed
+            return builderStack.size() < 2;
+        }
+        
+        @Override
+        public boolean preVisit(Resource resource) {
+            return builderStack.size() < 2;
+        }
+        
+        @Override
+        public void visitStart(java.lang.String elementName, int elementIndex, Element element) {
+            pathStack.push(path(elementName, elementIndex));
+            if (element instanceof Quantity) {
+                Quantity quantity = (Quantity) element;
+                builderStack.push(FHIRPathQuantityNode.builder(quantity).name(elementName));
+                FHIRPathQuantityValue value = FHIRPathQuantityValue.quantityValue(quantity);
+                if (value != null) {
+                    builderStack.peek().value(value);
+                }
+            } else {
+                builderStack.push(FHIRPathElementNode.builder(element).name(elementName));
+            }
+        }
+        
+        @Override
+        public void visitStart(java.lang.String elementName, int elementIndex, Resource resource) {
+            pathStack.push(path(elementName, elementIndex));
+            builderStack.push(FHIRPathResourceNode.builder(resource).name(elementName));
+        }
+        
+        @Override
+        public void visitEnd(java.lang.String elementName, int elementIndex, Element element) {
+            build(element);
+        }
+        
+        @Override
+        public void visitEnd(java.lang.String elementName, int elementIndex, Resource resource) {
+            build(resource);
+        }
+        
+        @Override
+        public void visit(java.lang.String elementName, BigDecimal value) {
+            builderStack.peek().value(FHIRPathDecimalValue.decimalValue(elementName, value));
+        }
+        
+        @Override
+        public void visit(java.lang.String elementName, byte[] value) {
+            builderStack.peek().value(FHIRPathStringValue.stringValue(elementName, Base64.getEncoder().encodeToString(value)));
+        }
+        
+        @Override
+        public void visit(java.lang.String elementName, java.lang.Boolean value) {
+            builderStack.peek().value(FHIRPathBooleanValue.booleanValue(elementName, value));
+        }
+        
+        @Override
+        public void visit(java.lang.String elementName, java.lang.Integer value) {
+            builderStack.peek().value(FHIRPathIntegerValue.integerValue(elementName, value));
+        }
+        
+        @Override
+        public void visit(java.lang.String elementName, java.lang.String value) {
+            builderStack.peek().value(FHIRPathStringValue.stringValue(elementName, value));
+        }
+        
+        @Override
+        public void visit(java.lang.String elementName, LocalDate value) {
+            builderStack.peek().value(FHIRPathDateTimeValue.dateTimeValue(elementName, value));
+        }
+        
+        @Override
+        public void visit(java.lang.String elementName, LocalTime value) {
+            builderStack.peek().value(FHIRPathTimeValue.timeValue(elementName, value));
+        }
+        
+        @Override
+        public void visit(java.lang.String elementName, Year value) {
+            builderStack.peek().value(FHIRPathDateTimeValue.dateTimeValue(elementName, value));
+        }
+        
+        @Override
+        public void visit(java.lang.String elementName, YearMonth value) {
+            builderStack.peek().value(FHIRPathDateTimeValue.dateTimeValue(elementName, value));
+        }
+        
+        @Override
+        public void visit(java.lang.String elementName, ZonedDateTime value) {
+            builderStack.peek().value(FHIRPathDateTimeValue.dateTimeValue(elementName, value));
+        }
+    }
+    
     private static class BuildingVisitor extends PathAwareVisitor {
         private Stack<FHIRPathNode.Builder> builderStack = new Stack<>();
         private FHIRPathNode root;
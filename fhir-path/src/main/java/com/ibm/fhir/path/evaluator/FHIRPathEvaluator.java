@@ -6,7 +6,7 @@
 
 package com.ibm.fhir.path.evaluator;
 
-import static com.ibm.fhir.core.util.LRUCache.createLRUCache;
+import static com.ibm.fhir.core.util.ConcurrentLRUCache.createCache;
 import static com.ibm.fhir.path.FHIRPathDecimalValue.decimalValue;
 import static com.ibm.fhir.path.FHIRPathIntegerValue.integerValue;
 import static com.ibm.fhir.path.FHIRPathStringValue.EMPTY_STRING;
@@ -59,6 +59,7 @@ import java.util.stream.Collectors;
 import org.antlr.v4.runtime.CharStreams;
 import org.antlr.v4.runtime.CommonTokenStream;
 import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.RuleNode;
 
 import com.ibm.fhir.model.annotation.Constraint;
 import com.ibm.fhir.model.resource.OperationOutcome.Issue;
@@ -95,7 +96,10 @@ public class FHIRPathEvaluator {
     public static final Collection<FHIRPathNode> SINGLETON_FALSE = singleton(FHIRPathBooleanValue.FALSE);
 
     private static final int EXPRESSION_CONTEXT_CACHE_MAX_ENTRIES = 512;
-    private static final Map<String, ExpressionContext> EXPRESSION_CONTEXT_CACHE = createLRUCache(EXPRESSION_CONTEXT_CACHE_MAX_ENTRIES);
+    private static final Map<String, ExpressionContext> EXPRESSION_CONTEXT_CACHE = createCache(EXPRESSION_CONTEXT_CACHE_MAX_ENTRIES);
+
+    private static final int COMPILED_EXPRESSION_CACHE_MAX_ENTRIES = 2048;
+    private static final Map<String, CompiledExpression> COMPILED_EXPRESSION_CACHE = createCache(COMPILED_EXPRESSION_CACHE_MAX_ENTRIES);
 
     private final EvaluatingVisitor visitor = new EvaluatingVisitor();
 
@@ -249,17 +253,33 @@ public class FHIRPathEvaluator {
         Objects.requireNonNull(initialContext);
         try {
             evaluationContext.setExternalConstant("context", initialContext);
-            return visitor.evaluate(evaluationContext, getExpressionContext(expr), initialContext);
+            return Collections.unmodifiableCollection(visitor.evaluate(evaluationContext, getExpressionContext(expr), initialContext));
         } catch (Exception e) {
             throw new FHIRPathException("An error occurred while evaluating expression: " + expr, e);
         }
     }
 
+    /**
+     * Compile a FHIRPath expression into a reusable, thread-safe {@link CompiledExpression}
+     *
+     * <p>Compiled expressions are cached, so repeated calls with the same expression return the same instance.
+     *
+     * @param expr
+     *     the FHIRPath expression to compile
+     * @return
+     *     the compiled expression
+     * @throws NullPointerException
+     *     if the passed expression is null
+     */
+    public static CompiledExpression compile(String expr) {
+        return COMPILED_EXPRESSION_CACHE.computeIfAbsent(Objects.requireNonNull(expr), e -> new CompiledExpression(e, parse(e)));
+    }
+
     private static ExpressionContext getExpressionContext(String expr) {
-        return EXPRESSION_CONTEXT_CACHE.computeIfAbsent(Objects.requireNonNull(expr), FHIRPathEvaluator::compile);
+        return EXPRESSION_CONTEXT_CACHE.computeIfAbsent(Objects.requireNonNull(expr), FHIRPathEvaluator::parse);
     }
 
-    private static ExpressionContext compile(String expr) {
+    private static ExpressionContext parse(String expr) {
         FHIRPathLexer lexer = new FHIRPathLexer(CharStreams.fromString(expr));
         CommonTokenStream tokens = new CommonTokenStream(lexer);
         FHIRPathParser parser = new FHIRPathParser(tokens);
@@ -280,10 +300,10 @@ public class FHIRPathEvaluator {
         private static final String SYSTEM_NAMESPACE = "System";
 
         private static final int IDENTIFIER_CACHE_MAX_ENTRIES = 2048;
-        private static final Map<String, Collection<FHIRPathNode>> IDENTIFIER_CACHE = createLRUCache(IDENTIFIER_CACHE_MAX_ENTRIES);
+        private static final Map<String, Collection<FHIRPathNode>> IDENTIFIER_CACHE = createCache(IDENTIFIER_CACHE_MAX_ENTRIES);
 
         private static final int LITERAL_CACHE_MAX_ENTRIES = 128;
-        private static final Map<String, Collection<FHIRPathNode>> LITERAL_CACHE = createLRUCache(LITERAL_CACHE_MAX_ENTRIES);
+        private static final Map<String, Collection<FHIRPathNode>> LITERAL_CACHE = createCache(LITERAL_CACHE_MAX_ENTRIES);
 
         private EvaluationContext evaluationContext;
         private final Stack<Collection<FHIRPathNode>> contextStack = new Stack<>();
@@ -292,13 +312,13 @@ public class FHIRPathEvaluator {
 
         private EvaluatingVisitor() { }
 
-        private Collection<FHIRPathNode> evaluate(EvaluationContext evaluationContext, ExpressionContext expressionContext, Collection<FHIRPathNode> initialContext) {
+        private Collection<FHIRPathNode> evaluate(EvaluationContext evaluationContext, ParseTree tree, Collection<FHIRPathNode> initialContext) {
             reset();
             this.evaluationContext = evaluationContext;
             contextStack.push(initialContext);
-            Collection<FHIRPathNode> result = expressionContext.accept(this);
+            Collection<FHIRPathNode> result = tree.accept(this);
             contextStack.pop();
-            return Collections.unmodifiableCollection(result);
+            return result;
         }
 
         private EvaluationContext getEvaluationContext() {
@@ -350,7 +370,7 @@ public class FHIRPathEvaluator {
             return result;
         }
 
-        private Set<String> closure(FHIRPathType type) {
+        private static Set<String> closure(FHIRPathType type) {
             if (SYSTEM_NAMESPACE.equals(type.namespace())) {
                 return Collections.emptySet();
             }
@@ -1342,8 +1362,6 @@ public class FHIRPathEvaluator {
          */
         public EvaluationContext(Resource resource) {
             this(FHIRPathTree.tree(resource));
-            externalConstantMap.put("rootResource", singleton(tree.getRoot()));
-            externalConstantMap.put("resource", singleton(tree.getRoot()));
         }
 
         /**
@@ -1356,8 +1374,21 @@ public class FHIRPathEvaluator {
             this(FHIRPathTree.tree(element));
         }
 
-        private EvaluationContext(FHIRPathTree tree) {
+        /**
+         * Create an evaluation context for an existing FHIRPath tree. If the root of the tree is a resource node,
+         * then the %resource and %rootResource external constants are set to the root, but these can be overridden.
+         *
+         * <p>FHIRPath trees are immutable, so multiple evaluation contexts (e.g. one per thread) may share the same tree.
+         *
+         * @param tree
+         *     the FHIRPath tree
+         */
+        public EvaluationContext(FHIRPathTree tree) {
             this.tree = tree;
+            if (tree != null && tree.getRoot().isResourceNode()) {
+                externalConstantMap.put("rootResource", singleton(tree.getRoot()));
+                externalConstantMap.put("resource", singleton(tree.getRoot()));
+            }
         }
 
         /**
@@ -1513,4 +1544,433 @@ public class FHIRPathEvaluator {
             return !issues.isEmpty();
         }
     }
+
+    /**
+     * A FHIRPath expression that has been compiled into an immutable tree of evaluation nodes
+     *
+     * <p>Path navigation, unions, type operators, boolean operators, equality, literals, external constants and function
+     * invocations are evaluated directly by the compiled nodes. All other constructs are delegated to the
+     * {@link EvaluatingVisitor}. Instances are thread-safe; however, an {@link EvaluationContext} may only be used by
+     * one thread at a time.
+     *
+     * @see FHIRPathEvaluator#compile(String)
+     */
+    public static class CompiledExpression {
+        private final String expr;
+        private final CompiledNode root;
+
+        private CompiledExpression(String expr, ExpressionContext expressionContext) {
+            this.expr = expr;
+            this.root = expressionContext.accept(new CompilingVisitor());
+        }
+
+        /**
+         * Get the FHIRPath expression that was compiled
+         *
+         * @return
+         *     the FHIRPath expression that was compiled
+         */
+        public String getExpression() {
+            return expr;
+        }
+
+        /**
+         * Evaluate this compiled expression using an existing evaluation context against the root of its FHIRPath tree
+         *
+         * @param evaluationContext
+         *     the evaluation context
+         * @return
+         *     the result of evaluation as a non-null, potentially empty collection of FHIRPath nodes
+         * @throws NullPointerException
+         *     if any of the parameters are null
+         * @throws FHIRPathException
+         *     if an exception occurs during evaluation
+         */
+        public Collection<FHIRPathNode> evaluate(EvaluationContext evaluationContext) throws FHIRPathException {
+            return evaluate(evaluationContext, singleton(evaluationContext.getTree().getRoot()));
+        }
+
+        /**
+         * Evaluate this compiled expression using an existing evaluation context against a collection of FHIRPath nodes
+         *
+         * @param evaluationContext
+         *     the evaluation context
+         * @param initialContext
+         *     the initial context as a non-null, potentially empty collection of FHIRPath nodes
+         * @return
+         *     the result of evaluation as a non-null, potentially empty collection of FHIRPath nodes
+         * @throws NullPointerException
+         *     if any of the parameters are null
+         * @throws FHIRPathException
+         *     if an exception occurs during evaluation
+         */
+        public Collection<FHIRPathNode> evaluate(EvaluationContext evaluationContext, Collection<FHIRPathNode> initialContext) throws FHIRPathException {
+            Objects.requireNonNull(evaluationContext);
+            Objects.requireNonNull(initialContext);
+            try {
+                evaluationContext.setExternalConstant("context", initialContext);
+                return Collections.unmodifiableCollection(root.evaluate(evaluationContext, initialContext));
+            } catch (Exception e) {
+                throw new FHIRPathException("An error occurred while evaluating expression: " + expr, e);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return expr;
+        }
+    }
+
+    /**
+     * A node in a compiled expression that evaluates against an input collection
+     */
+    @FunctionalInterface
+    private interface CompiledNode {
+        Collection<FHIRPathNode> evaluate(EvaluationContext evaluationContext, Collection<FHIRPathNode> context);
+    }
+
+    /**
+     * Lowers a parse tree into a tree of compiled nodes. Constructs that cannot be compiled (or that would fail during
+     * evaluation) are delegated to a new {@link EvaluatingVisitor} so that the results and errors are the same as the
+     * interpretive path.
+     */
+    private static class CompilingVisitor extends FHIRPathBaseVisitor<CompiledNode> {
+        @Override
+        public CompiledNode visitChildren(RuleNode node) {
+            return interpret(node);
+        }
+
+        @Override
+        public CompiledNode visitTermExpression(FHIRPathParser.TermExpressionContext ctx) {
+            return visit(ctx.term());
+        }
+
+        @Override
+        public CompiledNode visitInvocationExpression(FHIRPathParser.InvocationExpressionContext ctx) {
+            CompiledNode expression = visit(ctx.expression());
+            CompiledNode invocation = visit(ctx.invocation());
+            return (evaluationContext, context) -> invocation.evaluate(evaluationContext, expression.evaluate(evaluationContext, context));
+        }
+
+        @Override
+        public CompiledNode visitTypeExpression(FHIRPathParser.TypeExpressionContext ctx) {
+            FHIRPathType type = FHIRPathType.from(ctx.typeSpecifier().getText().replace("`", ""));
+            if (type == null) {
+                return interpret(ctx);
+            }
+            CompiledNode expression = visit(ctx.expression());
+            if ("is".equals(ctx.getChild(1).getText())) {
+                return (evaluationContext, context) -> {
+                    Collection<FHIRPathNode> nodes = expression.evaluate(evaluationContext, context);
+                    if (nodes.size() > 1) {
+                        throw new IllegalArgumentException(String.format("Input collection has %d items, but only 1 is allowed", nodes.size()));
+                    }
+                    return (!nodes.isEmpty() && type.isAssignableFrom(getSingleton(nodes).type())) ? SINGLETON_TRUE : SINGLETON_FALSE;
+                };
+            }
+            return (evaluationContext, context) -> {
+                Collection<FHIRPathNode> result = new ArrayList<>();
+                for (FHIRPathNode node : expression.evaluate(evaluationContext, context)) {
+                    if (type.isAssignableFrom(node.type())) {
+                        result.add(node);
+                    }
+                }
+                return result;
+            };
+        }
+
+        @Override
+        public CompiledNode visitUnionExpression(FHIRPathParser.UnionExpressionContext ctx) {
+            CompiledNode left = visit(ctx.expression(0));
+            CompiledNode right = visit(ctx.expression(1));
+            return (evaluationContext, context) -> {
+                Set<FHIRPathNode> union = new LinkedHashSet<>(left.evaluate(evaluationContext, context));
+                union.addAll(right.evaluate(evaluationContext, context));
+                return new ArrayList<>(union);
+            };
+        }
+
+        @Override
+        public CompiledNode visitEqualityExpression(FHIRPathParser.EqualityExpressionContext ctx) {
+            CompiledNode left = visit(ctx.expression(0));
+            CompiledNode right = visit(ctx.expression(1));
+            String operator = ctx.getChild(1).getText();
+            boolean equals = "=".equals(operator) || "~".equals(operator);
+            return (evaluationContext, context) -> {
+                Collection<FHIRPathNode> leftNodes = left.evaluate(evaluationContext, context);
+                Collection<FHIRPathNode> rightNodes = right.evaluate(evaluationContext, context);
+                if (leftNodes.isEmpty() || rightNodes.isEmpty()) {
+                    return empty();
+                }
+                if (leftNodes.size() != rightNodes.size()) {
+                    return SINGLETON_FALSE;
+                }
+                if (!isComparableTo(leftNodes, rightNodes)) {
+                    return empty();
+                }
+                return (leftNodes.equals(rightNodes) == equals) ? SINGLETON_TRUE : SINGLETON_FALSE;
+            };
+        }
+
+        @Override
+        public CompiledNode visitAndExpression(FHIRPathParser.AndExpressionContext ctx) {
+            CompiledNode left = visit(ctx.expression(0));
+            CompiledNode right = visit(ctx.expression(1));
+            return (evaluationContext, context) -> {
+                Collection<FHIRPathNode> leftNodes = left.evaluate(evaluationContext, context);
+                if (evaluatesToBoolean(leftNodes) && isFalse(leftNodes)) {
+                    // short-circuit evaluation
+                    return SINGLETON_FALSE;
+                }
+                Collection<FHIRPathNode> rightNodes = right.evaluate(evaluationContext, context);
+                if (evaluatesToBoolean(rightNodes) && isFalse(rightNodes)) {
+                    return SINGLETON_FALSE;
+                }
+                if (evaluatesToBoolean(leftNodes) && evaluatesToBoolean(rightNodes) && isTrue(leftNodes) && isTrue(rightNodes)) {
+                    return SINGLETON_TRUE;
+                }
+                return empty();
+            };
+        }
+
+        @Override
+        public CompiledNode visitOrExpression(FHIRPathParser.OrExpressionContext ctx) {
+            CompiledNode left = visit(ctx.expression(0));
+            CompiledNode right = visit(ctx.expression(1));
+            if ("xor".equals(ctx.getChild(1).getText())) {
+                return (evaluationContext, context) -> {
+                    Collection<FHIRPathNode> leftNodes = left.evaluate(evaluationContext, context);
+                    Collection<FHIRPathNode> rightNodes = right.evaluate(evaluationContext, context);
+                    if (evaluatesToBoolean(leftNodes) && evaluatesToBoolean(rightNodes)) {
+                        return (isTrue(leftNodes) != isTrue(rightNodes)) ? SINGLETON_TRUE : SINGLETON_FALSE;
+                    }
+                    return empty();
+                };
+            }
+            return (evaluationContext, context) -> {
+                Collection<FHIRPathNode> leftNodes = left.evaluate(evaluationContext, context);
+                if (evaluatesToBoolean(leftNodes) && isTrue(leftNodes)) {
+                    // short-circuit evaluation
+                    return SINGLETON_TRUE;
+                }
+                Collection<FHIRPathNode> rightNodes = right.evaluate(evaluationContext, context);
+                if (evaluatesToBoolean(rightNodes) && isTrue(rightNodes)) {
+                    return SINGLETON_TRUE;
+                }
+                if (evaluatesToBoolean(leftNodes) && evaluatesToBoolean(rightNodes) && isFalse(leftNodes) && isFalse(rightNodes)) {
+                    return SINGLETON_FALSE;
+                }
+                return empty();
+            };
+        }
+
+        @Override
+        public CompiledNode visitImpliesExpression(FHIRPathParser.ImpliesExpressionContext ctx) {
+            CompiledNode left = visit(ctx.expression(0));
+            CompiledNode right = visit(ctx.expression(1));
+            return (evaluationContext, context) -> {
+                Collection<FHIRPathNode> leftNodes = left.evaluate(evaluationContext, context);
+                Collection<FHIRPathNode> rightNodes = right.evaluate(evaluationContext, context);
+                if (evaluatesToBoolean(leftNodes) && evaluatesToBoolean(rightNodes)) {
+                    return (!isTrue(leftNodes) || isTrue(rightNodes)) ? SINGLETON_TRUE : SINGLETON_FALSE;
+                }
+                if ((leftNodes.isEmpty() && evaluatesToBoolean(rightNodes) && isTrue(rightNodes)) ||
+                        (evaluatesToBoolean(leftNodes) && isFalse(leftNodes) && rightNodes.isEmpty())) {
+                    return SINGLETON_TRUE;
+                }
+                return empty();
+            };
+        }
+
+        @Override
+        public CompiledNode visitInvocationTerm(FHIRPathParser.InvocationTermContext ctx) {
+            return visit(ctx.invocation());
+        }
+
+        @Override
+        public CompiledNode visitLiteralTerm(FHIRPathParser.LiteralTermContext ctx) {
+            // constant folding
+            Collection<FHIRPathNode> result;
+            try {
+                result = new EvaluatingVisitor().evaluate(new EvaluationContext(), ctx, empty());
+            } catch (Exception e) {
+                return interpret(ctx);
+            }
+            return (evaluationContext, context) -> result;
+        }
+
+        @Override
+        public CompiledNode visitExternalConstantTerm(FHIRPathParser.ExternalConstantTermContext ctx) {
+            return visit(ctx.externalConstant());
+        }
+
+        @Override
+        public CompiledNode visitParenthesizedTerm(FHIRPathParser.ParenthesizedTermContext ctx) {
+            return visit(ctx.expression());
+        }
+
+        @Override
+        public CompiledNode visitExternalConstant(FHIRPathParser.ExternalConstantContext ctx) {
+            if (ctx.identifier() == null) {
+                return interpret(ctx);
+            }
+            String identifier = identifier(ctx.identifier());
+            return (evaluationContext, context) -> evaluationContext.getExternalConstant(identifier);
+        }
+
+        @Override
+        public CompiledNode visitMemberInvocation(FHIRPathParser.MemberInvocationContext ctx) {
+            String identifier = identifier(ctx.identifier());
+            // only a FHIR type name can be in the type name closure of a node
+            boolean typeName = FHIRPathType.from("FHIR", identifier) != null;
+            return (evaluationContext, context) -> {
+                if (typeName && isSingleton(context) && EvaluatingVisitor.closure(getSingleton(context).type()).contains(identifier)) {
+                    return context;
+                }
+                List<FHIRPathNode> result = new ArrayList<>();
+                for (FHIRPathNode node : context) {
+                    for (FHIRPathNode child : node.children()) {
+                        if (identifier.equals(child.name())) {
+                            result.add(child);
+                        }
+                    }
+                }
+                return result;
+            };
+        }
+
+        @Override
+        public CompiledNode visitFunctionInvocation(FHIRPathParser.FunctionInvocationContext ctx) {
+            return visit(ctx.function());
+        }
+
+        @Override
+        public CompiledNode visitThisInvocation(FHIRPathParser.ThisInvocationContext ctx) {
+            return (evaluationContext, context) -> context;
+        }
+
+        @Override
+        public CompiledNode visitFunction(FHIRPathParser.FunctionContext ctx) {
+            String functionName = identifier(ctx.identifier());
+            List<ExpressionContext> arguments = (ctx.paramList() != null) ? ctx.paramList().expression() : Collections.emptyList();
+            switch (functionName) {
+            case "as":
+            case "ofType":
+                return (arguments.size() == 1) ? ofType(ctx, arguments.get(0)) : interpret(ctx);
+            case "is":
+                return (arguments.size() == 1) ? is(arguments.get(0)) : interpret(ctx);
+            case "exists":
+                return (arguments.size() <= 1) ? exists(arguments) : interpret(ctx);
+            case "where":
+                return (arguments.size() == 1) ? where(visit(arguments.get(0))) : interpret(ctx);
+            case "select":
+                return (arguments.size() == 1) ? select(visit(arguments.get(0))) : interpret(ctx);
+            case "all":
+                return (arguments.size() == 1) ? all(visit(arguments.get(0))) : interpret(ctx);
+            case "iif":
+            case "trace":
+                return interpret(ctx);
+            default:
+                FHIRPathFunction function = FHIRPathFunction.registry().getFunction(functionName);
+                if (function == null || arguments.size() < function.getMinArity() || arguments.size() > function.getMaxArity()) {
+                    return interpret(ctx);
+                }
+                List<CompiledNode> compiledArguments = new ArrayList<>(arguments.size());
+                for (ExpressionContext argument : arguments) {
+                    compiledArguments.add(visit(argument));
+                }
+                return (evaluationContext, context) -> {
+                    List<Collection<FHIRPathNode>> evaluatedArguments = new ArrayList<>(compiledArguments.size());
+                    for (CompiledNode argument : compiledArguments) {
+                        evaluatedArguments.add(argument.evaluate(evaluationContext, context));
+                    }
+                    return function.apply(evaluationContext, context, evaluatedArguments);
+                };
+            }
+        }
+
+        private CompiledNode ofType(ParseTree ctx, ExpressionContext typeName) {
+            FHIRPathType type = FHIRPathType.from(typeName.getText().replace("`", ""));
+            if (type == null) {
+                return interpret(ctx);
+            }
+            boolean systemType = EvaluatingVisitor.SYSTEM_NAMESPACE.equals(type.namespace());
+            return (evaluationContext, context) -> {
+                Collection<FHIRPathNode> result = new ArrayList<>();
+                for (FHIRPathNode node : context) {
+                    FHIRPathType nodeType = (systemType && node.hasValue()) ? node.getValue().type() : node.type();
+                    if (type.isAssignableFrom(nodeType)) {
+                        result.add(node);
+                    }
+                }
+                return result;
+            };
+        }
+
+        private CompiledNode is(ExpressionContext typeName) {
+            FHIRPathType type = FHIRPathType.from(typeName.getText().replace("`", ""));
+            return (evaluationContext, context) -> {
+                if (context.isEmpty()) {
+                    return SINGLETON_FALSE;
+                } else if (context.size() > 1) {
+                    throw new IllegalArgumentException(String.format("Input collection has %d items, but only 1 is allowed", context.size()));
+                }
+                return (type != null && type.isAssignableFrom(getSingleton(context).type())) ? SINGLETON_TRUE : SINGLETON_FALSE;
+            };
+        }
+
+        private CompiledNode exists(List<ExpressionContext> arguments) {
+            if (arguments.isEmpty()) {
+                return (evaluationContext, context) -> !context.isEmpty() ? SINGLETON_TRUE : SINGLETON_FALSE;
+            }
+            CompiledNode criteria = visit(arguments.get(0));
+            return (evaluationContext, context) -> !criteria.evaluate(evaluationContext, context).isEmpty() ? SINGLETON_TRUE : SINGLETON_FALSE;
+        }
+
+        private CompiledNode where(CompiledNode criteria) {
+            return (evaluationContext, context) -> {
+                Collection<FHIRPathNode> result = new ArrayList<>();
+                for (FHIRPathNode node : context) {
+                    if (isTrue(criteria.evaluate(evaluationContext, singleton(node)))) {
+                        result.add(node);
+                    }
+                }
+                return result;
+            };
+        }
+
+        private CompiledNode select(CompiledNode projection) {
+            return (evaluationContext, context) -> {
+                Collection<FHIRPathNode> result = new ArrayList<>();
+                for (FHIRPathNode node : context) {
+                    result.addAll(projection.evaluate(evaluationContext, singleton(node)));
+                }
+                return result;
+            };
+        }
+
+        private CompiledNode all(CompiledNode criteria) {
+            return (evaluationContext, context) -> {
+                for (FHIRPathNode node : context) {
+                    Collection<FHIRPathNode> result = criteria.evaluate(evaluationContext, singleton(node));
+                    if (evaluatesToBoolean(result) && isFalse(result)) {
+                        return SINGLETON_FALSE;
+                    }
+                }
+                return SINGLETON_TRUE;
+            };
+        }
+
+        private String identifier(FHIRPathParser.IdentifierContext ctx) {
+            String text = ctx.getText();
+            return text.startsWith("`") ? text.substring(1, text.length() - 1) : text;
+        }
+
+        /**
+         * Delegate evaluation of the passed parse tree to a new {@link EvaluatingVisitor}
+         */
+        private CompiledNode interpret(ParseTree tree) {
+            return (evaluationContext, context) -> new EvaluatingVisitor().evaluate(evaluationContext, tree, context);
+        }
+    }
 }
@@ -0,0 +1,142 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.ibm.fhir.path.test;
+
+import static com.ibm.fhir.model.type.String.string;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import com.ibm.fhir.model.resource.Observation;
+import com.ibm.fhir.model.resource.Patient;
+import com.ibm.fhir.model.type.Boolean;
+import com.ibm.fhir.model.type.CodeableConcept;
+import com.ibm.fhir.model.type.Coding;
+import com.ibm.fhir.model.type.Decimal;
+import com.ibm.fhir.model.type.HumanName;
+import com.ibm.fhir.model.type.Quantity;
+import com.ibm.fhir.model.type.Reference;
+import com.ibm.fhir.model.type.Uri;
+import com.ibm.fhir.model.type.code.NameUse;
+import com.ibm.fhir.model.type.code.ObservationStatus;
+import com.ibm.fhir.path.FHIRPathNode;
+import com.ibm.fhir.path.evaluator.FHIRPathEvaluator;
+import com.ibm.fhir.path.evaluator.FHIRPathEvaluator.CompiledExpression;
+import com.ibm.fhir.path.evaluator.FHIRPathEvaluator.EvaluationContext;
+import com.ibm.fhir.path.exception.FHIRPathException;
+
+/**
+ * Verifies that compiled expressions produce the same results (and errors) as the interpretive evaluator
+ */
+public class FHIRPathCompiledExpressionTest {
+    @DataProvider
+    public static Object[][] provideSpecTestData() throws Exception {
+        return FHIRPathSpecTest.provideAllTestData();
+    }
+
+    @Test(dataProvider = "provideSpecTestData")
+    public void testSpecExpression(String testName, EvaluationContext context, FHIRPathSpecTest.TestExpression expression,
+            Object outputs, boolean isPredicate) throws Exception {
+        assertSameResult(context, expression.text);
+    }
+
+    @Test
+    public void testSearchParameterExpressions() throws Exception {
+        Patient patient = Patient.builder()
+                .id("example")
+                .name(HumanName.builder().use(NameUse.OFFICIAL).family(string("Chalmers")).given(string("Peter"), string("James")).build())
+                .name(HumanName.builder().use(NameUse.USUAL).given(string("Jim")).build())
+                .deceased(Boolean.FALSE)
+                .build();
+        Observation observation = Observation.builder()
+                .id("example")
+                .status(ObservationStatus.FINAL)
+                .code(CodeableConcept.builder().coding(Coding.builder().system(Uri.of("http://loinc.org")).code(com.ibm.fhir.model.type.Code.of("29463-7")).build()).build())
+                .subject(Reference.builder().reference(string("Patient/example")).build())
+                .value(Quantity.builder().value(Decimal.of(185)).unit(string("lbs")).build())
+                .contained(patient)
+                .build();
+
+        for (String expr : new String[] {
+                "Patient.name",
+                "Patient.name.where(use = 'official').given",
+                "Patient.name.given | Patient.name.family",
+                "Patient.deceased.exists() and Patient.deceased != false",
+                "Patient.deceased.exists() or Patient.name.exists()",
+                "%resource.id",
+                "Patient.name.select(given.first())",
+                "Patient.name.all(given.exists())",
+                "Patient.name[1].given",
+                "Patient.name.count() > 1",
+                "Patient.name.given.string"}) {
+            assertSameResult(new EvaluationContext(patient), expr);
+        }
+        for (String expr : new String[] {
+                "Observation.code",
+                "Observation.code.coding",
+                "Observation.value as Quantity",
+                "(Observation.value as Quantity) | (Observation.value as SampledData)",
+                "Observation.value.as(Quantity).value",
+                "Observation.value.ofType(Quantity).unit",
+                "Observation.value is Quantity",
+                "Observation.value.is(CodeableConcept)",
+                "Observation.subject.where(resolve() is Patient)",
+                "Observation.contained.ofType(Patient).name.given",
+                "Observation.status = 'final' implies Observation.value.exists()",
+                "Observation.code.coding.where(system = %loinc).code",
+                "Observation.value.as(Unknown)",
+                "Observation.value.unknown()"}) {
+            assertSameResult(new EvaluationContext(observation), expr);
+        }
+    }
+
+    @Test
+    public void testCompile() throws Exception {
+        CompiledExpression compiled = FHIRPathEvaluator.compile("Patient.name.given");
+        assertSame(FHIRPathEvaluator.compile("Patient.name.given"), compiled);
+        assertEquals(compiled.getExpression(), "Patient.name.given");
+
+        Patient patient = Patient.builder()
+                .name(HumanName.builder().given(string("Peter")).build())
+                .build();
+        EvaluationContext evaluationContext = new EvaluationContext(patient);
+        Collection<FHIRPathNode> result = compiled.evaluate(evaluationContext);
+        assertEquals(result.size(), 1);
+        assertNotNull(evaluationContext.getExternalConstant("context"));
+    }
+
+    private void assertSameResult(EvaluationContext context, String expr) {
+        List<FHIRPathNode> expected = null;
+        Exception expectedException = null;
+        try {
+            expected = new ArrayList<>(FHIRPathEvaluator.evaluator().evaluate(context, expr));
+        } catch (FHIRPathException e) {
+            expectedException = e;
+        }
+
+        List<FHIRPathNode> actual = null;
+        Exception actualException = null;
+        try {
+            actual = new ArrayList<>(FHIRPathEvaluator.compile(expr).evaluate(context));
+        } catch (FHIRPathException e) {
+            actualException = e;
+        }
+
+        if (expectedException != null) {
+            assertNotNull(actualException, expr);
+            assertEquals(String.valueOf(actualException.getCause()), String.valueOf(expectedException.getCause()), expr);
+        } else {
+            assertEquals(actual, expected, expr);
+        }
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package com.ibm.fhir.path.test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import com.ibm.fhir.model.resource.Resource;
+import com.ibm.fhir.model.test.TestUtil;
+import com.ibm.fhir.path.FHIRPathNode;
+import com.ibm.fhir.path.FHIRPathTree;
+import com.ibm.fhir.path.evaluator.FHIRPathEvaluator;
+import com.ibm.fhir.path.evaluator.FHIRPathEvaluator.EvaluationContext;
+import com.ibm.fhir.path.exception.FHIRPathException;
+
+/**
+ * Verifies that lazy trees have the same nodes as eager trees and that expressions evaluate the same against both
+ */
+public class FHIRPathLazyTreeTest {
+    private static final String[] EXAMPLES = {
+            "json/spec/explanationofbenefit-example.json",
+            "json/spec/bundle-transaction.json",
+            "json/spec/patient-example.json",
+            "json/spec/observation-example-bmd.json"
+    };
+
+    @DataProvider
+    public static Object[][] provideExamples() {
+        Object[][] data = new Object[EXAMPLES.length][];
+        for (int i = 0; i < EXAMPLES.length; i++) {
+            data[i] = new Object[] { EXAMPLES[i] };
+        }
+        return data;
+    }
+
+    @DataProvider
+    public static Object[][] provideSpecTestData() throws Exception {
+        return FHIRPathSpecTest.provideAllTestData();
+    }
+
+    @Test(dataProvider = "provideExamples")
+    public void testSameNodes(String example) throws Exception {
+        Resource resource = TestUtil.readExampleResource(example);
+        FHIRPathTree eager = FHIRPathTree.tree(resource);
+        FHIRPathTree lazy = FHIRPathTree.lazyTree(resource);
+        assertFalse(eager.isLazy());
+        assertTrue(lazy.isLazy());
+
+        List<FHIRPathNode> expected = eager.getRoot().stream().collect(Collectors.toList());
+        List<FHIRPathNode> actual = lazy.getRoot().stream().collect(Collectors.toList());
+        assertEquals(actual.size(), expected.size());
+        for (int i = 0; i < expected.size(); i++) {
+            FHIRPathNode e = expected.get(i);
+            FHIRPathNode a = actual.get(i);
+            assertEquals(a.getClass(), e.getClass(), e.path());
+            assertEquals(a.name(), e.name(), e.path());
+            assertEquals(a.path(), e.path());
+            assertEquals(a.type(), e.type(), e.path());
+            assertEquals(a.getValue(), e.getValue(), e.path());
+            assertEquals(a, e, e.path());
+            if (e.path() != null) {
+                assertEquals(lazy.getParent(a), eager.getParent(e), e.path());
+            }
+        }
+    }
+
+    @Test(dataProvider = "provideExamples")
+    public void testGetNode(String example) throws Exception {
+        Resource resource = TestUtil.readExampleResource(example);
+        FHIRPathTree eager = FHIRPathTree.tree(resource);
+
+        List<String> paths = eager.getRoot().stream()
+                .map(FHIRPathNode::path)
+                .filter(path -> path != null)
+                .collect(Collectors.toList());
+        // navigate straight to the deepest nodes first, before their parents have been accessed
+        paths.sort((p1, p2) -> p2.length() - p1.length());
+
+        FHIRPathTree lazy = FHIRPathTree.lazyTree(resource);
+        for (String path : paths) {
+            FHIRPathNode node = lazy.getNode(path);
+            assertNotNull(node, path);
+            assertEquals(node, eager.getNode(path), path);
+            assertSame(lazy.getNode(path), node, path);
+        }
+        assertNull(lazy.getNode(eager.getRoot().path() + ".unknown"));
+        assertNull(lazy.getNode("Unknown"));
+    }
+
+    @Test
+    public void testChildrenCreatedOnce() throws Exception {
+        Resource resource = TestUtil.readExampleResource(EXAMPLES[0]);
+        FHIRPathTree lazy = FHIRPathTree.lazyTree(resource);
+
+        FHIRPathNode child = lazy.getRoot().children().stream()
+                .filter(node -> node.path() != null && !node.children().isEmpty())
+                .findFirst()
+                .get();
+        Collection<FHIRPathNode> first = new ArrayList<>(child.children());
+        Iterator<FHIRPathNode> second = child.children().iterator();
+        for (FHIRPathNode node : first) {
+            assertSame(second.next(), node);
+            if (node.path() != null) {
+                assertSame(lazy.getParent(node), child);
+            }
+        }
+        assertSame(lazy.getParent(child), lazy.getRoot());
+    }
+
+    @Test(dataProvider = "provideSpecTestData")
+    public void testSpecExpression(String testName, EvaluationContext context, FHIRPathSpecTest.TestExpression expression,
+            Object outputs, boolean isPredicate) throws Exception {
+        FHIRPathTree tree = context.getTree();
+        FHIRPathTree lazy = tree.getRoot().isResourceNode() ?
+                FHIRPathTree.lazyTree(tree.getRoot().asResourceNode().resource()) :
+                FHIRPathTree.lazyTree(tree.getRoot().asElementNode().element());
+
+        List<FHIRPathNode> expected = null;
+        Exception expectedException = null;
+        try {
+            expected = new ArrayList<>(FHIRPathEvaluator.evaluator().evaluate(new EvaluationContext(tree), expression.text));
+        } catch (FHIRPathException e) {
+            expectedException = e;
+        }
+
+        List<FHIRPathNode> actual = null;
+        Exception actualException = null;
+        try {
+            actual = new ArrayList<>(FHIRPathEvaluator.evaluator().evaluate(new EvaluationContext(lazy), expression.text));
+        } catch (FHIRPathException e) {
+            actualException = e;
+        }
+
+        if (expectedException != null) {
+            assertNotNull(actualException, expression.text);
+            assertEquals(String.valueOf(actualException.getCause()), String.valueOf(expectedException.getCause()), expression.text);
+        } else {
+            assertEquals(actual, expected, expression.text);
+        }
+    }
+}
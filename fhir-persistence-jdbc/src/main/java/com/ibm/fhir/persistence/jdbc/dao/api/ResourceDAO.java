@@ -13,6 +13,7 @@ import java.util.Map;
 import com.ibm.fhir.persistence.context.FHIRPersistenceContext;
 import com.ibm.fhir.persistence.exception.FHIRPersistenceException;
 import com.ibm.fhir.persistence.exception.FHIRPersistenceVersionIdMismatchException;
+import com.ibm.fhir.persistence.jdbc.dao.impl.ParameterTransactionBatchDAO;
 import com.ibm.fhir.persistence.jdbc.dto.ExtractedParameterValue;
 import com.ibm.fhir.persistence.jdbc.dto.Resource;
 import com.ibm.fhir.persistence.jdbc.exception.FHIRPersistenceDBConnectException;
@@ -149,12 +150,30 @@ public interface ResourceDAO extends FHIRDbDAO {
      */
     int searchCount(String sqlSelectCount) throws FHIRPersistenceDataAccessException, FHIRPersistenceDBConnectException;
 
+    /**
+     * Asks the database optimizer for its estimate of the number of rows returned by the query contained in the
+     * passed SqlQueryData, without running the query.
+     * @param queryData - Contains a search string and (optionally) bind variables.
+     * @return int - The estimated number of rows, or -1 if the database doesn't provide an estimate.
+     * @throws FHIRPersistenceDataAccessException
+     * @throws FHIRPersistenceDBConnectException
+     */
+    int searchCountEstimate(SqlQueryData queryData) throws FHIRPersistenceDataAccessException, FHIRPersistenceDBConnectException;
+
     /**
      * Sets the current persistence context
      * @param context
      */
     void setPersistenceContext(FHIRPersistenceContext context);
 
+    /**
+     * Sets the batch used to accumulate search parameter inserts across all the resources
+     * inserted within the current transaction. When null, the parameters of each resource
+     * are inserted as part of the {@link #insert(Resource, List, ParameterDAO)} call.
+     * @param parameterBatch
+     */
+    void setParameterBatch(ParameterTransactionBatchDAO parameterBatch);
+
     /**
      * Reads all rows in the resource_types table and returns the data as a Map
      * @return Map<String, Integer> - A map containing key=parameter-name, value=parameter-name-id
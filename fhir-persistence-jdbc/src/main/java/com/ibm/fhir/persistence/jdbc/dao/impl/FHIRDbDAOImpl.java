@@ -25,6 +25,7 @@ import javax.sql.DataSource;
 import com.ibm.fhir.config.FHIRConfiguration;
 import com.ibm.fhir.config.FHIRRequestContext;
 import com.ibm.fhir.database.utils.api.IConnectionProvider;
+import com.ibm.fhir.database.utils.api.IDatabaseTranslator;
 import com.ibm.fhir.database.utils.common.JdbcTarget;
 import com.ibm.fhir.database.utils.db2.Db2Adapter;
 import com.ibm.fhir.database.utils.db2.Db2SetTenantVariable;
@@ -462,6 +463,64 @@ public class FHIRDbDAOImpl implements FHIRDbDAO {
         return rowCount;
     }
 
+    /**
+     * Runs the passed statement, which returns the optimizer's plan of a query, and reads the estimated
+     * number of rows from the first row of the plan.
+     * @param translator - The translator for the database, which knows how to read the plan.
+     * @param sql - The statement built by {@link IDatabaseTranslator#explainQuery(String)}.
+     * @param searchArgs - The bind variables of the query.
+     * @return int - The estimated number of rows, or -1 if the plan doesn't contain an estimate.
+     * @throws FHIRPersistenceDataAccessException
+     * @throws FHIRPersistenceDBConnectException
+     */
+    protected int runCountEstimateQuery(IDatabaseTranslator translator, String sql, Object... searchArgs)
+            throws FHIRPersistenceDataAccessException, FHIRPersistenceDBConnectException {
+        final String METHODNAME = "runCountEstimateQuery";
+        log.entering(CLASSNAME, METHODNAME);
+
+        long estimate = -1;
+        Connection connection = null;
+        PreparedStatement stmt = null;
+        ResultSet resultSet = null;
+        String errMsg = "Failure retrieving count estimate. SQL=" + sql + NEWLINE + "  searchArgs=" + Arrays.toString(searchArgs);
+        long dbCallStartTime;
+        double dbCallDuration;
+
+        try {
+            connection = this.getConnection();
+            stmt = connection.prepareStatement(sql);
+            // Inject arguments into the prepared stmt.
+            for (int i = 0; i <searchArgs.length;  i++) {
+                if (searchArgs[i] instanceof Timestamp) {
+                    stmt.setTimestamp(i+1, (Timestamp) searchArgs[i], JDBCConstants.UTC);
+                } else {
+                    stmt.setObject(i+1, searchArgs[i]);
+                }
+            }
+            dbCallStartTime = System.nanoTime();
+            resultSet = stmt.executeQuery();
+            dbCallDuration = (System.nanoTime()-dbCallStartTime)/1e6;
+            if (resultSet.next()) {
+                estimate = translator.getRowEstimate(resultSet.getString(1));
+            }
+            if (log.isLoggable(Level.FINE)) {
+                log.fine("Successfully retrieved count estimate. SQL=" + sql + NEWLINE + "  searchArgs=" +
+                            Arrays.toString(searchArgs) + NEWLINE + "  estimate=" + estimate + " executionTime=" + dbCallDuration + "ms");
+            }
+        }
+        catch (Throwable e) {
+            // Don't emit the SQL text in an exception - it risks returning it to the client in a response
+            FHIRPersistenceDataAccessException fx = new FHIRPersistenceDataAccessException("Server error: failure retrieving count estimate");
+            throw severe(log, fx, errMsg, e);
+        }
+        finally {
+            this.cleanup(resultSet, stmt, connection);
+            log.exiting(CLASSNAME, METHODNAME);
+        }
+
+        return (int) Math.min(estimate, Integer.MAX_VALUE);
+    }
+
     /**
      * An method for creating a collection of Data Transfer Objects of type T from the contents of the passed ResultSet.
      * @param resultSet A ResultSet containing FHIR persistent object data.
@@ -0,0 +1,373 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.persistence.jdbc.dao.impl;
+
+import static com.ibm.fhir.persistence.jdbc.JDBCConstants.UTC;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.ibm.fhir.persistence.exception.FHIRPersistenceException;
+import com.ibm.fhir.persistence.jdbc.dao.api.ICodeSystemCache;
+import com.ibm.fhir.persistence.jdbc.dao.api.IParameterNameCache;
+import com.ibm.fhir.persistence.jdbc.dto.CompositeParmVal;
+import com.ibm.fhir.persistence.jdbc.dto.DateParmVal;
+import com.ibm.fhir.persistence.jdbc.dto.ExtractedParameterValue;
+import com.ibm.fhir.persistence.jdbc.dto.ExtractedParameterValueVisitor;
+import com.ibm.fhir.persistence.jdbc.dto.LocationParmVal;
+import com.ibm.fhir.persistence.jdbc.dto.NumberParmVal;
+import com.ibm.fhir.persistence.jdbc.dto.QuantityParmVal;
+import com.ibm.fhir.persistence.jdbc.dto.StringParmVal;
+import com.ibm.fhir.persistence.jdbc.dto.TokenParmVal;
+import com.ibm.fhir.schema.control.FhirSchemaConstants;
+
+/**
+ * Brings the search parameter rows of an existing logical resource up to date by comparing
+ * the rows currently stored with the parameters extracted from the new version. Only the
+ * rows which are no longer needed are deleted, and only the parameters which don't already
+ * have a matching row are returned to be inserted. Because most updates change very few
+ * fields, this touches far fewer rows than deleting and re-inserting every parameter.
+ *
+ * <p>Composite parameters reference the generated ids of their component rows, so they (and
+ * their components) are always deleted and re-inserted. Parameters stored at the Resource
+ * (system) level are not managed here, and are always passed through to be inserted.
+ *
+ * <p>Used by the Derby and PostgreSQL implementations, which maintain the parameter
+ * tables from Java instead of a stored procedure.
+ */
+public class ParameterDeltaDAO {
+    private static final Logger logger = Logger.getLogger(ParameterDeltaDAO.class.getName());
+
+    private static final String STR_VALUES = "_str_values";
+    private static final String NUMBER_VALUES = "_number_values";
+    private static final String DATE_VALUES = "_date_values";
+    private static final String TOKEN_VALUES = "_token_values";
+    private static final String QUANTITY_VALUES = "_quantity_values";
+    private static final String LATLNG_VALUES = "_latlng_values";
+    private static final String COMPOSITES = "_composites";
+
+    // the connection to use for the reads and deletes
+    private final Connection connection;
+
+    // the resource type name used as the prefix for the parameter tables
+    private final String tablePrefix;
+
+    // FK to the logical resource whose parameters are being replaced
+    private final long logicalResourceId;
+
+    // For looking up parameter name ids
+    private final IParameterNameCache parameterNameCache;
+
+    // For looking up code system ids
+    private final ICodeSystemCache codeSystemCache;
+
+    /**
+     * Public constructor
+     * @param c
+     * @param tablePrefix
+     * @param logicalResourceId
+     * @param pnc
+     * @param csc
+     */
+    public ParameterDeltaDAO(Connection c, String tablePrefix, long logicalResourceId, IParameterNameCache pnc, ICodeSystemCache csc) {
+        this.connection = c;
+        this.tablePrefix = tablePrefix;
+        this.logicalResourceId = logicalResourceId;
+        this.parameterNameCache = pnc;
+        this.codeSystemCache = csc;
+    }
+
+    /**
+     * Delete the existing parameter rows which don't match any of the given parameters, and
+     * return the parameters which still need to be inserted
+     * @param parameters the parameters extracted from the new version of the resource
+     * @return the subset of parameters without a matching row, in their original order
+     * @throws FHIRPersistenceException
+     * @throws SQLException
+     */
+    public List<ExtractedParameterValue> apply(List<ExtractedParameterValue> parameters) throws FHIRPersistenceException, SQLException {
+        // Compute the row each new parameter would produce
+        RowKeyVisitor visitor = new RowKeyVisitor();
+        List<List<Object>> newKeys = new ArrayList<>(parameters.size());
+        for (ExtractedParameterValue p: parameters) {
+            visitor.key = null;
+            p.accept(visitor);
+            newKeys.add(visitor.key);
+        }
+
+        // Composites (and the component rows they reference) are always replaced
+        Set<Integer> compositeNameIds = visitor.compositeNameIds;
+        compositeNameIds.addAll(readCompositeNameIds());
+        deleteAll(tablePrefix + COMPOSITES);
+
+        // Index the existing rows by their values
+        Map<List<Object>, Deque<Long>> existing = new HashMap<>();
+        Map<String, List<Long>> deletes = new HashMap<>();
+        readStrValues(existing, deletes, compositeNameIds);
+        readNumberValues(existing, deletes, compositeNameIds);
+        readDateValues(existing, deletes, compositeNameIds);
+        readTokenValues(existing, deletes, compositeNameIds);
+        readQuantityValues(existing, deletes, compositeNameIds);
+        readLatLngValues(existing, deletes, compositeNameIds);
+
+        // Keep the rows that match a new parameter (one row per parameter, so duplicates are handled)
+        List<ExtractedParameterValue> result = new ArrayList<>();
+        int unchanged = 0;
+        for (int i = 0; i < parameters.size(); i++) {
+            List<Object> key = newKeys.get(i);
+            Deque<Long> rowIds = key != null ? existing.get(key) : null;
+            if (rowIds != null && !rowIds.isEmpty()) {
+                rowIds.pop();
+                unchanged++;
+            }
+            else {
+                result.add(parameters.get(i));
+            }
+        }
+
+        // Whatever is left over is no longer needed
+        for (Map.Entry<List<Object>, Deque<Long>> entry: existing.entrySet()) {
+            if (!entry.getValue().isEmpty()) {
+                String tableName = (String) entry.getKey().get(0);
+                deletes.computeIfAbsent(tableName, k -> new ArrayList<>()).addAll(entry.getValue());
+            }
+        }
+
+        int deleted = 0;
+        for (Map.Entry<String, List<Long>> entry: deletes.entrySet()) {
+            deleteRows(entry.getKey(), entry.getValue());
+            deleted += entry.getValue().size();
+        }
+
+        if (logger.isLoggable(Level.FINE)) {
+            logger.fine("Parameter delta for " + tablePrefix + "[" + logicalResourceId + "]: unchanged=" + unchanged
+                    + ", deleted=" + deleted + ", inserted=" + result.size());
+        }
+        return result;
+    }
+
+    private Set<Integer> readCompositeNameIds() throws SQLException {
+        Set<Integer> result = new HashSet<>();
+        final String sql = "SELECT parameter_name_id FROM " + tablePrefix + COMPOSITES + " WHERE logical_resource_id = ?";
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setLong(1, logicalResourceId);
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                result.add(rs.getInt(1));
+            }
+        }
+        return result;
+    }
+
+    private void readStrValues(Map<List<Object>, Deque<Long>> existing, Map<String, List<Long>> deletes, Set<Integer> compositeNameIds) throws SQLException {
+        final String tableName = tablePrefix + STR_VALUES;
+        final String sql = "SELECT row_id, parameter_name_id, str_value FROM " + tableName + " WHERE logical_resource_id = ?";
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setLong(1, logicalResourceId);
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                addRow(existing, deletes, compositeNameIds, tableName, rs.getLong(1), rs.getInt(2), rs.getString(3));
+            }
+        }
+    }
+
+    private void readNumberValues(Map<List<Object>, Deque<Long>> existing, Map<String, List<Long>> deletes, Set<Integer> compositeNameIds) throws SQLException {
+        final String tableName = tablePrefix + NUMBER_VALUES;
+        final String sql = "SELECT row_id, parameter_name_id, number_value, number_value_low, number_value_high FROM " + tableName + " WHERE logical_resource_id = ?";
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setLong(1, logicalResourceId);
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                addRow(existing, deletes, compositeNameIds, tableName, rs.getLong(1), rs.getInt(2), getDouble(rs, 3), getDouble(rs, 4), getDouble(rs, 5));
+            }
+        }
+    }
+
+    private void readDateValues(Map<List<Object>, Deque<Long>> existing, Map<String, List<Long>> deletes, Set<Integer> compositeNameIds) throws SQLException {
+        final String tableName = tablePrefix + DATE_VALUES;
+        final String sql = "SELECT row_id, parameter_name_id, date_start, date_end FROM " + tableName + " WHERE logical_resource_id = ?";
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setLong(1, logicalResourceId);
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                addRow(existing, deletes, compositeNameIds, tableName, rs.getLong(1), rs.getInt(2), rs.getTimestamp(3, UTC), rs.getTimestamp(4, UTC));
+            }
+        }
+    }
+
+    private void readTokenValues(Map<List<Object>, Deque<Long>> existing, Map<String, List<Long>> deletes, Set<Integer> compositeNameIds) throws SQLException {
+        final String tableName = tablePrefix + TOKEN_VALUES;
+        final String sql = "SELECT row_id, parameter_name_id, code_system_id, token_value FROM " + tableName + " WHERE logical_resource_id = ?";
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setLong(1, logicalResourceId);
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                addRow(existing, deletes, compositeNameIds, tableName, rs.getLong(1), rs.getInt(2), rs.getInt(3), rs.getString(4));
+            }
+        }
+    }
+
+    private void readQuantityValues(Map<List<Object>, Deque<Long>> existing, Map<String, List<Long>> deletes, Set<Integer> compositeNameIds) throws SQLException {
+        final String tableName = tablePrefix + QUANTITY_VALUES;
+        final String sql = "SELECT row_id, parameter_name_id, code_system_id, code, quantity_value, quantity_value_low, quantity_value_high FROM " + tableName
+                + " WHERE logical_resource_id = ?";
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setLong(1, logicalResourceId);
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                addRow(existing, deletes, compositeNameIds, tableName, rs.getLong(1), rs.getInt(2), rs.getInt(3), rs.getString(4),
+                    getDouble(rs, 5), getDouble(rs, 6), getDouble(rs, 7));
+            }
+        }
+    }
+
+    private void readLatLngValues(Map<List<Object>, Deque<Long>> existing, Map<String, List<Long>> deletes, Set<Integer> compositeNameIds) throws SQLException {
+        final String tableName = tablePrefix + LATLNG_VALUES;
+        final String sql = "SELECT row_id, parameter_name_id, latitude_value, longitude_value FROM " + tableName + " WHERE logical_resource_id = ?";
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setLong(1, logicalResourceId);
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                addRow(existing, deletes, compositeNameIds, tableName, rs.getLong(1), rs.getInt(2), getDouble(rs, 3), getDouble(rs, 4));
+            }
+        }
+    }
+
+    /**
+     * Index an existing row by its values, or mark it for deletion if it's a composite component
+     */
+    private void addRow(Map<List<Object>, Deque<Long>> existing, Map<String, List<Long>> deletes, Set<Integer> compositeNameIds,
+            String tableName, long rowId, int parameterNameId, Object... values) {
+        if (compositeNameIds.contains(parameterNameId)) {
+            deletes.computeIfAbsent(tableName, k -> new ArrayList<>()).add(rowId);
+        }
+        else {
+            existing.computeIfAbsent(key(tableName, parameterNameId, values), k -> new ArrayDeque<>()).push(rowId);
+        }
+    }
+
+    private void deleteAll(String tableName) throws SQLException {
+        final String sql = "DELETE FROM " + tableName + " WHERE logical_resource_id = ?";
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setLong(1, logicalResourceId);
+            stmt.executeUpdate();
+        }
+    }
+
+    private void deleteRows(String tableName, List<Long> rowIds) throws SQLException {
+        final String sql = "DELETE FROM " + tableName + " WHERE row_id = ?";
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            for (Long rowId: rowIds) {
+                stmt.setLong(1, rowId);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    private static Double getDouble(ResultSet rs, int column) throws SQLException {
+        double value = rs.getDouble(column);
+        return rs.wasNull() ? null : value;
+    }
+
+    private static Double toDouble(BigDecimal value) {
+        return value != null ? value.doubleValue() : null;
+    }
+
+    private static List<Object> key(String tableName, int parameterNameId, Object... values) {
+        List<Object> result = new ArrayList<>(values.length + 2);
+        result.add(tableName);
+        result.add(parameterNameId);
+        result.addAll(Arrays.asList(values));
+        return result;
+    }
+
+    /**
+     * Computes the key of the row each parameter is stored as, using the same conversions as
+     * {@link ParameterVisitorBatchDAO}. The key is left null for parameters which aren't
+     * managed by the delta.
+     */
+    private class RowKeyVisitor implements ExtractedParameterValueVisitor {
+        private List<Object> key;
+        private final Set<Integer> compositeNameIds = new HashSet<>();
+
+        @Override
+        public void visit(StringParmVal param) throws FHIRPersistenceException {
+            if (!isBase(param)) {
+                String value = param.getValueString();
+                while (value != null && value.getBytes().length > FhirSchemaConstants.MAX_SEARCH_STRING_BYTES) {
+                    value = value.substring(0, value.length() / 2);
+                }
+                key = key(tablePrefix + STR_VALUES, getParameterNameId(param), value);
+            }
+        }
+
+        @Override
+        public void visit(NumberParmVal param) throws FHIRPersistenceException {
+            key = key(tablePrefix + NUMBER_VALUES, getParameterNameId(param),
+                toDouble(param.getValueNumber()), toDouble(param.getValueNumberLow()), toDouble(param.getValueNumberHigh()));
+        }
+
+        @Override
+        public void visit(DateParmVal param) throws FHIRPersistenceException {
+            if (!isBase(param)) {
+                key = key(tablePrefix + DATE_VALUES, getParameterNameId(param), param.getValueDateStart(), param.getValueDateEnd());
+            }
+        }
+
+        @Override
+        public void visit(TokenParmVal param) throws FHIRPersistenceException {
+            if (!isBase(param)) {
+                key = key(tablePrefix + TOKEN_VALUES, getParameterNameId(param),
+                    codeSystemCache.readOrAddCodeSystem(param.getValueSystem()), param.getValueCode());
+            }
+        }
+
+        @Override
+        public void visit(QuantityParmVal param) throws FHIRPersistenceException {
+            String code = param.getValueCode();
+            // codeless quantities are skipped by the insert, so there's nothing to match
+            if (code != null && !code.isEmpty()) {
+                key = key(tablePrefix + QUANTITY_VALUES, getParameterNameId(param),
+                    codeSystemCache.readOrAddCodeSystem(param.getValueSystem()), code,
+                    toDouble(param.getValueNumber()), toDouble(param.getValueNumberLow()), toDouble(param.getValueNumberHigh()));
+            }
+        }
+
+        @Override
+        public void visit(LocationParmVal param) throws FHIRPersistenceException {
+            key = key(tablePrefix + LATLNG_VALUES, getParameterNameId(param), param.getValueLatitude(), param.getValueLongitude());
+        }
+
+        @Override
+        public void visit(CompositeParmVal param) throws FHIRPersistenceException {
+            compositeNameIds.add(getParameterNameId(param));
+        }
+
+        private int getParameterNameId(ExtractedParameterValue param) throws FHIRPersistenceException {
+            return parameterNameCache.readOrAddParameterNameId(param.getName());
+        }
+
+        private boolean isBase(ExtractedParameterValue param) {
+            return "Resource".equals(param.getBase());
+        }
+    }
+}
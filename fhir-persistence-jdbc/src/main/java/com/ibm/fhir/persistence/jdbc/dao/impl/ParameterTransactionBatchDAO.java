@@ -0,0 +1,148 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.persistence.jdbc.dao.impl;
+
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.ibm.fhir.persistence.exception.FHIRPersistenceException;
+import com.ibm.fhir.persistence.jdbc.dto.ExtractedParameterValue;
+
+/**
+ * Accumulates the search parameter inserts for all the resources written within a single
+ * transaction (e.g. a transaction bundle or a bulk import chunk), so that each parameter
+ * table receives a few large JDBC batches instead of one small batch per resource.
+ *
+ * <p>One {@link ParameterVisitorBatchDAO} is kept open per resource type. Each of its statements
+ * is executed whenever it reaches the configured batch size, and any remaining rows are executed
+ * by {@link #flush()}, which must be called before the parameter tables are read or the transaction
+ * is committed.
+ *
+ * <p>Instances are not thread-safe and are expected to be scoped to a single transaction.
+ */
+public class ParameterTransactionBatchDAO implements AutoCloseable {
+    private static final Logger logger = Logger.getLogger(ParameterTransactionBatchDAO.class.getName());
+
+    // the max number of rows we accumulate for a given statement when not configured
+    public static final int DEFAULT_BATCH_SIZE = 100;
+
+    // the max number of rows we accumulate for a given statement before we submit the batch
+    private final int batchSize;
+
+    // the open visitor for each resource type (parameter table prefix)
+    private final Map<String, ParameterVisitorBatchDAO> visitors = new HashMap<>();
+
+    // the resources (type/logicalId) with parameter rows which may not have been executed yet
+    private final Set<String> pendingResources = new HashSet<>();
+
+    /**
+     * Creates the visitor used to batch parameter inserts for a given resource type
+     */
+    @FunctionalInterface
+    public interface VisitorFactory {
+        ParameterVisitorBatchDAO create(int batchSize) throws SQLException;
+    }
+
+    /**
+     * Public constructor
+     * @param batchSize
+     */
+    public ParameterTransactionBatchDAO(int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be >= 1");
+        }
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Get the max number of rows accumulated for a given statement before the batch is submitted
+     * @return
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Add the parameters of the given logical resource to the batch
+     * @param resourceType
+     * @param logicalId
+     * @param logicalResourceId
+     * @param parameters
+     * @param factory used to create the visitor if this is the first resource of this type in the batch
+     * @throws FHIRPersistenceException
+     * @throws SQLException
+     */
+    public void addParameters(String resourceType, String logicalId, long logicalResourceId,
+            List<ExtractedParameterValue> parameters, VisitorFactory factory) throws FHIRPersistenceException, SQLException {
+        ParameterVisitorBatchDAO visitor = visitors.get(resourceType);
+        if (visitor == null) {
+            visitor = factory.create(batchSize);
+            visitors.put(resourceType, visitor);
+        }
+
+        pendingResources.add(resourceType + "/" + logicalId);
+        visitor.setLogicalResourceId(logicalResourceId);
+        for (ExtractedParameterValue p: parameters) {
+            p.accept(visitor);
+        }
+    }
+
+    /**
+     * Flush the batch if it may still hold parameter rows for the given resource. This must
+     * be called before the existing parameters of a resource are deleted, otherwise rows
+     * added earlier in the same transaction would survive the delete.
+     * @param resourceType
+     * @param logicalId
+     * @throws SQLException
+     */
+    public void flushIfPending(String resourceType, String logicalId) throws SQLException {
+        if (pendingResources.contains(resourceType + "/" + logicalId)) {
+            flush();
+        }
+    }
+
+    /**
+     * Execute all the parameter rows accumulated so far
+     * @throws SQLException
+     */
+    public void flush() throws SQLException {
+        if (logger.isLoggable(Level.FINE)) {
+            logger.fine("Flushing parameter batch for " + pendingResources.size() + " resources");
+        }
+        for (ParameterVisitorBatchDAO visitor: visitors.values()) {
+            visitor.flush();
+        }
+        pendingResources.clear();
+    }
+
+    /**
+     * Close all the statements without executing any pending parameter rows
+     */
+    public void discard() {
+        for (ParameterVisitorBatchDAO visitor: visitors.values()) {
+            visitor.discard();
+        }
+        visitors.clear();
+        pendingResources.clear();
+    }
+
+    @Override
+    public void close() throws SQLException {
+        try {
+            flush();
+        }
+        finally {
+            discard();
+        }
+    }
+}
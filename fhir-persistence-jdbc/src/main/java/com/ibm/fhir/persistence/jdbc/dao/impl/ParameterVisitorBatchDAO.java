@@ -52,7 +52,7 @@ public class ParameterVisitorBatchDAO implements ExtractedParameterValueVisitor,
     private final int batchSize;
 
     // FK to the logical resource for the parameters being added
-    private final long logicalResourceId;
+    private long logicalResourceId;
 
     // Maintainers: remember to close all statements in AutoCloseable#close()
     private final String insertString;
@@ -620,10 +620,23 @@ public class ParameterVisitorBatchDAO implements ExtractedParameterValueVisitor,
         }
     }
 
-    @Override
-    public void close() throws Exception {
+    /**
+     * Set the logical resource for the parameters visited from now on. This allows
+     * the same batch to be shared by multiple resources of the same type within a
+     * single transaction.
+     * @param logicalResourceId
+     */
+    public void setLogicalResourceId(long logicalResourceId) {
+        this.logicalResourceId = logicalResourceId;
+    }
+
+    /**
+     * Submit any rows which have been added to the batches but not yet executed
+     * @throws SQLException
+     */
+    public void flush() throws SQLException {
         // flush any stragglers, remembering to reset each count because
-        // close() should be idempotent.
+        // flush() should be idempotent.
         try {
             if (stringCount > 0) {
                 strings.executeBatch();
@@ -680,6 +693,28 @@ public class ParameterVisitorBatchDAO implements ExtractedParameterValueVisitor,
                 throw x;
             }
         }
+    }
+
+    @Override
+    public void close() throws Exception {
+        flush();
+        discard();
+    }
+
+    /**
+     * Close all the statements without executing any rows still pending in the
+     * batches, which is what we want when the transaction is being rolled back
+     */
+    public void discard() {
+        stringCount = 0;
+        numberCount = 0;
+        dateCount = 0;
+        tokenCount = 0;
+        quantityCount = 0;
+        compositesCount = 0;
+        resourceStringCount = 0;
+        resourceDateCount = 0;
+        resourceTokenCount = 0;
 
         closeStatement(strings);
         closeStatement(numbers);
@@ -687,6 +722,7 @@ public class ParameterVisitorBatchDAO implements ExtractedParameterValueVisitor,
         closeStatement(tokens);
         closeStatement(tokenComp);
         closeStatement(quantities);
+        closeStatement(composites);
         closeStatement(resourceStrings);
         closeStatement(resourceDates);
         closeStatement(resourceTokens);
@@ -31,6 +31,8 @@ import java.util.logging.Logger;
 
 import javax.transaction.TransactionSynchronizationRegistry;
 
+import com.ibm.fhir.database.utils.api.IDatabaseTranslator;
+import com.ibm.fhir.database.utils.db2.Db2Translator;
 import com.ibm.fhir.persistence.context.FHIRPersistenceContext;
 import com.ibm.fhir.persistence.exception.FHIRPersistenceException;
 import com.ibm.fhir.persistence.exception.FHIRPersistenceVersionIdMismatchException;
@@ -101,6 +103,8 @@ public class ResourceDAOImpl extends FHIRDbDAOImpl implements ResourceDAO {
 
     private static final String DB2_PAGINATION_PARMS = "LIMIT ? OFFSET ?";
 
+    private static final IDatabaseTranslator translator = new Db2Translator();
+
     @SuppressWarnings("unused")
     private FHIRPersistenceContext context;
 
@@ -108,6 +112,7 @@ public class ResourceDAOImpl extends FHIRDbDAOImpl implements ResourceDAO {
     private boolean runningInTrx = false;
     private ResourceTypesCacheUpdater rtCacheUpdater = null;
     private TransactionSynchronizationRegistry trxSynchRegistry;
+    private ParameterTransactionBatchDAO parameterBatch;
 
     /**
      * Constructs a DAO instance suitable for acquiring connections from a JDBC Datasource object.
@@ -298,11 +303,51 @@ public class ResourceDAOImpl extends FHIRDbDAOImpl implements ResourceDAO {
         return count;
     }
 
+    @Override
+    public int searchCountEstimate(SqlQueryData queryData) throws FHIRPersistenceDataAccessException, FHIRPersistenceDBConnectException {
+        final String METHODNAME = "searchCountEstimate";
+        log.entering(CLASSNAME, METHODNAME);
+
+        int estimate = -1;
+        String sqlExplain = getTranslator().explainQuery(queryData.getQueryString());
+        Object[] bindVariables = queryData.getBindVariables().toArray();
+
+        try {
+            if (sqlExplain != null) {
+                estimate = this.runCountEstimateQuery(getTranslator(), sqlExplain, bindVariables);
+            }
+        } finally {
+            log.exiting(CLASSNAME, METHODNAME);
+        }
+        return estimate;
+    }
+
+    /**
+     * Get the translator for the type of database used by this DAO
+     * @return
+     */
+    protected IDatabaseTranslator getTranslator() {
+        return translator;
+    }
+
     @Override
     public void setPersistenceContext(FHIRPersistenceContext context) {
         this.context = context;
     }
 
+    @Override
+    public void setParameterBatch(ParameterTransactionBatchDAO parameterBatch) {
+        this.parameterBatch = parameterBatch;
+    }
+
+    /**
+     * Get the batch used to accumulate search parameter inserts across the current transaction
+     * @return the parameter batch, or null if parameters are inserted one resource at a time
+     */
+    protected ParameterTransactionBatchDAO getParameterBatch() {
+        return this.parameterBatch;
+    }
+
     @Override
     public Map<String, Integer> readAllResourceTypeNames()
                                          throws FHIRPersistenceDBConnectException, FHIRPersistenceDataAccessException {
@@ -480,6 +525,12 @@ public class ResourceDAOImpl extends FHIRDbDAOImpl implements ResourceDAO {
         try {
             connection = this.getConnection();
 
+            // The stored procedure replaces the parameters of an existing resource, so make sure
+            // any rows we're still holding for it have been written first
+            if (parameterBatch != null) {
+                parameterBatch.flushIfPending(resource.getResourceType(), resource.getLogicalId());
+            }
+
             resourceTypeId = ResourceTypesCache.getResourceTypeId(resource.getResourceType());
             if (resourceTypeId == null) {
                 acquiredFromCache = false;
@@ -517,10 +568,18 @@ public class ResourceDAOImpl extends FHIRDbDAOImpl implements ResourceDAO {
             // Parameter time
             // TODO FHIR_ADMIN schema name needs to come from the configuration/context
             if (parameters != null) {
-                try (ParameterVisitorBatchDAO pvd = new ParameterVisitorBatchDAO(connection, "FHIR_ADMIN", resource.getResourceType(), true,
-                        resource.getId(), 100, new ParameterNameCacheAdapter(parameterDao), new CodeSystemCacheAdapter(parameterDao))) {
-                    for (ExtractedParameterValue p: parameters) {
-                        p.accept(pvd);
+                final Connection c = connection;
+                if (parameterBatch != null) {
+                    parameterBatch.addParameters(resource.getResourceType(), resource.getLogicalId(), resource.getId(), parameters,
+                        batchSize -> new ParameterVisitorBatchDAO(c, "FHIR_ADMIN", resource.getResourceType(), true,
+                            resource.getId(), batchSize, new ParameterNameCacheAdapter(parameterDao), new CodeSystemCacheAdapter(parameterDao)));
+                }
+                else {
+                    try (ParameterVisitorBatchDAO pvd = new ParameterVisitorBatchDAO(connection, "FHIR_ADMIN", resource.getResourceType(), true,
+                            resource.getId(), ParameterTransactionBatchDAO.DEFAULT_BATCH_SIZE, new ParameterNameCacheAdapter(parameterDao), new CodeSystemCacheAdapter(parameterDao))) {
+                        for (ExtractedParameterValue p: parameters) {
+                            p.accept(pvd);
+                        }
                     }
                 }
             }
@@ -0,0 +1,92 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.persistence.jdbc.dao.impl;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+/**
+ * Hands out the values of the database sequences in blocks. A sequence which increments by N
+ * reserves the N values starting with each value obtained from it, so the values of a block can be
+ * used without going back to the database, and the blocks obtained by other JVMs (or by the DB2
+ * stored procedures) never overlap with it.
+ * <br>
+ * The block size is the increment of the sequence, which is read from the database catalog the
+ * first time the sequence is used, so it can't be configured to be bigger than the increment.
+ */
+public class SequenceBlockCache {
+    private static final Logger logger = Logger.getLogger(SequenceBlockCache.class.getName());
+
+    // The blocks by database, schema and sequence name
+    private static final ConcurrentHashMap<String, SequenceBlock> blocks = new ConcurrentHashMap<>();
+
+    /**
+     * Reads a value from the database
+     */
+    @FunctionalInterface
+    public interface SequenceReader {
+        long read() throws SQLException;
+    }
+
+    private SequenceBlockCache() {
+        // No Operation
+    }
+
+    /**
+     * Get the next value of the sequence, from the current block if it isn't used up yet.
+     *
+     * @param connection the connection to the database of the sequence
+     * @param sequenceName
+     * @param incrementReader reads the increment of the sequence from the database catalog
+     * @param nextValueReader reads the next value of the sequence from the database
+     * @return
+     * @throws SQLException
+     */
+    public static long nextValue(Connection connection, String sequenceName, SequenceReader incrementReader,
+            SequenceReader nextValueReader) throws SQLException {
+        final String key = connection.getMetaData().getURL() + "/" + connection.getSchema() + "/" + sequenceName;
+        SequenceBlock block = blocks.get(key);
+        if (block == null) {
+            long incrementBy = incrementReader.read();
+            if (incrementBy < 1) {
+                // Never use more than the value itself if the increment can't be found
+                logger.warning("Increment of sequence '" + key + "' not found; allocating one value at a time");
+                incrementBy = 1;
+            } else {
+                logger.fine("Allocating sequence '" + key + "' in blocks of " + incrementBy);
+            }
+            blocks.putIfAbsent(key, new SequenceBlock(incrementBy));
+            block = blocks.get(key);
+        }
+        return block.next(nextValueReader);
+    }
+
+    /**
+     * The values of a sequence which have been reserved but not used yet
+     */
+    private static class SequenceBlock {
+        private final long incrementBy;
+
+        // the next value to use, and the first value after the block
+        private long next = 0;
+        private long limit = 0;
+
+        private SequenceBlock(long incrementBy) {
+            this.incrementBy = incrementBy;
+        }
+
+        private synchronized long next(SequenceReader nextValueReader) throws SQLException {
+            if (next >= limit) {
+                next = nextValueReader.read();
+                limit = next + incrementBy;
+            }
+            return next++;
+        }
+    }
+}
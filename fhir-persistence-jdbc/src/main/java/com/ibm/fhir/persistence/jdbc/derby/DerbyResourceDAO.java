@@ -21,13 +21,17 @@ import java.util.logging.Logger;
 
 import javax.transaction.TransactionSynchronizationRegistry;
 
+import com.ibm.fhir.database.utils.api.IDatabaseTranslator;
 import com.ibm.fhir.database.utils.derby.DerbyTranslator;
 import com.ibm.fhir.persistence.exception.FHIRPersistenceException;
 import com.ibm.fhir.persistence.exception.FHIRPersistenceVersionIdMismatchException;
 import com.ibm.fhir.persistence.jdbc.dao.api.CodeSystemDAO;
 import com.ibm.fhir.persistence.jdbc.dao.api.FhirRefSequenceDAO;
+import com.ibm.fhir.persistence.jdbc.dao.api.FhirSequenceDAO;
 import com.ibm.fhir.persistence.jdbc.dao.api.ParameterDAO;
 import com.ibm.fhir.persistence.jdbc.dao.api.ParameterNameDAO;
+import com.ibm.fhir.persistence.jdbc.dao.impl.ParameterDeltaDAO;
+import com.ibm.fhir.persistence.jdbc.dao.impl.ParameterTransactionBatchDAO;
 import com.ibm.fhir.persistence.jdbc.dao.impl.ParameterVisitorBatchDAO;
 import com.ibm.fhir.persistence.jdbc.dao.impl.ResourceDAOImpl;
 import com.ibm.fhir.persistence.jdbc.dto.ExtractedParameterValue;
@@ -75,6 +79,11 @@ public class DerbyResourceDAO extends ResourceDAOImpl {
         super(trxSynchRegistry);
     }
 
+    @Override
+    protected IDatabaseTranslator getTranslator() {
+        return translator;
+    }
+
     /**
      * Inserts the passed FHIR Resource and associated search parameters to a Derby or PostgreSql FHIR database.
      * The search parameters are stored first by calling the passed parameterDao. Then the Resource is stored
@@ -107,6 +116,13 @@ public class DerbyResourceDAO extends ResourceDAOImpl {
             this.parameterNameDAO = new DerbyParameterNamesDAO(connection, fhirRefSequenceDAO);
             this.codeSystemDAO = new DerbyCodeSystemDAO(connection, fhirRefSequenceDAO);
 
+            // storeResource deletes the parameters of an existing resource, so make sure
+            // any rows we're still holding for it have been written first
+            ParameterTransactionBatchDAO parameterBatch = getParameterBatch();
+            if (parameterBatch != null) {
+                parameterBatch.flushIfPending(resource.getResourceType(), resource.getLogicalId());
+            }
+
             resourceTypeId = ResourceTypesCache.getResourceTypeId(resource.getResourceType());
             if (resourceTypeId == null) {
                 acquiredFromCache = false;
@@ -221,6 +237,9 @@ public class DerbyResourceDAO extends ResourceDAOImpl {
 
         String v_resource_type = tablePrefix;
 
+        // logical_resource_id and resource_id values are allocated in blocks from fhir_sequence
+        FhirSequenceDAO fhirSequenceDAO = new FhirSequenceDAOImpl(conn);
+
         // Map the resource type name to the normalized id value in the database
         v_resource_type_id = getResourceTypeId(v_resource_type, conn);
         if (v_resource_type_id == null) {
@@ -246,17 +265,7 @@ public class DerbyResourceDAO extends ResourceDAOImpl {
         // Create the logical resource if we don't have it already
         if (v_not_found) {
             // grab the id we want to use for the new logical resource instance
-            final String sql2 = "VALUES(NEXT VALUE FOR fhir_sequence)";
-            try (PreparedStatement stmt = conn.prepareStatement(sql2)) {
-                ResultSet res = stmt.executeQuery();
-                if (res.next()) {
-                    v_logical_resource_id = res.getLong(1);
-                }
-                else {
-                    // not going to happen, unless someone butchers the statement being executed
-                    throw new IllegalStateException("VALUES failed to return a row: " + sql2);
-                }
-            }
+            v_logical_resource_id = fhirSequenceDAO.nextValue();
 
             try {
                 // insert the system-wide logical resource record.
@@ -367,15 +376,24 @@ public class DerbyResourceDAO extends ResourceDAOImpl {
             //resource, and so we only need to delete parameters if the given version is
             // later than the current version
             if (p_version == null || p_version > v_version) {
-                // existing resource, so need to delete all its parameters
-                // delete composites first, or else the foreign keys there restrict deletes on referenced tables
-                deleteFromParameterTable(conn, tablePrefix + "_composites", v_logical_resource_id);
-                deleteFromParameterTable(conn, tablePrefix + "_str_values", v_logical_resource_id);
-                deleteFromParameterTable(conn, tablePrefix + "_number_values", v_logical_resource_id);
-                deleteFromParameterTable(conn, tablePrefix + "_date_values", v_logical_resource_id);
-                deleteFromParameterTable(conn, tablePrefix + "_latlng_values", v_logical_resource_id);
-                deleteFromParameterTable(conn, tablePrefix + "_token_values", v_logical_resource_id);
-                deleteFromParameterTable(conn, tablePrefix + "_quantity_values", v_logical_resource_id);
+                if (parameters != null) {
+                    // existing resource, so only delete the parameter rows which have changed, and
+                    // narrow the parameters down to those which still need to be inserted
+                    ParameterDeltaDAO pdd = new ParameterDeltaDAO(conn, tablePrefix, v_logical_resource_id,
+                        new ParameterNameCacheAdapter(parameterNameDAO), new CodeSystemCacheAdapter(codeSystemDAO));
+                    parameters = pdd.apply(parameters);
+                }
+                else {
+                    // existing resource is being deleted, so need to delete all its parameters
+                    // delete composites first, or else the foreign keys there restrict deletes on referenced tables
+                    deleteFromParameterTable(conn, tablePrefix + "_composites", v_logical_resource_id);
+                    deleteFromParameterTable(conn, tablePrefix + "_str_values", v_logical_resource_id);
+                    deleteFromParameterTable(conn, tablePrefix + "_number_values", v_logical_resource_id);
+                    deleteFromParameterTable(conn, tablePrefix + "_date_values", v_logical_resource_id);
+                    deleteFromParameterTable(conn, tablePrefix + "_latlng_values", v_logical_resource_id);
+                    deleteFromParameterTable(conn, tablePrefix + "_token_values", v_logical_resource_id);
+                    deleteFromParameterTable(conn, tablePrefix + "_quantity_values", v_logical_resource_id);
+                }
             }
         }
 
@@ -394,17 +412,7 @@ public class DerbyResourceDAO extends ResourceDAOImpl {
          * Create the new resource version.
          * Alpha version uses last_updated time from the app-server, so we keep that here
          */
-        String sql2 = "VALUES (NEXT VALUE FOR fhir_sequence)";
-        try (PreparedStatement stmt = conn.prepareStatement(sql2)) {
-            ResultSet res = stmt.executeQuery();
-            if (res.next()) {
-                v_resource_id = res.getLong(1); //Assign result of the above query
-            }
-            else {
-                // unlikely
-                throw new IllegalStateException("no row returned: " + sql2);
-            }
-        }
+        v_resource_id = fhirSequenceDAO.nextValue();
 
         // Finally we get to the big resource data insert
         String sql3 = "INSERT INTO " + tablePrefix + "_resources (resource_id, logical_resource_id, version_id, data, last_updated, is_deleted) "
@@ -436,10 +444,19 @@ public class DerbyResourceDAO extends ResourceDAOImpl {
             // Note we don't get any parameters for the resource soft-delete operation
             if (parameters != null) {
                 // Derby doesn't support partitioned multi-tenancy, so we disable it on the DAO:
-                try (ParameterVisitorBatchDAO pvd = new ParameterVisitorBatchDAO(conn, null, tablePrefix, false, v_logical_resource_id, 100,
-                    new ParameterNameCacheAdapter(parameterNameDAO), new CodeSystemCacheAdapter(codeSystemDAO))) {
-                    for (ExtractedParameterValue p: parameters) {
-                        p.accept(pvd);
+                ParameterTransactionBatchDAO parameterBatch = getParameterBatch();
+                if (parameterBatch != null) {
+                    final long logicalResourceId = v_logical_resource_id;
+                    parameterBatch.addParameters(tablePrefix, p_logical_id, logicalResourceId, parameters,
+                        batchSize -> new ParameterVisitorBatchDAO(conn, null, tablePrefix, false, logicalResourceId, batchSize,
+                            new ParameterNameCacheAdapter(parameterNameDAO), new CodeSystemCacheAdapter(codeSystemDAO)));
+                }
+                else {
+                    try (ParameterVisitorBatchDAO pvd = new ParameterVisitorBatchDAO(conn, null, tablePrefix, false, v_logical_resource_id,
+                        ParameterTransactionBatchDAO.DEFAULT_BATCH_SIZE, new ParameterNameCacheAdapter(parameterNameDAO), new CodeSystemCacheAdapter(codeSystemDAO))) {
+                        for (ExtractedParameterValue p: parameters) {
+                            p.accept(pvd);
+                        }
                     }
                 }
             }
@@ -1,5 +1,5 @@
 /*
- * (C) Copyright IBM Corp. 2019
+ * (C) Copyright IBM Corp. 2019, 2020
  *
  * SPDX-License-Identifier: Apache-2.0
  */
@@ -12,9 +12,11 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 
 import com.ibm.fhir.persistence.jdbc.dao.api.FhirRefSequenceDAO;
+import com.ibm.fhir.persistence.jdbc.dao.impl.SequenceBlockCache;
 
 /**
- * DAO to obtain the next value from FHIR_REF_SEQUENCE
+ * DAO to obtain the next value from FHIR_REF_SEQUENCE. The values are allocated in blocks
+ * of the sequence increment, see {@link SequenceBlockCache}.
  *
  */
 public class FhirRefSequenceDAOImpl implements FhirRefSequenceDAO {
@@ -30,15 +32,19 @@ public class FhirRefSequenceDAOImpl implements FhirRefSequenceDAO {
 
     @Override
     public int nextValue() throws SQLException {
+        return Math.toIntExact(SequenceBlockCache.nextValue(conn, "fhir_ref_sequence",
+                () -> FhirSequenceDAOImpl.getIncrement(conn, "FHIR_REF_SEQUENCE"), this::readNextValue));
+    }
+
+    private long readNextValue() throws SQLException {
         int result;
         final String SEQ = "VALUES NEXT VALUE FOR fhir_ref_sequence";
-        
+
         try (PreparedStatement stmt = conn.prepareStatement(SEQ)) {
             ResultSet rs = stmt.executeQuery();
             if (rs.next()) {
                 result = rs.getInt(1);
-            }
-            else {
+            } else {
                 // not gonna happen
                 throw new IllegalStateException("no value returned from fhir_ref_sequence!");
             }
@@ -1,5 +1,5 @@
 /*
- * (C) Copyright IBM Corp. 2019
+ * (C) Copyright IBM Corp. 2019, 2020
  *
  * SPDX-License-Identifier: Apache-2.0
  */
@@ -12,10 +12,11 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 
 import com.ibm.fhir.persistence.jdbc.dao.api.FhirSequenceDAO;
+import com.ibm.fhir.persistence.jdbc.dao.impl.SequenceBlockCache;
 
 /**
- * DAO to obtain the next value from FHIR_SEQUENCE
- *
+ * DAO to obtain the next value from FHIR_SEQUENCE. The values are allocated in blocks
+ * of the sequence increment, see {@link SequenceBlockCache}.
  */
 public class FhirSequenceDAOImpl implements FhirSequenceDAO {
     private final Connection conn;
@@ -30,15 +31,18 @@ public class FhirSequenceDAOImpl implements FhirSequenceDAO {
 
     @Override
     public long nextValue() throws SQLException {
+        return SequenceBlockCache.nextValue(conn, "fhir_sequence", () -> getIncrement(conn, "FHIR_SEQUENCE"), this::readNextValue);
+    }
+
+    private long readNextValue() throws SQLException {
         long result;
         final String SEQ = "VALUES NEXT VALUE FOR fhir_sequence";
-        
+
         try (PreparedStatement stmt = conn.prepareStatement(SEQ)) {
             ResultSet rs = stmt.executeQuery();
             if (rs.next()) {
                 result = rs.getLong(1);
-            }
-            else {
+            } else {
                 // not gonna happen
                 throw new IllegalStateException("no value returned from fhir_sequence!");
             }
@@ -47,4 +51,23 @@ public class FhirSequenceDAOImpl implements FhirSequenceDAO {
         return result;
     }
 
+    /**
+     * Read the increment of the sequence in the current schema from the catalog
+     * @param c
+     * @param sequenceName the name of the sequence as stored in the catalog
+     * @return the increment, or 0 if the sequence isn't found
+     * @throws SQLException
+     */
+    static long getIncrement(Connection c, String sequenceName) throws SQLException {
+        final String SQL = "SELECT s.increment FROM sys.syssequences s JOIN sys.sysschemas sc ON sc.schemaid = s.schemaid WHERE sc.schemaname = CURRENT SCHEMA AND s.sequencename = ?";
+
+        try (PreparedStatement stmt = c.prepareStatement(SQL)) {
+            stmt.setString(1, sequenceName);
+            ResultSet rs = stmt.executeQuery();
+            if (rs.next()) {
+                return rs.getLong(1);
+            }
+        }
+        return 0;
+    }
 }
@@ -8,9 +8,15 @@ package com.ibm.fhir.persistence.jdbc.impl;
 
 import static com.ibm.fhir.config.FHIRConfiguration.PROPERTY_JDBC_ENABLE_CODE_SYSTEMS_CACHE;
 import static com.ibm.fhir.config.FHIRConfiguration.PROPERTY_JDBC_ENABLE_PARAMETER_NAMES_CACHE;
+import static com.ibm.fhir.config.FHIRConfiguration.PROPERTY_JDBC_ENABLE_RESOURCE_CACHE;
 import static com.ibm.fhir.config.FHIRConfiguration.PROPERTY_JDBC_ENABLE_RESOURCE_TYPES_CACHE;
+import static com.ibm.fhir.config.FHIRConfiguration.PROPERTY_JDBC_PARAMETER_BATCH_SIZE;
+import static com.ibm.fhir.config.FHIRConfiguration.PROPERTY_JDBC_RESOURCE_CACHE_SIZE;
+import static com.ibm.fhir.config.FHIRConfiguration.PROPERTY_JDBC_RESOURCE_CACHE_TYPES;
+import static com.ibm.fhir.config.FHIRConfiguration.PROPERTY_JDBC_SKIP_UNCHANGED_UPDATES;
 import static com.ibm.fhir.config.FHIRConfiguration.PROPERTY_UPDATE_CREATE_ENABLED;
 import static com.ibm.fhir.model.type.String.string;
+import static com.ibm.fhir.path.util.FHIRPathUtil.singleton;
 import static com.ibm.fhir.persistence.jdbc.JDBCConstants.MAX_NUM_OF_COMPOSITE_COMPONENTS;
 
 import java.io.ByteArrayInputStream;
@@ -47,6 +53,7 @@ import javax.transaction.UserTransaction;
 import com.ibm.fhir.config.FHIRConfiguration;
 import com.ibm.fhir.config.PropertyGroup;
 import com.ibm.fhir.core.FHIRUtilities;
+import com.ibm.fhir.core.TotalValueSet;
 import com.ibm.fhir.core.context.FHIRPagingContext;
 import com.ibm.fhir.database.utils.api.IConnectionProvider;
 import com.ibm.fhir.exception.FHIRException;
@@ -59,7 +66,6 @@ import com.ibm.fhir.model.resource.Resource;
 import com.ibm.fhir.model.resource.SearchParameter;
 import com.ibm.fhir.model.resource.SearchParameter.Component;
 import com.ibm.fhir.model.type.CodeableConcept;
-import com.ibm.fhir.model.type.Element;
 import com.ibm.fhir.model.type.Id;
 import com.ibm.fhir.model.type.Instant;
 import com.ibm.fhir.model.type.Meta;
@@ -68,15 +74,17 @@ import com.ibm.fhir.model.type.code.IssueType;
 import com.ibm.fhir.model.type.code.SearchParamType;
 import com.ibm.fhir.model.util.FHIRUtil;
 import com.ibm.fhir.model.util.JsonSupport;
-import com.ibm.fhir.model.visitor.Visitable;
 import com.ibm.fhir.path.FHIRPathNode;
 import com.ibm.fhir.path.FHIRPathSystemValue;
+import com.ibm.fhir.path.FHIRPathTree;
 import com.ibm.fhir.path.evaluator.FHIRPathEvaluator;
 import com.ibm.fhir.path.evaluator.FHIRPathEvaluator.EvaluationContext;
 import com.ibm.fhir.persistence.FHIRPersistence;
 import com.ibm.fhir.persistence.FHIRPersistenceTransaction;
 import com.ibm.fhir.persistence.MultiResourceResult;
+import com.ibm.fhir.persistence.RawResourceConsumer;
 import com.ibm.fhir.persistence.SingleResourceResult;
+import com.ibm.fhir.persistence.context.FHIRAnalysisContext;
 import com.ibm.fhir.persistence.context.FHIRHistoryContext;
 import com.ibm.fhir.persistence.context.FHIRPersistenceContext;
 import com.ibm.fhir.persistence.exception.FHIRPersistenceException;
@@ -89,6 +97,7 @@ import com.ibm.fhir.persistence.jdbc.dao.api.ParameterDAO;
 import com.ibm.fhir.persistence.jdbc.dao.api.ResourceDAO;
 import com.ibm.fhir.persistence.jdbc.dao.impl.FHIRDbDAOImpl;
 import com.ibm.fhir.persistence.jdbc.dao.impl.ParameterDAOImpl;
+import com.ibm.fhir.persistence.jdbc.dao.impl.ParameterTransactionBatchDAO;
 import com.ibm.fhir.persistence.jdbc.dto.CompositeParmVal;
 import com.ibm.fhir.persistence.jdbc.dto.DateParmVal;
 import com.ibm.fhir.persistence.jdbc.dto.ExtractedParameterValue;
@@ -103,9 +112,14 @@ import com.ibm.fhir.persistence.jdbc.util.CodeSystemsCache;
 import com.ibm.fhir.persistence.jdbc.util.JDBCParameterBuildingVisitor;
 import com.ibm.fhir.persistence.jdbc.util.JDBCQueryBuilder;
 import com.ibm.fhir.persistence.jdbc.util.ParameterNamesCache;
+import com.ibm.fhir.persistence.jdbc.util.ResourceCache;
+import com.ibm.fhir.persistence.jdbc.util.ResourceCache.CachedResource;
+import com.ibm.fhir.persistence.jdbc.util.ResourceCacheUpdater;
 import com.ibm.fhir.persistence.jdbc.util.ResourceTypesCache;
 import com.ibm.fhir.persistence.jdbc.util.SqlQueryData;
 import com.ibm.fhir.persistence.util.FHIRPersistenceUtil;
+import com.ibm.fhir.persistence.util.ResourceFingerprintVisitor;
+import com.ibm.fhir.persistence.util.SaltHash;
 import com.ibm.fhir.search.SearchConstants;
 import com.ibm.fhir.search.SummaryValueSet;
 import com.ibm.fhir.search.context.FHIRSearchContext;
@@ -127,6 +141,9 @@ public class FHIRPersistenceJDBCImpl implements FHIRPersistence, FHIRPersistence
     protected static final String TXN_JNDI_NAME = "java:comp/UserTransaction";
     public static final String TRX_SYNCH_REG_JNDI_NAME = "java:comp/TransactionSynchronizationRegistry";
 
+    // the key of the ResourceCacheUpdater of the current transaction in the TransactionSynchronizationRegistry
+    private static final String RESOURCE_CACHE_UPDATER_KEY = ResourceCacheUpdater.class.getName();
+
     private FHIRDbDAO baseDao;
     private ResourceDAO resourceDao;
     private ParameterDAO parameterDao;
@@ -137,6 +154,18 @@ public class FHIRPersistenceJDBCImpl implements FHIRPersistence, FHIRPersistence
     protected UserTransaction userTransaction = null;
     protected Boolean updateCreateEnabled = null;
 
+    // when true, an update with the same content as the current version returns the current version
+    protected boolean skipUnchangedUpdates = false;
+
+    // the max number of parameter rows accumulated per table before the batch is submitted
+    protected int parameterBatchSize = ParameterTransactionBatchDAO.DEFAULT_BATCH_SIZE;
+
+    // accumulates the search parameter inserts of all the resources written in the current transaction
+    private ParameterTransactionBatchDAO parameterBatch;
+
+    // collects the ResourceCache entries of the current transaction; only used outside a web container
+    private ResourceCacheUpdater resourceCacheUpdater;
+
     // only used outside a web container
     private Connection managedConnection;
 
@@ -161,6 +190,12 @@ public class FHIRPersistenceJDBCImpl implements FHIRPersistence, FHIRPersistence
                                     Boolean.TRUE));
         ResourceTypesCache.setEnabled(fhirConfig.getBooleanProperty(PROPERTY_JDBC_ENABLE_RESOURCE_TYPES_CACHE,
                                       Boolean.TRUE));
+        ResourceCache.setEnabled(fhirConfig.getBooleanProperty(PROPERTY_JDBC_ENABLE_RESOURCE_CACHE, Boolean.FALSE));
+        ResourceCache.setMaxSize(fhirConfig.getIntProperty(PROPERTY_JDBC_RESOURCE_CACHE_SIZE, ResourceCache.DEFAULT_MAX_SIZE));
+        ResourceCache.setResourceTypes(fhirConfig.getStringListProperty(PROPERTY_JDBC_RESOURCE_CACHE_TYPES));
+        this.parameterBatchSize = fhirConfig.getIntProperty(PROPERTY_JDBC_PARAMETER_BATCH_SIZE,
+                                      ParameterTransactionBatchDAO.DEFAULT_BATCH_SIZE);
+        this.skipUnchangedUpdates = fhirConfig.getBooleanProperty(PROPERTY_JDBC_SKIP_UNCHANGED_UPDATES, Boolean.FALSE);
 
         sharedConnection = this.createConnection();
         this.resourceDao = FHIRResourceDAOFactory.getResourceDAO(sharedConnection, this.getTrxSynchRegistry());
@@ -178,6 +213,9 @@ public class FHIRPersistenceJDBCImpl implements FHIRPersistence, FHIRPersistence
         log.entering(CLASSNAME, METHODNAME);
 
         this.updateCreateEnabled = Boolean.parseBoolean(configProps.getProperty("updateCreateEnabled"));
+        this.parameterBatchSize = Integer.parseInt(configProps.getProperty("parameterBatchSize",
+                                      Integer.toString(ParameterTransactionBatchDAO.DEFAULT_BATCH_SIZE)));
+        this.skipUnchangedUpdates = Boolean.parseBoolean(configProps.getProperty("skipUnchangedUpdates"));
 
         FHIRDbDAO dao = new FHIRDbDAOImpl(configProps);
 
@@ -198,6 +236,9 @@ public class FHIRPersistenceJDBCImpl implements FHIRPersistence, FHIRPersistence
         log.entering(CLASSNAME, METHODNAME);
 
         this.updateCreateEnabled = Boolean.parseBoolean(configProps.getProperty("updateCreateEnabled"));
+        this.parameterBatchSize = Integer.parseInt(configProps.getProperty("parameterBatchSize",
+                                      Integer.toString(ParameterTransactionBatchDAO.DEFAULT_BATCH_SIZE)));
+        this.skipUnchangedUpdates = Boolean.parseBoolean(configProps.getProperty("skipUnchangedUpdates"));
 
         FHIRDbDAO dao = new FHIRDbDAOImpl(cp.getConnection());
 
@@ -261,11 +302,12 @@ public class FHIRPersistenceJDBCImpl implements FHIRPersistence, FHIRPersistence
 
             // Persist the Resource DTO.
             this.getResourceDao().setPersistenceContext(context);
-            this.getResourceDao().insert(resourceDTO, this.extractSearchParameters(updatedResource, resourceDTO), this.parameterDao);
+            this.getResourceDao().insert(resourceDTO, this.extractSearchParameters(context, updatedResource, resourceDTO), this.parameterDao);
             if (log.isLoggable(Level.FINE)) {
                 log.fine("Persisted FHIR Resource '" + resourceDTO.getResourceType() + "/" + resourceDTO.getLogicalId() + "' id=" + resourceDTO.getId()
                             + ", version=" + resourceDTO.getVersionId());
             }
+            addResourceCacheCandidate(resourceDTO.getResourceType(), logicalId, newVersionNumber, updatedResource, false);
 
             SingleResourceResult.Builder<T> resultBuilder = new SingleResourceResult.Builder<T>()
                     .success(true)
@@ -305,7 +347,8 @@ public class FHIRPersistenceJDBCImpl implements FHIRPersistence, FHIRPersistence
         log.entering(CLASSNAME, METHODNAME);
 
         Class<? extends Resource> resourceType = resource.getClass();
-        com.ibm.fhir.persistence.jdbc.dto.Resource existingResourceDTO;
+        com.ibm.fhir.persistence.jdbc.dto.Resource existingResourceDTO = null;
+        Resource existingResource = null;
         ByteArrayOutputStream stream = new ByteArrayOutputStream();
 
         // Resources are immutable, so we need a new builder to update it (since R4)
@@ -320,7 +363,7 @@ public class FHIRPersistenceJDBCImpl implements FHIRPersistence, FHIRPersistence
             // If the "previous resource" is set in the persistence event, then get the
             // existing version # from that.
             if (context.getPersistenceEvent() != null && context.getPersistenceEvent().isPrevFhirResourceSet()) {
-                Resource existingResource = context.getPersistenceEvent().getPrevFhirResource();
+                existingResource = context.getPersistenceEvent().getPrevFhirResource();
                 if (existingResource != null) {
                     log.fine("Using pre-fetched 'previous' resource.");
                     String version = existingResource.getMeta().getVersionId().getValue();
@@ -346,6 +389,21 @@ public class FHIRPersistenceJDBCImpl implements FHIRPersistence, FHIRPersistence
                 throw new FHIRPersistenceResourceNotFoundException(msg);
             }
 
+            // If the content hasn't changed, return the current version instead of storing a new one
+            if (skipUnchangedUpdates && existingVersion != 0) {
+                T currentResource = getUnchangedResource(logicalId, resource, existingResource, existingResourceDTO);
+                if (currentResource != null) {
+                    if (log.isLoggable(Level.FINE)) {
+                        log.fine("Skipping unchanged update of FHIR Resource '" + resourceType.getSimpleName() + "/" + logicalId
+                                + "', version=" + currentResource.getMeta().getVersionId().getValue());
+                    }
+                    return new SingleResourceResult.Builder<T>()
+                            .success(true)
+                            .resource(currentResource)
+                            .build();
+                }
+            }
+
             // Bump up the existing version # to get the new version.
             int newVersionNumber = existingVersion + 1;
 
@@ -386,11 +444,13 @@ public class FHIRPersistenceJDBCImpl implements FHIRPersistence, FHIRPersistence
 
             // Persist the Resource DTO.
             this.getResourceDao().setPersistenceContext(context);
-            this.getResourceDao().insert(resourceDTO, this.extractSearchParameters(updatedResource, resourceDTO), this.parameterDao);
+            this.getResourceDao().insert(resourceDTO, this.extractSearchParameters(context, updatedResource, resourceDTO), this.parameterDao);
             if (log.isLoggable(Level.FINE)) {
                 log.fine("Persisted FHIR Resource '" + resourceDTO.getResourceType() + "/" + resourceDTO.getLogicalId() + "' id=" + resourceDTO.getId()
                             + ", version=" + resourceDTO.getVersionId());
             }
+            ResourceCache.invalidate(resourceDTO.getResourceType(), logicalId);
+            addResourceCacheCandidate(resourceDTO.getResourceType(), logicalId, newVersionNumber, updatedResource, false);
 
             SingleResourceResult.Builder<T> resultBuilder = new SingleResourceResult.Builder<T>()
                     .success(true)
@@ -423,9 +483,83 @@ public class FHIRPersistenceJDBCImpl implements FHIRPersistence, FHIRPersistence
         }
     }
 
+    /**
+     * Compares the fingerprint of the given resource with the fingerprint of the current version of the
+     * stored resource. The fingerprint excludes the id, meta.versionId and meta.lastUpdated elements which
+     * are set by the persistence layer.
+     * @param logicalId
+     * @param resource the new resource content
+     * @param existingResource the current version of the resource if already known, otherwise null
+     * @param existingResourceDTO the current version of the resource if already read, otherwise null
+     * @return the current version of the resource if its content matches the given resource, otherwise null
+     * @throws Exception
+     */
+    @SuppressWarnings("unchecked")
+    private <T extends Resource> T getUnchangedResource(String logicalId, T resource, Resource existingResource,
+            com.ibm.fhir.persistence.jdbc.dto.Resource existingResourceDTO) throws Exception {
+        final String METHODNAME = "getUnchangedResource";
+        log.entering(CLASSNAME, METHODNAME);
+
+        try {
+            // The pre-fetched resource may be a deleted version, so we always need the current version from the datastore
+            if (existingResourceDTO == null) {
+                existingResourceDTO = this.getResourceDao().read(logicalId, resource.getClass().getSimpleName());
+            }
+            if (existingResourceDTO == null || existingResourceDTO.isDeleted()) {
+                return null;
+            }
+
+            // Avoid parsing the stored resource if the pre-fetched resource is the current version
+            if (existingResource == null || existingResource.getMeta() == null || existingResource.getMeta().getVersionId() == null
+                    || !Integer.toString(existingResourceDTO.getVersionId()).equals(existingResource.getMeta().getVersionId().getValue())) {
+                existingResource = this.convertResourceDTO(existingResourceDTO, resource.getClass(), null);
+            }
+            if (existingResource == null || !existingResource.getClass().equals(resource.getClass())) {
+                return null;
+            }
+
+            ResourceFingerprintVisitor existingVisitor = new ResourceFingerprintVisitor();
+            existingResource.accept(existingResource.getClass().getSimpleName(), existingVisitor);
+            SaltHash existingFingerprint = existingVisitor.getSaltAndHash();
+
+            // use the same salt so that the two hashes can be compared
+            ResourceFingerprintVisitor newVisitor = new ResourceFingerprintVisitor(existingFingerprint);
+            resource.accept(resource.getClass().getSimpleName(), newVisitor);
+
+            return existingFingerprint.equals(newVisitor.getSaltAndHash()) ? (T) existingResource : null;
+        } finally {
+            log.exiting(CLASSNAME, METHODNAME);
+        }
+    }
+
     @Override
     public MultiResourceResult<Resource> search(FHIRPersistenceContext context, Class<? extends Resource> resourceType)
             throws FHIRPersistenceException {
+        return doSearch(context, resourceType, null);
+    }
+
+    @Override
+    public MultiResourceResult<Resource> searchRaw(FHIRPersistenceContext context, Class<? extends Resource> resourceType,
+            RawResourceConsumer consumer) throws FHIRPersistenceException {
+        return doSearch(context, resourceType, consumer);
+    }
+
+    @Override
+    public boolean isRawSearchSupported() {
+        return true;
+    }
+
+    /**
+     * Performs the search described by the search context of the given persistence context.
+     * @param context
+     * @param resourceType
+     * @param rawConsumer if not null, the stored JSON of each result is passed to this consumer
+     *                    and the returned result doesn't contain any resources
+     * @return
+     * @throws FHIRPersistenceException
+     */
+    private MultiResourceResult<Resource> doSearch(FHIRPersistenceContext context, Class<? extends Resource> resourceType,
+            RawResourceConsumer rawConsumer) throws FHIRPersistenceException {
         final String METHODNAME = "search";
         log.entering(CLASSNAME, METHODNAME);
 
@@ -441,18 +575,31 @@ public class FHIRPersistenceJDBCImpl implements FHIRPersistence, FHIRPersistence
 
         try {
             checkModifiers(searchContext);
+            // the query reads the parameter tables, so write out anything added in this transaction
+            flushParameterBatch();
             queryBuilder = new JDBCQueryBuilder(this.getParameterDao(),
                                                 this.getResourceDao());
 
             countQuery = queryBuilder.buildCountQuery(resourceType, searchContext);
             if (countQuery != null) {
-                searchResultCount = this.getResourceDao().searchCount(countQuery);
+                // Unless the client needs an accurate total, skip the count and fetch one row more than
+                // the page size instead, to find out whether there is a next page.
+                boolean isLookAhead = isLookAheadSearch(searchContext);
+                if (isLookAhead && TotalValueSet.ESTIMATE.equals(searchContext.getTotalParameter())) {
+                    SqlQueryData estimateQuery = queryBuilder.buildEstimateQuery(resourceType, searchContext);
+                    searchResultCount = estimateQuery != null ? this.getResourceDao().searchCountEstimate(estimateQuery) : -1;
+                    // fall back to counting when the database can't estimate the number of results
+                    isLookAhead = searchResultCount >= 0;
+                }
+                if (!isLookAhead) {
+                    searchResultCount = this.getResourceDao().searchCount(countQuery);
+                }
                 if (log.isLoggable(Level.FINE)) {
-                    log.fine("searchResultCount = " + searchResultCount);
+                    log.fine("searchResultCount = " + searchResultCount + (isLookAhead ? " (not counted)" : ""));
                 }
-                searchContext.setTotalCount(searchResultCount);
+                searchContext.setTotalCount(Math.max(searchResultCount, 0));
 
-                List<OperationOutcome.Issue> issues = validatePagingContext(searchContext);
+                List<OperationOutcome.Issue> issues = validatePagingContext(searchContext, !isLookAhead);
                 if (!issues.isEmpty()) {
                     resultBuilder.outcome(OperationOutcome.builder()
                         .issue(issues)
@@ -463,10 +610,14 @@ public class FHIRPersistenceJDBCImpl implements FHIRPersistence, FHIRPersistence
                 }
 
                 // For _summary=count or pageSize == 0, we return only the count
-                if (searchResultCount > 0
+                if ((isLookAhead || searchResultCount > 0)
                         && !SummaryValueSet.COUNT.equals(searchContext.getSummaryParameter())
                         && searchContext.getPageSize() > 0) {
-                    query = queryBuilder.buildQuery(resourceType, searchContext);
+                    if (isLookAhead) {
+                        query = queryBuilder.buildLookAheadQuery(resourceType, searchContext);
+                    } else {
+                        query = queryBuilder.buildQuery(resourceType, searchContext);
+                    }
 
                     List<String> elements = searchContext.getElementsParameters();
 
@@ -499,16 +650,47 @@ public class FHIRPersistenceJDBCImpl implements FHIRPersistence, FHIRPersistence
                         // Sorting results of a system-level search is limited, and has a different logic path
                         // than other sorted searches.
                         if (resourceType.equals(Resource.class)) {
-                           resources = this.convertResourceDTOList(this.resourceDao.search(query), resourceType, elements);
+                            List<com.ibm.fhir.persistence.jdbc.dto.Resource> resultsList = this.resourceDao.search(query);
+                            if (isLookAhead) {
+                                resultsList = endLookAhead(searchContext, resultsList);
+                            }
+                            if (rawConsumer != null) {
+                                this.consumeResourceDTOList(resultsList, resourceType, elements, rawConsumer);
+                            } else {
+                                resources = this.convertResourceDTOList(resultsList, resourceType, elements);
+                            }
                         }
                         else {
                             sortedIdList = this.resourceDao.searchForIds(query);
-                            resources = this.buildSortedFhirResources(context, resourceType, sortedIdList, elements);
+                            if (isLookAhead) {
+                                sortedIdList = endLookAhead(searchContext, sortedIdList);
+                            }
+                            if (rawConsumer != null) {
+                                this.consumeResourceDTOList(sortResourceDTOs(this.getResourceDTOs(resourceType, sortedIdList), sortedIdList),
+                                        resourceType, elements, rawConsumer);
+                            } else {
+                                resources = this.buildSortedFhirResources(context, resourceType, sortedIdList, elements);
+                            }
                         }
                     }
                     else {
                         unsortedResultsList = this.getResourceDao().search(query);
-                        resources = this.convertResourceDTOList(unsortedResultsList, resourceType, elements);
+                        if (isLookAhead) {
+                            unsortedResultsList = endLookAhead(searchContext, unsortedResultsList);
+                        }
+                        if (rawConsumer != null) {
+                            this.consumeResourceDTOList(unsortedResultsList, resourceType, elements, rawConsumer);
+                        } else {
+                            resources = this.convertResourceDTOList(unsortedResultsList, resourceType, elements);
+                        }
+
+                        // Let the next page continue after the last resource of this one instead of skipping rows
+                        if (JDBCQueryBuilder.isKeysetPagingSupported(resourceType, searchContext)
+                                && unsortedResultsList.size() == searchContext.getPageSize()
+                                && searchContext.getPageNumber() < searchContext.getLastPageNumber()) {
+                            long lastResourceId = unsortedResultsList.get(unsortedResultsList.size() - 1).getId();
+                            searchContext.setNextContinuationToken(JDBCQueryBuilder.encodeContinuationToken(lastResourceId));
+                        }
                     }
                 }
             }
@@ -634,6 +816,8 @@ public class FHIRPersistenceJDBCImpl implements FHIRPersistence, FHIRPersistence
                 log.fine("Persisted FHIR Resource '" + resourceDTO.getResourceType() + "/" + resourceDTO.getLogicalId() + "' id=" + resourceDTO.getId()
                             + ", version=" + resourceDTO.getVersionId());
             }
+            ResourceCache.invalidate(resourceDTO.getResourceType(), logicalId);
+            addResourceCacheCandidate(resourceDTO.getResourceType(), logicalId, newVersionNumber, updatedResource, true);
 
             SingleResourceResult<T> result = new SingleResourceResult.Builder<T>()
                     .success(true)
@@ -700,12 +884,26 @@ public class FHIRPersistenceJDBCImpl implements FHIRPersistence, FHIRPersistence
         }
 
         try {
-            resourceDTO = this.getResourceDao().read(logicalId, resourceType.getSimpleName());
-            if (resourceDTO != null && resourceDTO.isDeleted() && !context.includeDeleted()) {
-                throw new FHIRPersistenceResourceDeletedException("Resource '" +
-                        resourceType.getSimpleName() + "/" + logicalId + "' is deleted.");
+            // the cache only holds complete resources
+            CachedResource cached = elements == null ? ResourceCache.getCurrentVersion(resourceType.getSimpleName(), logicalId) : null;
+            if (cached != null) {
+                if (cached.isDeleted() && !context.includeDeleted()) {
+                    throw new FHIRPersistenceResourceDeletedException("Resource '" +
+                            resourceType.getSimpleName() + "/" + logicalId + "' is deleted.");
+                }
+                resource = resourceType.cast(cached.getResource());
+            } else {
+                resourceDTO = this.getResourceDao().read(logicalId, resourceType.getSimpleName());
+                if (resourceDTO != null && resourceDTO.isDeleted() && !context.includeDeleted()) {
+                    throw new FHIRPersistenceResourceDeletedException("Resource '" +
+                            resourceType.getSimpleName() + "/" + logicalId + "' is deleted.");
+                }
+                resource = this.convertResourceDTO(resourceDTO, resourceType, elements);
+                if (resource != null && elements == null) {
+                    addResourceCacheCandidate(resourceType.getSimpleName(), logicalId, resourceDTO.getVersionId(), resource,
+                            resourceDTO.isDeleted());
+                }
             }
-            resource = this.convertResourceDTO(resourceDTO, resourceType, elements);
 
             SingleResourceResult<T> result = new SingleResourceResult.Builder<T>()
                     .success(true)
@@ -754,7 +952,7 @@ public class FHIRPersistenceJDBCImpl implements FHIRPersistence, FHIRPersistence
             resourceCount = this.getResourceDao().historyCount(resourceType.getSimpleName(), logicalId, fromDateTime);
             historyContext.setTotalCount(resourceCount);
 
-            List<OperationOutcome.Issue> issues = validatePagingContext(historyContext);
+            List<OperationOutcome.Issue> issues = validatePagingContext(historyContext, true);
 
             if (!issues.isEmpty()) {
                 resultBuilder.outcome(OperationOutcome.builder()
@@ -796,16 +994,59 @@ public class FHIRPersistenceJDBCImpl implements FHIRPersistence, FHIRPersistence
         }
     }
 
+    /**
+     * Whether the search only needs to find out if there is a next page, rather than count its results.
+     * An accurate count is still needed for _summary=count, and when the page contains included resources,
+     * which can't be told apart from the extra row fetched for the next page.
+     *
+     * @param searchContext
+     * @return
+     */
+    private boolean isLookAheadSearch(FHIRSearchContext searchContext) {
+        TotalValueSet total = searchContext.getTotalParameter();
+        return (TotalValueSet.NONE.equals(total) || TotalValueSet.ESTIMATE.equals(total))
+                && !SummaryValueSet.COUNT.equals(searchContext.getSummaryParameter())
+                && !searchContext.hasIncludeParameters()
+                && !searchContext.hasRevIncludeParameters();
+    }
+
+    /**
+     * Drop the extra row fetched by a look-ahead query and set the last page number according to whether it was found.
+     * The total count (an estimate, if any) is raised to at least the number of results seen so far.
+     *
+     * @param searchContext
+     * @param results
+     *     the results of the look-ahead query, at most one more than the page size
+     * @return
+     *     the results of the current page
+     */
+    private <T> List<T> endLookAhead(FHIRSearchContext searchContext, List<T> results) {
+        int pageSize = searchContext.getPageSize();
+        int pageNumber = searchContext.getPageNumber();
+        boolean hasNextPage = results.size() > pageSize;
+        searchContext.setLastPageNumber(hasNextPage ? pageNumber + 1 : pageNumber);
+
+        List<T> page = hasNextPage ? results.subList(0, pageSize) : results;
+        int seen = (pageNumber - 1) * pageSize + page.size() + (hasNextPage ? 1 : 0);
+        if (searchContext.getTotalCount() < seen) {
+            searchContext.setTotalCount(seen);
+        }
+        return page;
+    }
+
     /**
      * Validate pageSize and pageNumber in the FHIRPagingContext instance and update
      * paging context parameters accordingly.
      *
      * @param pagingContext
      *     the FHIRPagingContext instance (FHIRSearchContext or FHIRHistoryContext)
+     * @param isCounted
+     *     whether the total count of the paging context is accurate; if not, the last page number is
+     *     left to be set once the current page has been read
      * @return
      *     a list of operation outcome issues if the paging context has invalid parameters
      */
-    private List<OperationOutcome.Issue> validatePagingContext(FHIRPagingContext pagingContext) {
+    private List<OperationOutcome.Issue> validatePagingContext(FHIRPagingContext pagingContext, boolean isCounted) {
         List<OperationOutcome.Issue> issues = new ArrayList<>();
 
         int pageSize = pagingContext.getPageSize();
@@ -820,7 +1061,13 @@ public class FHIRPersistenceJDBCImpl implements FHIRPersistence, FHIRPersistence
             pagingContext.setPageSize(10);
         }
 
-        int lastPageNumber = Math.max(((pagingContext.getTotalCount() + pageSize - 1) / pageSize), 1);
+        int lastPageNumber;
+        if (isCounted) {
+            lastPageNumber = Math.max(((pagingContext.getTotalCount() + pageSize - 1) / pageSize), 1);
+        } else {
+            // there's no next page until the look-ahead row has been found
+            lastPageNumber = Math.max(pagingContext.getPageNumber(), 1);
+        }
         pagingContext.setLastPageNumber(lastPageNumber);
 
         int pageNumber = pagingContext.getPageNumber();
@@ -842,6 +1089,8 @@ public class FHIRPersistenceJDBCImpl implements FHIRPersistence, FHIRPersistence
                     .build())
                 .build());
             pagingContext.setPageNumber(lastPageNumber);
+            // the token no longer matches the page being returned
+            pagingContext.setContinuationToken(null);
         }
 
         return issues;
@@ -863,12 +1112,24 @@ public class FHIRPersistenceJDBCImpl implements FHIRPersistence, FHIRPersistence
 
         try {
             version = Integer.parseInt(versionId);
-            resourceDTO = this.getResourceDao().versionRead(logicalId, resourceType.getSimpleName(), version);
-            if (resourceDTO != null && resourceDTO.isDeleted() && !context.includeDeleted()) {
-                throw new FHIRPersistenceResourceDeletedException("Resource '" +
-                        resourceType.getSimpleName() + "/" + logicalId + "' version " + versionId + " is deleted.");
+            CachedResource cached = ResourceCache.getVersion(resourceType.getSimpleName(), logicalId, version);
+            if (cached != null) {
+                if (cached.isDeleted() && !context.includeDeleted()) {
+                    throw new FHIRPersistenceResourceDeletedException("Resource '" +
+                            resourceType.getSimpleName() + "/" + logicalId + "' version " + versionId + " is deleted.");
+                }
+                resource = resourceType.cast(cached.getResource());
+            } else {
+                resourceDTO = this.getResourceDao().versionRead(logicalId, resourceType.getSimpleName(), version);
+                if (resourceDTO != null && resourceDTO.isDeleted() && !context.includeDeleted()) {
+                    throw new FHIRPersistenceResourceDeletedException("Resource '" +
+                            resourceType.getSimpleName() + "/" + logicalId + "' version " + versionId + " is deleted.");
+                }
+                resource = this.convertResourceDTO(resourceDTO, resourceType, null);
+                if (resource != null) {
+                    addResourceCacheCandidate(resourceType.getSimpleName(), logicalId, version, resource, resourceDTO.isDeleted());
+                }
             }
-            resource = this.convertResourceDTO(resourceDTO, resourceType, null);
 
             SingleResourceResult<T> result = new SingleResourceResult.Builder<T>()
                     .success(true)
@@ -945,6 +1206,29 @@ public class FHIRPersistenceJDBCImpl implements FHIRPersistence, FHIRPersistence
         return sortedResourceList;
     }
 
+    /**
+     * Puts the given Resource DTOs in the order of the given list of Resource IDs.
+     * @param resourceDTOList
+     * @param sortedIdList
+     * @return
+     */
+    private List<com.ibm.fhir.persistence.jdbc.dto.Resource> sortResourceDTOs(
+            List<com.ibm.fhir.persistence.jdbc.dto.Resource> resourceDTOList, List<Long> sortedIdList) {
+        Map<Long, com.ibm.fhir.persistence.jdbc.dto.Resource> resourceDTOMap = new HashMap<>();
+        for (com.ibm.fhir.persistence.jdbc.dto.Resource resourceDTO : resourceDTOList) {
+            resourceDTOMap.put(resourceDTO.getId(), resourceDTO);
+        }
+
+        List<com.ibm.fhir.persistence.jdbc.dto.Resource> result = new ArrayList<>(resourceDTOList.size());
+        for (Long resourceId : sortedIdList) {
+            com.ibm.fhir.persistence.jdbc.dto.Resource resourceDTO = resourceDTOMap.get(resourceId);
+            if (resourceDTO != null) {
+                result.add(resourceDTO);
+            }
+        }
+        return result;
+    }
+
     /**
      * Returns a List of Resource DTOs corresponding to the passed list of Resource IDs.
      * @param resourceType The type of resource being queried.
@@ -990,6 +1274,46 @@ public class FHIRPersistenceJDBCImpl implements FHIRPersistence, FHIRPersistence
         return resources;
     }
 
+    /**
+     * Passes the JSON of each of the passed Resource Data Transfer Objects to the given consumer.
+     * The stored JSON is passed through as-is unless elements are filtered, in which case the
+     * resource is parsed, filtered and generated again.
+     * @param resourceDTOList
+     * @param resourceType
+     * @param elements
+     * @param consumer
+     * @throws FHIRException
+     * @throws IOException
+     */
+    private void consumeResourceDTOList(List<com.ibm.fhir.persistence.jdbc.dto.Resource> resourceDTOList,
+            Class<? extends Resource> resourceType, List<String> elements, RawResourceConsumer consumer) throws FHIRException, IOException {
+        final String METHODNAME = "consumeResourceDTOList";
+        log.entering(CLASSNAME, METHODNAME);
+
+        try {
+            for (com.ibm.fhir.persistence.jdbc.dto.Resource resourceDTO : resourceDTOList) {
+                if (resourceDTO.isDeleted()) {
+                    continue;
+                }
+
+                if (elements == null) {
+                    // the stored resource was generated with its id and meta already set
+                    try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(resourceDTO.getData()))) {
+                        consumer.accept(resourceDTO.getLogicalId(), in);
+                    }
+                } else {
+                    Resource resource = this.convertResourceDTO(resourceDTO, resourceType, elements);
+                    ByteArrayOutputStream out = new ByteArrayOutputStream();
+                    FHIRGenerator.generator(Format.JSON, false).generate(resource, out);
+                    consumer.accept(resourceDTO.getLogicalId(), new ByteArrayInputStream(out.toByteArray()));
+                }
+            }
+        }
+        finally {
+            log.exiting(CLASSNAME, METHODNAME);
+        }
+    }
+
    /**
      * Calls some cache analysis methods and aggregates the output into a single String.
      * @return
@@ -1000,10 +1324,56 @@ public class FHIRPersistenceJDBCImpl implements FHIRPersistence, FHIRPersistence
         diags.append(ParameterNamesCache.dumpCacheContents()).append(ParameterNamesCache.reportCacheDiscrepancies(this.parameterDao));
         diags.append(CodeSystemsCache.dumpCacheContents()).append(CodeSystemsCache.reportCacheDiscrepancies(this.parameterDao));
         diags.append(ResourceTypesCache.dumpCacheContents()).append(ResourceTypesCache.reportCacheDiscrepancies(this.resourceDao));
+        diags.append(ResourceCache.dumpCacheStatistics());
 
         return diags.toString();
     }
 
+    /**
+     * Adds the passed resource version to the ResourceCache once the current transaction has committed, or right away
+     * if there is no transaction. Failures are logged and otherwise ignored; the resource is simply not cached.
+     * @param resourceType
+     * @param logicalId
+     * @param versionId
+     * @param resource the complete resource
+     * @param deleted true if this version marks the resource as deleted
+     */
+    private void addResourceCacheCandidate(String resourceType, String logicalId, int versionId, Resource resource, boolean deleted) {
+        if (!ResourceCache.isEnabled(resourceType)) {
+            return;
+        }
+
+        try {
+            String tenantDatastoreCacheName = ResourceCache.getCacheNameForTenantDatastore();
+            if (this.trxSynchRegistry != null) {
+                int status = trxSynchRegistry.getTransactionStatus();
+                if (status == Status.STATUS_ACTIVE) {
+                    // Register a new ResourceCacheUpdater for this trx, if one hasn't been already registered.
+                    ResourceCacheUpdater updater = (ResourceCacheUpdater) trxSynchRegistry.getResource(RESOURCE_CACHE_UPDATER_KEY);
+                    if (updater == null) {
+                        updater = new ResourceCacheUpdater(tenantDatastoreCacheName);
+                        trxSynchRegistry.putResource(RESOURCE_CACHE_UPDATER_KEY, updater);
+                        trxSynchRegistry.registerInterposedSynchronization(updater);
+                        log.fine("Registered ResourceCacheUpdater.");
+                    }
+                    updater.addCacheCandidate(resourceType, logicalId, versionId, resource, deleted);
+                } else if (status == Status.STATUS_NO_TRANSACTION) {
+                    ResourceCache.putVersion(tenantDatastoreCacheName, resourceType, logicalId, versionId, resource, deleted);
+                }
+            } else if (this.getManagedConnection() != null && !this.getManagedConnection().getAutoCommit()) {
+                if (resourceCacheUpdater == null) {
+                    resourceCacheUpdater = new ResourceCacheUpdater(tenantDatastoreCacheName);
+                }
+                resourceCacheUpdater.addCacheCandidate(resourceType, logicalId, versionId, resource, deleted);
+            } else {
+                ResourceCache.putVersion(tenantDatastoreCacheName, resourceType, logicalId, versionId, resource, deleted);
+            }
+        } catch (Throwable e) {
+            log.log(Level.WARNING, "Failure adding '" + resourceType + "/" + logicalId + "' version " + versionId
+                    + " to the ResourceCache", e);
+        }
+    }
+
     /**
      * Looks up and returns an instance of TransactionSynchronizationRegistry, which is used in support of writing committed
      * data to JDBC PL in-memory caches.
@@ -1031,12 +1401,15 @@ public class FHIRPersistenceJDBCImpl implements FHIRPersistence, FHIRPersistence
 
     /**
      * Extracts search parameters for the passed FHIR Resource.
+     * The FHIRPath tree of the resource is taken from the analysis context of the request, if there is one, so that
+     * the search parameters, the components of the composite parameters and the interceptors all share one tree.
+     * @param context - the FHIRPersistenceContext associated with the current request
      * @param fhirResource - Some FHIR Resource
      * @param resourceDTO - A Resource DTO representation of the passed FHIR Resource.
      * @throws Exception
      */
-    private List<ExtractedParameterValue> extractSearchParameters(Resource fhirResource, com.ibm.fhir.persistence.jdbc.dto.Resource resourceDTO)
-                 throws Exception {
+    private List<ExtractedParameterValue> extractSearchParameters(FHIRPersistenceContext context, Resource fhirResource,
+            com.ibm.fhir.persistence.jdbc.dto.Resource resourceDTO) throws Exception {
         final String METHODNAME = "extractSearchParameters";
         log.entering(CLASSNAME, METHODNAME);
 
@@ -1048,7 +1421,9 @@ public class FHIRPersistenceJDBCImpl implements FHIRPersistence, FHIRPersistence
         List<ExtractedParameterValue> allParameters = new ArrayList<>();
 
         try {
-            map = SearchUtil.extractParameterValues(fhirResource);
+            FHIRAnalysisContext analysisContext = (context != null) ? context.getAnalysisContext() : null;
+            FHIRPathTree tree = (analysisContext != null) ? analysisContext.getTree(fhirResource) : FHIRPathTree.lazyTree(fhirResource);
+            map = SearchUtil.extractParameterValues(tree, true);
 
             for (Entry<SearchParameter, List<FHIRPathNode>> entry : map.entrySet()) {
                 SearchParameter sp = entry.getKey();
@@ -1069,18 +1444,11 @@ public class FHIRPersistenceJDBCImpl implements FHIRPersistence, FHIRPersistence
                                 + "but this persistence layer can only support composites of %d or fewer components",
                                 components.size(), code, MAX_NUM_OF_COMPOSITE_COMPONENTS));
                     }
-                    FHIRPathEvaluator evaluator = FHIRPathEvaluator.evaluator();
+                    // the components are evaluated against the composite values within the tree of the resource
+                    EvaluationContext evaluationContext = new EvaluationContext(tree);
 
                     for (FHIRPathNode value : values) {
-                        Visitable fhirNode;
-                        EvaluationContext context;
-                        if (value.isResourceNode()) {
-                            fhirNode = value.asResourceNode().resource();
-                            context = new EvaluationContext((Resource) fhirNode);
-                        } else if (value.isElementNode()) {
-                            fhirNode = value.asElementNode().element();
-                            context = new EvaluationContext((Element) fhirNode);
-                        } else {
+                        if (!value.isResourceNode() && !value.isElementNode()) {
                             throw new IllegalStateException("Composite parameter expression must select one or more FHIR elements");
                         }
 
@@ -1090,7 +1458,8 @@ public class FHIRPersistenceJDBCImpl implements FHIRPersistence, FHIRPersistence
 
                         for (int i = 0; i < components.size(); i++) {
                             Component component = components.get(i);
-                            Collection<FHIRPathNode> nodes = evaluator.evaluate(context, component.getExpression().getValue());
+                            Collection<FHIRPathNode> nodes = FHIRPathEvaluator.compile(component.getExpression().getValue())
+                                    .evaluate(evaluationContext, singleton(value));
                             if (nodes.isEmpty()){
                                 if (log.isLoggable(Level.FINER)) {
                                     log.finer("Component expression '" + component.getExpression().getValue() + "' resulted in 0 nodes; "
@@ -1297,9 +1666,11 @@ public class FHIRPersistenceJDBCImpl implements FHIRPersistence, FHIRPersistence
                 resourceDao.setExternalConnection(sharedConnection);
                 parameterDao.setExternalConnection(sharedConnection);
                 userTransaction.begin();
+                startParameterBatch();
             }
             else if (this.getManagedConnection() != null) {
                 this.getManagedConnection().setAutoCommit(false);
+                startParameterBatch();
             }
         }
         catch (Throwable e) {
@@ -1318,10 +1689,14 @@ public class FHIRPersistenceJDBCImpl implements FHIRPersistence, FHIRPersistence
         log.entering(CLASSNAME, METHODNAME);
 
         try {
+            endParameterBatch();
             if (userTransaction != null) {
                 userTransaction.commit();
             } else if (this.getManagedConnection() != null) {
                 this.getManagedConnection().commit();
+                if (resourceCacheUpdater != null) {
+                    resourceCacheUpdater.afterCompletion(Status.STATUS_COMMITTED);
+                }
             }
         }
         catch (Throwable e) {
@@ -1330,6 +1705,8 @@ public class FHIRPersistenceJDBCImpl implements FHIRPersistence, FHIRPersistence
             throw fx;
         }
         finally {
+            discardParameterBatch();
+            resourceCacheUpdater = null;
             if (sharedConnection != null) {
                 try {
                     sharedConnection.close();
@@ -1349,6 +1726,8 @@ public class FHIRPersistenceJDBCImpl implements FHIRPersistence, FHIRPersistence
         log.entering(CLASSNAME, METHODNAME);
 
         try {
+            discardParameterBatch();
+            resourceCacheUpdater = null;
             if (userTransaction != null) {
                 userTransaction.rollback();
             }
@@ -1381,6 +1760,8 @@ public class FHIRPersistenceJDBCImpl implements FHIRPersistence, FHIRPersistence
         String errorMessage = "Unexpected error while rolling a transaction.";
 
         try {
+            discardParameterBatch();
+            resourceCacheUpdater = null;
             if (userTransaction != null) {
                 errorMessage = "Unexpected error while marking a transaction for rollback.";
                 userTransaction.setRollbackOnly();
@@ -1607,6 +1988,7 @@ public class FHIRPersistenceJDBCImpl implements FHIRPersistence, FHIRPersistence
 
         try {
             if (userTransaction != null) {
+                endParameterBatch();
                 if (sharedConnection != null) {
                         sharedConnection.close();
                 }
@@ -1620,6 +2002,7 @@ public class FHIRPersistenceJDBCImpl implements FHIRPersistence, FHIRPersistence
             throw fx;
         }
         finally {
+            discardParameterBatch();
             sharedConnection = null;
             log.exiting(CLASSNAME, METHODNAME);
         }
@@ -1646,6 +2029,7 @@ public class FHIRPersistenceJDBCImpl implements FHIRPersistence, FHIRPersistence
                 }
                 resourceDao.setExternalConnection(sharedConnection);
                 parameterDao.setExternalConnection(sharedConnection);
+                startParameterBatch();
             } else {
                 throw new FHIRPersistenceException("enroll should be called only if userTransaction is not null!");
             }
@@ -1660,6 +2044,54 @@ public class FHIRPersistenceJDBCImpl implements FHIRPersistence, FHIRPersistence
         }
     }
 
+    /**
+     * Start accumulating the search parameter inserts of all the resources written in the current
+     * transaction so that they can be submitted to the database in large batches
+     */
+    private void startParameterBatch() {
+        if (this.parameterBatch == null) {
+            this.parameterBatch = new ParameterTransactionBatchDAO(parameterBatchSize);
+            this.resourceDao.setParameterBatch(parameterBatch);
+        }
+    }
+
+    /**
+     * Write out the search parameters accumulated so far in the current transaction
+     * @throws FHIRPersistenceException
+     */
+    private void flushParameterBatch() throws FHIRPersistenceException {
+        if (this.parameterBatch != null) {
+            try {
+                this.parameterBatch.flush();
+            } catch (SQLException e) {
+                FHIRPersistenceDataAccessException fx = new FHIRPersistenceDataAccessException("Failure inserting search parameters.");
+                log.log(Level.SEVERE, fx.getMessage(), e);
+                throw fx;
+            }
+        }
+    }
+
+    /**
+     * Write out any remaining search parameters and close the batch. Must be called before the
+     * transaction is committed.
+     * @throws FHIRPersistenceException
+     */
+    private void endParameterBatch() throws FHIRPersistenceException {
+        flushParameterBatch();
+        discardParameterBatch();
+    }
+
+    /**
+     * Close the batch, discarding any search parameters which have not been written yet
+     */
+    private void discardParameterBatch() {
+        if (this.parameterBatch != null) {
+            this.parameterBatch.discard();
+            this.parameterBatch = null;
+            this.resourceDao.setParameterBatch(null);
+        }
+    }
+
     /**
      * Associate a supplemental warning with the current request
      */
@@ -12,9 +12,11 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 
 import com.ibm.fhir.persistence.jdbc.dao.api.FhirRefSequenceDAO;
+import com.ibm.fhir.persistence.jdbc.dao.impl.SequenceBlockCache;
 
 /**
- * DAO to obtain the next value from FHIR_REF_SEQUENCE
+ * DAO to obtain the next value from FHIR_REF_SEQUENCE. The values are allocated in blocks
+ * of the sequence increment, see {@link SequenceBlockCache}.
  *
  */
 public class FhirRefSequenceDAOImpl implements FhirRefSequenceDAO {
@@ -22,6 +24,7 @@ public class FhirRefSequenceDAOImpl implements FhirRefSequenceDAO {
 
     /**
      * Public constructor
+     * @param c
      */
     public FhirRefSequenceDAOImpl(Connection c) {
         this.conn = c;
@@ -29,6 +32,11 @@ public class FhirRefSequenceDAOImpl implements FhirRefSequenceDAO {
 
     @Override
     public int nextValue() throws SQLException {
+        return Math.toIntExact(SequenceBlockCache.nextValue(conn, "fhir_ref_sequence",
+                () -> FhirSequenceDAOImpl.getIncrement(conn, "fhir_ref_sequence"), this::readNextValue));
+    }
+
+    private long readNextValue() throws SQLException {
         int result;
         final String SEQ = "select nextval('fhir_ref_sequence')";
 
@@ -12,15 +12,18 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 
 import com.ibm.fhir.persistence.jdbc.dao.api.FhirSequenceDAO;
+import com.ibm.fhir.persistence.jdbc.dao.impl.SequenceBlockCache;
 
 /**
- * DAO to obtain the next value from FHIR_SEQUENCE
+ * DAO to obtain the next value from FHIR_SEQUENCE. The values are allocated in blocks
+ * of the sequence increment, see {@link SequenceBlockCache}.
  */
 public class FhirSequenceDAOImpl implements FhirSequenceDAO {
     private final Connection conn;
 
     /**
      * Public constructor
+     * @param c
      */
     public FhirSequenceDAOImpl(Connection c) {
         this.conn = c;
@@ -28,6 +31,10 @@ public class FhirSequenceDAOImpl implements FhirSequenceDAO {
 
     @Override
     public long nextValue() throws SQLException {
+        return SequenceBlockCache.nextValue(conn, "fhir_sequence", () -> getIncrement(conn, "fhir_sequence"), this::readNextValue);
+    }
+
+    private long readNextValue() throws SQLException {
         long result;
         final String SEQ = "select nextval('fhir_sequence')";
 
@@ -44,4 +51,23 @@ public class FhirSequenceDAOImpl implements FhirSequenceDAO {
         return result;
     }
 
+    /**
+     * Read the increment of the sequence in the current schema from the catalog
+     * @param c
+     * @param sequenceName the name of the sequence as stored in the catalog
+     * @return the increment, or 0 if the sequence isn't found
+     * @throws SQLException
+     */
+    static long getIncrement(Connection c, String sequenceName) throws SQLException {
+        final String SQL = "SELECT increment FROM information_schema.sequences WHERE sequence_schema = current_schema() AND sequence_name = ?";
+
+        try (PreparedStatement stmt = c.prepareStatement(SQL)) {
+            stmt.setString(1, sequenceName);
+            ResultSet rs = stmt.executeQuery();
+            if (rs.next()) {
+                return Long.parseLong(rs.getString(1));
+            }
+        }
+        return 0;
+    }
 }
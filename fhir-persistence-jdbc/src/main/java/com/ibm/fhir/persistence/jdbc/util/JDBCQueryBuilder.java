@@ -44,6 +44,7 @@ import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
 import com.ibm.fhir.model.resource.Location;
+import com.ibm.fhir.model.resource.Resource;
 import com.ibm.fhir.model.resource.SearchParameter;
 import com.ibm.fhir.model.type.Code;
 import com.ibm.fhir.model.util.ModelSupport;
@@ -107,6 +108,50 @@ public class JDBCQueryBuilder extends AbstractQueryBuilder<SqlQueryData> {
         this.resourceDao  = resourceDao;
     }
 
+    /**
+     * Keyset paging (continuing after the last resource id of the previous page) is only
+     * possible for searches which use the default ordering by resource id and return
+     * a single resource type, without any included resources.
+     * 
+     * @param resourceType
+     * @param searchContext
+     * @return true if a continuation token can be issued and used for this search
+     */
+    public static boolean isKeysetPagingSupported(Class<?> resourceType, FHIRSearchContext searchContext) {
+        return !Resource.class.equals(resourceType)
+                && !searchContext.hasSortParameters()
+                && !searchContext.hasIncludeParameters()
+                && !searchContext.hasRevIncludeParameters();
+    }
+
+    /**
+     * Encode the continuation token which lets the next page start after the given resource
+     * 
+     * @param lastResourceId the RESOURCE_ID of the last result of the current page
+     * @return
+     */
+    public static String encodeContinuationToken(long lastResourceId) {
+        return Long.toString(lastResourceId, Character.MAX_RADIX);
+    }
+
+    /**
+     * Decode a continuation token issued by {@link #encodeContinuationToken(long)}
+     * 
+     * @param continuationToken
+     * @return the resource id to continue after, or null if the token is missing or not valid
+     */
+    public static Long decodeContinuationToken(String continuationToken) {
+        Long result = null;
+        if (continuationToken != null) {
+            try {
+                result = Long.parseLong(continuationToken, Character.MAX_RADIX);
+            } catch (NumberFormatException x) {
+                log.fine("Ignoring invalid continuation token: " + continuationToken);
+            }
+        }
+        return result;
+    }
+
     /**
      * Builds a query that returns the count of the search results that would be
      * found by applying the search parameters
@@ -127,7 +172,7 @@ public class JDBCQueryBuilder extends AbstractQueryBuilder<SqlQueryData> {
         QuerySegmentAggregator helper;
         SqlQueryData query = null;
 
-        helper = this.buildQueryCommon(resourceType, searchContext);
+        helper = this.buildQueryCommon(resourceType, searchContext, 0);
         if (helper != null) {
             query = helper.buildCountQuery();
         }
@@ -136,6 +181,34 @@ public class JDBCQueryBuilder extends AbstractQueryBuilder<SqlQueryData> {
         return query;
     }
 
+    /**
+     * Builds a query which selects the search results without ordering or pagination,
+     * so that the database can estimate their number without counting them.
+     * 
+     * @param resourceType
+     *                      - The type of resource being searched for.
+     * @param searchContext
+     *                      - The search context containing the search parameters.
+     * @return SqlQueryData - The query, or null if no estimate can be made for this search
+     * @throws Exception
+     */
+    public SqlQueryData buildEstimateQuery(Class<?> resourceType, FHIRSearchContext searchContext) throws Exception {
+        final String METHODNAME = "buildEstimateQuery";
+        log.entering(CLASSNAME, METHODNAME,
+                new Object[] { resourceType.getSimpleName(), searchContext.getSearchParameters() });
+
+        QuerySegmentAggregator helper;
+        SqlQueryData query = null;
+
+        helper = this.buildQueryCommon(resourceType, searchContext, 0);
+        if (helper != null) {
+            query = helper.buildEstimateQuery();
+        }
+
+        log.exiting(CLASSNAME, METHODNAME);
+        return query;
+    }
+
     @Override
     public SqlQueryData buildQuery(Class<?> resourceType, FHIRSearchContext searchContext) throws Exception {
         final String METHODNAME = "buildQuery";
@@ -145,7 +218,36 @@ public class JDBCQueryBuilder extends AbstractQueryBuilder<SqlQueryData> {
         SqlQueryData query = null;
         QuerySegmentAggregator helper;
 
-        helper = this.buildQueryCommon(resourceType, searchContext);
+        helper = this.buildQueryCommon(resourceType, searchContext, 0);
+        if (helper != null) {
+            query = helper.buildQuery();
+        }
+
+        log.exiting(CLASSNAME, METHODNAME);
+        return query;
+    }
+
+    /**
+     * Builds the query for the current page which fetches one row more than the page size, so that the
+     * caller can tell whether there is a next page without counting the search results.
+     * Not applicable to searches with _include or _revinclude, whose results also contain the included resources.
+     * 
+     * @param resourceType
+     *                      - The type of resource being searched for.
+     * @param searchContext
+     *                      - The search context containing the search parameters.
+     * @return SqlQueryData - The query
+     * @throws Exception
+     */
+    public SqlQueryData buildLookAheadQuery(Class<?> resourceType, FHIRSearchContext searchContext) throws Exception {
+        final String METHODNAME = "buildLookAheadQuery";
+        log.entering(CLASSNAME, METHODNAME,
+                new Object[] { resourceType.getSimpleName(), searchContext.getSearchParameters() });
+
+        SqlQueryData query = null;
+        QuerySegmentAggregator helper;
+
+        helper = this.buildQueryCommon(resourceType, searchContext, 1);
         if (helper != null) {
             query = helper.buildQuery();
         }
@@ -162,11 +264,13 @@ public class JDBCQueryBuilder extends AbstractQueryBuilder<SqlQueryData> {
      *                      The type of FHIR resource being searched for.
      * @param searchContext
      *                      The search context containing search parameters.
+     * @param extraRows
+     *                      The number of rows to fetch after the end of the page.
      * @return QuerySegmentAggregator - A query builder helper containing processed
      *         query segments.
      * @throws Exception
      */
-    private QuerySegmentAggregator buildQueryCommon(Class<?> resourceType, FHIRSearchContext searchContext)
+    private QuerySegmentAggregator buildQueryCommon(Class<?> resourceType, FHIRSearchContext searchContext, int extraRows)
             throws Exception {
         final String METHODNAME = "buildQueryCommon";
         log.entering(CLASSNAME, METHODNAME,
@@ -198,8 +302,12 @@ public class JDBCQueryBuilder extends AbstractQueryBuilder<SqlQueryData> {
         boolean isValidQuery = true;
 
         helper =
-                QuerySegmentAggregatorFactory.buildQuerySegmentAggregator(resourceType, offset, pageSize,
+                QuerySegmentAggregatorFactory.buildQuerySegmentAggregator(resourceType, offset, pageSize + extraRows,
                         this.parameterDao, this.resourceDao, searchContext);
+        if (isKeysetPagingSupported(resourceType, searchContext)) {
+            // falls back to the offset when there is no (valid) token
+            helper.setAfterResourceId(decodeContinuationToken(searchContext.getContinuationToken()));
+        }
 
         // Special logic for handling LocationPosition queries. These queries have interdependencies between
         // a couple of related input query parameters
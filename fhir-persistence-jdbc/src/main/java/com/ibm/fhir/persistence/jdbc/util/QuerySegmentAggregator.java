@@ -52,6 +52,7 @@ public class QuerySegmentAggregator {
     protected static final String SYSTEM_LEVEL_SELECT_COUNT_ROOT = "SELECT SUM(CNT) ";
     protected static final String SYSTEM_LEVEL_SUBSELECT_COUNT_ROOT = " SELECT COUNT(LR.LOGICAL_RESOURCE_ID) AS CNT ";
     protected static final String WHERE_CLAUSE_ROOT = "WHERE R.IS_DELETED <> 'Y'";
+    protected static final String KEYSET_CLAUSE = "AND R.RESOURCE_ID > ? ";
 
     // Enables the SKIP_WHERE of WHERE clauses. 
     public static final String ID = "_id";
@@ -81,6 +82,9 @@ public class QuerySegmentAggregator {
 
     private int offset;
     private int pageSize;
+
+    // when set, the page starts after this resource id instead of at the offset (keyset paging)
+    private Long afterResourceId;
     protected ParameterDAO parameterDao;
     protected ResourceDAO resourceDao;
 
@@ -107,6 +111,16 @@ public class QuerySegmentAggregator {
         this.resourceTypes = resourceTypes;
     }
 
+    /**
+     * Continue after the given resource id rather than skipping the rows before the offset.
+     * Only applies to the default ordering of a search for a single resource type.
+     * 
+     * @param afterResourceId the RESOURCE_ID of the last result of the previous page, or null
+     */
+    public void setAfterResourceId(Long afterResourceId) {
+        this.afterResourceId = afterResourceId;
+    }
+
     /**
      * Adds a query segment, which is a where clause segment corresponding to the
      * passed query Parameter and its encapsulated search values.
@@ -152,12 +166,19 @@ public class QuerySegmentAggregator {
             StringBuilder queryString = new StringBuilder();
             queryString.append(SELECT_ROOT);
             buildFromClause(queryString, resourceType.getSimpleName());
+            if (afterResourceId != null) {
+                // extends the join condition on R, so it must be bound before the where clause segments
+                queryString.append(KEYSET_CLAUSE);
+            }
             buildWhereClause(queryString, null);
 
             // Bind Variables
             List<Object> allBindVariables = new ArrayList<>();
             allBindVariables.addAll(idsObjects);
             allBindVariables.addAll(lastUpdatedObjects);
+            if (afterResourceId != null) {
+                allBindVariables.add(afterResourceId);
+            }
             for (SqlQueryData querySegment : this.querySegments) {
                 allBindVariables.addAll(querySegment.getBindVariables());
             }
@@ -211,6 +232,39 @@ public class QuerySegmentAggregator {
 
     }
 
+    /**
+     * Builds the query which selects the rows counted by the count query, without ordering or pagination,
+     * so that the database optimizer can estimate the number of search results from its plan.
+     * 
+     * @return SqlQueryData - contains the SQL query string and any associated bind variables, or null
+     *         for a system level search, whose results are spread over several queries.
+     * @throws Exception
+     */
+    protected SqlQueryData buildEstimateQuery() throws Exception {
+        final String METHODNAME = "buildEstimateQuery";
+        log.entering(CLASSNAME, METHODNAME);
+
+        SqlQueryData queryData = null;
+        if (!this.isSystemLevelSearch()) {
+            StringBuilder queryString = new StringBuilder();
+            queryString.append(SELECT_ROOT);
+            buildFromClause(queryString, resourceType.getSimpleName());
+            buildWhereClause(queryString, null);
+
+            List<Object> allBindVariables = new ArrayList<>();
+            allBindVariables.addAll(idsObjects);
+            allBindVariables.addAll(lastUpdatedObjects);
+            for (SqlQueryData querySegment : this.querySegments) {
+                allBindVariables.addAll(querySegment.getBindVariables());
+            }
+
+            queryData = new SqlQueryData(queryString.toString(), allBindVariables);
+        }
+
+        log.exiting(CLASSNAME, METHODNAME, queryData);
+        return queryData;
+    }
+
     /**
      * Build a system level query or count query, based upon the encapsulated query
      * segments and bind variables and
@@ -528,10 +582,12 @@ public class QuerySegmentAggregator {
      */
     protected void addPaginationClauses(StringBuilder queryString) throws Exception {
 
+        // with keyset paging, the page starts directly after the previous one
+        int offset = this.afterResourceId != null ? 0 : this.offset;
         if (this.parameterDao.isDb2Database()) {
-            queryString.append(" LIMIT ").append(this.pageSize).append(" OFFSET ").append(this.offset);
+            queryString.append(" LIMIT ").append(this.pageSize).append(" OFFSET ").append(offset);
         } else {
-            queryString.append(" OFFSET ").append(this.offset).append(" ROWS")
+            queryString.append(" OFFSET ").append(offset).append(" ROWS")
                     .append(" FETCH NEXT ").append(this.pageSize).append(" ROWS ONLY");
         }
     }
@@ -0,0 +1,310 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.persistence.jdbc.util;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+import com.ibm.fhir.model.resource.Resource;
+
+/**
+ * This class provides a static, bounded cache of parsed FHIR resources, keyed by resource type, logical id and version id.
+ * Each FHIR tenant/datastore combination has its own cache, which also records the current version of each logical
+ * resource that it knows about so that reads of the current version can be served without going to the database.
+ *
+ * <p>Entries are only added after the transaction which read or wrote them has committed (see {@link ResourceCacheUpdater}),
+ * and the current version of a logical resource is invalidated as soon as it is updated or deleted.
+ */
+public class ResourceCache {
+    private static final String CLASSNAME = ResourceCache.class.getName();
+    private static final Logger log = Logger.getLogger(CLASSNAME);
+
+    public static final int DEFAULT_MAX_SIZE = 1000;
+
+    private static boolean enabled = false;
+
+    // the max number of resource versions held per tenant/datastore
+    private static int maxSize = DEFAULT_MAX_SIZE;
+
+    // the resource types which are cached; null means all of them
+    private static Set<String> resourceTypes = null;
+
+    /**
+     * The following is a map of resource caches. Each FHIR tenant/datastore combination will have its own cache.
+     */
+    private static ConcurrentHashMap<String,TenantDatastoreCache> resourceCaches = new ConcurrentHashMap<>();
+
+    /**
+     * A cached version of a resource.
+     */
+    public static class CachedResource {
+        private final Resource resource;
+        private final boolean deleted;
+
+        public CachedResource(Resource resource, boolean deleted) {
+            this.resource = resource;
+            this.deleted = deleted;
+        }
+
+        public Resource getResource() {
+            return resource;
+        }
+
+        public boolean isDeleted() {
+            return deleted;
+        }
+    }
+
+    /**
+     * The cache of a single tenant/datastore.
+     */
+    private static class TenantDatastoreCache {
+        private final Map<String,CachedResource> versions;
+        private final Map<String,Integer> currentVersions;
+        private final AtomicLong hits = new AtomicLong();
+        private final AtomicLong misses = new AtomicLong();
+
+        TenantDatastoreCache(int maxSize) {
+            this.versions = Collections.synchronizedMap(new LruMap<String,CachedResource>(maxSize));
+            this.currentVersions = Collections.synchronizedMap(new LruMap<String,Integer>(maxSize));
+        }
+    }
+
+    /**
+     * A LinkedHashMap in access order which evicts its least recently used entry once it holds more than maxSize entries.
+     */
+    private static class LruMap<K,V> extends LinkedHashMap<K,V> {
+        private static final long serialVersionUID = 1L;
+        private final int maxSize;
+
+        LruMap(int maxSize) {
+            super(16, 0.75f, true);
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K,V> eldest) {
+            return size() > maxSize;
+        }
+    }
+
+    /**
+     * Retrieves the cached current version of the passed logical resource, for the current tenant-datastore.
+     * If not found, null is returned.
+     * @param resourceType A valid FHIR resource type name.
+     * @param logicalId The logical id of the resource.
+     * @return CachedResource The current version of the resource, or null.
+     */
+    public static CachedResource getCurrentVersion(String resourceType, String logicalId) {
+        CachedResource result = null;
+
+        if (isEnabled(resourceType)) {
+            TenantDatastoreCache cache = getCache(getCacheNameForTenantDatastore());
+            Integer versionId = cache.currentVersions.get(logicalKey(resourceType, logicalId));
+            if (versionId != null) {
+                result = cache.versions.get(versionKey(resourceType, logicalId, versionId));
+            }
+            count(cache, result);
+        }
+
+        return result;
+    }
+
+    /**
+     * Retrieves the cached version of the passed resource, for the current tenant-datastore.
+     * If not found, null is returned.
+     * @param resourceType A valid FHIR resource type name.
+     * @param logicalId The logical id of the resource.
+     * @param versionId The version of the resource.
+     * @return CachedResource The requested version of the resource, or null.
+     */
+    public static CachedResource getVersion(String resourceType, String logicalId, int versionId) {
+        CachedResource result = null;
+
+        if (isEnabled(resourceType)) {
+            TenantDatastoreCache cache = getCache(getCacheNameForTenantDatastore());
+            result = cache.versions.get(versionKey(resourceType, logicalId, versionId));
+            count(cache, result);
+        }
+
+        return result;
+    }
+
+    /**
+     * Adds the passed resource version to the passed tenant-datastore cache. The version becomes the current
+     * version of the logical resource unless a later version is already known.
+     * @param tenantDatastoreCacheName The name of the datastore-specific cache the entry should be added to.
+     * @param resourceType A valid FHIR resource type name.
+     * @param logicalId The logical id of the resource.
+     * @param versionId The version of the resource.
+     * @param resource The parsed resource.
+     * @param deleted true if this version marks the resource as deleted.
+     */
+    public static void putVersion(String tenantDatastoreCacheName, String resourceType, String logicalId, int versionId,
+            Resource resource, boolean deleted) {
+
+        if (isEnabled(resourceType)) {
+            TenantDatastoreCache cache = getCache(tenantDatastoreCacheName);
+            cache.versions.put(versionKey(resourceType, logicalId, versionId), new CachedResource(resource, deleted));
+            // a reader which saw an older version may commit after the writer of a newer one
+            cache.currentVersions.merge(logicalKey(resourceType, logicalId), versionId, Math::max);
+            log.fine("putVersion() - Added new cache entry, key=" + versionKey(resourceType, logicalId, versionId)
+                    + "  tenantDatastoreCacheName=" + tenantDatastoreCacheName);
+        }
+    }
+
+    /**
+     * Forgets the current version of the passed logical resource in the current tenant-datastore cache, so that
+     * reads of it go to the database until the new version has been committed. The cached versions themselves
+     * are immutable and remain valid for version reads.
+     * @param resourceType A valid FHIR resource type name.
+     * @param logicalId The logical id of the resource.
+     */
+    public static void invalidate(String resourceType, String logicalId) {
+
+        if (isEnabled(resourceType)) {
+            getCache(getCacheNameForTenantDatastore()).currentVersions.remove(logicalKey(resourceType, logicalId));
+        }
+    }
+
+    /**
+     * Returns a String containing a combination of the current tenantId and datastoreId.
+     * @return
+     */
+    public static String getCacheNameForTenantDatastore() {
+        return ResourceTypesCache.getCacheNameForTenantDatastore();
+    }
+
+    /**
+     * @return the number of reads served by the cache of the current tenant-datastore
+     */
+    public static long getHitCount() {
+        TenantDatastoreCache cache = resourceCaches.get(getCacheNameForTenantDatastore());
+        return cache == null ? 0 : cache.hits.get();
+    }
+
+    /**
+     * @return the number of reads of cached resource types that the cache of the current tenant-datastore could not serve
+     */
+    public static long getMissCount() {
+        TenantDatastoreCache cache = resourceCaches.get(getCacheNameForTenantDatastore());
+        return cache == null ? 0 : cache.misses.get();
+    }
+
+    /**
+     * @return the fraction of the reads of cached resource types served by the cache of the current tenant-datastore,
+     *         or 0 if there haven't been any
+     */
+    public static double getHitRatio() {
+        return hitRatio(getHitCount(), getMissCount());
+    }
+
+    /**
+     * @return the number of resource versions held in the cache of the current tenant-datastore
+     */
+    public static int size() {
+        TenantDatastoreCache cache = resourceCaches.get(getCacheNameForTenantDatastore());
+        return cache == null ? 0 : cache.versions.size();
+    }
+
+    /**
+     *
+     * @return A formatted representation of the size and hit ratio of each tenant-datastore cache managed by this class.
+     */
+    public static String dumpCacheStatistics() {
+        StringBuilder dump = new StringBuilder();
+
+        dump.append(CacheUtil.NEWLINE).append("Statistics of ResourceCache").append(CacheUtil.NEWLINE);
+        for (Map.Entry<String,TenantDatastoreCache> entry : resourceCaches.entrySet()) {
+            TenantDatastoreCache cache = entry.getValue();
+            long hits = cache.hits.get();
+            long misses = cache.misses.get();
+            dump.append("ResourceCache for datastoreid: ").append(entry.getKey())
+                .append("  size=").append(cache.versions.size())
+                .append("  hits=").append(hits)
+                .append("  misses=").append(misses)
+                .append("  hitRatio=").append(String.format("%.3f", hitRatio(hits, misses)))
+                .append(CacheUtil.NEWLINE);
+        }
+
+        return dump.toString();
+    }
+
+    /**
+     * Removes all the entries and statistics of all the tenant-datastore caches.
+     */
+    public static void clear() {
+        resourceCaches.clear();
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @param resourceType A valid FHIR resource type name.
+     * @return true if the cache is enabled for the passed resource type
+     */
+    public static boolean isEnabled(String resourceType) {
+        Set<String> types = resourceTypes;
+        return enabled && (types == null || types.contains(resourceType));
+    }
+
+    public static void setEnabled(boolean enabled) {
+        ResourceCache.enabled = enabled;
+    }
+
+    /**
+     * Sets the max number of resource versions held per tenant-datastore. Caches which already exist keep their size.
+     * @param maxSize
+     */
+    public static void setMaxSize(int maxSize) {
+        ResourceCache.maxSize = maxSize;
+    }
+
+    /**
+     * Sets the resource types which are cached.
+     * @param resourceTypes The names of the resource types to cache, or null to cache all of them.
+     */
+    public static void setResourceTypes(Collection<String> resourceTypes) {
+        ResourceCache.resourceTypes = resourceTypes == null ? null : Collections.unmodifiableSet(new HashSet<>(resourceTypes));
+    }
+
+    private static TenantDatastoreCache getCache(String tenantDatastoreCacheName) {
+        return resourceCaches.computeIfAbsent(tenantDatastoreCacheName, k -> {
+            log.fine("getCache() - Added new cache for tenantDatastore=" + k);
+            return new TenantDatastoreCache(maxSize);
+        });
+    }
+
+    private static void count(TenantDatastoreCache cache, CachedResource result) {
+        if (result != null) {
+            cache.hits.incrementAndGet();
+        } else {
+            cache.misses.incrementAndGet();
+        }
+    }
+
+    private static double hitRatio(long hits, long misses) {
+        return hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+    }
+
+    private static String logicalKey(String resourceType, String logicalId) {
+        return resourceType + "/" + logicalId;
+    }
+
+    private static String versionKey(String resourceType, String logicalId, int versionId) {
+        return resourceType + "/" + logicalId + "/" + versionId;
+    }
+}
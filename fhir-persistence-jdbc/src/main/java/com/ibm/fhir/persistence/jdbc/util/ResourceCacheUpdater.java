@@ -0,0 +1,111 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.persistence.jdbc.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+
+import com.ibm.fhir.model.resource.Resource;
+
+/**
+ * This cache updater writes the resource versions read or written by a transaction to the ResourceCache
+ * upon a transaction commit, and discards them when the transaction is rolled back.
+ */
+public class ResourceCacheUpdater implements Synchronization {
+    private static final String CLASSNAME = ResourceCacheUpdater.class.getName();
+    private static final Logger log = Logger.getLogger(CLASSNAME);
+
+    private final String tenantDatastoreCacheName;
+    private final List<Candidate> cacheCandidates = new ArrayList<>();
+
+    /**
+     * A resource version waiting for the commit of the transaction.
+     */
+    private static class Candidate {
+        private final String resourceType;
+        private final String logicalId;
+        private final int versionId;
+        private final Resource resource;
+        private final boolean deleted;
+
+        Candidate(String resourceType, String logicalId, int versionId, Resource resource, boolean deleted) {
+            this.resourceType = resourceType;
+            this.logicalId = logicalId;
+            this.versionId = versionId;
+            this.resource = resource;
+            this.deleted = deleted;
+        }
+    }
+
+    public ResourceCacheUpdater(String tenantDatastoreCacheName) {
+        this.tenantDatastoreCacheName = tenantDatastoreCacheName;
+    }
+
+    /**
+     * Adds a resource version to be written to the cache when the transaction commits.
+     * @param resourceType A valid FHIR resource type name.
+     * @param logicalId The logical id of the resource.
+     * @param versionId The version of the resource.
+     * @param resource The parsed resource.
+     * @param deleted true if this version marks the resource as deleted.
+     */
+    public synchronized void addCacheCandidate(String resourceType, String logicalId, int versionId, Resource resource, boolean deleted) {
+        cacheCandidates.add(new Candidate(resourceType, logicalId, versionId, resource, deleted));
+    }
+
+    /**
+     * Writes candidate cache entries to the ResourceCache after being notified by
+     * the Trx Synchronization service that the transaction on the current thread
+     * has successfully committed.
+     */
+    @Override
+    public void afterCompletion(int completionStatus) {
+        final String METHODNAME = "afterCompletion";
+        log.entering(CLASSNAME, METHODNAME);
+
+        if (completionStatus == Status.STATUS_COMMITTED) {
+            this.commitCacheCandidates();
+        }
+
+        this.clearCacheCandidates();
+
+        log.exiting(CLASSNAME, METHODNAME);
+    }
+
+    @Override
+    public void beforeCompletion() {
+    }
+
+    /**
+     * Writes the candidate cache entries to the ResourceCache.
+     */
+    public synchronized void commitCacheCandidates() {
+        final String METHODNAME = "commitCacheCandidates";
+        log.entering(CLASSNAME, METHODNAME);
+
+        for (Candidate c : cacheCandidates) {
+            ResourceCache.putVersion(tenantDatastoreCacheName, c.resourceType, c.logicalId, c.versionId, c.resource, c.deleted);
+        }
+
+        log.exiting(CLASSNAME, METHODNAME);
+    }
+
+    /**
+     * Empties the collection of cache candidates.
+     */
+    public synchronized void clearCacheCandidates() {
+        cacheCandidates.clear();
+    }
+
+    public String getTenantDatastoreCacheName() {
+        return tenantDatastoreCacheName;
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.persistence.jdbc.test;
+
+import static com.ibm.fhir.model.type.String.string;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+
+import org.testng.annotations.Test;
+
+import com.ibm.fhir.model.resource.Patient;
+import com.ibm.fhir.model.resource.Resource;
+import com.ibm.fhir.model.test.TestUtil;
+import com.ibm.fhir.model.type.HumanName;
+import com.ibm.fhir.persistence.FHIRPersistence;
+import com.ibm.fhir.persistence.context.FHIRPersistenceContext;
+import com.ibm.fhir.persistence.jdbc.impl.FHIRPersistenceJDBCImpl;
+import com.ibm.fhir.persistence.jdbc.test.util.DerbyInitializer;
+import com.ibm.fhir.persistence.test.common.AbstractPersistenceTest;
+import com.ibm.fhir.search.context.FHIRSearchContext;
+import com.ibm.fhir.search.util.SearchUtil;
+
+/**
+ * Tests for search pages which continue after the last resource of the previous page
+ * using the continuation token issued with that page.
+ */
+public class JDBCKeysetPagingTest extends AbstractPersistenceTest {
+    private static final int PAGE_SIZE = 2;
+
+    private Properties testProps;
+
+    // a unique prefix so that previous runs against the same database don't interfere
+    private final String family = "Keyset" + UUID.randomUUID().toString().replace("-", "").substring(0, 8);
+
+    public JDBCKeysetPagingTest() throws Exception {
+        this.testProps = TestUtil.readTestProperties("test.jdbc.properties");
+    }
+
+    @Override
+    public void bootstrapDatabase() throws Exception {
+        DerbyInitializer derbyInit;
+        String dbDriverName = this.testProps.getProperty("dbDriverName");
+        if (dbDriverName != null && dbDriverName.contains("derby")) {
+            derbyInit = new DerbyInitializer(this.testProps);
+            derbyInit.bootstrapDb(false);
+        }
+    }
+
+    @Override
+    public FHIRPersistence getPersistenceImpl() throws Exception {
+        return new FHIRPersistenceJDBCImpl(this.testProps);
+    }
+
+    @Test
+    public void testKeysetPaging() throws Exception {
+        List<String> created = createPatients(family + "all", 5);
+
+        List<String> found = new ArrayList<>();
+        String continuationToken = null;
+        for (int pageNumber = 1; pageNumber <= 3; pageNumber++) {
+            FHIRSearchContext searchContext = searchContext(family + "all", pageNumber, continuationToken);
+            found.addAll(ids(search(searchContext)));
+            continuationToken = searchContext.getNextContinuationToken();
+            if (pageNumber < 3) {
+                assertNotNull(continuationToken);
+            }
+        }
+
+        // the last page doesn't have a next page
+        assertNull(continuationToken);
+        assertEquals(found, created);
+    }
+
+    @Test
+    public void testKeysetPagingAfterDelete() throws Exception {
+        List<String> created = createPatients(family + "delete", 4);
+
+        FHIRSearchContext firstPage = searchContext(family + "delete", 1, null);
+        assertEquals(ids(search(firstPage)), created.subList(0, 2));
+
+        // an offset would now skip the third patient, but the token continues after the second
+        persistence.delete(getDefaultPersistenceContext(), Patient.class, created.get(0));
+        FHIRSearchContext secondPage = searchContext(family + "delete", 2, firstPage.getNextContinuationToken());
+        assertEquals(ids(search(secondPage)), created.subList(2, 4));
+    }
+
+    @Test
+    public void testNoTokenWithSort() throws Exception {
+        createPatients(family + "sort", 3);
+
+        Map<String, List<String>> queryParameters = new HashMap<>();
+        queryParameters.put("family", Collections.singletonList(family + "sort"));
+        queryParameters.put("_sort", Collections.singletonList("_lastUpdated"));
+        FHIRSearchContext searchContext = SearchUtil.parseQueryParameters(Patient.class, queryParameters);
+        searchContext.setPageSize(PAGE_SIZE);
+        search(searchContext);
+
+        assertNull(searchContext.getNextContinuationToken());
+    }
+
+    private List<String> createPatients(String family, int count) throws Exception {
+        Patient patient = TestUtil.readExampleResource("json/ibm/minimal/Patient-1.json");
+        patient = patient.toBuilder()
+                .name(Collections.singletonList(HumanName.builder().family(string(family)).build()))
+                .build();
+
+        List<String> result = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            result.add(persistence.create(getDefaultPersistenceContext(), patient).getResource().getId());
+        }
+        return result;
+    }
+
+    private FHIRSearchContext searchContext(String family, int pageNumber, String continuationToken) throws Exception {
+        Map<String, List<String>> queryParameters = new HashMap<>();
+        queryParameters.put("family", Collections.singletonList(family));
+        FHIRSearchContext searchContext = SearchUtil.parseQueryParameters(Patient.class, queryParameters);
+        searchContext.setPageSize(PAGE_SIZE);
+        searchContext.setPageNumber(pageNumber);
+        searchContext.setContinuationToken(continuationToken);
+        return searchContext;
+    }
+
+    private List<Resource> search(FHIRSearchContext searchContext) throws Exception {
+        FHIRPersistenceContext persistenceContext = getPersistenceContextForSearch(searchContext);
+        return persistence.search(persistenceContext, Patient.class).getResource();
+    }
+
+    private List<String> ids(List<Resource> resources) {
+        List<String> result = new ArrayList<>();
+        for (Resource resource : resources) {
+            result.add(resource.getId());
+        }
+        return result;
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.persistence.jdbc.test;
+
+import static com.ibm.fhir.model.type.String.string;
+import static org.testng.Assert.assertEquals;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.UUID;
+
+import org.testng.annotations.Test;
+
+import com.ibm.fhir.model.resource.Patient;
+import com.ibm.fhir.model.resource.Resource;
+import com.ibm.fhir.model.test.TestUtil;
+import com.ibm.fhir.model.type.HumanName;
+import com.ibm.fhir.persistence.FHIRPersistence;
+import com.ibm.fhir.persistence.jdbc.impl.FHIRPersistenceJDBCImpl;
+import com.ibm.fhir.persistence.jdbc.test.util.DerbyInitializer;
+import com.ibm.fhir.persistence.test.common.AbstractPersistenceTest;
+
+/**
+ * Tests for search parameters which are batched across all the resources written in a transaction.
+ * Each Patient has several string parameters, so the batches are submitted both when they fill up
+ * and when the transaction ends.
+ */
+public class JDBCParameterBatchTest extends AbstractPersistenceTest {
+    private static final int PARAMETER_BATCH_SIZE = 100;
+
+    private Properties testProps;
+
+    // a unique prefix so that previous runs against the same database don't interfere
+    private final String prefix = "Batch" + UUID.randomUUID().toString().replace("-", "").substring(0, 8);
+
+    public JDBCParameterBatchTest() throws Exception {
+        this.testProps = TestUtil.readTestProperties("test.jdbc.properties");
+        this.testProps.setProperty("parameterBatchSize", Integer.toString(PARAMETER_BATCH_SIZE));
+    }
+
+    @Override
+    public void bootstrapDatabase() throws Exception {
+        DerbyInitializer derbyInit;
+        String dbDriverName = this.testProps.getProperty("dbDriverName");
+        if (dbDriverName != null && dbDriverName.contains("derby")) {
+            derbyInit = new DerbyInitializer(this.testProps);
+            derbyInit.bootstrapDb(false);
+        }
+    }
+
+    @Override
+    public FHIRPersistence getPersistenceImpl() throws Exception {
+        return new FHIRPersistenceJDBCImpl(this.testProps);
+    }
+
+    @Test
+    public void testManyResourcesInOneTransaction() throws Exception {
+        Patient patient = TestUtil.readExampleResource("json/ibm/minimal/Patient-1.json");
+        int count = PARAMETER_BATCH_SIZE / 2 + 1;
+        for (int i = 0; i < count; i++) {
+            persistence.create(getDefaultPersistenceContext(), withFamily(patient, prefix + "many"));
+        }
+
+        List<Resource> resources = runQueryTest(Patient.class, "family", prefix + "many", count + 10);
+        assertEquals(resources.size(), count);
+    }
+
+    @Test
+    public void testUpdateInSameTransaction() throws Exception {
+        Patient patient = TestUtil.readExampleResource("json/ibm/minimal/Patient-1.json");
+        Patient created = persistence.create(getDefaultPersistenceContext(), withFamily(patient, prefix + "first")).getResource();
+
+        // the parameters of the first version must be replaced, not left behind in the batch
+        persistence.update(getDefaultPersistenceContext(), created.getId(), withFamily(created, prefix + "second"));
+        persistence.update(getDefaultPersistenceContext(), created.getId(), withFamily(created, prefix + "third"));
+
+        assertEquals(runQueryTest(Patient.class, "family", prefix + "first").size(), 0);
+        assertEquals(runQueryTest(Patient.class, "family", prefix + "second").size(), 0);
+        assertEquals(runQueryTest(Patient.class, "family", prefix + "third").size(), 1);
+    }
+
+    @Test
+    public void testUpdateAfterSearchInSameTransaction() throws Exception {
+        Patient patient = TestUtil.readExampleResource("json/ibm/minimal/Patient-1.json");
+        Patient created = persistence.create(getDefaultPersistenceContext(), withFamily(patient, prefix + "before")).getResource();
+        assertEquals(runQueryTest(Patient.class, "family", prefix + "before").size(), 1);
+
+        persistence.update(getDefaultPersistenceContext(), created.getId(), withFamily(created, prefix + "after"));
+        assertEquals(runQueryTest(Patient.class, "family", prefix + "before").size(), 0);
+        assertEquals(runQueryTest(Patient.class, "family", prefix + "after").size(), 1);
+    }
+
+    private Patient withFamily(Patient patient, String family) {
+        // the Collection variant replaces any existing names
+        return patient.toBuilder()
+                .name(Collections.singletonList(HumanName.builder().family(string(family)).build()))
+                .build();
+    }
+}
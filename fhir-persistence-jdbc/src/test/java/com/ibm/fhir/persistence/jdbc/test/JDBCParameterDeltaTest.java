@@ -0,0 +1,148 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.persistence.jdbc.test;
+
+import static com.ibm.fhir.model.type.String.string;
+import static org.testng.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+
+import org.testng.annotations.Test;
+
+import com.ibm.fhir.model.resource.Patient;
+import com.ibm.fhir.model.resource.Resource;
+import com.ibm.fhir.model.test.TestUtil;
+import com.ibm.fhir.model.type.Date;
+import com.ibm.fhir.model.type.HumanName;
+import com.ibm.fhir.model.type.code.AdministrativeGender;
+import com.ibm.fhir.persistence.FHIRPersistence;
+import com.ibm.fhir.persistence.jdbc.impl.FHIRPersistenceJDBCImpl;
+import com.ibm.fhir.persistence.jdbc.test.util.DerbyInitializer;
+import com.ibm.fhir.persistence.test.common.AbstractPersistenceTest;
+
+/**
+ * Tests for updates which only replace the search parameter rows which changed
+ * between the stored version and the new version of a resource.
+ */
+public class JDBCParameterDeltaTest extends AbstractPersistenceTest {
+    private Properties testProps;
+
+    // a unique prefix so that previous runs against the same database don't interfere
+    private final String prefix = "Delta" + UUID.randomUUID().toString().replace("-", "").substring(0, 8);
+
+    public JDBCParameterDeltaTest() throws Exception {
+        this.testProps = TestUtil.readTestProperties("test.jdbc.properties");
+    }
+
+    @Override
+    public void bootstrapDatabase() throws Exception {
+        DerbyInitializer derbyInit;
+        String dbDriverName = this.testProps.getProperty("dbDriverName");
+        if (dbDriverName != null && dbDriverName.contains("derby")) {
+            derbyInit = new DerbyInitializer(this.testProps);
+            derbyInit.bootstrapDb(false);
+        }
+    }
+
+    @Override
+    public FHIRPersistence getPersistenceImpl() throws Exception {
+        return new FHIRPersistenceJDBCImpl(this.testProps);
+    }
+
+    @Test
+    public void testUpdateChangedParameter() throws Exception {
+        Patient patient = TestUtil.readExampleResource("json/ibm/minimal/Patient-1.json");
+        Patient created = persistence.create(getDefaultPersistenceContext(),
+                withName(patient, prefix + "family1", prefix + "given")).getResource();
+
+        persistence.update(getDefaultPersistenceContext(), created.getId(),
+                withName(created, prefix + "family2", prefix + "given"));
+
+        assertEquals(runQueryTest(Patient.class, "family", prefix + "family1").size(), 0);
+        assertEquals(runQueryTest(Patient.class, "family", prefix + "family2").size(), 1);
+        // the unchanged parameter is kept
+        assertEquals(runQueryTest(Patient.class, "given", prefix + "given").size(), 1);
+    }
+
+    @Test
+    public void testUpdateUnchangedParameters() throws Exception {
+        Patient patient = TestUtil.readExampleResource("json/ibm/minimal/Patient-1.json");
+        Patient created = persistence.create(getDefaultPersistenceContext(),
+                withName(patient, prefix + "same", prefix + "same").toBuilder()
+                    .gender(AdministrativeGender.FEMALE)
+                    .birthDate(Date.of("1970-01-01"))
+                    .build()).getResource();
+
+        persistence.update(getDefaultPersistenceContext(), created.getId(), created);
+
+        assertEquals(runQueryTest(Patient.class, "family", prefix + "same").size(), 1);
+        assertEquals(runQueryTest(Patient.class, "given", prefix + "same").size(), 1);
+        assertEquals(runQueryTest(Patient.class, "name", prefix + "same").size(), 1);
+    }
+
+    @Test
+    public void testUpdateDuplicateParameterValues() throws Exception {
+        Patient patient = TestUtil.readExampleResource("json/ibm/minimal/Patient-1.json");
+        Patient created = persistence.create(getDefaultPersistenceContext(), patient.toBuilder()
+                .name(Arrays.asList(
+                    HumanName.builder().family(string(prefix + "dup")).build(),
+                    HumanName.builder().family(string(prefix + "dup")).build()))
+                .build()).getResource();
+
+        // drop one of the two identical values, then the other
+        Patient updated = persistence.update(getDefaultPersistenceContext(), created.getId(),
+                withName(created, prefix + "dup", prefix + "other")).getResource();
+        assertEquals(runQueryTest(Patient.class, "family", prefix + "dup").size(), 1);
+
+        persistence.update(getDefaultPersistenceContext(), updated.getId(),
+                withName(updated, prefix + "nodup", prefix + "other"));
+        assertEquals(runQueryTest(Patient.class, "family", prefix + "dup").size(), 0);
+        assertEquals(runQueryTest(Patient.class, "family", prefix + "nodup").size(), 1);
+        assertEquals(runQueryTest(Patient.class, "given", prefix + "other").size(), 1);
+    }
+
+    @Test
+    public void testUpdateTokenAndDateParameters() throws Exception {
+        Patient patient = TestUtil.readExampleResource("json/ibm/minimal/Patient-1.json");
+        Patient created = persistence.create(getDefaultPersistenceContext(),
+                withName(patient, prefix + "token", prefix + "token").toBuilder()
+                    .gender(AdministrativeGender.FEMALE)
+                    .birthDate(Date.of("1950-02-03"))
+                    .build()).getResource();
+
+        persistence.update(getDefaultPersistenceContext(), created.getId(), created.toBuilder()
+                .gender(AdministrativeGender.MALE)
+                .birthDate(Date.of("1951-02-03"))
+                .build());
+
+        assertEquals(runQueryTest(Patient.class, "family", prefix + "token").size(), 1);
+        assertEquals(runQueryTest(prefix + "token", "gender", "female").size(), 0);
+        assertEquals(runQueryTest(prefix + "token", "gender", "male").size(), 1);
+        assertEquals(runQueryTest(prefix + "token", "birthdate", "1950-02-03").size(), 0);
+        assertEquals(runQueryTest(prefix + "token", "birthdate", "1951-02-03").size(), 1);
+    }
+
+    private List<Resource> runQueryTest(String family, String parmName, String parmValue) throws Exception {
+        Map<String, List<String>> queryParms = new HashMap<>();
+        queryParms.put("family", Collections.singletonList(family));
+        queryParms.put(parmName, Collections.singletonList(parmValue));
+        return runQueryTest(Patient.class, queryParms);
+    }
+
+    private Patient withName(Patient patient, String family, String given) {
+        // the Collection variant replaces any existing names
+        return patient.toBuilder()
+                .name(Collections.singletonList(HumanName.builder().family(string(family)).given(string(given)).build()))
+                .build();
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.persistence.jdbc.test;
+
+import static com.ibm.fhir.model.type.String.string;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.util.Collections;
+import java.util.Properties;
+
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.ibm.fhir.model.resource.Observation;
+import com.ibm.fhir.model.resource.Patient;
+import com.ibm.fhir.model.test.TestUtil;
+import com.ibm.fhir.model.type.HumanName;
+import com.ibm.fhir.persistence.FHIRPersistence;
+import com.ibm.fhir.persistence.exception.FHIRPersistenceResourceDeletedException;
+import com.ibm.fhir.persistence.jdbc.impl.FHIRPersistenceJDBCImpl;
+import com.ibm.fhir.persistence.jdbc.test.util.DerbyInitializer;
+import com.ibm.fhir.persistence.jdbc.util.ResourceCache;
+import com.ibm.fhir.persistence.test.common.AbstractPersistenceTest;
+
+/**
+ * Tests that reads are served from the ResourceCache once the transaction which wrote or read
+ * the resource has committed, and that updates and deletes invalidate the current version.
+ */
+public class JDBCResourceCacheTest extends AbstractPersistenceTest {
+    private Properties testProps;
+
+    public JDBCResourceCacheTest() throws Exception {
+        this.testProps = TestUtil.readTestProperties("test.jdbc.properties");
+    }
+
+    @Override
+    public void bootstrapDatabase() throws Exception {
+        DerbyInitializer derbyInit;
+        String dbDriverName = this.testProps.getProperty("dbDriverName");
+        if (dbDriverName != null && dbDriverName.contains("derby")) {
+            derbyInit = new DerbyInitializer(this.testProps);
+            derbyInit.bootstrapDb(false);
+        }
+    }
+
+    @Override
+    public FHIRPersistence getPersistenceImpl() throws Exception {
+        return new FHIRPersistenceJDBCImpl(this.testProps);
+    }
+
+    @BeforeClass
+    public void enableCache() {
+        ResourceCache.clear();
+        ResourceCache.setResourceTypes(Collections.singletonList("Patient"));
+        ResourceCache.setEnabled(true);
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void disableCache() {
+        ResourceCache.setEnabled(false);
+        ResourceCache.setResourceTypes(null);
+        ResourceCache.clear();
+    }
+
+    @Test
+    public void testReadAfterCommit() throws Exception {
+        Patient created = persistence.create(getDefaultPersistenceContext(), patient("created")).getResource();
+
+        // not cached before the commit
+        long hits = ResourceCache.getHitCount();
+        read(created.getId());
+        assertEquals(ResourceCache.getHitCount(), hits);
+
+        commitAndBegin();
+        Patient read = read(created.getId());
+        assertEquals(ResourceCache.getHitCount(), hits + 1);
+        assertEquals(read, created);
+        assertTrue(ResourceCache.size() > 0);
+    }
+
+    @Test
+    public void testUpdate() throws Exception {
+        Patient created = persistence.create(getDefaultPersistenceContext(), patient("before")).getResource();
+        commitAndBegin();
+        Patient updated = persistence.update(getDefaultPersistenceContext(), created.getId(), patient("after")).getResource();
+
+        // the current version is invalidated right away
+        long hits = ResourceCache.getHitCount();
+        assertEquals(read(created.getId()), updated);
+        assertEquals(ResourceCache.getHitCount(), hits);
+
+        commitAndBegin();
+        assertEquals(read(created.getId()), updated);
+        assertEquals(persistence.vread(getDefaultPersistenceContext(), Patient.class, created.getId(), "1").getResource(), created);
+        assertEquals(ResourceCache.getHitCount(), hits + 2);
+    }
+
+    @Test
+    public void testUpdateRolledBack() throws Exception {
+        Patient created = persistence.create(getDefaultPersistenceContext(), patient("kept")).getResource();
+        commitAndBegin();
+        persistence.update(getDefaultPersistenceContext(), created.getId(), patient("rolledBack"));
+        persistence.getTransaction().rollback();
+        persistence.getTransaction().begin();
+
+        assertEquals(read(created.getId()).getMeta().getVersionId().getValue(), "1");
+    }
+
+    @Test
+    public void testDelete() throws Exception {
+        Patient created = persistence.create(getDefaultPersistenceContext(), patient("deleted")).getResource();
+        commitAndBegin();
+        persistence.delete(getDefaultPersistenceContext(), Patient.class, created.getId());
+        commitAndBegin();
+
+        long hits = ResourceCache.getHitCount();
+        try {
+            read(created.getId());
+            fail();
+        } catch (FHIRPersistenceResourceDeletedException e) {
+            assertEquals(ResourceCache.getHitCount(), hits + 1);
+        }
+    }
+
+    @Test
+    public void testTypeNotCached() throws Exception {
+        Observation observation = TestUtil.readExampleResource("json/ibm/minimal/Observation-1.json");
+        Observation created = persistence.create(getDefaultPersistenceContext(), observation).getResource();
+        commitAndBegin();
+
+        long hits = ResourceCache.getHitCount();
+        long misses = ResourceCache.getMissCount();
+        persistence.read(getDefaultPersistenceContext(), Observation.class, created.getId());
+        assertEquals(ResourceCache.getHitCount(), hits);
+        assertEquals(ResourceCache.getMissCount(), misses);
+    }
+
+    private Patient patient(String family) throws Exception {
+        Patient patient = TestUtil.readExampleResource("json/ibm/minimal/Patient-1.json");
+        return patient.toBuilder()
+                .name(Collections.singletonList(HumanName.builder().family(string(family)).build()))
+                .build();
+    }
+
+    private Patient read(String logicalId) throws Exception {
+        return persistence.read(getDefaultPersistenceContext(), Patient.class, logicalId).getResource();
+    }
+
+    private void commitAndBegin() throws Exception {
+        persistence.getTransaction().commit();
+        persistence.getTransaction().begin();
+    }
+}
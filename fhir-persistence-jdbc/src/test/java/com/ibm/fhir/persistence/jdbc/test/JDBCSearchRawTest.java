@@ -0,0 +1,146 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.persistence.jdbc.test;
+
+import static com.ibm.fhir.model.type.String.string;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+
+import org.testng.annotations.Test;
+
+import com.ibm.fhir.model.format.Format;
+import com.ibm.fhir.model.parser.FHIRParser;
+import com.ibm.fhir.model.resource.Patient;
+import com.ibm.fhir.model.resource.Resource;
+import com.ibm.fhir.model.test.TestUtil;
+import com.ibm.fhir.model.type.HumanName;
+import com.ibm.fhir.persistence.FHIRPersistence;
+import com.ibm.fhir.persistence.jdbc.impl.FHIRPersistenceJDBCImpl;
+import com.ibm.fhir.persistence.jdbc.test.util.DerbyInitializer;
+import com.ibm.fhir.persistence.test.common.AbstractPersistenceTest;
+import com.ibm.fhir.search.context.FHIRSearchContext;
+import com.ibm.fhir.search.util.SearchUtil;
+
+/**
+ * Tests for searches which pass the stored JSON of each resource to a consumer
+ * instead of returning the parsed resources.
+ */
+public class JDBCSearchRawTest extends AbstractPersistenceTest {
+    private Properties testProps;
+
+    // a unique prefix so that previous runs against the same database don't interfere
+    private final String family = "Raw" + UUID.randomUUID().toString().replace("-", "").substring(0, 8);
+
+    public JDBCSearchRawTest() throws Exception {
+        this.testProps = TestUtil.readTestProperties("test.jdbc.properties");
+    }
+
+    @Override
+    public void bootstrapDatabase() throws Exception {
+        DerbyInitializer derbyInit;
+        String dbDriverName = this.testProps.getProperty("dbDriverName");
+        if (dbDriverName != null && dbDriverName.contains("derby")) {
+            derbyInit = new DerbyInitializer(this.testProps);
+            derbyInit.bootstrapDb(false);
+        }
+    }
+
+    @Override
+    public FHIRPersistence getPersistenceImpl() throws Exception {
+        return new FHIRPersistenceJDBCImpl(this.testProps);
+    }
+
+    @Test
+    public void testSearchRaw() throws Exception {
+        createPatients(family + "raw", 3);
+
+        List<Resource> expected = search(queryParameters(family + "raw"));
+        List<Resource> actual = searchRaw(queryParameters(family + "raw"));
+
+        assertEquals(actual.size(), 3);
+        assertEquals(actual, expected);
+    }
+
+    @Test
+    public void testSearchRawSorted() throws Exception {
+        createPatients(family + "sort", 3);
+
+        Map<String, List<String>> queryParameters = queryParameters(family + "sort");
+        queryParameters.put("_sort", Collections.singletonList("-_lastUpdated"));
+        List<Resource> expected = search(queryParameters);
+        List<Resource> actual = searchRaw(queryParameters);
+
+        assertEquals(actual.size(), 3);
+        assertEquals(actual, expected);
+    }
+
+    @Test
+    public void testSearchRawElements() throws Exception {
+        createPatients(family + "elements", 1);
+
+        Map<String, List<String>> queryParameters = queryParameters(family + "elements");
+        queryParameters.put("_elements", Collections.singletonList("gender"));
+        List<Resource> actual = searchRaw(queryParameters);
+
+        assertEquals(actual.size(), 1);
+        assertTrue(((Patient) actual.get(0)).getName().isEmpty());
+        assertEquals(actual, search(queryParameters));
+    }
+
+    private void createPatients(String family, int count) throws Exception {
+        Patient patient = TestUtil.readExampleResource("json/ibm/minimal/Patient-1.json");
+        patient = patient.toBuilder()
+                .name(Collections.singletonList(HumanName.builder().family(string(family)).build()))
+                .build();
+
+        for (int i = 0; i < count; i++) {
+            persistence.create(getDefaultPersistenceContext(), patient);
+        }
+    }
+
+    private Map<String, List<String>> queryParameters(String family) {
+        Map<String, List<String>> queryParameters = new HashMap<>();
+        queryParameters.put("family", Collections.singletonList(family));
+        return queryParameters;
+    }
+
+    private List<Resource> search(Map<String, List<String>> queryParameters) throws Exception {
+        FHIRSearchContext searchContext = SearchUtil.parseQueryParameters(Patient.class, queryParameters);
+        return persistence.search(getPersistenceContextForSearch(searchContext), Patient.class).getResource();
+    }
+
+    private List<Resource> searchRaw(Map<String, List<String>> queryParameters) throws Exception {
+        FHIRSearchContext searchContext = SearchUtil.parseQueryParameters(Patient.class, queryParameters);
+        List<Resource> result = new ArrayList<>();
+        persistence.searchRaw(getPersistenceContextForSearch(searchContext), Patient.class, (logicalId, json) -> {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[1024];
+            int len;
+            while ((len = json.read(buffer)) != -1) {
+                out.write(buffer, 0, len);
+            }
+            try {
+                Resource resource = FHIRParser.parser(Format.JSON).parse(new ByteArrayInputStream(out.toByteArray()));
+                assertEquals(resource.getId(), logicalId);
+                result.add(resource);
+            } catch (Exception e) {
+                throw new AssertionError(e);
+            }
+        });
+        return result;
+    }
+}
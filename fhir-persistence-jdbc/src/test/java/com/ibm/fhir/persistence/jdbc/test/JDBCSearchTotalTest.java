@@ -0,0 +1,164 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.persistence.jdbc.test;
+
+import static com.ibm.fhir.model.type.String.string;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+
+import org.testng.annotations.Test;
+
+import com.ibm.fhir.core.TotalValueSet;
+import com.ibm.fhir.model.resource.Patient;
+import com.ibm.fhir.model.resource.Resource;
+import com.ibm.fhir.model.test.TestUtil;
+import com.ibm.fhir.model.type.HumanName;
+import com.ibm.fhir.persistence.FHIRPersistence;
+import com.ibm.fhir.persistence.context.FHIRPersistenceContext;
+import com.ibm.fhir.persistence.jdbc.impl.FHIRPersistenceJDBCImpl;
+import com.ibm.fhir.persistence.jdbc.test.util.DerbyInitializer;
+import com.ibm.fhir.persistence.test.common.AbstractPersistenceTest;
+import com.ibm.fhir.search.context.FHIRSearchContext;
+import com.ibm.fhir.search.util.SearchUtil;
+
+/**
+ * Tests for searches with _total=none and _total=estimate, which find out whether there is a next page
+ * without counting the search results.
+ */
+public class JDBCSearchTotalTest extends AbstractPersistenceTest {
+    private static final int PAGE_SIZE = 2;
+
+    private Properties testProps;
+
+    // a unique prefix so that previous runs against the same database don't interfere
+    private final String family = "Total" + UUID.randomUUID().toString().replace("-", "").substring(0, 8);
+
+    public JDBCSearchTotalTest() throws Exception {
+        this.testProps = TestUtil.readTestProperties("test.jdbc.properties");
+    }
+
+    @Override
+    public void bootstrapDatabase() throws Exception {
+        DerbyInitializer derbyInit;
+        String dbDriverName = this.testProps.getProperty("dbDriverName");
+        if (dbDriverName != null && dbDriverName.contains("derby")) {
+            derbyInit = new DerbyInitializer(this.testProps);
+            derbyInit.bootstrapDb(false);
+        }
+    }
+
+    @Override
+    public FHIRPersistence getPersistenceImpl() throws Exception {
+        return new FHIRPersistenceJDBCImpl(this.testProps);
+    }
+
+    @Test
+    public void testTotalNone() throws Exception {
+        List<String> created = createPatients(family + "none", 5);
+
+        List<String> found = new ArrayList<>();
+        String continuationToken = null;
+        for (int pageNumber = 1; pageNumber <= 3; pageNumber++) {
+            FHIRSearchContext searchContext = searchContext(family + "none", TotalValueSet.NONE, null, pageNumber);
+            searchContext.setContinuationToken(continuationToken);
+            found.addAll(ids(search(searchContext)));
+            continuationToken = searchContext.getNextContinuationToken();
+            if (pageNumber < 3) {
+                // there is a next page
+                assertEquals(searchContext.getLastPageNumber(), pageNumber + 1);
+                assertNotNull(continuationToken);
+            } else {
+                assertEquals(searchContext.getLastPageNumber(), 3);
+                assertNull(continuationToken);
+            }
+        }
+        assertEquals(found, created);
+    }
+
+    @Test
+    public void testTotalNoneFullLastPage() throws Exception {
+        List<String> created = createPatients(family + "full", 4);
+
+        FHIRSearchContext searchContext = searchContext(family + "full", TotalValueSet.NONE, null, 2);
+        assertEquals(ids(search(searchContext)), created.subList(2, 4));
+        assertEquals(searchContext.getLastPageNumber(), 2);
+    }
+
+    @Test
+    public void testTotalNoneSorted() throws Exception {
+        List<String> created = createPatients(family + "sort", 3);
+
+        FHIRSearchContext searchContext = searchContext(family + "sort", TotalValueSet.NONE, "_lastUpdated", 1);
+        assertEquals(ids(search(searchContext)), created.subList(0, 2));
+        assertEquals(searchContext.getLastPageNumber(), 2);
+
+        searchContext = searchContext(family + "sort", TotalValueSet.NONE, "_lastUpdated", 2);
+        assertEquals(ids(search(searchContext)), created.subList(2, 3));
+        assertEquals(searchContext.getLastPageNumber(), 2);
+    }
+
+    @Test
+    public void testTotalEstimate() throws Exception {
+        createPatients(family + "estimate", 3);
+
+        // Derby doesn't provide an estimate, so the results are counted
+        FHIRSearchContext searchContext = searchContext(family + "estimate", TotalValueSet.ESTIMATE, null, 1);
+        assertEquals(search(searchContext).size(), PAGE_SIZE);
+        assertEquals(searchContext.getLastPageNumber(), 2);
+        if (testProps.getProperty("dbDriverName", "").contains("derby")) {
+            assertEquals(searchContext.getTotalCount(), 3);
+        }
+    }
+
+    private List<String> createPatients(String family, int count) throws Exception {
+        Patient patient = TestUtil.readExampleResource("json/ibm/minimal/Patient-1.json");
+        patient = patient.toBuilder()
+                .name(Collections.singletonList(HumanName.builder().family(string(family)).build()))
+                .build();
+
+        List<String> result = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            result.add(persistence.create(getDefaultPersistenceContext(), patient).getResource().getId());
+        }
+        return result;
+    }
+
+    private FHIRSearchContext searchContext(String family, TotalValueSet total, String sort, int pageNumber) throws Exception {
+        Map<String, List<String>> queryParameters = new HashMap<>();
+        queryParameters.put("family", Collections.singletonList(family));
+        queryParameters.put("_total", Collections.singletonList(total.value()));
+        if (sort != null) {
+            queryParameters.put("_sort", Collections.singletonList(sort));
+        }
+        FHIRSearchContext searchContext = SearchUtil.parseQueryParameters(Patient.class, queryParameters);
+        searchContext.setPageSize(PAGE_SIZE);
+        searchContext.setPageNumber(pageNumber);
+        return searchContext;
+    }
+
+    private List<Resource> search(FHIRSearchContext searchContext) throws Exception {
+        FHIRPersistenceContext persistenceContext = getPersistenceContextForSearch(searchContext);
+        return persistence.search(persistenceContext, Patient.class).getResource();
+    }
+
+    private List<String> ids(List<Resource> resources) {
+        List<String> result = new ArrayList<>();
+        for (Resource resource : resources) {
+            result.add(resource.getId());
+        }
+        return result;
+    }
+}
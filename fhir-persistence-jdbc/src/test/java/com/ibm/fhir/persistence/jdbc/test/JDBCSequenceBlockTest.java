@@ -0,0 +1,102 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.persistence.jdbc.test;
+
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.HashSet;
+import java.util.Properties;
+import java.util.Set;
+
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.ibm.fhir.model.test.TestUtil;
+import com.ibm.fhir.persistence.jdbc.dao.api.FhirRefSequenceDAO;
+import com.ibm.fhir.persistence.jdbc.dao.api.FhirSequenceDAO;
+import com.ibm.fhir.persistence.jdbc.derby.FhirRefSequenceDAOImpl;
+import com.ibm.fhir.persistence.jdbc.derby.FhirSequenceDAOImpl;
+import com.ibm.fhir.persistence.jdbc.test.util.DerbyInitializer;
+
+/**
+ * Tests that the values handed out from the blocks of fhir_sequence and fhir_ref_sequence
+ * are unique, and never collide with the values obtained directly from the sequences.
+ */
+public class JDBCSequenceBlockTest {
+    // more than one block of fhir_sequence
+    private static final int COUNT = 2500;
+
+    private Properties testProps;
+    private DerbyInitializer derbyInit;
+
+    public JDBCSequenceBlockTest() throws Exception {
+        this.testProps = TestUtil.readTestProperties("test.jdbc.properties");
+    }
+
+    @BeforeClass
+    public void bootstrapDatabase() throws Exception {
+        derbyInit = new DerbyInitializer(this.testProps);
+        derbyInit.bootstrapDb(false);
+    }
+
+    @Test
+    public void testFhirSequence() throws Exception {
+        try (Connection c = getConnection()) {
+            FhirSequenceDAO dao = new FhirSequenceDAOImpl(c);
+            Set<Long> values = new HashSet<>();
+            long previous = dao.nextValue();
+            values.add(previous);
+            for (int i = 0; i < COUNT; i++) {
+                if (i % 500 == 0) {
+                    // another server using the same sequence
+                    long other = readValue(c, "VALUES NEXT VALUE FOR fhir_sequence");
+                    assertFalse(values.contains(other));
+                    values.add(other);
+                }
+                long value = dao.nextValue();
+                assertTrue(value > previous);
+                assertTrue(values.add(value), "duplicate value: " + value);
+                previous = value;
+            }
+            c.commit();
+        }
+    }
+
+    @Test
+    public void testFhirRefSequence() throws Exception {
+        try (Connection c = getConnection()) {
+            FhirRefSequenceDAO dao = new FhirRefSequenceDAOImpl(c);
+            Set<Long> values = new HashSet<>();
+            for (int i = 0; i < COUNT / 10; i++) {
+                if (i % 50 == 0) {
+                    assertTrue(values.add(readValue(c, "VALUES NEXT VALUE FOR fhir_ref_sequence")));
+                }
+                long value = dao.nextValue();
+                assertTrue(values.add(value), "duplicate value: " + value);
+            }
+            c.commit();
+        }
+    }
+
+    private Connection getConnection() throws Exception {
+        Connection c = derbyInit.getConnection();
+        c.setSchema(testProps.getProperty("schemaName", "FHIRDATA"));
+        return c;
+    }
+
+    private long readValue(Connection c, String sql) throws Exception {
+        try (PreparedStatement stmt = c.prepareStatement(sql)) {
+            ResultSet rs = stmt.executeQuery();
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+}
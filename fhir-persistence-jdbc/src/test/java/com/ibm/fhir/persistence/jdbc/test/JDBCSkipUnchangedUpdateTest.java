@@ -0,0 +1,174 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.persistence.jdbc.test;
+
+import static com.ibm.fhir.model.type.String.string;
+import static org.testng.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Properties;
+import java.util.UUID;
+
+import org.testng.annotations.Test;
+
+import com.ibm.fhir.model.resource.Patient;
+import com.ibm.fhir.model.test.TestUtil;
+import com.ibm.fhir.model.type.HumanName;
+import com.ibm.fhir.model.type.Identifier;
+import com.ibm.fhir.model.type.Meta;
+import com.ibm.fhir.model.type.Uri;
+import com.ibm.fhir.persistence.FHIRPersistence;
+import com.ibm.fhir.persistence.jdbc.impl.FHIRPersistenceJDBCImpl;
+import com.ibm.fhir.persistence.jdbc.test.util.DerbyInitializer;
+import com.ibm.fhir.persistence.test.common.AbstractPersistenceTest;
+
+/**
+ * Tests for updates with the same content as the current version, which return the
+ * current version instead of storing a new one when skipUnchangedUpdates is enabled.
+ */
+public class JDBCSkipUnchangedUpdateTest extends AbstractPersistenceTest {
+    private Properties testProps;
+
+    // a unique prefix so that previous runs against the same database don't interfere
+    private final String prefix = "Skip" + UUID.randomUUID().toString().replace("-", "").substring(0, 8);
+
+    public JDBCSkipUnchangedUpdateTest() throws Exception {
+        this.testProps = TestUtil.readTestProperties("test.jdbc.properties");
+        this.testProps.setProperty("skipUnchangedUpdates", "true");
+    }
+
+    @Override
+    public void bootstrapDatabase() throws Exception {
+        DerbyInitializer derbyInit;
+        String dbDriverName = this.testProps.getProperty("dbDriverName");
+        if (dbDriverName != null && dbDriverName.contains("derby")) {
+            derbyInit = new DerbyInitializer(this.testProps);
+            derbyInit.bootstrapDb(false);
+        }
+    }
+
+    @Override
+    public FHIRPersistence getPersistenceImpl() throws Exception {
+        return new FHIRPersistenceJDBCImpl(this.testProps);
+    }
+
+    @Test
+    public void testUnchangedUpdate() throws Exception {
+        Patient patient = TestUtil.readExampleResource("json/ibm/minimal/Patient-1.json");
+        Patient created = persistence.create(getDefaultPersistenceContext(), withFamily(patient, prefix + "same")).getResource();
+
+        // the persistence-managed meta elements are not part of the content
+        Patient updated = persistence.update(getDefaultPersistenceContext(), created.getId(),
+                created.toBuilder().meta(Meta.builder().tag(created.getMeta().getTag()).build()).build()).getResource();
+
+        assertEquals(updated.getMeta().getVersionId().getValue(), "1");
+        assertEquals(updated.getMeta().getLastUpdated(), created.getMeta().getLastUpdated());
+        assertEquals(persistence.read(getDefaultPersistenceContext(), Patient.class, created.getId())
+                .getResource().getMeta().getVersionId().getValue(), "1");
+    }
+
+    @Test
+    public void testChangedUpdate() throws Exception {
+        Patient patient = TestUtil.readExampleResource("json/ibm/minimal/Patient-1.json");
+        Patient created = persistence.create(getDefaultPersistenceContext(), withFamily(patient, prefix + "before")).getResource();
+
+        Patient updated = persistence.update(getDefaultPersistenceContext(), created.getId(),
+                withFamily(created, prefix + "after")).getResource();
+
+        assertEquals(updated.getMeta().getVersionId().getValue(), "2");
+        assertEquals(runQueryTest(Patient.class, "family", prefix + "before").size(), 0);
+        assertEquals(runQueryTest(Patient.class, "family", prefix + "after").size(), 1);
+    }
+
+    @Test
+    public void testUnchangedUpdateAfterDelete() throws Exception {
+        Patient patient = TestUtil.readExampleResource("json/ibm/minimal/Patient-1.json");
+        Patient created = persistence.create(getDefaultPersistenceContext(), withFamily(patient, prefix + "deleted")).getResource();
+        persistence.delete(getDefaultPersistenceContext(), Patient.class, created.getId());
+
+        // the same content must restore the deleted resource
+        Patient updated = persistence.update(getDefaultPersistenceContext(), created.getId(), created).getResource();
+
+        assertEquals(updated.getMeta().getVersionId().getValue(), "3");
+        assertEquals(runQueryTest(Patient.class, "family", prefix + "deleted").size(), 1);
+    }
+
+    @Test
+    public void testChangedIdentifier() throws Exception {
+        Patient patient = TestUtil.readExampleResource("json/ibm/minimal/Patient-1.json");
+        Patient created = persistence.create(getDefaultPersistenceContext(), withFamily(patient, prefix + "identifier").toBuilder()
+                .identifier(Collections.singletonList(identifier("1")))
+                .build()).getResource();
+
+        // Patient.identifier must not be mistaken for the excluded Patient.id
+        Patient updated = persistence.update(getDefaultPersistenceContext(), created.getId(), created.toBuilder()
+                .identifier(Collections.singletonList(identifier("2")))
+                .build()).getResource();
+
+        assertEquals(updated.getMeta().getVersionId().getValue(), "2");
+        assertEquals(updated.getIdentifier().get(0).getValue().getValue(), "2");
+    }
+
+    @Test
+    public void testChangedInteger() throws Exception {
+        Patient patient = TestUtil.readExampleResource("json/ibm/minimal/Patient-1.json");
+        Patient created = persistence.create(getDefaultPersistenceContext(), withFamily(patient, prefix + "integer").toBuilder()
+                .multipleBirth(com.ibm.fhir.model.type.Integer.of(1))
+                .build()).getResource();
+
+        Patient updated = persistence.update(getDefaultPersistenceContext(), created.getId(), created.toBuilder()
+                .multipleBirth(com.ibm.fhir.model.type.Integer.of(2))
+                .build()).getResource();
+
+        assertEquals(updated.getMeta().getVersionId().getValue(), "2");
+    }
+
+    @Test
+    public void testChangedBoolean() throws Exception {
+        Patient patient = TestUtil.readExampleResource("json/ibm/minimal/Patient-1.json");
+        Patient created = persistence.create(getDefaultPersistenceContext(), withFamily(patient, prefix + "boolean").toBuilder()
+                .active(com.ibm.fhir.model.type.Boolean.TRUE)
+                .build()).getResource();
+
+        Patient updated = persistence.update(getDefaultPersistenceContext(), created.getId(), created.toBuilder()
+                .active(com.ibm.fhir.model.type.Boolean.FALSE)
+                .build()).getResource();
+
+        assertEquals(updated.getMeta().getVersionId().getValue(), "2");
+    }
+
+    @Test
+    public void testReorderedArray() throws Exception {
+        Patient patient = TestUtil.readExampleResource("json/ibm/minimal/Patient-1.json");
+        Patient created = persistence.create(getDefaultPersistenceContext(), withFamily(patient, prefix + "array").toBuilder()
+                .identifier(Arrays.asList(identifier("1"), identifier("2")))
+                .build()).getResource();
+
+        // the order of repeating elements is significant
+        Patient updated = persistence.update(getDefaultPersistenceContext(), created.getId(), created.toBuilder()
+                .identifier(Arrays.asList(identifier("2"), identifier("1")))
+                .build()).getResource();
+
+        assertEquals(updated.getMeta().getVersionId().getValue(), "2");
+        assertEquals(updated.getIdentifier().get(0).getValue().getValue(), "2");
+    }
+
+    private Identifier identifier(String value) {
+        return Identifier.builder()
+                .system(Uri.of("http://example.com/" + prefix))
+                .value(string(value))
+                .build();
+    }
+
+    private Patient withFamily(Patient patient, String family) {
+        // the Collection variant replaces any existing names
+        return patient.toBuilder()
+                .name(Collections.singletonList(HumanName.builder().family(string(family)).build()))
+                .build();
+    }
+}
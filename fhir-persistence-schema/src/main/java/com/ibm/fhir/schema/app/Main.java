@@ -150,6 +150,10 @@ public class Main {
     private PoolConnectionProvider connectionPool;
     private ITransactionProvider transactionProvider;
 
+    // The block sizes of FHIR_SEQUENCE and FHIR_REF_SEQUENCE (ignored for Db2)
+    private int sequenceBlockSize = FhirSchemaConstants.FHIR_SEQUENCE_BLOCK_SIZE;
+    private int refSequenceBlockSize = FhirSchemaConstants.FHIR_REF_SEQUENCE_BLOCK_SIZE;
+
     // Random generator for new tenant keys and salts
     private static final SecureRandom random = new SecureRandom();
 
@@ -256,6 +260,20 @@ public class Main {
                     throw new IllegalArgumentException("Missing value for argument at posn: " + i);
                 }
                 break;
+            case "--sequence-block-size":
+                if (++i < args.length) {
+                    this.sequenceBlockSize = Integer.parseInt(args[i]);
+                } else {
+                    throw new IllegalArgumentException("Missing value for argument at posn: " + i);
+                }
+                break;
+            case "--ref-sequence-block-size":
+                if (++i < args.length) {
+                    this.refSequenceBlockSize = Integer.parseInt(args[i]);
+                } else {
+                    throw new IllegalArgumentException("Missing value for argument at posn: " + i);
+                }
+                break;
             case "--prop":
                 if (++i < args.length) {
                     // properties are given as name=value
@@ -564,6 +582,7 @@ public class Main {
 
         // Build/update the FHIR-related tables as well as the stored procedures
         FhirSchemaGenerator gen = new FhirSchemaGenerator(adminSchemaName, schemaName);
+        gen.setSequenceBlockSizes(sequenceBlockSize, refSequenceBlockSize);
         PhysicalDataModel pdm = new PhysicalDataModel();
         gen.buildSchema(pdm);
         gen.buildProcedures(pdm);
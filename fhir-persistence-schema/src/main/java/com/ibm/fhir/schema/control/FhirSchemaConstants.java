@@ -32,6 +32,13 @@ public class FhirSchemaConstants {
 
     public static final String FHIR_SEQUENCE = "FHIR_SEQUENCE";
     public static final String FHIR_REF_SEQUENCE = "FHIR_REF_SEQUENCE";
+
+    // The version of FHIR_SEQUENCE and FHIR_REF_SEQUENCE which increments them by the block size
+    public static final int SEQUENCE_BLOCK_VERSION = 2;
+    // Each value the FHIR server gets from the sequence reserves the block of values up to the next one
+    public static final int FHIR_SEQUENCE_BLOCK_SIZE = 1000;
+    // The reference values are INTs and only allocated for new parameter names and code systems
+    public static final int FHIR_REF_SEQUENCE_BLOCK_SIZE = 100;
     public static final String TENANT_SEQUENCE = "TENANT_SEQUENCE";
 
     // Tenant constants
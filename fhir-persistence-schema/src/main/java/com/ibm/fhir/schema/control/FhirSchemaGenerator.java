@@ -129,6 +129,10 @@ public class FhirSchemaGenerator {
     // The sequence used for the reference tables (parameter_names, code_systems etc)
     private Sequence fhirRefSequence;
 
+    // The increments of the sequences, which the FHIR server uses as the size of the blocks it allocates
+    private int fhirSequenceBlockSize = FhirSchemaConstants.FHIR_SEQUENCE_BLOCK_SIZE;
+    private int fhirRefSequenceBlockSize = FhirSchemaConstants.FHIR_REF_SEQUENCE_BLOCK_SIZE;
+
     // The set of dependencies common to all of our resource procedures
     private Set<IDatabaseObject> procedureDependencies = new HashSet<>();
 
@@ -719,6 +723,7 @@ public class FhirSchemaGenerator {
     CREATE SEQUENCE fhir_sequence
              AS BIGINT
      START WITH 1
+   INCREMENT BY 1000
           CACHE 1000
        NO CYCLE;
      * </pre>
@@ -726,7 +731,8 @@ public class FhirSchemaGenerator {
      * @param pdm
      */
     protected void addFhirSequence(PhysicalDataModel pdm) {
-        this.fhirSequence = new Sequence(schemaName, FHIR_SEQUENCE, FhirSchemaConstants.INITIAL_VERSION, 1000);
+        this.fhirSequence = new Sequence(schemaName, FHIR_SEQUENCE, FhirSchemaConstants.SEQUENCE_BLOCK_VERSION, 1000,
+                this.fhirSequenceBlockSize);
         this.fhirSequence.addTag(SCHEMA_GROUP_TAG, FHIRDATA_GROUP);
         procedureDependencies.add(fhirSequence);
         sequencePrivileges.forEach(p -> p.addToObject(fhirSequence));
@@ -735,7 +741,8 @@ public class FhirSchemaGenerator {
     }
 
     protected void addFhirRefSequence(PhysicalDataModel pdm) {
-        this.fhirRefSequence = new Sequence(schemaName, FHIR_REF_SEQUENCE, FhirSchemaConstants.INITIAL_VERSION, 1000);
+        this.fhirRefSequence = new Sequence(schemaName, FHIR_REF_SEQUENCE, FhirSchemaConstants.SEQUENCE_BLOCK_VERSION, 1000,
+                this.fhirRefSequenceBlockSize);
         this.fhirRefSequence.addTag(SCHEMA_GROUP_TAG, FHIRDATA_GROUP);
         procedureDependencies.add(fhirRefSequence);
         sequencePrivileges.forEach(p -> p.addToObject(fhirRefSequence));
@@ -743,6 +750,21 @@ public class FhirSchemaGenerator {
         pdm.addObject(fhirRefSequence);
     }
 
+    /**
+     * Set the block sizes of FHIR_SEQUENCE and FHIR_REF_SEQUENCE, which are applied when the sequences are
+     * created or upgraded to version {@link FhirSchemaConstants#SEQUENCE_BLOCK_VERSION}.
+     * A block size of 1 allocates each value from the database.
+     * @param fhirSequenceBlockSize
+     * @param fhirRefSequenceBlockSize
+     */
+    public void setSequenceBlockSizes(int fhirSequenceBlockSize, int fhirRefSequenceBlockSize) {
+        if (fhirSequenceBlockSize < 1 || fhirRefSequenceBlockSize < 1) {
+            throw new IllegalArgumentException("Sequence block sizes must be at least 1");
+        }
+        this.fhirSequenceBlockSize = fhirSequenceBlockSize;
+        this.fhirRefSequenceBlockSize = fhirRefSequenceBlockSize;
+    }
+
     /**
      * Visitor for the resource types
      * @param consumer
@@ -106,6 +106,23 @@ public interface FHIRPersistence {
      */
     MultiResourceResult<Resource> search(FHIRPersistenceContext context, Class<? extends Resource> resourceType) throws FHIRPersistenceException;
 
+    /**
+     * Performs a search like {@link #search(FHIRPersistenceContext, Class)}, but passes the JSON of each resource
+     * in the search result set to the given consumer instead of returning the resources. This lets callers which
+     * only write the resources out (e.g. bulk export) avoid parsing them into model objects.
+     *
+     * @param context the FHIRPersistenceContext instance associated with the current request
+     * @param resourceType the resource type which is the target of the search
+     * @param consumer receives the JSON of each resource in the search result set, in order
+     * @return a MultiResourceResult without any resources and/or
+     *         an OperationOutcome with hints, warnings, or errors related to the interaction
+     * @throws FHIRPersistenceException
+     */
+    default MultiResourceResult<Resource> searchRaw(FHIRPersistenceContext context, Class<? extends Resource> resourceType,
+            RawResourceConsumer consumer) throws FHIRPersistenceException {
+        throw new FHIRPersistenceNotSupportedException("The 'searchRaw' operation is not supported by this persistence implementation");
+    }
+
     /**
      * Returns true iff the persistence layer implementation supports transactions.
      */
@@ -130,4 +147,11 @@ public interface FHIRPersistence {
     default boolean isDeleteSupported() {
         return false;
     }
+
+    /**
+     * Returns true iff the persistence layer implementation supports the "searchRaw" operation.
+     */
+    default boolean isRawSearchSupported() {
+        return false;
+    }
 }
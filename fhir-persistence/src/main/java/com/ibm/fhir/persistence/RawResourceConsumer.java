@@ -0,0 +1,29 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.persistence;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Receives the JSON representation of each resource found by
+ * {@link FHIRPersistence#searchRaw(com.ibm.fhir.persistence.context.FHIRPersistenceContext, Class, RawResourceConsumer)},
+ * so that it can be copied to an output without parsing it into a model object.
+ */
+@FunctionalInterface
+public interface RawResourceConsumer {
+
+    /**
+     * Consume the JSON of a single resource.
+     *
+     * @param logicalId the logical id of the resource
+     * @param json the JSON representation of the resource, including its id and meta, on a single line;
+     *        the stream is closed by the caller after this method returns
+     * @throws IOException
+     */
+    void accept(String logicalId, InputStream json) throws IOException;
+}
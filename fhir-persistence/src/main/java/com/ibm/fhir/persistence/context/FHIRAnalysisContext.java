@@ -0,0 +1,55 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.persistence.context;
+
+import com.ibm.fhir.model.resource.Resource;
+import com.ibm.fhir.path.FHIRPathTree;
+import com.ibm.fhir.path.evaluator.FHIRPathEvaluator.EvaluationContext;
+
+/**
+ * This context holds the FHIRPath trees built for the resources of a single request, so that validation,
+ * search parameter extraction and persistence interceptors can share one tree per resource instead of
+ * each building their own.
+ *
+ * <p>Trees are keyed by resource identity: model objects are immutable, so a tree remains valid for as long
+ * as the resource instance it was built from. Note that the persistence layer stores a new resource instance
+ * (with the id and meta assigned), which gets a tree of its own.
+ */
+public interface FHIRAnalysisContext {
+
+    /**
+     * Returns the tree of the passed resource, building a lazy tree if there isn't one yet.
+     * @param resource the resource
+     */
+    FHIRPathTree getTree(Resource resource);
+
+    /**
+     * Returns the tree of the passed resource, building one if there isn't one yet.
+     * @param resource the resource
+     * @param lazy true if a newly built tree should create its nodes on first navigation; callers which visit
+     *        the whole resource (e.g. validation) should pass false
+     */
+    FHIRPathTree getTree(Resource resource, boolean lazy);
+
+    /**
+     * Returns a new EvaluationContext over the shared tree of the passed resource.
+     * EvaluationContexts hold per-evaluation state, so they are not shared.
+     * @param resource the resource
+     */
+    EvaluationContext createEvaluationContext(Resource resource);
+
+    /**
+     * Drops the tree of the passed resource, if any.
+     * @param resource the resource
+     */
+    void release(Resource resource);
+
+    /**
+     * Drops all the trees held by this context; called at the end of the request.
+     */
+    void release();
+}
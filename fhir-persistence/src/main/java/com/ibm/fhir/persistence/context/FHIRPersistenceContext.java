@@ -1,5 +1,5 @@
 /*
- * (C) Copyright IBM Corp. 2016,2019
+ * (C) Copyright IBM Corp. 2016, 2020
  *
  * SPDX-License-Identifier: Apache-2.0
  */
@@ -38,4 +38,13 @@ public interface FHIRPersistenceContext {
      * Indicates whether the persistence layer should include "deleted" resources in the operation response.
      */
     boolean includeDeleted();
+    
+    /**
+     * Returns the FHIRAnalysisContext instance associated with the current request, which holds the FHIRPath
+     * trees shared by validation, search parameter extraction and interceptors.
+     * This will be null if the caller did not supply one, in which case the persistence layer builds its own.
+     */
+    default FHIRAnalysisContext getAnalysisContext() {
+        return null;
+    }
 }
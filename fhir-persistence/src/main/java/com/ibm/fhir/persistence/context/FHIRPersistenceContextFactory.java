@@ -1,11 +1,12 @@
 /*
- * (C) Copyright IBM Corp. 2016,2019
+ * (C) Copyright IBM Corp. 2016, 2020
  *
  * SPDX-License-Identifier: Apache-2.0
  */
 
 package com.ibm.fhir.persistence.context;
 
+import com.ibm.fhir.persistence.context.impl.FHIRAnalysisContextImpl;
 import com.ibm.fhir.persistence.context.impl.FHIRHistoryContextImpl;
 import com.ibm.fhir.persistence.context.impl.FHIRPersistenceContextImpl;
 import com.ibm.fhir.persistence.interceptor.FHIRPersistenceEvent;
@@ -57,6 +58,13 @@ public class FHIRPersistenceContextFactory {
         return new FHIRPersistenceContextImpl(event, searchContext);
     }
     
+    /**
+     * Returns a new, empty FHIRAnalysisContext instance.
+     */
+    public static FHIRAnalysisContext createAnalysisContext() {
+        return new FHIRAnalysisContextImpl();
+    }
+    
     /**
      * Returns a FHIRHistoryContext instance with default values.
      */
@@ -0,0 +1,61 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.persistence.context.impl;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import com.ibm.fhir.model.resource.Resource;
+import com.ibm.fhir.path.FHIRPathTree;
+import com.ibm.fhir.path.evaluator.FHIRPathEvaluator.EvaluationContext;
+import com.ibm.fhir.persistence.context.FHIRAnalysisContext;
+
+/**
+ * The default implementation of FHIRAnalysisContext. It may be used by several threads, e.g. for the entries
+ * of a batch bundle which are processed concurrently.
+ */
+public class FHIRAnalysisContextImpl implements FHIRAnalysisContext {
+
+    private final Map<Resource, FHIRPathTree> trees = Collections.synchronizedMap(new IdentityHashMap<>());
+
+    @Override
+    public FHIRPathTree getTree(Resource resource) {
+        return getTree(resource, true);
+    }
+
+    @Override
+    public FHIRPathTree getTree(Resource resource, boolean lazy) {
+        FHIRPathTree tree = trees.get(resource);
+        if (tree == null) {
+            // built outside of the lock so that concurrent entries don't wait on each other
+            tree = lazy ? FHIRPathTree.lazyTree(resource) : FHIRPathTree.tree(resource);
+            FHIRPathTree previous = trees.putIfAbsent(resource, tree);
+            if (previous != null) {
+                tree = previous;
+            }
+        }
+        return tree;
+    }
+
+    @Override
+    public EvaluationContext createEvaluationContext(Resource resource) {
+        return new EvaluationContext(getTree(resource));
+    }
+
+    @Override
+    public void release(Resource resource) {
+        if (resource != null) {
+            trees.remove(resource);
+        }
+    }
+
+    @Override
+    public void release() {
+        trees.clear();
+    }
+}
@@ -1,11 +1,12 @@
 /*
- * (C) Copyright IBM Corp. 2016,2019
+ * (C) Copyright IBM Corp. 2016, 2020
  *
  * SPDX-License-Identifier: Apache-2.0
  */
 
 package com.ibm.fhir.persistence.context.impl;
 
+import com.ibm.fhir.persistence.context.FHIRAnalysisContext;
 import com.ibm.fhir.persistence.context.FHIRHistoryContext;
 import com.ibm.fhir.persistence.context.FHIRPersistenceContext;
 import com.ibm.fhir.persistence.interceptor.FHIRPersistenceEvent;
@@ -78,6 +79,11 @@ public class FHIRPersistenceContextImpl implements FHIRPersistenceContext {
         return includeDeleted;
     }
     
+    @Override
+    public FHIRAnalysisContext getAnalysisContext() {
+        return (persistenceEvent != null) ? persistenceEvent.getAnalysisContext() : null;
+    }
+    
     public void setIncludeDeleted(boolean includeDeleted) {
         this.includeDeleted = includeDeleted;
     }
@@ -12,6 +12,7 @@ import java.util.Map;
 import com.ibm.fhir.model.resource.Resource;
 import com.ibm.fhir.model.util.ModelSupport;
 import com.ibm.fhir.persistence.FHIRPersistence;
+import com.ibm.fhir.persistence.context.FHIRAnalysisContext;
 
 /**
  * This class represents an event fired by the FHIR persistence interceptor framework.
@@ -60,6 +61,7 @@ public class FHIRPersistenceEvent {
     private Resource prevFhirResource = null;
     private boolean  prevFhirResourceSet = false;
     private Map<String, Object> properties;
+    private FHIRAnalysisContext analysisContext;
     
     /**
      * Default ctor.
@@ -171,6 +173,22 @@ public class FHIRPersistenceEvent {
         return (FHIRPersistence) getProperty(PROPNAME_PERSISTENCE_IMPL);
     }
     
+    /**
+     * Returns the FHIRAnalysisContext of the current request, which interceptors can use to evaluate
+     * FHIRPath expressions against the resource without building another tree. This may be null.
+     */
+    public FHIRAnalysisContext getAnalysisContext() {
+        return analysisContext;
+    }
+    
+    /**
+     * Sets the FHIRAnalysisContext of the current request.
+     * Interceptor implementations should *not* call this method.  This method is reserved for use by the FHIR Server.
+     */
+    public void setAnalysisContext(FHIRAnalysisContext analysisContext) {
+        this.analysisContext = analysisContext;
+    }
+    
     /**
      * Retrieves the named property from the set of properties available to the interceptor.
      * @param propertyName the name of the property to retrieve.
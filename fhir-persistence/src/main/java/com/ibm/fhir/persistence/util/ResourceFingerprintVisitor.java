@@ -1,5 +1,5 @@
 /*
- * (C) Copyright IBM Corp. 2019
+ * (C) Copyright IBM Corp. 2019, 2020
  *
  * SPDX-License-Identifier: Apache-2.0
  */
@@ -7,7 +7,6 @@
 package com.ibm.fhir.persistence.util;
 
 import java.math.BigDecimal;
-import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
@@ -105,7 +104,9 @@ public class ResourceFingerprintVisitor extends PathAwareVisitor {
     public void visit(java.lang.String elementName, byte[] value) {
         if (includePath()) {
             digest.update(getPath().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
             digest.update(value);
+            digest.update((byte) 0);
         }
     }
     
@@ -126,9 +127,7 @@ public class ResourceFingerprintVisitor extends PathAwareVisitor {
     @Override
     public void visit(java.lang.String elementName, java.lang.Integer value) {
         if (includePath()) {
-            ByteBuffer bb = ByteBuffer.allocate(4);
-            bb.putInt(value);
-            digest.update(bb);
+            updateDigest(getPath(), value.toString());
         }
     }
 
@@ -147,8 +146,8 @@ public class ResourceFingerprintVisitor extends PathAwareVisitor {
     @Override
     public void doVisit(java.lang.String elementName, java.lang.String value) {
         // exclude the id and meta.versionId values from the fingerprint 
-        // because they are injected by FHIR. NOTE: startsWith is important
-        // because we need to ignore any extension fields which may be
+        // because they are injected by FHIR. NOTE: child paths are excluded
+        // too because we need to ignore any extension fields which may be
         // present
         if (includePath()) {
             updateDigest(getPath(), value);
@@ -182,8 +181,11 @@ public class ResourceFingerprintVisitor extends PathAwareVisitor {
      * @param value
      */
     protected void updateDigest(String name, String value) {
+        // the separators keep a name/value pair from matching a different split of the same characters
         digest.update(name.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
         digest.update(value.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
     }
     
     /**
@@ -195,7 +197,25 @@ public class ResourceFingerprintVisitor extends PathAwareVisitor {
         String versionIdName = currentResourceName + ".meta.versionId";
         String lastUpdatedName = currentResourceName + ".meta.lastUpdated";
         String path = getPath();
-        return !path.startsWith(idName) && !path.startsWith(versionIdName) && !path.startsWith(lastUpdatedName);
-        
+        return !isPathOf(path, idName) && !isPathOf(path, versionIdName) && !isPathOf(path, lastUpdatedName);
+    }
+
+    /**
+     * Test whether the path is the given element or one of its children (e.g. its value or
+     * extensions), but not a sibling whose name merely starts the same way (e.g. Patient.identifier
+     * for Patient.id)
+     * @param path
+     * @param elementPath
+     * @return
+     */
+    private static boolean isPathOf(String path, String elementPath) {
+        if (!path.startsWith(elementPath)) {
+            return false;
+        }
+        if (path.length() == elementPath.length()) {
+            return true;
+        }
+        char next = path.charAt(elementPath.length());
+        return next == '.' || next == '[';
     }
 }
@@ -1,5 +1,5 @@
 /*
- * (C) Copyright IBM Corp. 2017,2019
+ * (C) Copyright IBM Corp. 2017, 2020
  *
  * SPDX-License-Identifier: Apache-2.0
  */
@@ -9,11 +9,16 @@ package com.ibm.fhir.persistence.test;
 import static org.testng.AssertJUnit.assertEquals;
 import static org.testng.AssertJUnit.assertFalse;
 import static org.testng.AssertJUnit.assertNotNull;
+import static org.testng.AssertJUnit.assertNotSame;
 import static org.testng.AssertJUnit.assertNull;
+import static org.testng.AssertJUnit.assertSame;
 import static org.testng.AssertJUnit.assertTrue;
 
 import org.testng.annotations.Test;
 
+import com.ibm.fhir.model.resource.Patient;
+import com.ibm.fhir.path.FHIRPathTree;
+import com.ibm.fhir.persistence.context.FHIRAnalysisContext;
 import com.ibm.fhir.persistence.context.FHIRHistoryContext;
 import com.ibm.fhir.persistence.context.FHIRPersistenceContext;
 import com.ibm.fhir.persistence.context.FHIRPersistenceContextFactory;
@@ -87,4 +92,39 @@ public class FHIRPersistenceContextTest {
         assertFalse(ctxt.includeDeleted());
         assertNull(ctxt.getHistoryContext());
     }
+
+    @Test
+    public void test5() {
+        FHIRPersistenceEvent pe = new FHIRPersistenceEvent();
+        FHIRPersistenceContext ctxt = FHIRPersistenceContextFactory.createPersistenceContext(pe);
+        assertNull(ctxt.getAnalysisContext());
+
+        FHIRAnalysisContext ac = FHIRPersistenceContextFactory.createAnalysisContext();
+        pe.setAnalysisContext(ac);
+        assertSame(ac, ctxt.getAnalysisContext());
+    }
+
+    @Test
+    public void test6() {
+        FHIRAnalysisContext ac = FHIRPersistenceContextFactory.createAnalysisContext();
+        Patient patient = Patient.builder().id("1").build();
+
+        // one tree per resource instance, whichever kind was asked for first
+        FHIRPathTree tree = ac.getTree(patient, false);
+        assertFalse(tree.isLazy());
+        assertSame(tree, ac.getTree(patient));
+        assertSame(tree, ac.createEvaluationContext(patient).getTree());
+
+        // an equal resource is a different instance
+        Patient other = patient.toBuilder().build();
+        assertNotSame(tree, ac.getTree(other));
+        assertTrue(ac.getTree(other).isLazy());
+
+        ac.release(patient);
+        assertNotSame(tree, ac.getTree(patient));
+
+        FHIRPathTree otherTree = ac.getTree(other);
+        ac.release();
+        assertNotSame(otherTree, ac.getTree(other));
+    }
 }
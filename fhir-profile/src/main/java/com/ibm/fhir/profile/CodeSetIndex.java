@@ -0,0 +1,124 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.profile;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import com.ibm.fhir.model.resource.ValueSet.Expansion.Contains;
+
+/**
+ * The codes of an expanded value set, indexed by code system so that membership checks are hash lookups.
+ *
+ * <p>An index never changes after it is built.
+ */
+public final class CodeSetIndex {
+    /**
+     * The version used for codes whose version was not available during the expansion.
+     */
+    public static final String VERSION_UNKNOWN = "<version unknown>";
+
+    public static final CodeSetIndex EMPTY = new CodeSetIndex(Collections.emptySet());
+
+    // code sets keyed by "system|version"
+    private final Map<String, Set<String>> codeSetMap;
+    // the first code set of each system, used when the version is not known
+    private final Map<String, Set<String>> systemCodeSetMap;
+    // the codes of all systems, used when the system is not known
+    private final Set<String> codes;
+
+    /**
+     * @param contains
+     *     the flattened contains of a value set expansion
+     */
+    public CodeSetIndex(Collection<Contains> contains) {
+        Map<String, Set<String>> codeSetMap = new LinkedHashMap<>();
+        Map<String, Set<String>> systemCodeSetMap = new HashMap<>();
+        Set<String> codes = new HashSet<>();
+        for (Contains c : contains) {
+            String system = (c.getSystem() != null) ? c.getSystem().getValue() : null;
+            String version = (c.getVersion() != null && c.getVersion().getValue() != null) ? c.getVersion().getValue() : VERSION_UNKNOWN;
+            String code = (c.getCode() != null) ? c.getCode().getValue() : null;
+            if (system != null && code != null) {
+                Set<String> codeSet = codeSetMap.computeIfAbsent(system + "|" + version, k -> new HashSet<>());
+                systemCodeSetMap.putIfAbsent(system, codeSet);
+                codeSet.add(code);
+                codes.add(code);
+            }
+        }
+        this.codeSetMap = codeSetMap;
+        this.systemCodeSetMap = systemCodeSetMap;
+        this.codes = codes;
+    }
+
+    /**
+     * @return
+     *     true if the expansion has no codes
+     */
+    public boolean isEmpty() {
+        return codeSetMap.isEmpty();
+    }
+
+    /**
+     * @return
+     *     the number of distinct system, version and code combinations
+     */
+    public int size() {
+        int size = 0;
+        for (Set<String> codeSet : codeSetMap.values()) {
+            size += codeSet.size();
+        }
+        return size;
+    }
+
+    /**
+     * Determine whether the provided code is in the code set associated with the provided system and version.
+     *
+     * <p>If the system and version are non-null, then the code set of that system and version is checked and, if
+     * the code is not found there, the code set of the system with an unknown version (in cases where the expanded
+     * value set did not have a version available during the expansion). If only the system is non-null, then the
+     * first code set of the system is checked. Finally, if both system and version are null, the codes of all
+     * systems are checked.
+     *
+     * @param system
+     *     the system of the code (can be null)
+     * @param version
+     *     the version of the system (can be null)
+     * @param code
+     *     the code
+     * @return
+     *     true if a code set is found and the provided code is a member of that code set, false otherwise
+     */
+    public boolean contains(String system, String version, String code) {
+        if (system != null && version != null) {
+            Set<String> codeSet = codeSetMap.get(system + "|" + version);
+            if (codeSet != null) {
+                if (codeSet.contains(code)) {
+                    return true;
+                } else {
+                    codeSet = codeSetMap.get(system + "|" + VERSION_UNKNOWN);
+                    if (codeSet != null) {
+                        return codeSet.contains(code);
+                    }
+                }
+            }
+        } else if (system != null) {
+            Set<String> codeSet = systemCodeSetMap.get(system);
+            if (codeSet != null) {
+                return codeSet.contains(code);
+            }
+        } else {
+            return codes.contains(code);
+        }
+        return false;
+    }
+}
@@ -1,11 +1,12 @@
 /*
- * (C) Copyright IBM Corp. 2019
+ * (C) Copyright IBM Corp. 2019, 2020
  *
  * SPDX-License-Identifier: Apache-2.0
  */
 
 package com.ibm.fhir.profile;
 
+import static com.ibm.fhir.core.util.ConcurrentLRUCache.createCache;
 import static com.ibm.fhir.model.type.String.string;
 import static com.ibm.fhir.profile.CodeSystemSupport.findConcept;
 import static com.ibm.fhir.profile.CodeSystemSupport.getCodeSystem;
@@ -20,6 +21,7 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.logging.Level;
@@ -30,6 +32,7 @@ import java.util.stream.Collectors;
 import com.ibm.fhir.model.resource.CodeSystem;
 import com.ibm.fhir.model.resource.CodeSystem.Concept;
 import com.ibm.fhir.model.resource.Resource;
+import com.ibm.fhir.model.resource.StructureDefinition;
 import com.ibm.fhir.model.resource.ValueSet;
 import com.ibm.fhir.model.resource.ValueSet.Compose;
 import com.ibm.fhir.model.resource.ValueSet.Compose.Include;
@@ -43,9 +46,12 @@ import com.ibm.fhir.model.type.CodeableConcept;
 import com.ibm.fhir.model.type.DateTime;
 import com.ibm.fhir.model.type.Decimal;
 import com.ibm.fhir.model.type.Element;
+import com.ibm.fhir.model.type.ElementDefinition;
+import com.ibm.fhir.model.type.ElementDefinition.Binding;
 import com.ibm.fhir.model.type.Integer;
 import com.ibm.fhir.model.type.String;
 import com.ibm.fhir.model.type.Uri;
+import com.ibm.fhir.model.type.code.BindingStrength;
 import com.ibm.fhir.model.type.code.CodeSystemContentMode;
 import com.ibm.fhir.model.type.code.CodeSystemHierarchyMeaning;
 import com.ibm.fhir.model.type.code.FilterOperator;
@@ -57,6 +63,9 @@ import com.ibm.fhir.registry.FHIRRegistry;
 public final class ValueSetSupport {
     private static final Logger log = Logger.getLogger(ValueSetSupport.class.getName());
 
+    // code set indexes keyed by value set "url|version"
+    private static final Map<java.lang.String, CodeSetIndex> CODE_SET_INDEX_CACHE = createCache(2048);
+
     private ValueSetSupport() { }
 
     /**
@@ -81,6 +90,100 @@ public final class ValueSetSupport {
         return valueSet;
     }
 
+    /**
+     * Get the code set index of the value set associated with the given url from the FHIR registry.
+     *
+     * @param url
+     *     the url of the value set
+     * @return
+     *     the code set index of the expanded value set, or null if no such value set exists
+     */
+    public static CodeSetIndex getCodeSetIndex(java.lang.String url) {
+        ValueSet valueSet = getValueSet(url);
+        return (valueSet != null) ? getCodeSetIndex(valueSet) : null;
+    }
+
+    /**
+     * Get the code set index of the given value set. The index is built from the expansion of the value set the
+     * first time it is requested and then cached by the url and version of the value set.
+     *
+     * @param valueSet
+     *     the value set
+     * @return
+     *     the code set index of the expanded value set, which is empty if the value set is empty or could not be
+     *     expanded
+     */
+    public static CodeSetIndex getCodeSetIndex(ValueSet valueSet) {
+        java.lang.String key = getKey(valueSet);
+        if (key == null) {
+            return computeCodeSetIndex(valueSet);
+        }
+        return CODE_SET_INDEX_CACHE.computeIfAbsent(key, k -> computeCodeSetIndex(valueSet));
+    }
+
+    /**
+     * Build the code set indexes of all the value sets bound (with a binding strength other than example) to an element
+     * of the structure definitions in the FHIR registry, so that they are available before the first membership check.
+     *
+     * @return
+     *     the number of value sets whose code set index is available
+     */
+    public static int precomputeCodeSetIndexes() {
+        Set<java.lang.String> urls = new LinkedHashSet<>();
+        for (StructureDefinition structureDefinition : FHIRRegistry.getInstance().getResources(StructureDefinition.class)) {
+            if (structureDefinition.getSnapshot() == null) {
+                continue;
+            }
+            for (ElementDefinition elementDefinition : structureDefinition.getSnapshot().getElement()) {
+                Binding binding = elementDefinition.getBinding();
+                if (binding != null && binding.getValueSet() != null && binding.getValueSet().getValue() != null &&
+                        !BindingStrength.EXAMPLE.equals(binding.getStrength())) {
+                    urls.add(binding.getValueSet().getValue());
+                }
+            }
+        }
+        int count = 0;
+        for (java.lang.String url : urls) {
+            if (hasResource(url, ValueSet.class) && !getCodeSetIndex(url).isEmpty()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Discard the cached code set indexes, for example after a value set or code system was changed.
+     */
+    public static void clearCodeSetIndexCache() {
+        CODE_SET_INDEX_CACHE.clear();
+    }
+
+    private static CodeSetIndex computeCodeSetIndex(ValueSet valueSet) {
+        try {
+            ValueSet expanded = expand(valueSet);
+            if (expanded == null || expanded.getExpansion() == null) {
+                return CodeSetIndex.EMPTY;
+            }
+            return new CodeSetIndex(getContains(expanded.getExpansion()));
+        } catch (Exception e) {
+            java.lang.String url = (valueSet.getUrl() != null) ? valueSet.getUrl().getValue() : "<no url>";
+            java.lang.String version = (valueSet.getVersion() != null) ? valueSet.getVersion().getValue() : "<no version>";
+            log.log(Level.WARNING, java.lang.String.format("Unable to expand value set with url: %s and version: %s", url, version), e);
+        }
+        return CodeSetIndex.EMPTY;
+    }
+
+    private static java.lang.String getKey(ValueSet valueSet) {
+        if (valueSet.getUrl() == null || valueSet.getUrl().getValue() == null) {
+            return null;
+        }
+        java.lang.String url = valueSet.getUrl().getValue();
+        if (valueSet.getVersion() != null && valueSet.getVersion().getValue() != null) {
+            return url + "|" + valueSet.getVersion().getValue();
+        }
+        return url;
+    }
+
     public static boolean isExpanded(ValueSet valueSet) {
         return valueSet != null && valueSet.getExpansion() != null;
     }
@@ -0,0 +1,77 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.profile.test;
+
+import static com.ibm.fhir.model.type.String.string;
+import static com.ibm.fhir.profile.ValueSetSupport.getCodeSetIndex;
+import static com.ibm.fhir.profile.ValueSetSupport.getValueSet;
+
+import java.util.Arrays;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.ibm.fhir.model.resource.ValueSet.Expansion.Contains;
+import com.ibm.fhir.model.type.Code;
+import com.ibm.fhir.model.type.Uri;
+import com.ibm.fhir.profile.CodeSetIndex;
+import com.ibm.fhir.profile.ValueSetSupport;
+
+public class CodeSetIndexTest {
+    private static final String CS1 = "http://ibm.com/fhir/CodeSystem/cs1";
+
+    @Test
+    public void testGetCodeSetIndex() {
+        CodeSetIndex codeSetIndex = getCodeSetIndex("http://ibm.com/fhir/ValueSet/vs1|1.0.0");
+        Assert.assertEquals(codeSetIndex.size(), 3);
+        Assert.assertTrue(codeSetIndex.contains(CS1, "1.0.0", "a"));
+        Assert.assertTrue(codeSetIndex.contains(CS1, null, "b"));
+        Assert.assertTrue(codeSetIndex.contains(null, null, "c"));
+        Assert.assertFalse(codeSetIndex.contains(CS1, "1.0.0", "d"));
+        Assert.assertFalse(codeSetIndex.contains(CS1, "2.0.0", "a"));
+        Assert.assertFalse(codeSetIndex.contains("http://ibm.com/fhir/CodeSystem/other", null, "a"));
+    }
+
+    @Test
+    public void testCached() {
+        // the index is cached by the url and version of the value set, whichever reference was used
+        CodeSetIndex codeSetIndex = getCodeSetIndex("http://ibm.com/fhir/ValueSet/vs2|1.0.0");
+        Assert.assertSame(getCodeSetIndex("http://ibm.com/fhir/ValueSet/vs2"), codeSetIndex);
+        Assert.assertSame(getCodeSetIndex(getValueSet("http://ibm.com/fhir/ValueSet/vs2")), codeSetIndex);
+
+        ValueSetSupport.clearCodeSetIndexCache();
+        Assert.assertNotSame(getCodeSetIndex("http://ibm.com/fhir/ValueSet/vs2"), codeSetIndex);
+    }
+
+    @Test
+    public void testNotFound() {
+        Assert.assertNull(getCodeSetIndex("http://ibm.com/fhir/ValueSet/not-found"));
+    }
+
+    @Test
+    public void testVersionUnknown() {
+        CodeSetIndex codeSetIndex = new CodeSetIndex(Arrays.asList(
+            contains(CS1, "1.0.0", "a"),
+            contains(CS1, null, "b")));
+        Assert.assertTrue(codeSetIndex.contains(CS1, "1.0.0", "a"));
+        // falls back to the codes whose version was unknown during the expansion
+        Assert.assertTrue(codeSetIndex.contains(CS1, "1.0.0", "b"));
+        Assert.assertTrue(codeSetIndex.contains(CS1, CodeSetIndex.VERSION_UNKNOWN, "b"));
+        // only the first code set of the system is checked when the version is not known
+        Assert.assertTrue(codeSetIndex.contains(CS1, null, "a"));
+        Assert.assertFalse(codeSetIndex.contains(CS1, null, "b"));
+        Assert.assertTrue(CodeSetIndex.EMPTY.isEmpty());
+    }
+
+    private Contains contains(String system, String version, String code) {
+        return Contains.builder()
+            .system(Uri.of(system))
+            .version((version != null) ? string(version) : null)
+            .code(Code.of(code))
+            .build();
+    }
+}
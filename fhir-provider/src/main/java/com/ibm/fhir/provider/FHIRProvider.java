@@ -84,6 +84,10 @@ public class FHIRProvider implements MessageBodyReader<Resource>, MessageBodyWri
                 parser.setProperty(FHIRParser.PROPERTY_IGNORE_UNRECOGNIZED_ELEMENTS,
                         HTTPHandlingPreference.LENIENT.equals(requestContext.getHandlingPreference()));
             }
+            if (parser.isPropertySupported(FHIRParser.PROPERTY_JSON_STREAMING)) {
+                parser.setProperty(FHIRParser.PROPERTY_JSON_STREAMING,
+                        FHIRConfigHelper.getBooleanProperty(FHIRConfiguration.PROPERTY_JSON_PARSER_STREAMING, false));
+            }
             return parser.parse(entityStream);
         } catch (FHIRParserException e) {
             if (RuntimeType.SERVER.equals(runtimeType)) {
@@ -132,7 +136,7 @@ public class FHIRProvider implements MessageBodyReader<Resource>, MessageBodyWri
         }
     }
 
-    protected static boolean isPretty(HttpHeaders httpHeaders, UriInfo uriInfo) {
+    public static boolean isPretty(HttpHeaders httpHeaders, UriInfo uriInfo) {
         // Header evaluation
         String value = httpHeaders.getHeaderString(FHIRConfiguration.DEFAULT_PRETTY_RESPONSE_HEADER_NAME);
 
@@ -0,0 +1,167 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.search.parameters.cache;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.ibm.fhir.model.resource.SearchParameter;
+import com.ibm.fhir.model.util.ModelSupport;
+import com.ibm.fhir.path.evaluator.FHIRPathEvaluator;
+import com.ibm.fhir.path.evaluator.FHIRPathEvaluator.CompiledExpression;
+import com.ibm.fhir.search.parameters.ParametersMap;
+
+/**
+ * This class holds, for a single tenant, the search parameters which apply to each resource type after the tenant's
+ * search parameter filtering rules have been applied, along with a map of them by code and their compiled FHIRPath
+ * expressions.
+ *
+ * <p>An index is built from a snapshot of the tenant's filtering rules and extension search parameters and never
+ * changes afterwards; when either of those sources changes, the caller replaces the whole index with a new one.
+ * The entry for each resource type is computed the first time it is requested.
+ */
+public class ApplicableSearchParameterIndex {
+    private static final String CLASSNAME = ApplicableSearchParameterIndex.class.getName();
+    private static final Logger log = Logger.getLogger(CLASSNAME);
+
+    /**
+     * Builds the list of search parameters which apply to a resource type.
+     */
+    @FunctionalInterface
+    public interface Loader {
+        /**
+         * @param filterRules
+         *            the search parameter filtering rules of the tenant, keyed by resource type
+         * @param userDefined
+         *            the extension search parameters of the tenant, keyed by resource type, or null if there are none
+         * @param resourceType
+         *            the resource type
+         * @return the list of search parameters which apply to the resource type
+         * @throws Exception
+         */
+        List<SearchParameter> load(Map<String, List<String>> filterRules, Map<String, ParametersMap> userDefined,
+                String resourceType) throws Exception;
+    }
+
+    /**
+     * The search parameters which apply to a single resource type.
+     */
+    public static class Entry {
+        private final List<SearchParameter> parameters;
+        private final Map<String, SearchParameter> parametersByCode;
+        private final Map<SearchParameter, CompiledExpression> expressions;
+
+        private Entry(List<SearchParameter> parameters) {
+            Map<String, SearchParameter> byCode = new LinkedHashMap<>();
+            Map<SearchParameter, CompiledExpression> compiled = new IdentityHashMap<>();
+            for (SearchParameter parameter : parameters) {
+                // a parameter which comes later in the list replaces an earlier one with the same code
+                byCode.put(parameter.getCode().getValue(), parameter);
+                if (parameter.getExpression() != null) {
+                    try {
+                        compiled.put(parameter, FHIRPathEvaluator.compile(parameter.getExpression().getValue()));
+                    } catch (RuntimeException e) {
+                        // left to the extraction, which reports unsupported expressions
+                        if (log.isLoggable(Level.FINE)) {
+                            log.fine("Unable to compile the expression of search parameter '" + parameter.getCode().getValue()
+                                    + "': " + e.getMessage());
+                        }
+                    }
+                }
+            }
+            this.parameters = Collections.unmodifiableList(parameters);
+            this.parametersByCode = Collections.unmodifiableMap(byCode);
+            this.expressions = Collections.unmodifiableMap(compiled);
+        }
+
+        /**
+         * @return the unmodifiable list of search parameters which apply to the resource type
+         */
+        public List<SearchParameter> getParameters() {
+            return parameters;
+        }
+
+        /**
+         * @return the unmodifiable map of the search parameters which apply to the resource type, keyed by code
+         */
+        public Map<String, SearchParameter> getParametersByCode() {
+            return parametersByCode;
+        }
+
+        /**
+         * @return the unmodifiable map of the compiled expressions of the search parameters, keyed by search parameter
+         *         identity; parameters without an expression, or whose expression could not be compiled, are absent
+         */
+        public Map<SearchParameter, CompiledExpression> getExpressions() {
+            return expressions;
+        }
+    }
+
+    private final Object filterSource;
+    private final Map<String, List<String>> filterRules;
+    private final Map<String, ParametersMap> userDefined;
+    private final Loader loader;
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * @param filterSource
+     *            the configuration object the filter rules were read from, or null if the tenant has none
+     * @param filterRules
+     *            the search parameter filtering rules of the tenant
+     * @param userDefined
+     *            the extension search parameters of the tenant, or null if there are none
+     * @param loader
+     *            builds the list of search parameters which apply to a resource type
+     */
+    public ApplicableSearchParameterIndex(Object filterSource, Map<String, List<String>> filterRules,
+            Map<String, ParametersMap> userDefined, Loader loader) {
+        this.filterSource = filterSource;
+        this.filterRules = filterRules;
+        this.userDefined = userDefined;
+        this.loader = loader;
+    }
+
+    /**
+     * Returns true if this index was built from the passed sources. The sources are compared by identity, since the
+     * configuration and search parameter caches create new objects when the underlying files change.
+     *
+     * @param filterSource
+     *            the configuration object holding the current filter rules of the tenant, or null
+     * @param userDefined
+     *            the current extension search parameters of the tenant, or null
+     */
+    public boolean isCurrent(Object filterSource, Map<String, ParametersMap> userDefined) {
+        return this.filterSource == filterSource && this.userDefined == userDefined;
+    }
+
+    /**
+     * @param resourceType
+     *            the resource type
+     * @return the search parameters which apply to the resource type
+     * @throws Exception
+     */
+    public Entry getEntry(String resourceType) throws Exception {
+        Entry entry = entries.get(resourceType);
+        if (entry == null) {
+            entry = new Entry(loader.load(filterRules, userDefined, resourceType));
+            // don't let arbitrary names grow the index
+            if (ModelSupport.isResourceType(resourceType)) {
+                Entry previous = entries.putIfAbsent(resourceType, entry);
+                if (previous != null) {
+                    entry = previous;
+                }
+            }
+        }
+        return entry;
+    }
+}
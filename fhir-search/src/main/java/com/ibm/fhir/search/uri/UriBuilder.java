@@ -1,5 +1,5 @@
 /*
- * (C) Copyright IBM Corp. 2019
+ * (C) Copyright IBM Corp. 2019, 2020
  *
  * SPDX-License-Identifier: Apache-2.0
  */
@@ -93,6 +93,7 @@ public class UriBuilder {
         appendRevInclusionParameters();
         appendSortParameters();
         appendSummaryParameter();
+        appendTotalParameter();
         appendResourceTypesParameter();
 
         // Always include page number at the end, even if it wasn't in the request
@@ -101,6 +102,13 @@ public class UriBuilder {
         queryString.append(SearchConstants.EQUALS_CHAR);
         queryString.append(context.getPageNumber());
 
+        if (context.getContinuationToken() != null) {
+            queryString.append(SearchConstants.AND_CHAR);
+            queryString.append(SearchConstants.CURSOR);
+            queryString.append(SearchConstants.EQUALS_CHAR);
+            queryString.append(context.getContinuationToken());
+        }
+
         URI selfUri = new URI(requestUri.getScheme(), requestUri.getAuthority(), requestUri.getPath(), 
                 queryString.toString(), null);
 
@@ -162,6 +170,15 @@ public class UriBuilder {
         }
     }
 
+    private void appendTotalParameter() {
+        if (context.getTotalParameter() != null) {
+            queryString.append(SearchConstants.AND_CHAR);
+            queryString.append(SearchConstants.TOTAL);
+            queryString.append(SearchConstants.EQUALS_CHAR);
+            queryString.append(context.getTotalParameter().value());
+        }
+    }
+
     private void appendRevInclusionParameters() {
         for (InclusionParameter param : context.getRevIncludeParameters()) {
             queryString.append(SearchConstants.AND_CHAR);
@@ -22,6 +22,11 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -30,6 +35,7 @@ import com.ibm.fhir.config.FHIRConfiguration;
 import com.ibm.fhir.config.FHIRRequestContext;
 import com.ibm.fhir.config.PropertyGroup;
 import com.ibm.fhir.config.PropertyGroup.PropertyEntry;
+import com.ibm.fhir.core.TotalValueSet;
 import com.ibm.fhir.model.resource.Resource;
 import com.ibm.fhir.model.resource.SearchParameter;
 import com.ibm.fhir.model.resource.SearchParameter.Component;
@@ -39,7 +45,9 @@ import com.ibm.fhir.model.type.code.ResourceType;
 import com.ibm.fhir.model.util.JsonSupport;
 import com.ibm.fhir.model.util.ModelSupport;
 import com.ibm.fhir.path.FHIRPathNode;
+import com.ibm.fhir.path.FHIRPathTree;
 import com.ibm.fhir.path.evaluator.FHIRPathEvaluator;
+import com.ibm.fhir.path.evaluator.FHIRPathEvaluator.CompiledExpression;
 import com.ibm.fhir.path.evaluator.FHIRPathEvaluator.EvaluationContext;
 import com.ibm.fhir.path.exception.FHIRPathException;
 import com.ibm.fhir.search.SearchConstants;
@@ -57,6 +65,7 @@ import com.ibm.fhir.search.parameters.ParametersMap;
 import com.ibm.fhir.search.parameters.ParametersUtil;
 import com.ibm.fhir.search.parameters.QueryParameter;
 import com.ibm.fhir.search.parameters.QueryParameterValue;
+import com.ibm.fhir.search.parameters.cache.ApplicableSearchParameterIndex;
 import com.ibm.fhir.search.parameters.cache.TenantSpecificSearchParameterCache;
 import com.ibm.fhir.search.sort.Sort;
 import com.ibm.fhir.search.uri.UriBuilder;
@@ -96,6 +105,11 @@ public class SearchUtil {
     // The functionality is split into a new class.
     private static final Sort sort = new Sort();
 
+    // Bounded pool used for concurrent search parameter extraction (see fhirServer/core/parallelSearchParameterExtraction)
+    private static final int MIN_PARAMETERS_PER_EXTRACTION_TASK = 8;
+    private static final int MAX_EXTRACTION_TASKS = 4;
+    private static final ForkJoinPool EXTRACTION_POOL = new ForkJoinPool(MAX_EXTRACTION_TASKS);
+
     /*
      * This is our in-memory cache of SearchParameter objects. The cache is
      * organized at the top level by tenant-id,
@@ -123,6 +137,14 @@ public class SearchUtil {
      */
     private static TenantSpecificSearchParameterCache searchParameterCache = new TenantSpecificSearchParameterCache();
 
+    /*
+     * The applicable search parameters of each resource type, keyed by the id of the tenant whose configuration
+     * is in effect; tenants without a configuration of their own share the index of the default tenant, so that
+     * unknown tenant ids don't add entries. The index of a tenant is replaced whenever its
+     * extension-search-parameters file or its search parameter filtering config changes.
+     */
+    private static final Map<String, ApplicableSearchParameterIndex> applicableSearchParameterIndexes = new ConcurrentHashMap<>();
+
     private SearchUtil() {
         // No Operation
         // Hides the Initialization
@@ -216,9 +238,25 @@ public class SearchUtil {
      * @throws Exception
      */
     protected static List<SearchParameter> getUserDefinedSearchParameters(String resourceType) throws Exception {
-        List<SearchParameter> result = new ArrayList<>();
         String tenantId = FHIRRequestContext.get().getTenantId();
-        Map<String, ParametersMap> spMapTenant = getTenantOrDefaultSPMap(tenantId);
+        return getUserDefinedSearchParameters(getTenantOrDefaultSPMap(tenantId), resourceType);
+    }
+
+    /**
+     * Retrieves the user-defined SearchParameters associated with the specified
+     * resource type from the passed SearchParameter map.
+     *
+     * @param spMapTenant
+     *                     the SearchParameter map (keyed by resource type) of the tenant, or null
+     * @param resourceType
+     *                     the resource type for which user-defined SearchParameters
+     *                     will be returned
+     * @return a list of user-defined SearchParameters associated with the specified
+     *         resource type
+     */
+    private static List<SearchParameter> getUserDefinedSearchParameters(Map<String, ParametersMap> spMapTenant,
+            String resourceType) {
+        List<SearchParameter> result = new ArrayList<>();
 
         if (spMapTenant != null) {
             ParametersMap spMapResourceType = spMapTenant.get(resourceType);
@@ -240,13 +278,27 @@ public class SearchUtil {
      * @throws Exception
      */
     protected static List<SearchParameter> getFilteredBuiltinSearchParameters(String resourceType) throws Exception {
+        // Retrieve the current tenant's search parameter filtering rules.
+        return getFilteredBuiltinSearchParameters(getFilterRules(), resourceType);
+    }
+
+    /**
+     * Returns a list of built-in SearchParameters associated with the specified
+     * resource type and those associated with the "Resource" resource type,
+     * filtered according to the passed filter rules.
+     *
+     * @param filterRules
+     *                     a Map containing filter rules
+     * @param resourceType
+     *                     the resource type
+     * @return a filtered list of SearchParameters
+     */
+    private static List<SearchParameter> getFilteredBuiltinSearchParameters(Map<String, List<String>> filterRules,
+            String resourceType) {
         List<SearchParameter> result = new ArrayList<>();
 
         Map<String, ParametersMap> spBuiltin = ParametersUtil.getBuiltInSearchParametersMap();
 
-        // Retrieve the current tenant's search parameter filtering rules.
-        Map<String, List<String>> filterRules = getFilterRules();
-
         // Retrieve the SPs associated with the specified resource type and filter per the filter rules.
         ParametersMap spMap = spBuiltin.get(resourceType);
         if (spMap != null && !spMap.isEmpty()) {
@@ -326,12 +378,22 @@ public class SearchUtil {
      *
      * @throws Exception
      */
-    @SuppressWarnings("unchecked")
     private static Map<String, List<String>> getFilterRules() throws Exception {
+        // Retrieve the "searchParameterFilter" config property group.
+        return getFilterRules(FHIRConfigHelper.getPropertyGroup(FHIRConfiguration.PROPERTY_SEARCH_PARAMETER_FILTER));
+    }
+
+    /**
+     * Builds the search parameter filtering rules from the passed "searchParameterFilter" config property group.
+     *
+     * @param spFilter
+     *                 the property group, or null if the tenant doesn't have one
+     * @throws Exception
+     */
+    @SuppressWarnings("unchecked")
+    private static Map<String, List<String>> getFilterRules(PropertyGroup spFilter) throws Exception {
         Map<String, List<String>> result = new HashMap<>();
 
-        // Retrieve the "searchParameterFilter" config property group.
-        PropertyGroup spFilter = FHIRConfigHelper.getPropertyGroup(FHIRConfiguration.PROPERTY_SEARCH_PARAMETER_FILTER);
         List<PropertyEntry> ruleEntries = null;
         if (spFilter != null) {
             ruleEntries = spFilter.getProperties();
@@ -531,17 +593,95 @@ public class SearchUtil {
      */
     public static Map<SearchParameter, List<FHIRPathNode>> extractParameterValues(Resource resource, boolean skipEmpty)
             throws Exception {
+        // Create one time; the nodes are only created for the elements the expressions navigate to.
+        return extractParameterValues(FHIRPathTree.lazyTree(resource), skipEmpty);
+    }
+
+    /**
+     * extract parameter values from an existing FHIRPath tree, e.g. one shared with validation.
+     *
+     * @param tree
+     *            a FHIRPath tree whose root is a resource node
+     * @param skipEmpty
+     * @return
+     * @throws Exception
+     */
+    public static Map<SearchParameter, List<FHIRPathNode>> extractParameterValues(FHIRPathTree tree, boolean skipEmpty)
+            throws Exception {
 
         Map<SearchParameter, List<FHIRPathNode>> result = new LinkedHashMap<>();
 
         // Get the Parameters for the class.
-        Class<?> resourceType = resource.getClass();
+        Class<?> resourceType = tree.getRoot().asResourceNode().resource().getClass();
+
+        ApplicableSearchParameterIndex.Entry entry = getApplicableSearchParameterIndex().getEntry(resourceType.getSimpleName());
+        List<SearchParameter> parameters = entry.getParameters();
+        Map<SearchParameter, CompiledExpression> expressions = entry.getExpressions();
+
+        List<List<SearchParameter>> partitions = partition(parameters);
+        if (partitions.size() < 2) {
+            extractParameterValues(tree, parameters, expressions, skipEmpty, result);
+            return result;
+        }
+
+        // The FHIRPathTree is shared (its nodes are created thread-safely); each task gets its own EvaluationContext.
+        FHIRRequestContext requestContext = FHIRRequestContext.get();
+        List<Callable<Map<SearchParameter, List<FHIRPathNode>>>> tasks = new ArrayList<>(partitions.size());
+        for (List<SearchParameter> partition : partitions) {
+            tasks.add(() -> {
+                FHIRRequestContext previous = FHIRRequestContext.get();
+                FHIRRequestContext.set(requestContext);
+                try {
+                    Map<SearchParameter, List<FHIRPathNode>> partitionResult = new HashMap<>();
+                    extractParameterValues(tree, partition, expressions, skipEmpty, partitionResult);
+                    return partitionResult;
+                } finally {
+                    FHIRRequestContext.set(previous);
+                }
+            });
+        }
 
-        // Create one time.
-        FHIRPathEvaluator evaluator = FHIRPathEvaluator.evaluator();
-        EvaluationContext evaluationContext = new EvaluationContext(resource);
+        Map<SearchParameter, List<FHIRPathNode>> values = new HashMap<>();
+        for (Future<Map<SearchParameter, List<FHIRPathNode>>> future : EXTRACTION_POOL.invokeAll(tasks)) {
+            try {
+                values.putAll(future.get());
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof Exception) {
+                    throw (Exception) cause;
+                }
+                throw e;
+            }
+        }
+
+        // Preserve the order of the applicable search parameters
+        for (SearchParameter parameter : parameters) {
+            List<FHIRPathNode> nodes = values.get(parameter);
+            if (nodes != null) {
+                result.put(parameter, nodes);
+            }
+        }
 
-        List<SearchParameter> parameters = getApplicableSearchParameters(resourceType.getSimpleName());
+        return result;
+    }
+
+    /**
+     * Evaluate the expressions of the passed search parameters sequentially against the passed FHIRPath tree
+     *
+     * @param tree
+     * @param parameters
+     * @param expressions
+     *            the precompiled expressions of the search parameters
+     * @param skipEmpty
+     * @param result
+     *            the map to add the extracted values to
+     * @throws Exception
+     */
+    private static void extractParameterValues(FHIRPathTree tree, List<SearchParameter> parameters,
+            Map<SearchParameter, CompiledExpression> expressions, boolean skipEmpty,
+            Map<SearchParameter, List<FHIRPathNode>> result) throws Exception {
+
+        EvaluationContext evaluationContext = new EvaluationContext(tree);
 
         for (SearchParameter parameter : parameters) {
 
@@ -565,7 +705,11 @@ public class SearchUtil {
                 continue;
             }
             try {
-                Collection<FHIRPathNode> tmpResults = evaluator.evaluate(evaluationContext, expression.getValue());
+                CompiledExpression compiled = expressions.get(parameter);
+                if (compiled == null) {
+                    compiled = FHIRPathEvaluator.compile(expression.getValue());
+                }
+                Collection<FHIRPathNode> tmpResults = compiled.evaluate(evaluationContext);
 
                 if (log.isLoggable(Level.FINEST)) {
                     log.finest("Expression [" + expression.getValue() + "] parameter-code ["
@@ -583,8 +727,28 @@ public class SearchUtil {
                         expression.getValue(), uoe.getMessage()));
             }
         }
+    }
 
-        return result;
+    /**
+     * Split the search parameters into contiguous partitions for concurrent extraction. A single partition is
+     * returned if parallel extraction is disabled for the current tenant or there are too few search parameters
+     * to make it worthwhile.
+     *
+     * @param parameters
+     * @return
+     */
+    private static List<List<SearchParameter>> partition(List<SearchParameter> parameters) {
+        if (parameters.size() < 2 * MIN_PARAMETERS_PER_EXTRACTION_TASK
+                || !FHIRConfigHelper.getBooleanProperty(FHIRConfiguration.PROPERTY_PARALLEL_SEARCH_PARAMETER_EXTRACTION, false)) {
+            return Collections.singletonList(parameters);
+        }
+        int count = Math.min(MAX_EXTRACTION_TASKS, parameters.size() / MIN_PARAMETERS_PER_EXTRACTION_TASK);
+        int size = (parameters.size() + count - 1) / count;
+        List<List<SearchParameter>> partitions = new ArrayList<>(count);
+        for (int i = 0; i < parameters.size(); i += size) {
+            partitions.add(parameters.subList(i, Math.min(i + size, parameters.size())));
+        }
+        return partitions;
     }
 
     public static FHIRSearchContext parseQueryParameters(Class<?> resourceType,
@@ -766,6 +930,14 @@ public class SearchUtil {
             }
         } // end for
 
+        if (context.getTotalParameter() == null) {
+            // the tenant may prefer not to count the matches of searches which don't ask for a total
+            String defaultTotal = FHIRConfigHelper.getStringProperty(FHIRConfiguration.PROPERTY_SEARCH_DEFAULT_TOTAL, null);
+            if (defaultTotal != null) {
+                context.setTotalParameter(TotalValueSet.from(defaultTotal));
+            }
+        }
+
         context.setSearchParameters(parameters);
         return context;
     }
@@ -981,12 +1153,7 @@ public class SearchUtil {
      * search parameter name for quick access.
      */
     public static Map<String, SearchParameter> getApplicableSearchParametersMap(String resourceType) throws Exception {
-        Map<String, SearchParameter> result = new HashMap<>();
-        List<SearchParameter> list = getApplicableSearchParameters(resourceType);
-        for (SearchParameter sp : list) {
-            result.put(sp.getCode().getValue(), sp);
-        }
-        return result;
+        return getApplicableSearchParameterIndex().getEntry(resourceType).getParametersByCode();
     }
 
     /**
@@ -995,8 +1162,55 @@ public class SearchUtil {
      * well as those associated with the specified resource type.
      */
     public static List<SearchParameter> getApplicableSearchParameters(String resourceType) throws Exception {
-        List<SearchParameter> result = getFilteredBuiltinSearchParameters(resourceType);
-        result.addAll(getUserDefinedSearchParameters(resourceType));
+        return getApplicableSearchParameterIndex().getEntry(resourceType).getParameters();
+    }
+
+    /**
+     * Returns the index of the applicable search parameters of the current tenant, replacing it first
+     * if the tenant's extension search parameters or search parameter filtering rules have changed.
+     * Callers which derive data from the search parameters of the tenant can compare the identity
+     * of the returned index to find out whether those search parameters have changed.
+     *
+     * @throws Exception
+     */
+    public static ApplicableSearchParameterIndex getApplicableSearchParameterIndex() throws Exception {
+        String tenantId = FHIRRequestContext.get().getTenantId();
+
+        PropertyGroup spFilter = FHIRConfigHelper.getPropertyGroup(FHIRConfiguration.PROPERTY_SEARCH_PARAMETER_FILTER);
+        Object filterSource = spFilter != null ? spFilter.getJsonObj() : null;
+        Map<String, ParametersMap> spMapTenant = getTenantOrDefaultSPMap(tenantId);
+        String indexKey = hasOwnConfiguration(tenantId) ? tenantId : FHIRConfiguration.DEFAULT_TENANT_ID;
+
+        ApplicableSearchParameterIndex index = applicableSearchParameterIndexes.get(indexKey);
+        if (index == null || !index.isCurrent(filterSource, spMapTenant)) {
+            if (log.isLoggable(Level.FINE)) {
+                log.fine("Building the applicable search parameter index for tenant-id '" + indexKey + "'");
+            }
+            index = new ApplicableSearchParameterIndex(filterSource, getFilterRules(spFilter), spMapTenant,
+                    SearchUtil::buildApplicableSearchParameters);
+            applicableSearchParameterIndexes.put(indexKey, index);
+        }
+        return index;
+    }
+
+    /**
+     * @return true if the tenant has its own fhir-server-config.json or extension-search-parameters.json,
+     *         rather than falling back to those of the default tenant
+     */
+    private static boolean hasOwnConfiguration(String tenantId) throws Exception {
+        return FHIRConfiguration.DEFAULT_TENANT_ID.equals(tenantId)
+                || FHIRConfiguration.getInstance().loadConfigurationForTenant(tenantId) != null
+                || searchParameterCache.getCachedObjectForTenant(tenantId) != null;
+    }
+
+    /**
+     * Builds the list of the applicable search parameters of the specified resource type: the filtered built-in
+     * search parameters of the resource type and of the "Resource" resource type, followed by the user-defined ones.
+     */
+    private static List<SearchParameter> buildApplicableSearchParameters(Map<String, List<String>> filterRules,
+            Map<String, ParametersMap> spMapTenant, String resourceType) {
+        List<SearchParameter> result = getFilteredBuiltinSearchParameters(filterRules, resourceType);
+        result.addAll(getUserDefinedSearchParameters(spMapTenant, resourceType));
         return result;
     }
 
@@ -1093,6 +1307,11 @@ public class SearchUtil {
             } else if (SearchConstants.PAGE.equals(name)) {
                 int pageNumber = Integer.parseInt(first);
                 context.setPageNumber(pageNumber);
+            } else if (SearchConstants.CURSOR.equals(name)) {
+                // the token is opaque here and is interpreted (or ignored) by the persistence layer
+                if (first != null && !first.isEmpty()) {
+                    context.setContinuationToken(first);
+                }
             } else if (SearchConstants.SORT.equals(name)) {
                 // in R4, we only look for _sort
                 sort.parseSortParameter(resourceTypeName, context, values, lenient);
@@ -1102,6 +1321,8 @@ public class SearchUtil {
                 parseElementsParameter(resourceType, context, values, lenient);
             } else if (SearchConstants.SUMMARY.equals(name) && first != null) {
                 context.setSummaryParameter(SummaryValueSet.from(first));
+            } else if (SearchConstants.TOTAL.equals(name) && first != null) {
+                context.setTotalParameter(TotalValueSet.from(first));
             }
         } catch (FHIRSearchException se) {
             throw se;
@@ -0,0 +1,119 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.search.parameters;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.ibm.fhir.config.FHIRConfiguration;
+import com.ibm.fhir.config.FHIRRequestContext;
+import com.ibm.fhir.model.resource.SearchParameter;
+import com.ibm.fhir.search.parameters.cache.ApplicableSearchParameterIndex;
+import com.ibm.fhir.search.test.BaseSearchTest;
+import com.ibm.fhir.search.util.SearchUtil;
+
+/**
+ * Tests the per-tenant index of the applicable search parameters.
+ */
+public class ApplicableSearchParameterIndexTest extends BaseSearchTest {
+
+    @BeforeClass
+    public void setup() {
+        FHIRConfiguration.setConfigHome("target/test-classes");
+    }
+
+    @Test
+    public void testIndexReused() throws Exception {
+        FHIRRequestContext.set(new FHIRRequestContext("tenant1"));
+
+        List<SearchParameter> result = SearchUtil.getApplicableSearchParameters("Patient");
+        assertSame(SearchUtil.getApplicableSearchParameters("Patient"), result);
+
+        Map<String, SearchParameter> map = SearchUtil.getApplicableSearchParametersMap("Patient");
+        for (SearchParameter sp : result) {
+            assertNotNull(map.get(sp.getCode().getValue()));
+        }
+    }
+
+    @Test(expectedExceptions = UnsupportedOperationException.class)
+    public void testUnmodifiable() throws Exception {
+        FHIRRequestContext.set(new FHIRRequestContext("default"));
+        SearchUtil.getApplicableSearchParameters("Observation").clear();
+    }
+
+    @Test
+    public void testTenantsSeparate() throws Exception {
+        // tenant1 filters the search parameters of Patient
+        FHIRRequestContext.set(new FHIRRequestContext("tenant1"));
+        int tenant1Count = SearchUtil.getApplicableSearchParameters("Patient").size();
+
+        FHIRRequestContext.set(new FHIRRequestContext("default"));
+        assertTrue(SearchUtil.getApplicableSearchParameters("Patient").size() > tenant1Count);
+    }
+
+    @Test
+    public void testUnknownTenantSharesDefault() throws Exception {
+        FHIRRequestContext.set(new FHIRRequestContext("default"));
+        ApplicableSearchParameterIndex defaultIndex = SearchUtil.getApplicableSearchParameterIndex();
+
+        // tenants without a configuration of their own don't get an index of their own
+        FHIRRequestContext.set(new FHIRRequestContext("unknownTenant1"));
+        assertSame(SearchUtil.getApplicableSearchParameterIndex(), defaultIndex);
+        FHIRRequestContext.set(new FHIRRequestContext("unknownTenant2"));
+        assertSame(SearchUtil.getApplicableSearchParameterIndex(), defaultIndex);
+
+        FHIRRequestContext.set(new FHIRRequestContext("tenant1"));
+        assertNotSame(SearchUtil.getApplicableSearchParameterIndex(), defaultIndex);
+    }
+
+    @Test
+    public void testIsCurrent() {
+        Object filterSource = new Object();
+        Map<String, ParametersMap> userDefined = new HashMap<>();
+        ApplicableSearchParameterIndex index = new ApplicableSearchParameterIndex(filterSource,
+                Collections.emptyMap(), userDefined, (rules, spMap, resourceType) -> new ArrayList<>());
+
+        assertTrue(index.isCurrent(filterSource, userDefined));
+        // the sources are compared by identity
+        assertFalse(index.isCurrent(filterSource, new HashMap<>()));
+        assertFalse(index.isCurrent(new Object(), userDefined));
+        assertFalse(index.isCurrent(null, userDefined));
+    }
+
+    @Test
+    public void testEntryComputedOnce() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        ApplicableSearchParameterIndex index = new ApplicableSearchParameterIndex(null,
+                Collections.emptyMap(), null, (rules, spMap, resourceType) -> {
+                    loads.incrementAndGet();
+                    return new ArrayList<>();
+                });
+
+        index.getEntry("Patient");
+        index.getEntry("Patient");
+        assertEquals(loads.get(), 1);
+
+        // names which aren't resource types are not kept
+        index.getEntry("NotAResourceType");
+        index.getEntry("NotAResourceType");
+        assertEquals(loads.get(), 3);
+    }
+}
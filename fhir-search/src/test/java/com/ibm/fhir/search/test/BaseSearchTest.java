@@ -1,5 +1,5 @@
 /*
- * (C) Copyright IBM Corp. 2019
+ * (C) Copyright IBM Corp. 2019, 2020
  *
  * SPDX-License-Identifier: Apache-2.0
  */
@@ -23,6 +23,7 @@ import org.testng.annotations.BeforeMethod;
 
 import com.ibm.fhir.config.FHIRConfiguration;
 import com.ibm.fhir.config.FHIRRequestContext;
+import com.ibm.fhir.core.FileChangeMonitor;
 import com.ibm.fhir.model.resource.SearchParameter;
 import com.ibm.fhir.model.type.code.ResourceType;
 
@@ -106,11 +107,14 @@ public abstract class BaseSearchTest {
         File to = new File(toFilename);
         Files.copy(from.toPath(), to.toPath(), StandardCopyOption.REPLACE_EXISTING);
         Files.setLastModifiedTime(to.toPath(), FileTime.fromMillis(System.currentTimeMillis()));
+        // the caches are updated in the background; make sure the change is seen right away
+        FileChangeMonitor.getInstance().refresh();
     }
 
     protected void deleteFile(String filename) throws Exception {
         File file = new File(filename);
         Files.deleteIfExists(file.toPath());
+        FileChangeMonitor.getInstance().refresh();
     }
 
     /**
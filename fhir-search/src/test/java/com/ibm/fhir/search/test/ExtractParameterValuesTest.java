@@ -1,5 +1,5 @@
 /*
- * (C) Copyright IBM Corp. 2019
+ * (C) Copyright IBM Corp. 2019, 2020
  *
  * SPDX-License-Identifier: Apache-2.0
  */
@@ -7,6 +7,7 @@
 package com.ibm.fhir.search.test;
 
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -205,7 +206,35 @@ public class ExtractParameterValuesTest extends BaseSearchTest {
         runTest(testFile, Patient.class, false, builder.build(), false);
     }
 
+    @Test
+    public void testParallelExtraction() throws Exception {
+        // tenant6 enables fhirServer/core/parallelSearchParameterExtraction
+        for (String testFile : new String[] { "extract/observation-full.json", "extract/patient-deceased-time.json" }) {
+            Resource res;
+            try (InputStream stream = ExtractParameterValuesTest.class.getResourceAsStream("/testdata/" + testFile)) {
+                res = FHIRParser.parser(Format.JSON).parse(stream);
+            }
+            for (boolean skipEmpty : new boolean[] { true, false }) {
+                FHIRRequestContext.set(new FHIRRequestContext("default"));
+                Map<SearchParameter, List<FHIRPathNode>> expected = SearchUtil.extractParameterValues(res, skipEmpty);
+
+                FHIRRequestContext.set(new FHIRRequestContext("tenant6"));
+                Map<SearchParameter, List<FHIRPathNode>> actual = SearchUtil.extractParameterValues(res, skipEmpty);
+                FHIRRequestContext.set(new FHIRRequestContext("default"));
+
+                Assert.assertEquals(new ArrayList<>(actual.keySet()), new ArrayList<>(expected.keySet()));
+                for (Map.Entry<SearchParameter, List<FHIRPathNode>> entry : expected.entrySet()) {
+                    Assert.assertEquals(paths(actual.get(entry.getKey())), paths(entry.getValue()), entry.getKey().getCode().getValue());
+                }
+            }
+        }
+    }
 
-
-
+    private static List<String> paths(List<FHIRPathNode> nodes) {
+        List<String> paths = new ArrayList<>();
+        for (FHIRPathNode node : nodes) {
+            paths.add(node.path());
+        }
+        return paths;
+    }
 }
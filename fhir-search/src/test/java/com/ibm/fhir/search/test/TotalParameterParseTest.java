@@ -0,0 +1,87 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.search.test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.testng.annotations.Test;
+
+import com.ibm.fhir.config.FHIRRequestContext;
+import com.ibm.fhir.core.TotalValueSet;
+import com.ibm.fhir.model.resource.Observation;
+import com.ibm.fhir.search.context.FHIRSearchContext;
+import com.ibm.fhir.search.exception.FHIRSearchException;
+import com.ibm.fhir.search.util.SearchUtil;
+
+/**
+ * Tests the parsing of the search result _total parameter, and the per-tenant default for it.
+ */
+public class TotalParameterParseTest extends BaseSearchTest {
+
+    @Test
+    public void testTotal() throws Exception {
+        Map<String, List<String>> queryParameters = new HashMap<>();
+        queryParameters.put("_total", Arrays.asList("none"));
+        FHIRSearchContext context = SearchUtil.parseQueryParameters(Observation.class, queryParameters);
+        assertEquals(context.getTotalParameter(), TotalValueSet.NONE);
+        assertTrue(context.getSearchParameters().isEmpty());
+
+        queryParameters.put("_total", Arrays.asList("estimate"));
+        context = SearchUtil.parseQueryParameters(Observation.class, queryParameters);
+        assertEquals(context.getTotalParameter(), TotalValueSet.ESTIMATE);
+    }
+
+    @Test
+    public void testTotalNotSpecified() throws Exception {
+        FHIRSearchContext context = SearchUtil.parseQueryParameters(Observation.class, new HashMap<>());
+        assertNull(context.getTotalParameter());
+    }
+
+    @Test
+    public void testTotalInvalid_lenient() throws Exception {
+        Map<String, List<String>> queryParameters = new HashMap<>();
+        queryParameters.put("_total", Arrays.asList("invalid"));
+        FHIRSearchContext context = SearchUtil.parseQueryParameters(Observation.class, queryParameters, true);
+        assertNull(context.getTotalParameter());
+    }
+
+    @Test
+    public void testTotalInvalid_strict() throws Exception {
+        Map<String, List<String>> queryParameters = new HashMap<>();
+        queryParameters.put("_total", Arrays.asList("invalid"));
+        boolean isValid = true;
+        try {
+            SearchUtil.parseQueryParameters(Observation.class, queryParameters, false);
+        } catch (FHIRSearchException e) {
+            isValid = false;
+        }
+        assertFalse(isValid);
+    }
+
+    @Test
+    public void testTenantDefaultTotal() throws Exception {
+        // tenant7 sets fhirServer/search/defaultTotal to none
+        FHIRRequestContext.set(new FHIRRequestContext("tenant7"));
+
+        FHIRSearchContext context = SearchUtil.parseQueryParameters(Observation.class, new HashMap<>());
+        assertEquals(context.getTotalParameter(), TotalValueSet.NONE);
+
+        // the request wins over the default
+        Map<String, List<String>> queryParameters = new HashMap<>();
+        queryParameters.put("_total", Arrays.asList("accurate"));
+        context = SearchUtil.parseQueryParameters(Observation.class, queryParameters);
+        assertEquals(context.getTotalParameter(), TotalValueSet.ACCURATE);
+    }
+}
@@ -1,5 +1,5 @@
 /*
- * (C) Copyright IBM Corp. 2019
+ * (C) Copyright IBM Corp. 2019, 2020
  *
  * SPDX-License-Identifier: Apache-2.0
  */
@@ -11,10 +11,14 @@ import static org.testng.Assert.assertEquals;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.testng.annotations.Test;
 
+import com.ibm.fhir.model.resource.Patient;
 import com.ibm.fhir.search.SearchConstants.Type;
 import com.ibm.fhir.search.context.FHIRSearchContext;
 import com.ibm.fhir.search.context.FHIRSearchContextFactory;
@@ -61,4 +65,21 @@ public class UriTest {
             incoming);
     }
 
+    @Test
+    public void testUriContinuationToken() throws Exception {
+        String incoming =
+                "https://localhost:9443/fhir-server/api/v4/Patient?_count=10&_page=3&_cursor=abc123";
+        String requestUriString = incoming.split("\\?")[0];
+
+        Map<String, List<String>> queryParameters = new HashMap<>();
+        queryParameters.put("_count", Collections.singletonList("10"));
+        queryParameters.put("_page", Collections.singletonList("3"));
+        queryParameters.put("_cursor", Collections.singletonList("abc123"));
+        FHIRSearchContext ctx = SearchUtil.parseQueryParameters(Patient.class, queryParameters);
+
+        assertEquals(ctx.getContinuationToken(), "abc123");
+        assertEquals(SearchUtil.buildSearchSelfUri(requestUriString, ctx),
+            incoming);
+    }
+
 }
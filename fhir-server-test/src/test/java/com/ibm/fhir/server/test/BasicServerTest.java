@@ -19,6 +19,7 @@ import java.util.List;
 import javax.json.JsonObject;
 import javax.ws.rs.client.Entity;
 import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.Response;
 
 import org.testng.annotations.Test;
@@ -83,6 +84,25 @@ public class BasicServerTest extends FHIRServerTestBase {
         assertNotNull(conf.getName());
     }
 
+    /**
+     * Verify that the 'metadata' API returns an ETag, and 304 Not Modified when it is passed in If-None-Match.
+     */
+    @Test(groups = { "server-basic" })
+    public void testMetadataAPI_ETag() {
+        WebTarget target = getWebTarget();
+        Response response = target.path("metadata").request().get();
+        assertResponse(response, Response.Status.OK.getStatusCode());
+        String etag = response.getHeaderString(HttpHeaders.ETAG);
+        assertNotNull(etag);
+
+        response = target.path("metadata").request(FHIRMediaType.APPLICATION_FHIR_XML)
+                .header(HttpHeaders.IF_NONE_MATCH, etag).get();
+        assertResponse(response, Response.Status.NOT_MODIFIED.getStatusCode());
+
+        response = target.path("metadata").request().header(HttpHeaders.IF_NONE_MATCH, "W/\"other\"").get();
+        assertResponse(response, Response.Status.OK.getStatusCode());
+    }
+
     /**
      * Create a Patient, then make sure we can retrieve it.
      */
@@ -22,6 +22,7 @@ import static com.ibm.fhir.config.FHIRConfiguration.PROPERTY_NATS_TRUSTSTORE_PW;
 import static com.ibm.fhir.config.FHIRConfiguration.PROPERTY_NATS_KEYSTORE;
 import static com.ibm.fhir.config.FHIRConfiguration.PROPERTY_NATS_KEYSTORE_PW;
 import static com.ibm.fhir.config.FHIRConfiguration.PROPERTY_SERVER_REGISTRY_RESOURCE_PROVIDER_ENABLED;
+import static com.ibm.fhir.config.FHIRConfiguration.PROPERTY_PRECOMPUTE_VALUE_SET_EXPANSIONS;
 import static com.ibm.fhir.config.FHIRConfiguration.PROPERTY_NATS_ENABLED;
 import static com.ibm.fhir.config.FHIRConfiguration.PROPERTY_NATS_CLUSTER;
 import static com.ibm.fhir.config.FHIRConfiguration.PROPERTY_NATS_CHANNEL;
@@ -49,6 +50,7 @@ import javax.websocket.server.ServerContainer;
 
 import org.owasp.encoder.Encode;
 
+import com.ibm.fhir.audit.logging.api.AuditLogServiceFactory;
 import com.ibm.fhir.config.FHIRConfigHelper;
 import com.ibm.fhir.config.FHIRConfiguration;
 import com.ibm.fhir.config.FHIRRequestContext;
@@ -64,6 +66,7 @@ import com.ibm.fhir.operation.registry.FHIROperationRegistry;
 import com.ibm.fhir.persistence.helper.FHIRPersistenceHelper;
 import com.ibm.fhir.persistence.interceptor.impl.FHIRPersistenceInterceptorMgr;
 import com.ibm.fhir.persistence.jdbc.util.DerbyBootstrapper;
+import com.ibm.fhir.profile.ValueSetSupport;
 import com.ibm.fhir.registry.FHIRRegistry;
 import com.ibm.fhir.search.util.SearchUtil;
 import com.ibm.fhir.server.registry.ServerRegistryResourceProvider;
@@ -194,6 +197,14 @@ public class FHIRServletContextListener implements ServletContextListener {
                 FHIRPersistenceInterceptorMgr.getInstance().addInterceptor(provider);
             }
 
+            Boolean precomputeValueSetExpansions = fhirConfig.getBooleanProperty(PROPERTY_PRECOMPUTE_VALUE_SET_EXPANSIONS, Boolean.FALSE);
+            if (precomputeValueSetExpansions) {
+                log.info("Precomputing the expansions of the value sets bound in the FHIRRegistry profiles...");
+                long start = System.currentTimeMillis();
+                int count = ValueSetSupport.precomputeCodeSetIndexes();
+                log.info("Precomputed the expansions of " + count + " value sets in " + (System.currentTimeMillis() - start) + "ms");
+            }
+
             // Finally, set our "initComplete" flag to true.
             event.getServletContext().setAttribute(FHIR_SERVER_INIT_COMPLETE, Boolean.TRUE);
         } catch(Throwable t) {
@@ -283,6 +294,9 @@ public class FHIRServletContextListener implements ServletContextListener {
                 natsPublisher.shutdown();
                 natsPublisher = null;
             }
+
+            // Send any audit events which are still buffered.
+            AuditLogServiceFactory.stopService();
         } catch (Exception e) {
         } finally {
             if (log.isLoggable(Level.FINER)) {
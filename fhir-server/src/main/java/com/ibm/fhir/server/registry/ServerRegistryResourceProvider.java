@@ -20,10 +20,12 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
-import com.ibm.fhir.core.util.LRUCache;
+import com.ibm.fhir.core.util.ConcurrentLRUCache;
+import com.ibm.fhir.model.resource.CodeSystem;
 import com.ibm.fhir.model.resource.Resource;
 import com.ibm.fhir.model.resource.SearchParameter;
 import com.ibm.fhir.model.resource.StructureDefinition;
+import com.ibm.fhir.model.resource.ValueSet;
 import com.ibm.fhir.persistence.FHIRPersistence;
 import com.ibm.fhir.persistence.MultiResourceResult;
 import com.ibm.fhir.persistence.context.FHIRPersistenceContext;
@@ -32,6 +34,7 @@ import com.ibm.fhir.persistence.helper.FHIRTransactionHelper;
 import com.ibm.fhir.persistence.helper.PersistenceHelper;
 import com.ibm.fhir.persistence.interceptor.FHIRPersistenceEvent;
 import com.ibm.fhir.persistence.interceptor.FHIRPersistenceInterceptor;
+import com.ibm.fhir.profile.ValueSetSupport;
 import com.ibm.fhir.registry.resource.FHIRRegistryResource;
 import com.ibm.fhir.registry.resource.FHIRRegistryResource.Version;
 import com.ibm.fhir.registry.spi.FHIRRegistryResourceProvider;
@@ -42,7 +45,7 @@ public class ServerRegistryResourceProvider implements FHIRRegistryResourceProvi
     public static final Logger log = Logger.getLogger(ServerRegistryResourceProvider.class.getName());
 
     private final PersistenceHelper persistenceHelper;
-    private final Map<String, List<FHIRRegistryResource>> registryResourceMap = LRUCache.createLRUCache(1024);
+    private final Map<String, List<FHIRRegistryResource>> registryResourceMap = ConcurrentLRUCache.createCache(1024);
 
     public ServerRegistryResourceProvider(PersistenceHelper persistenceHelper) {
         try {
@@ -210,6 +213,10 @@ public class ServerRegistryResourceProvider implements FHIRRegistryResourceProvi
             if (previous != null && !previous.isEmpty()) {
                 log.fine("Removed registry resource(s) with url '" + url + "' from the ServerRegistryResourceProvider cache");
             }
+            if (resource instanceof ValueSet || resource instanceof CodeSystem) {
+                // the expansions of other value sets may include this one, so they are all discarded
+                ValueSetSupport.clearCodeSetIndexCache();
+            }
         }
     }
 }
@@ -12,13 +12,18 @@ import static com.ibm.fhir.config.FHIRConfiguration.PROPERTY_OAUTH_TOKENURL;
 import static com.ibm.fhir.model.type.String.string;
 import static com.ibm.fhir.server.util.IssueTypeToHttpStatusMapper.issueListToStatus;
 
+import java.io.ByteArrayOutputStream;
 import java.net.URI;
+import java.security.MessageDigest;
 import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.logging.Level;
@@ -26,16 +31,25 @@ import java.util.logging.Logger;
 
 import javax.ws.rs.Consumes;
 import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.ResponseBuilder;
+import javax.ws.rs.core.Variant;
 
 import com.ibm.fhir.config.FHIRConfiguration;
+import com.ibm.fhir.config.FHIRRequestContext;
 import com.ibm.fhir.config.PropertyGroup;
 import com.ibm.fhir.core.FHIRMediaType;
 import com.ibm.fhir.exception.FHIROperationException;
 import com.ibm.fhir.model.format.Format;
+import com.ibm.fhir.model.generator.FHIRGenerator;
 import com.ibm.fhir.model.resource.CapabilityStatement;
 import com.ibm.fhir.model.resource.CapabilityStatement.Rest;
 import com.ibm.fhir.model.resource.CapabilityStatement.Rest.Resource.Interaction;
@@ -65,6 +79,7 @@ import com.ibm.fhir.model.type.code.TypeRestfulInteraction;
 import com.ibm.fhir.model.util.ModelSupport;
 import com.ibm.fhir.operation.FHIROperation;
 import com.ibm.fhir.operation.registry.FHIROperationRegistry;
+import com.ibm.fhir.provider.FHIRProvider;
 import com.ibm.fhir.registry.FHIRRegistry;
 import com.ibm.fhir.search.util.SearchUtil;
 import com.ibm.fhir.server.FHIRBuildIdentifier;
@@ -87,9 +102,95 @@ public class Capabilities extends FHIRResource {
     private static final String FHIR_COPYRIGHT = "(C) Copyright IBM Corporation 2016, 2020";
     private static final String EXTENSION_URL = "http://ibm.com/fhir/extension";
 
+    // the media types of the cached serializations, in the order of preference of the @Produces annotation
+    private static final List<Variant> VARIANTS = Variant.mediaTypes(FHIRMediaType.APPLICATION_FHIR_JSON_TYPE,
+            MediaType.APPLICATION_JSON_TYPE, FHIRMediaType.APPLICATION_FHIR_XML_TYPE, MediaType.APPLICATION_XML_TYPE).build();
+
+    // the statement depends on the tenant, the datastore and the host of the request
+    private static final int CACHE_MAX_ENTRIES = 64;
+
+    // the CapabilityStatements built so far, keyed by tenant-id, datastore-id and request host
+    private static final Map<String, CachedCapabilityStatement> capabilityStatementCache =
+            Collections.synchronizedMap(new LinkedHashMap<String, CachedCapabilityStatement>(16, 0.75f, true) {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, CachedCapabilityStatement> eldest) {
+                    return size() > CACHE_MAX_ENTRIES;
+                }
+            });
+
+    @Context
+    private HttpHeaders httpHeaders;
+
+    @Context
+    private Request request;
+
+    /**
+     * A CapabilityStatement along with its serialized forms and ETag, and the configuration and search parameter
+     * objects it was built from. Those objects are replaced by their caches when the underlying files change,
+     * so comparing them by identity tells whether the statement is still current.
+     */
+    private static class CachedCapabilityStatement {
+        private final CapabilityStatement capabilityStatement;
+        private final Object[] sources;
+        private final byte[] json;
+        private final byte[] xml;
+        private final EntityTag entityTag;
+
+        CachedCapabilityStatement(CapabilityStatement capabilityStatement, Object[] sources) throws Exception {
+            this.capabilityStatement = capabilityStatement;
+            this.sources = sources;
+            this.json = serialize(capabilityStatement, Format.JSON);
+            this.xml = serialize(capabilityStatement, Format.XML);
+            // weak, since the JSON and XML representations share it
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(json);
+            this.entityTag = new EntityTag(Base64.getUrlEncoder().withoutPadding().encodeToString(digest), true);
+        }
+
+        boolean isCurrent(Object[] sources) {
+            for (int i = 0; i < sources.length; i++) {
+                if (this.sources[i] != sources[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * @param ifNoneMatch the value of the If-None-Match header, or null
+         * @return true if the passed If-None-Match header value matches the ETag of this statement
+         */
+        boolean matches(String ifNoneMatch) {
+            if (ifNoneMatch == null) {
+                return false;
+            }
+            for (String value : ifNoneMatch.split(",")) {
+                value = value.trim();
+                if ("*".equals(value)) {
+                    return true;
+                }
+                // If-None-Match uses the weak comparison
+                if (value.startsWith("W/")) {
+                    value = value.substring(2);
+                }
+                if (value.replaceAll("\"", "").equals(entityTag.getValue())) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static byte[] serialize(CapabilityStatement capabilityStatement, Format format) throws Exception {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            FHIRGenerator.generator(format, false).generate(capabilityStatement, out);
+            return out.toByteArray();
+        }
+    }
+
     @GET
     @Path("metadata")
-    public Response capabilities() throws ClassNotFoundException {
+    public Response capabilities(@HeaderParam(HttpHeaders.IF_NONE_MATCH) String ifNoneMatch) throws ClassNotFoundException {
         log.entering(this.getClass().getName(), "metadata()");
         Date startTime = new Date();
         String errMsg = "Caught exception while processing 'metadata' request.";
@@ -97,10 +198,14 @@ public class Capabilities extends FHIRResource {
         try {
             checkInitComplete();
 
-            CapabilityStatement capabilityStatement = getCapabilityStatement();
+            CachedCapabilityStatement cached = getCapabilityStatement();
+            if (cached.matches(ifNoneMatch)) {
+                RestAuditLogger.logMetadata(httpServletRequest, startTime, new Date(), Response.Status.NOT_MODIFIED);
+                return Response.notModified(cached.entityTag).build();
+            }
             RestAuditLogger.logMetadata(httpServletRequest, startTime, new Date(), Response.Status.OK);
 
-            return Response.ok().entity(capabilityStatement).build();
+            return buildResponse(cached).tag(cached.entityTag).build();
         } catch (FHIROperationException e) {
             log.log(Level.SEVERE, errMsg, e);
             return exceptionResponse(e, issueListToStatus(e.getIssues()));
@@ -112,9 +217,51 @@ public class Capabilities extends FHIRResource {
         }
     }
 
-    private synchronized CapabilityStatement getCapabilityStatement() throws FHIROperationException {
+    /**
+     * Returns the serialized form of the statement which matches the negotiated media type, unless pretty printing
+     * was requested, in which case the statement is left to the FHIRProvider.
+     */
+    private ResponseBuilder buildResponse(CachedCapabilityStatement cached) {
+        Variant variant = request.selectVariant(VARIANTS);
+        if (variant != null && !FHIRProvider.isPretty(httpHeaders, uriInfo)) {
+            MediaType mediaType = variant.getMediaType();
+            if (mediaType.isCompatible(FHIRMediaType.APPLICATION_FHIR_XML_TYPE)
+                    || mediaType.isCompatible(MediaType.APPLICATION_XML_TYPE)) {
+                return Response.ok(cached.xml, mediaType);
+            }
+            return Response.ok(cached.json, mediaType);
+        }
+        return Response.ok().entity(cached.capabilityStatement);
+    }
+
+    /**
+     * Returns the cached CapabilityStatement for the current tenant, datastore and request host, building it first
+     * if there isn't one yet or if the configuration or the search parameters of the tenant have changed.
+     */
+    private CachedCapabilityStatement getCapabilityStatement() throws FHIROperationException {
         try {
-            return buildCapabilityStatement();
+            FHIRRequestContext requestContext = FHIRRequestContext.get();
+            String tenantId = requestContext.getTenantId();
+            String key = tenantId + "~" + requestContext.getDataStoreId() + "~" + new URI(getRequestUri()).getHost();
+            Object[] sources = new Object[] {
+                    FHIRConfiguration.getInstance().loadConfiguration(),
+                    FHIRConfiguration.getInstance().loadConfigurationForTenant(tenantId),
+                    SearchUtil.getApplicableSearchParameterIndex()
+            };
+
+            CachedCapabilityStatement cached = capabilityStatementCache.get(key);
+            if (cached == null || !cached.isCurrent(sources)) {
+                // only one request builds the statement, the others wait for it
+                synchronized (capabilityStatementCache) {
+                    cached = capabilityStatementCache.get(key);
+                    if (cached == null || !cached.isCurrent(sources)) {
+                        log.fine("Building the CapabilityStatement for '" + key + "'");
+                        cached = new CachedCapabilityStatement(buildCapabilityStatement(), sources);
+                        capabilityStatementCache.put(key, cached);
+                    }
+                }
+            }
+            return cached;
         } catch (Throwable t) {
             String msg = "An error occurred while constructing the Conformance statement.";
             log.log(Level.SEVERE, msg, t);
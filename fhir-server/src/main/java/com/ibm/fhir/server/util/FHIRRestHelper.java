@@ -19,10 +19,21 @@ import java.time.format.DateTimeFormatterBuilder;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
@@ -40,6 +51,7 @@ import com.ibm.fhir.config.FHIRRequestContext;
 import com.ibm.fhir.core.FHIRConstants;
 import com.ibm.fhir.core.HTTPHandlingPreference;
 import com.ibm.fhir.core.HTTPReturnPreference;
+import com.ibm.fhir.core.TotalValueSet;
 import com.ibm.fhir.core.context.FHIRPagingContext;
 import com.ibm.fhir.exception.FHIROperationException;
 import com.ibm.fhir.model.patch.FHIRPatch;
@@ -50,6 +62,7 @@ import com.ibm.fhir.model.resource.OperationOutcome.Issue;
 import com.ibm.fhir.model.resource.Parameters;
 import com.ibm.fhir.model.resource.Resource;
 import com.ibm.fhir.model.type.CodeableConcept;
+import com.ibm.fhir.model.type.Reference;
 import com.ibm.fhir.model.type.Extension;
 import com.ibm.fhir.model.type.UnsignedInt;
 import com.ibm.fhir.model.type.Uri;
@@ -61,13 +74,16 @@ import com.ibm.fhir.model.type.code.IssueType;
 import com.ibm.fhir.model.util.FHIRUtil;
 import com.ibm.fhir.model.util.ModelSupport;
 import com.ibm.fhir.model.util.ReferenceMappingVisitor;
+import com.ibm.fhir.model.visitor.DefaultVisitor;
 import com.ibm.fhir.operation.FHIROperation;
 import com.ibm.fhir.operation.context.FHIROperationContext;
 import com.ibm.fhir.operation.registry.FHIROperationRegistry;
 import com.ibm.fhir.operation.util.FHIROperationUtil;
+import com.ibm.fhir.path.evaluator.FHIRPathEvaluator.EvaluationContext;
 import com.ibm.fhir.persistence.FHIRPersistence;
 import com.ibm.fhir.persistence.FHIRPersistenceTransaction;
 import com.ibm.fhir.persistence.SingleResourceResult;
+import com.ibm.fhir.persistence.context.FHIRAnalysisContext;
 import com.ibm.fhir.persistence.context.FHIRHistoryContext;
 import com.ibm.fhir.persistence.context.FHIRPersistenceContext;
 import com.ibm.fhir.persistence.context.FHIRPersistenceContextFactory;
@@ -75,6 +91,7 @@ import com.ibm.fhir.persistence.exception.FHIRPersistenceException;
 import com.ibm.fhir.persistence.exception.FHIRPersistenceResourceDeletedException;
 import com.ibm.fhir.persistence.exception.FHIRPersistenceResourceNotFoundException;
 import com.ibm.fhir.persistence.helper.FHIRTransactionHelper;
+import com.ibm.fhir.persistence.helper.PersistenceHelper;
 import com.ibm.fhir.persistence.interceptor.FHIRPersistenceEvent;
 import com.ibm.fhir.persistence.interceptor.impl.FHIRPersistenceInterceptorMgr;
 import com.ibm.fhir.persistence.util.FHIRPersistenceUtil;
@@ -87,6 +104,7 @@ import com.ibm.fhir.search.context.FHIRSearchContext;
 import com.ibm.fhir.search.exception.FHIRSearchException;
 import com.ibm.fhir.search.util.SearchUtil;
 import com.ibm.fhir.server.exception.FHIRRestBundledRequestException;
+import com.ibm.fhir.server.helper.FHIRServerUtils;
 import com.ibm.fhir.validation.FHIRValidator;
 import com.ibm.fhir.validation.exception.FHIRValidationException;
 
@@ -112,16 +130,42 @@ public class FHIRRestHelper implements FHIRResourceHelpers {
             .appendPattern(", dd-MMM-yy HH:mm:ss")
             .optionalEnd().toFormatter();
 
+    // Runs the batch entries which are processed concurrently (see fhirServer/core/batchParallelism);
+    // the bounded pool is only used when the managed executor isn't available
+    private static final String MANAGED_EXECUTOR_JNDI_NAME = "java:comp/DefaultManagedExecutorService";
+    private static final int MAX_BATCH_ENTRY_THREADS = 16;
+    private static final ExecutorService BATCH_ENTRY_POOL = Executors.newFixedThreadPool(MAX_BATCH_ENTRY_THREADS,
+            new BatchEntryThreadFactory());
+
     private FHIRPersistence persistence = null;
 
+    // Used to obtain a separate persistence instance for each batch entry processed concurrently; may be null
+    private PersistenceHelper persistenceHelper = null;
+
     // These values are used for correlating requests within a bundle.
     private String bundleTransactionCorrelationId = null;
     private String bundleRequestCorrelationId = null;
 
+    // Holds the FHIRPath trees of the resources of the current request, which are shared by validation,
+    // search parameter extraction and the persistence interceptors
+    private FHIRAnalysisContext analysisContext = FHIRPersistenceContextFactory.createAnalysisContext();
+
     public FHIRRestHelper(FHIRPersistence persistence) {
         this.persistence = persistence;
     }
 
+    /**
+     * @param persistence
+     *            the persistence implementation for the current request
+     * @param persistenceHelper
+     *            used to obtain the persistence implementations for the batch entries which are processed
+     *            concurrently
+     */
+    public FHIRRestHelper(FHIRPersistence persistence, PersistenceHelper persistenceHelper) {
+        this.persistence = persistence;
+        this.persistenceHelper = persistenceHelper;
+    }
+
     @Override
     public FHIRRestOperationResponse doCreate(String type, Resource resource, String ifNoneExist,
             Map<String, String> requestProperties) throws Exception {
@@ -133,6 +177,8 @@ public class FHIRRestHelper implements FHIRResourceHelpers {
         // Save the current request context.
         FHIRRequestContext requestContext = FHIRRequestContext.get();
 
+        final Resource inputResource = resource;
+
         try {
 
             // Make sure the expected type (specified in the URL string) is congruent with the actual type
@@ -208,6 +254,7 @@ public class FHIRRestHelper implements FHIRResourceHelpers {
             // First, invoke the 'beforeCreate' interceptor methods.
             FHIRPersistenceEvent event =
                     new FHIRPersistenceEvent(resource, buildPersistenceEventProperties(type, null, null, requestProperties));
+            event.setAnalysisContext(analysisContext);
             getInterceptorMgr().fireBeforeCreateEvent(event);
 
             FHIRPersistenceContext persistenceContext =
@@ -245,6 +292,10 @@ public class FHIRRestHelper implements FHIRResourceHelpers {
                 txn.rollback();
             }
 
+            // Release the trees of the input resource and of the resource which was stored.
+            analysisContext.release(inputResource);
+            analysisContext.release(resource);
+
             log.exiting(this.getClass().getName(), "doCreate");
         }
     }
@@ -275,6 +326,8 @@ public class FHIRRestHelper implements FHIRResourceHelpers {
 
         FHIRRestOperationResponse ior = new FHIRRestOperationResponse();
 
+        Resource validatedResource = null;
+
         try {
             // Make sure the type specified in the URL string matches the resource type obtained from the new resource.
             if (patch == null) {
@@ -380,6 +433,7 @@ public class FHIRRestHelper implements FHIRResourceHelpers {
             }
 
             // Validate the input and, if valid, start collecting supplemental warnings
+            validatedResource = newResource;
             List<Issue> warnings = new ArrayList<>(validateInput(newResource));
 
             // Perform the "version-aware" update check, and also find out if the resource was deleted.
@@ -400,6 +454,7 @@ public class FHIRRestHelper implements FHIRResourceHelpers {
             // First, create the persistence event.
             FHIRPersistenceEvent event = new FHIRPersistenceEvent(newResource,
                     buildPersistenceEventProperties(type, newResource.getId(), null, requestProperties));
+            event.setAnalysisContext(analysisContext);
 
             // Next, set the "previous resource" in the persistence event.
             event.setPrevFhirResource(ior.getPrevResource());
@@ -467,6 +522,10 @@ public class FHIRRestHelper implements FHIRResourceHelpers {
                 txn.rollback();
             }
 
+            // Release the trees of the input resource and of the resource which was stored.
+            analysisContext.release(validatedResource);
+            analysisContext.release(newResource);
+
             log.exiting(this.getClass().getName(), "doPatchOrUpdate");
         }
     }
@@ -1068,6 +1127,8 @@ public class FHIRRestHelper implements FHIRResourceHelpers {
             // Restore the original request context.
             FHIRRequestContext.set(requestContext);
 
+            analysisContext.release();
+
             log.exiting(this.getClass().getName(), "doBundle");
         }
     }
@@ -1087,7 +1148,9 @@ public class FHIRRestHelper implements FHIRResourceHelpers {
      */
     private List<OperationOutcome.Issue> validateInput(Resource resource)
             throws FHIRValidationException, FHIROperationException {
-        List<OperationOutcome.Issue> issues = FHIRValidator.validator().validate(resource);
+        // validation visits the whole resource, so the shared tree is built eagerly
+        EvaluationContext evaluationContext = new EvaluationContext(analysisContext.getTree(resource, false));
+        List<OperationOutcome.Issue> issues = FHIRValidator.validator().validate(evaluationContext);
         if (!issues.isEmpty()) {
             for (OperationOutcome.Issue issue : issues) {
                 if (FHIRUtil.isFailure(issue.getSeverity())) {
@@ -1457,7 +1520,8 @@ public class FHIRRestHelper implements FHIRResourceHelpers {
                         + bundleTransactionCorrelationId);
             }
 
-            Map<String, String> localRefMap = new HashMap<>();
+            // The entries of a batch bundle may be processed concurrently, so the map must be thread-safe
+            Map<String, String> localRefMap = new ConcurrentHashMap<>();
 
             // Next, process entries in the correct order.
             responseBundle = processEntriesForMethod(requestBundle, responseBundle, HTTPVerb.DELETE,
@@ -1554,380 +1618,603 @@ public class FHIRRestHelper implements FHIRResourceHelpers {
             // Use hashmap to store both the index and the according updated response bundle entry.
             HashMap<Integer, Bundle.Entry> responseIndexAndEntries =
                     new HashMap<Integer, Bundle.Entry>();
+            int parallelism = failFast ? 1 : getBatchParallelism();
+            if (parallelism > 1 && entryIndices.size() > 1) {
+                processEntriesConcurrently(requestBundle, responseBundle, entryIndices, parallelism, localRefMap,
+                        bundleRequestCorrelationId, responseIndexAndEntries);
+            } else {
+                for (Integer entryIndex : entryIndices) {
+                    Bundle.Entry requestEntry = requestBundle.getEntry().get(entryIndex);
+                    Bundle.Entry responseEntry = responseBundle.getEntry().get(entryIndex);
+                    responseIndexAndEntries.put(entryIndex, processEntry(requestEntry, responseEntry, entryIndex, failFast,
+                            localRefMap, bundleRequestCorrelationId));
+                }
+            }
+
+            // Now, let's re-construct the responseBundle
+            responseBundle = reconstructResponseBundle(responseBundle, responseIndexAndEntries);
+            return responseBundle;
+
+        } finally {
+            log.exiting(this.getClass().getName(), "processEntriesForMethod");
+        }
+    }
+
+    /**
+     * Processes the request entries of a batch bundle concurrently, up to 'parallelism' entries at a time.
+     * Each entry is processed with its own persistence implementation, and so in its own transaction, and with
+     * the request context of the bundle.
+     * An entry which may depend on the outcome of other entries (local references, conditional
+     * interactions, custom operations, or an update or delete of the same url) is only started once
+     * all the entries before it have completed, so it sees the same state as with sequential processing.
+     *
+     * @param responseIndexAndEntries
+     *            the map to add the updated response entries to, by entry index
+     */
+    private void processEntriesConcurrently(Bundle requestBundle, Bundle responseBundle, List<Integer> entryIndices,
+            int parallelism, Map<String, String> localRefMap, String bundleRequestCorrelationId,
+            Map<Integer, Bundle.Entry> responseIndexAndEntries) throws Exception {
+        FHIRRequestContext requestContext = FHIRRequestContext.get();
+        // In the container, the default managed executor runs the tasks in the JNDI context of the application,
+        // which the persistence implementation needs to look up its transaction and datasource
+        ExecutorService executor = FHIRServerUtils.getJNDIValue(MANAGED_EXECUTOR_JNDI_NAME, BATCH_ENTRY_POOL);
+        Deque<EntryTask> inProgress = new ArrayDeque<>();
+        Set<String> localIdentifiers = new HashSet<>();
+
+        try {
             for (Integer entryIndex : entryIndices) {
                 Bundle.Entry requestEntry = requestBundle.getEntry().get(entryIndex);
                 Bundle.Entry responseEntry = responseBundle.getEntry().get(entryIndex);
-                Bundle.Entry.Builder responseEntryBuilder = responseEntry.toBuilder();
+                // Updates and deletes of the same resource are applied in order
+                HTTPVerb method = requestEntry.getRequest().getMethod();
+                String url = method.equals(HTTPVerb.PUT) || method.equals(HTTPVerb.DELETE)
+                        ? requestEntry.getRequest().getUrl().getValue() : null;
+
+                boolean independent = isIndependentEntry(requestEntry, localIdentifiers);
+                if (!independent || (url != null && inProgress.stream().anyMatch(t -> url.equals(t.url)))) {
+                    while (!inProgress.isEmpty()) {
+                        completeEntryTask(inProgress.removeFirst(), responseIndexAndEntries);
+                    }
+                }
+
+                if (!independent) {
+                    // Process it on the request thread, as the sequential processing does
+                    responseIndexAndEntries.put(entryIndex, processEntry(requestEntry, responseEntry, entryIndex, false,
+                            localRefMap, bundleRequestCorrelationId));
+                    continue;
+                }
 
-                Bundle.Entry.Request request = requestEntry.getRequest();
-                Bundle.Entry.Response response = responseEntry.getResponse();
+                if (inProgress.size() >= parallelism) {
+                    completeEntryTask(inProgress.removeFirst(), responseIndexAndEntries);
+                }
 
-                StringBuffer requestDescription = new StringBuffer();
-                long initialTime = System.currentTimeMillis();
-                try {
-                    FHIRUrlParser requestURL = new FHIRUrlParser(request.getUrl().getValue());
-
-                    String path = requestURL.getPath();
-                    String query = requestURL.getQuery();
-                    if (log.isLoggable(Level.FINER)) {
-                        log.finer("Processing bundle request entry " + entryIndex + "; method="
-                                + request.getMethod().getValue() + ", url="
-                                + request.getUrl().getValue());
-                        log.finer("--> path: " + path);
-                        log.finer("--> query: " + query);
+                Future<Bundle.Entry> future = executor.submit(() -> {
+                    FHIRRequestContext previous = FHIRRequestContext.get();
+                    FHIRRequestContext.set(requestContext);
+                    try {
+                        FHIRRestHelper entryHelper = new FHIRRestHelper(persistenceHelper.getFHIRPersistenceImplementation());
+                        entryHelper.bundleRequestCorrelationId = this.bundleRequestCorrelationId;
+                        entryHelper.analysisContext = this.analysisContext;
+                        return entryHelper.processEntry(requestEntry, responseEntry, entryIndex, false, localRefMap,
+                                bundleRequestCorrelationId);
+                    } finally {
+                        FHIRRequestContext.set(previous);
                     }
+                });
+                inProgress.addLast(new EntryTask(entryIndex, url, future));
+            }
 
-                    // Log our initial info message for this request.
-                    requestDescription.append("entryIndex:[");
-                    requestDescription.append(entryIndex);
-                    requestDescription.append("] correlationId:[");
-                    requestDescription.append(bundleRequestCorrelationId);
-                    requestDescription.append("] method:[");
-                    requestDescription.append(request.getMethod().getValue());
-                    requestDescription.append("] uri:[");
-                    requestDescription.append(request.getUrl().getValue());
-                    requestDescription.append("]");
-                    log.info("Received bundle request: " + requestDescription.toString());
-
-                    String[] pathTokens = requestURL.getPathTokens();
-                    MultivaluedMap<String, String> queryParams = requestURL.getQueryParameters();
-
-                    // Construct the absolute requestUri to be used for any response bundles associated
-                    // with history and search requests.
-                    String absoluteUri =
-                            getAbsoluteUri(getRequestUri(), request.getUrl().getValue());
-
-                    if (request.getMethod().equals(HTTPVerb.GET)) {
-                        Resource resource = null;
-                        int httpStatus = SC_OK;
-
-                        // Process a GET (read, vread, history, search, etc.).
-                        // Determine the type of request from the path tokens.
-                        if (pathTokens.length > 0
-                                && pathTokens[pathTokens.length - 1].startsWith("$")) {
-                            // This is a custom operation request
-
-                            // Chop off the '$' and save the name
-                            String operationName = pathTokens[pathTokens.length - 1].substring(1);
-
-                            // FHIROperationContext operationContext;
-                            switch (pathTokens.length) {
-                            case 1: {
-                                FHIROperationContext operationContext =
-                                        FHIROperationContext.createSystemOperationContext();
-                                resource =
-                                        doInvoke(operationContext, null, null, null, operationName, null, queryParams, null);
-                            }
-                                break;
-                            case 2: {
-                                FHIROperationContext operationContext =
-                                        FHIROperationContext.createResourceTypeOperationContext();
-                                resource =
-                                        doInvoke(operationContext, pathTokens[0], null, null, operationName, null, queryParams, null);
-                            }
-                                break;
-                            case 3: {
-                                FHIROperationContext operationContext =
-                                        FHIROperationContext.createInstanceOperationContext();
-                                resource =
-                                        doInvoke(operationContext, pathTokens[0], pathTokens[1], null, operationName, null, queryParams, null);
-                            }
-                                break;
-                            default:
-                                String msg = "Invalid URL for custom operation '"
-                                        + pathTokens[pathTokens.length - 1] + "'";
-                                throw buildRestException(msg, IssueType.NOT_FOUND);
-                            }
-                        } else if (pathTokens.length == 1) {
-                            // This is a 'search' request.
-                            if ("_search".equals(pathTokens[0])) {
-                                resource =
-                                        doSearch("Resource", null, null, queryParams, absoluteUri, null, null);
-                            } else {
-                                resource =
-                                        doSearch(pathTokens[0], null, null, queryParams, absoluteUri, null, null);
-                            }
-                        } else if (pathTokens.length == 2) {
-                            // This is a 'read' request.
-                            resource =
-                                    doRead(pathTokens[0], pathTokens[1], true, false, null, null);
-                        } else if (pathTokens.length == 3) {
-                            if ("_history".equals(pathTokens[2])) {
-                                // This is a 'history' request.
-                                resource =
-                                        doHistory(pathTokens[0], pathTokens[1], queryParams, absoluteUri, null);
-                            } else {
-                                // This is a compartment based search
-                                resource =
-                                        doSearch(pathTokens[2], pathTokens[0], pathTokens[1], queryParams, absoluteUri, null, null);
-                            }
-                        } else if (pathTokens.length == 4 && pathTokens[2].equals("_history")) {
-                            // This is a 'vread' request.
-                            resource = doVRead(pathTokens[0], pathTokens[1], pathTokens[3], null);
-                        } else {
-                            String msg = "Unrecognized path in request URL: " + path;
-                            throw buildRestException(msg, IssueType.NOT_FOUND);
-                        }
+            while (!inProgress.isEmpty()) {
+                completeEntryTask(inProgress.removeFirst(), responseIndexAndEntries);
+            }
+        } finally {
+            // Entries which haven't been started yet are not processed if the bundle fails
+            for (EntryTask task : inProgress) {
+                task.future.cancel(false);
+            }
+        }
+    }
 
-                        // Save the results of the operation in the bundle response field.
-                        Bundle.Entry.Response.Builder responseBuilder = response.toBuilder();
-                        responseBuilder.status(string(Integer.toString(httpStatus)));
-                        setBundleResponseStatus(response, httpStatus, requestDescription.toString(), initialTime);
-
-                        responseIndexAndEntries.put(entryIndex, responseEntryBuilder.resource(resource).response(responseBuilder.build()).build());
-                    } else if (request.getMethod().equals(HTTPVerb.POST)) {
-                        // Process a POST (create or search, or custom operation).
-                        if (pathTokens.length > 0
-                                && pathTokens[pathTokens.length - 1].startsWith("$")) {
-                            // This is a custom operation request
-
-                            // Chop off the '$' and save the name
-                            String operationName = pathTokens[pathTokens.length - 1].substring(1);
-
-                            // Retrieve the resource from the request entry.
-                            Resource resource = requestEntry.getResource();
-
-                            FHIROperationContext operationContext;
-                            Resource result;
-                            switch (pathTokens.length) {
-                            case 1:
-                                operationContext =
-                                        FHIROperationContext.createSystemOperationContext();
-                                result = doInvoke(operationContext, null, null, null, operationName, resource, queryParams, null);
-                                break;
-                            case 2:
-                                operationContext =
-                                        FHIROperationContext.createResourceTypeOperationContext();
-                                result = doInvoke(operationContext, pathTokens[0], null, null, operationName, resource, queryParams, null);
-                                break;
-                            case 3:
-                                operationContext =
-                                        FHIROperationContext.createInstanceOperationContext();
-                                result = doInvoke(operationContext, pathTokens[0], pathTokens[1], null, operationName, resource, queryParams, null);
-                                break;
-                            default:
-                                String msg = "Invalid URL for custom operation '"
-                                        + pathTokens[pathTokens.length - 1] + "'";
-                                throw buildRestException(msg, IssueType.NOT_FOUND);
-                            }
+    /**
+     * Waits for the entry to be processed and adds its response entry to the map.
+     */
+    private void completeEntryTask(EntryTask task, Map<Integer, Bundle.Entry> responseIndexAndEntries) throws Exception {
+        try {
+            responseIndexAndEntries.put(task.entryIndex, task.future.get());
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw e;
+        }
+    }
 
-                            Bundle.Entry.Response.Builder responseBuilder = response.toBuilder();
-                            // Add warning and hint issues to response outcome if any.
-                            if (result instanceof OperationOutcome) {
-                                if (((OperationOutcome) result).getIssue() != null) {
-                                    responseBuilder.outcome(result);
-                                }
-                            }
+    /**
+     * Determines whether the request entry can be processed concurrently with the entries before it.
+     *
+     * @param requestEntry
+     *            the request entry
+     * @param localIdentifiers
+     *            the local identifiers of the entries seen so far; the local identifier of the entry is added
+     * @return false if the outcome of the entry may depend on the entries before it
+     */
+    private boolean isIndependentEntry(Bundle.Entry requestEntry, Set<String> localIdentifiers) throws Exception {
+        Bundle.Entry.Request request = requestEntry.getRequest();
+        FHIRUrlParser requestURL = new FHIRUrlParser(request.getUrl().getValue());
+        String[] pathTokens = requestURL.getPathTokens();
+        String query = requestURL.getQuery();
+
+        // Custom operations can do anything
+        if (pathTokens.length > 0 && pathTokens[pathTokens.length - 1].startsWith("$")) {
+            return false;
+        }
+        HTTPVerb method = request.getMethod();
+        if (method.equals(HTTPVerb.POST)) {
+            // Conditional create
+            if (request.getIfNoneExist() != null) {
+                return false;
+            }
+            // A duplicate local identifier is reported by the sequential processing
+            if (requestEntry.getFullUrl() != null && requestEntry.getFullUrl().getValue() != null
+                    && requestEntry.getFullUrl().getValue().startsWith(LOCAL_REF_PREFIX)
+                    && !localIdentifiers.add(requestEntry.getFullUrl().getValue())) {
+                return false;
+            }
+        } else if ((method.equals(HTTPVerb.PUT) || method.equals(HTTPVerb.DELETE))
+                && pathTokens.length == 1 && query != null && !query.isEmpty()) {
+            // Conditional update or delete
+            return false;
+        }
 
-                            responseBuilder.status(string(Integer.toString(SC_OK)));
-                            responseIndexAndEntries.put(entryIndex, responseEntryBuilder
-                                    .resource(result)
-                                    .response(responseBuilder.build())
-                                    .build());
-                            setBundleResponseStatus(response, SC_OK, requestDescription.toString(), initialTime);
-
-                        } else if (pathTokens.length == 2 && "_search".equals(pathTokens[1])) {
-                            // This is a 'search' request.
-                            Bundle searchResults =
-                                    doSearch(pathTokens[0], null, null, queryParams, absoluteUri, null, null);
-
-                            // Save the results of the operation in the bundle response field.
-                            Bundle.Entry.Response.Builder responseBuilder = response.toBuilder();
-                            responseBuilder.status(string(Integer.toString(SC_OK)));
-
-                            responseIndexAndEntries.put(entryIndex, responseEntryBuilder
-                                    .resource(searchResults)
-                                    .response(responseBuilder.build())
-                                    .build());
-
-                            setBundleResponseStatus(response, SC_OK, requestDescription.toString(), initialTime);
-                        } else if (pathTokens.length == 1) {
-                            // This is a 'create' request.
-
-                            // Retrieve the local identifier from the request entry (if present).
-                            String localIdentifier =
-                                    retrieveLocalIdentifier(requestEntry, localRefMap);
-
-                            // Retrieve the resource from the request entry.
-                            Resource resource = requestEntry.getResource();
-                            if (resource == null) {
-                                String msg =
-                                        "BundleEntry.resource is required for bundled create requests.";
-                                throw buildRestException(msg, IssueType.NOT_FOUND);
-                            }
+        // References to the local identifiers of other entries
+        if (requestEntry.getResource() != null && (method.equals(HTTPVerb.POST) || method.equals(HTTPVerb.PUT))) {
+            LocalReferenceFinder finder = new LocalReferenceFinder();
+            requestEntry.getResource().accept(finder);
+            if (finder.found) {
+                return false;
+            }
+        }
+        return true;
+    }
 
-                            // Convert any local references found within the resource to their
-                            // corresponding external reference.
-
-                            ReferenceMappingVisitor<Resource> visitor =
-                                    new ReferenceMappingVisitor<Resource>(localRefMap);
-                            resource.accept(visitor);
-                            resource = visitor.getResult();
-
-                            // Perform the 'create' operation.
-                            String ifNoneExist = request.getIfNoneExist() != null
-                                    ? request.getIfNoneExist().getValue() : null;
-                            FHIRRestOperationResponse ior =
-                                    doCreate(pathTokens[0], resource, ifNoneExist, null);
-
-                            // Get the updated resource from FHIRRestOperationResponse which has the correct ID, meta
-                            // etc.
-                            resource = ior.getResource();
-
-                            // Process and replace bundler Entry
-                            Bundle.Entry resultEntry = setBundleResponseFields(responseEntry, resource, ior.getOperationOutcome(),
-                                    ior.getLocationURI(), ior.getStatus().getStatusCode(), requestDescription.toString(), initialTime);
-
-                            responseIndexAndEntries.put(entryIndex, resultEntry);
-
-                            // Next, if a local identifier was present, we'll need to map this to the
-                            // correct external identifier (e.g. Patient/12345).
-                            addLocalRefMapping(localRefMap, localIdentifier, resource);
-                        } else {
-                            String msg =
-                                    "Request URL for bundled create requests should have a path with exactly one token (<resourceType>).";
-                            throw buildRestException(msg, IssueType.NOT_FOUND);
-                        }
-                    } else if (request.getMethod().equals(HTTPVerb.PUT)) {
-                        String type = null;
-                        String id = null;
-
-                        // Process a PUT (update).
-                        if (pathTokens.length == 1) {
-                            // A single-part url would be a conditional update: <type>?<query>
-                            type = pathTokens[0];
-                            if (query == null || query.isEmpty()) {
-                                String msg =
-                                        "A search query string is required for a conditional update operation.";
-                                throw buildRestException(msg, IssueType.INVALID);
-                            }
-                        } else if (pathTokens.length == 2) {
-                            // A two-part url would be a normal update: <type>/<id>.
-                            type = pathTokens[0];
-                            id = pathTokens[1];
-                        } else {
-                            // A url with any other pattern is an error.
-                            String msg = "Request URL for bundled PUT request should have path part with either one or two tokens "
-                                    + "(<resourceType> or <resourceType>/<id>).";
-                            throw buildRestException(msg, IssueType.INVALID);
-                        }
+    /**
+     * The maximum number of entries of a batch bundle which are processed concurrently for the current tenant.
+     */
+    private int getBatchParallelism() {
+        if (persistenceHelper == null) {
+            return 1;
+        }
+        Integer parallelism = FHIRConfigHelper.getIntProperty(FHIRConfiguration.PROPERTY_BATCH_PARALLELISM, 1);
+        return parallelism == null ? 1 : Math.min(parallelism, MAX_BATCH_ENTRY_THREADS);
+    }
 
-                        // Retrieve the resource from the request entry.
-                        Resource resource = requestEntry.getResource();
+    /**
+     * A batch entry submitted to the pool
+     */
+    private static class EntryTask {
+        private final int entryIndex;
+        private final String url;
+        private final Future<Bundle.Entry> future;
+
+        private EntryTask(int entryIndex, String url, Future<Bundle.Entry> future) {
+            this.entryIndex = entryIndex;
+            this.url = url;
+            this.future = future;
+        }
+    }
 
-                        // Convert any local references found within the resource to their
-                        // corresponding external reference.
-                        ReferenceMappingVisitor<Resource> visitor =
-                                new ReferenceMappingVisitor<Resource>(localRefMap);
-                        resource.accept(visitor);
-                        resource = visitor.getResult();
-
-                        // Perform the 'update' operation.
-                        String ifMatchBundleValue = null;
-                        if (request.getIfMatch() != null) {
-                            ifMatchBundleValue = request.getIfMatch().getValue();
-                        }
-                        FHIRRestOperationResponse ior =
-                                doUpdate(type, id, resource, ifMatchBundleValue, query, null);
-
-                        // Process and replace bundler Entry
-                        Bundle.Entry resultEntry = setBundleResponseFields(responseEntry, ior.getResource(), ior.getOperationOutcome(),
-                                ior.getLocationURI(), ior.getStatus().getStatusCode(), requestDescription.toString(), initialTime);
-
-                        responseIndexAndEntries.put(entryIndex, resultEntry);
-
-                    } else if (request.getMethod().equals(HTTPVerb.DELETE)) {
-                        String type = null;
-                        String id = null;
-
-                        // Process a DELETE.
-                        if (pathTokens.length == 1) {
-                            // A single-part url would be a conditional delete: <type>?<query>
-                            type = pathTokens[0];
-                            if (query == null || query.isEmpty()) {
-                                String msg =
-                                        "A search query string is required for a conditional delete operation.";
-                                throw buildRestException(msg, IssueType.INVALID);
-                            }
-                        } else if (pathTokens.length == 2) {
-                            type = pathTokens[0];
-                            id = pathTokens[1];
-                        } else {
-                            String msg = "Request URL for bundled DELETE request should have path part with one or two tokens "
-                                    + "(<resourceType> or <resourceType>/<id>).";
-                            throw buildRestException(msg, IssueType.INVALID);
-                        }
+    /**
+     * Finds whether a resource contains a reference to a local identifier
+     */
+    private static class LocalReferenceFinder extends DefaultVisitor {
+        private boolean found = false;
+
+        private LocalReferenceFinder() {
+            super(true);
+        }
+
+        @Override
+        public boolean visit(java.lang.String elementName, int elementIndex, Reference reference) {
+            if (reference.getReference() != null && reference.getReference().getValue() != null
+                    && reference.getReference().getValue().startsWith(LOCAL_REF_PREFIX)) {
+                found = true;
+            }
+            return !found;
+        }
+    }
+
+    /**
+     * Daemon threads for the batch entry pool
+     */
+    private static class BatchEntryThreadFactory implements ThreadFactory {
+        private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "fhir-batch-entry-" + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+    /**
+     * Processes a single request entry of the request bundle.
+     *
+     * @param requestEntry
+     *            the request entry
+     * @param responseEntry
+     *            the corresponding response entry
+     * @param entryIndex
+     *            the index of the entry in the bundle
+     * @return the updated response entry
+     */
+    private Bundle.Entry processEntry(Bundle.Entry requestEntry, Bundle.Entry responseEntry, int entryIndex,
+            boolean failFast, Map<String, String> localRefMap, String bundleRequestCorrelationId) throws Exception {
+        Bundle.Entry updatedResponseEntry = null;
+        Bundle.Entry.Builder responseEntryBuilder = responseEntry.toBuilder();
 
-                        // Perform the 'delete' operation.
-                        FHIRRestOperationResponse ior = doDelete(type, id, query, null);
+        Bundle.Entry.Request request = requestEntry.getRequest();
+        Bundle.Entry.Response response = responseEntry.getResponse();
 
-                        // Process and replace bundler Entry
-                        Bundle.Entry resultEntry = setBundleResponseFields(responseEntry, ior.getResource(), ior.getOperationOutcome(),
-                                null, ior.getStatus().getStatusCode(), requestDescription.toString(), initialTime);
+        StringBuffer requestDescription = new StringBuffer();
+        long initialTime = System.currentTimeMillis();
+        try {
+            FHIRUrlParser requestURL = new FHIRUrlParser(request.getUrl().getValue());
 
-                        responseIndexAndEntries.put(entryIndex, resultEntry);
+            String path = requestURL.getPath();
+            String query = requestURL.getQuery();
+            if (log.isLoggable(Level.FINER)) {
+                log.finer("Processing bundle request entry " + entryIndex + "; method="
+                        + request.getMethod().getValue() + ", url="
+                        + request.getUrl().getValue());
+                log.finer("--> path: " + path);
+                log.finer("--> query: " + query);
+            }
+
+            // Log our initial info message for this request.
+            requestDescription.append("entryIndex:[");
+            requestDescription.append(entryIndex);
+            requestDescription.append("] correlationId:[");
+            requestDescription.append(bundleRequestCorrelationId);
+            requestDescription.append("] method:[");
+            requestDescription.append(request.getMethod().getValue());
+            requestDescription.append("] uri:[");
+            requestDescription.append(request.getUrl().getValue());
+            requestDescription.append("]");
+            log.info("Received bundle request: " + requestDescription.toString());
+
+            String[] pathTokens = requestURL.getPathTokens();
+            MultivaluedMap<String, String> queryParams = requestURL.getQueryParameters();
+
+            // Construct the absolute requestUri to be used for any response bundles associated
+            // with history and search requests.
+            String absoluteUri =
+                    getAbsoluteUri(getRequestUri(), request.getUrl().getValue());
+
+            if (request.getMethod().equals(HTTPVerb.GET)) {
+                Resource resource = null;
+                int httpStatus = SC_OK;
+
+                // Process a GET (read, vread, history, search, etc.).
+                // Determine the type of request from the path tokens.
+                if (pathTokens.length > 0
+                        && pathTokens[pathTokens.length - 1].startsWith("$")) {
+                    // This is a custom operation request
+
+                    // Chop off the '$' and save the name
+                    String operationName = pathTokens[pathTokens.length - 1].substring(1);
+
+                    // FHIROperationContext operationContext;
+                    switch (pathTokens.length) {
+                    case 1: {
+                        FHIROperationContext operationContext =
+                                FHIROperationContext.createSystemOperationContext();
+                        resource =
+                                doInvoke(operationContext, null, null, null, operationName, null, queryParams, null);
+                    }
+                        break;
+                    case 2: {
+                        FHIROperationContext operationContext =
+                                FHIROperationContext.createResourceTypeOperationContext();
+                        resource =
+                                doInvoke(operationContext, pathTokens[0], null, null, operationName, null, queryParams, null);
+                    }
+                        break;
+                    case 3: {
+                        FHIROperationContext operationContext =
+                                FHIROperationContext.createInstanceOperationContext();
+                        resource =
+                                doInvoke(operationContext, pathTokens[0], pathTokens[1], null, operationName, null, queryParams, null);
+                    }
+                        break;
+                    default:
+                        String msg = "Invalid URL for custom operation '"
+                                + pathTokens[pathTokens.length - 1] + "'";
+                        throw buildRestException(msg, IssueType.NOT_FOUND);
+                    }
+                } else if (pathTokens.length == 1) {
+                    // This is a 'search' request.
+                    if ("_search".equals(pathTokens[0])) {
+                        resource =
+                                doSearch("Resource", null, null, queryParams, absoluteUri, null, null);
                     } else {
-                        // Internal error, should not get here!
-                        throw new IllegalStateException("Internal Server Error: reached an unexpected code location.");
+                        resource =
+                                doSearch(pathTokens[0], null, null, queryParams, absoluteUri, null, null);
                     }
-                } catch (FHIRPersistenceResourceNotFoundException e) {
-                    if (failFast) {
-                        String msg = "Error while processing request bundle.";
-                        throw new FHIRRestBundledRequestException(msg).withIssue(e.getIssues());
+                } else if (pathTokens.length == 2) {
+                    // This is a 'read' request.
+                    resource =
+                            doRead(pathTokens[0], pathTokens[1], true, false, null, null);
+                } else if (pathTokens.length == 3) {
+                    if ("_history".equals(pathTokens[2])) {
+                        // This is a 'history' request.
+                        resource =
+                                doHistory(pathTokens[0], pathTokens[1], queryParams, absoluteUri, null);
+                    } else {
+                        // This is a compartment based search
+                        resource =
+                                doSearch(pathTokens[2], pathTokens[0], pathTokens[1], queryParams, absoluteUri, null, null);
+                    }
+                } else if (pathTokens.length == 4 && pathTokens[2].equals("_history")) {
+                    // This is a 'vread' request.
+                    resource = doVRead(pathTokens[0], pathTokens[1], pathTokens[3], null);
+                } else {
+                    String msg = "Unrecognized path in request URL: " + path;
+                    throw buildRestException(msg, IssueType.NOT_FOUND);
+                }
+
+                // Save the results of the operation in the bundle response field.
+                Bundle.Entry.Response.Builder responseBuilder = response.toBuilder();
+                responseBuilder.status(string(Integer.toString(httpStatus)));
+                setBundleResponseStatus(response, httpStatus, requestDescription.toString(), initialTime);
+
+                updatedResponseEntry = responseEntryBuilder.resource(resource).response(responseBuilder.build()).build();
+            } else if (request.getMethod().equals(HTTPVerb.POST)) {
+                // Process a POST (create or search, or custom operation).
+                if (pathTokens.length > 0
+                        && pathTokens[pathTokens.length - 1].startsWith("$")) {
+                    // This is a custom operation request
+
+                    // Chop off the '$' and save the name
+                    String operationName = pathTokens[pathTokens.length - 1].substring(1);
+
+                    // Retrieve the resource from the request entry.
+                    Resource resource = requestEntry.getResource();
+
+                    FHIROperationContext operationContext;
+                    Resource result;
+                    switch (pathTokens.length) {
+                    case 1:
+                        operationContext =
+                                FHIROperationContext.createSystemOperationContext();
+                        result = doInvoke(operationContext, null, null, null, operationName, resource, queryParams, null);
+                        break;
+                    case 2:
+                        operationContext =
+                                FHIROperationContext.createResourceTypeOperationContext();
+                        result = doInvoke(operationContext, pathTokens[0], null, null, operationName, resource, queryParams, null);
+                        break;
+                    case 3:
+                        operationContext =
+                                FHIROperationContext.createInstanceOperationContext();
+                        result = doInvoke(operationContext, pathTokens[0], pathTokens[1], null, operationName, resource, queryParams, null);
+                        break;
+                    default:
+                        String msg = "Invalid URL for custom operation '"
+                                + pathTokens[pathTokens.length - 1] + "'";
+                        throw buildRestException(msg, IssueType.NOT_FOUND);
                     }
+
                     Bundle.Entry.Response.Builder responseBuilder = response.toBuilder();
-                    responseBuilder.status(string(Integer.toString(SC_NOT_FOUND)));
+                    // Add warning and hint issues to response outcome if any.
+                    if (result instanceof OperationOutcome) {
+                        if (((OperationOutcome) result).getIssue() != null) {
+                            responseBuilder.outcome(result);
+                        }
+                    }
 
-                    responseIndexAndEntries.put(entryIndex, responseEntryBuilder
-                            .resource(FHIRUtil.buildOperationOutcome(e, false))
+                    responseBuilder.status(string(Integer.toString(SC_OK)));
+                    updatedResponseEntry = responseEntryBuilder
+                            .resource(result)
                             .response(responseBuilder.build())
-                            .build());
+                            .build();
+                    setBundleResponseStatus(response, SC_OK, requestDescription.toString(), initialTime);
 
-                    setBundleResponseStatus(response, SC_NOT_FOUND, requestDescription.toString(), initialTime);
-                } catch (FHIRPersistenceResourceDeletedException e) {
-                    if (failFast) {
-                        String msg = "Error while processing request bundle.";
-                        throw new FHIRRestBundledRequestException(msg).withIssue(e.getIssues());
-                    }
+                } else if (pathTokens.length == 2 && "_search".equals(pathTokens[1])) {
+                    // This is a 'search' request.
+                    Bundle searchResults =
+                            doSearch(pathTokens[0], null, null, queryParams, absoluteUri, null, null);
+
+                    // Save the results of the operation in the bundle response field.
                     Bundle.Entry.Response.Builder responseBuilder = response.toBuilder();
-                    responseBuilder.status(string(Integer.toString(SC_GONE)));
+                    responseBuilder.status(string(Integer.toString(SC_OK)));
 
-                    responseIndexAndEntries.put(entryIndex, responseEntryBuilder
-                            .resource(FHIRUtil.buildOperationOutcome(e, false))
+                    updatedResponseEntry = responseEntryBuilder
+                            .resource(searchResults)
                             .response(responseBuilder.build())
-                            .build());
+                            .build();
 
-                    setBundleResponseStatus(response, SC_GONE, requestDescription.toString(), initialTime);
-                } catch (FHIROperationException e) {
-                    if (failFast) {
-                        String msg = "Error while processing request bundle.";
-                        throw new FHIRRestBundledRequestException(msg).withIssue(e.getIssues());
+                    setBundleResponseStatus(response, SC_OK, requestDescription.toString(), initialTime);
+                } else if (pathTokens.length == 1) {
+                    // This is a 'create' request.
+
+                    // Retrieve the local identifier from the request entry (if present).
+                    String localIdentifier =
+                            retrieveLocalIdentifier(requestEntry, localRefMap);
+
+                    // Retrieve the resource from the request entry.
+                    Resource resource = requestEntry.getResource();
+                    if (resource == null) {
+                        String msg =
+                                "BundleEntry.resource is required for bundled create requests.";
+                        throw buildRestException(msg, IssueType.NOT_FOUND);
                     }
 
-                    Status status;
-                    if (e instanceof FHIRSearchException) {
-                        status = Status.BAD_REQUEST;
-                    } else {
-                        status = IssueTypeToHttpStatusMapper.issueListToStatus(e.getIssues());
+                    // Convert any local references found within the resource to their
+                    // corresponding external reference.
+
+                    ReferenceMappingVisitor<Resource> visitor =
+                            new ReferenceMappingVisitor<Resource>(localRefMap);
+                    resource.accept(visitor);
+                    resource = visitor.getResult();
+
+                    // Perform the 'create' operation.
+                    String ifNoneExist = request.getIfNoneExist() != null
+                            ? request.getIfNoneExist().getValue() : null;
+                    FHIRRestOperationResponse ior =
+                            doCreate(pathTokens[0], resource, ifNoneExist, null);
+
+                    // Get the updated resource from FHIRRestOperationResponse which has the correct ID, meta
+                    // etc.
+                    resource = ior.getResource();
+
+                    // Process and replace bundler Entry
+                    Bundle.Entry resultEntry = setBundleResponseFields(responseEntry, resource, ior.getOperationOutcome(),
+                            ior.getLocationURI(), ior.getStatus().getStatusCode(), requestDescription.toString(), initialTime);
+
+                    updatedResponseEntry = resultEntry;
+
+                    // Next, if a local identifier was present, we'll need to map this to the
+                    // correct external identifier (e.g. Patient/12345).
+                    addLocalRefMapping(localRefMap, localIdentifier, resource);
+                } else {
+                    String msg =
+                            "Request URL for bundled create requests should have a path with exactly one token (<resourceType>).";
+                    throw buildRestException(msg, IssueType.NOT_FOUND);
+                }
+            } else if (request.getMethod().equals(HTTPVerb.PUT)) {
+                String type = null;
+                String id = null;
+
+                // Process a PUT (update).
+                if (pathTokens.length == 1) {
+                    // A single-part url would be a conditional update: <type>?<query>
+                    type = pathTokens[0];
+                    if (query == null || query.isEmpty()) {
+                        String msg =
+                                "A search query string is required for a conditional update operation.";
+                        throw buildRestException(msg, IssueType.INVALID);
                     }
+                } else if (pathTokens.length == 2) {
+                    // A two-part url would be a normal update: <type>/<id>.
+                    type = pathTokens[0];
+                    id = pathTokens[1];
+                } else {
+                    // A url with any other pattern is an error.
+                    String msg = "Request URL for bundled PUT request should have path part with either one or two tokens "
+                            + "(<resourceType> or <resourceType>/<id>).";
+                    throw buildRestException(msg, IssueType.INVALID);
+                }
 
-                    Bundle.Entry.Response.Builder responseBuilder = response.toBuilder();
-                    responseBuilder.status(string(Integer.toString(status.getStatusCode())));
+                // Retrieve the resource from the request entry.
+                Resource resource = requestEntry.getResource();
 
-                    responseIndexAndEntries.put(entryIndex, responseEntryBuilder.resource(FHIRUtil.buildOperationOutcome(e, false))
-                            .response(responseBuilder.build()).build());
+                // Convert any local references found within the resource to their
+                // corresponding external reference.
+                ReferenceMappingVisitor<Resource> visitor =
+                        new ReferenceMappingVisitor<Resource>(localRefMap);
+                resource.accept(visitor);
+                resource = visitor.getResult();
 
-                    setBundleResponseStatus(response, status.getStatusCode(), requestDescription.toString(), initialTime);
+                // Perform the 'update' operation.
+                String ifMatchBundleValue = null;
+                if (request.getIfMatch() != null) {
+                    ifMatchBundleValue = request.getIfMatch().getValue();
                 }
-            } // end foreach entry
+                FHIRRestOperationResponse ior =
+                        doUpdate(type, id, resource, ifMatchBundleValue, query, null);
 
-            // Now, let's re-construct the responseBundle
-            responseBundle = reconstructResponseBundle(responseBundle, responseIndexAndEntries);
-            return responseBundle;
+                // Process and replace bundler Entry
+                Bundle.Entry resultEntry = setBundleResponseFields(responseEntry, ior.getResource(), ior.getOperationOutcome(),
+                        ior.getLocationURI(), ior.getStatus().getStatusCode(), requestDescription.toString(), initialTime);
 
-        } finally {
-            log.exiting(this.getClass().getName(), "processEntriesForMethod");
+                updatedResponseEntry = resultEntry;
+
+            } else if (request.getMethod().equals(HTTPVerb.DELETE)) {
+                String type = null;
+                String id = null;
+
+                // Process a DELETE.
+                if (pathTokens.length == 1) {
+                    // A single-part url would be a conditional delete: <type>?<query>
+                    type = pathTokens[0];
+                    if (query == null || query.isEmpty()) {
+                        String msg =
+                                "A search query string is required for a conditional delete operation.";
+                        throw buildRestException(msg, IssueType.INVALID);
+                    }
+                } else if (pathTokens.length == 2) {
+                    type = pathTokens[0];
+                    id = pathTokens[1];
+                } else {
+                    String msg = "Request URL for bundled DELETE request should have path part with one or two tokens "
+                            + "(<resourceType> or <resourceType>/<id>).";
+                    throw buildRestException(msg, IssueType.INVALID);
+                }
+
+                // Perform the 'delete' operation.
+                FHIRRestOperationResponse ior = doDelete(type, id, query, null);
+
+                // Process and replace bundler Entry
+                Bundle.Entry resultEntry = setBundleResponseFields(responseEntry, ior.getResource(), ior.getOperationOutcome(),
+                        null, ior.getStatus().getStatusCode(), requestDescription.toString(), initialTime);
+
+                updatedResponseEntry = resultEntry;
+            } else {
+                // Internal error, should not get here!
+                throw new IllegalStateException("Internal Server Error: reached an unexpected code location.");
+            }
+        } catch (FHIRPersistenceResourceNotFoundException e) {
+            if (failFast) {
+                String msg = "Error while processing request bundle.";
+                throw new FHIRRestBundledRequestException(msg).withIssue(e.getIssues());
+            }
+            Bundle.Entry.Response.Builder responseBuilder = response.toBuilder();
+            responseBuilder.status(string(Integer.toString(SC_NOT_FOUND)));
+
+            updatedResponseEntry = responseEntryBuilder
+                    .resource(FHIRUtil.buildOperationOutcome(e, false))
+                    .response(responseBuilder.build())
+                    .build();
+
+            setBundleResponseStatus(response, SC_NOT_FOUND, requestDescription.toString(), initialTime);
+        } catch (FHIRPersistenceResourceDeletedException e) {
+            if (failFast) {
+                String msg = "Error while processing request bundle.";
+                throw new FHIRRestBundledRequestException(msg).withIssue(e.getIssues());
+            }
+            Bundle.Entry.Response.Builder responseBuilder = response.toBuilder();
+            responseBuilder.status(string(Integer.toString(SC_GONE)));
+
+            updatedResponseEntry = responseEntryBuilder
+                    .resource(FHIRUtil.buildOperationOutcome(e, false))
+                    .response(responseBuilder.build())
+                    .build();
+
+            setBundleResponseStatus(response, SC_GONE, requestDescription.toString(), initialTime);
+        } catch (FHIROperationException e) {
+            if (failFast) {
+                String msg = "Error while processing request bundle.";
+                throw new FHIRRestBundledRequestException(msg).withIssue(e.getIssues());
+            }
+
+            Status status;
+            if (e instanceof FHIRSearchException) {
+                status = Status.BAD_REQUEST;
+            } else {
+                status = IssueTypeToHttpStatusMapper.issueListToStatus(e.getIssues());
+            }
+
+            Bundle.Entry.Response.Builder responseBuilder = response.toBuilder();
+            responseBuilder.status(string(Integer.toString(status.getStatusCode())));
+
+            updatedResponseEntry = responseEntryBuilder.resource(FHIRUtil.buildOperationOutcome(e, false))
+                    .response(responseBuilder.build()).build();
+
+            setBundleResponseStatus(response, status.getStatusCode(), requestDescription.toString(), initialTime);
         }
+        return updatedResponseEntry;
     }
 
     /**
@@ -2186,13 +2473,18 @@ public class FHIRRestHelper implements FHIRResourceHelpers {
     private Bundle createSearchBundle(List<Resource> resources, FHIRSearchContext searchContext, String type)
         throws Exception {
 
-        // throws if we have a count of more than 2,147,483,647 resources
-        UnsignedInt totalCount = UnsignedInt.of(searchContext.getTotalCount());
         // generate ID for this bundle and set total
         Bundle.Builder bundleBuider = Bundle.builder()
                                             .type(BundleType.SEARCHSET)
-                                            .id(UUID.randomUUID().toString())
-                                            .total(totalCount);
+                                            .id(UUID.randomUUID().toString());
+
+        // with _total=none, the matches weren't counted (unless _summary=count asks for the count itself);
+        // with _total=estimate, the total is the database's estimate
+        if (!TotalValueSet.NONE.equals(searchContext.getTotalParameter())
+                || SummaryValueSet.COUNT.equals(searchContext.getSummaryParameter())) {
+            // throws if we have a count of more than 2,147,483,647 resources
+            bundleBuider.total(UnsignedInt.of(searchContext.getTotalCount()));
+        }
 
         for (Resource resource : resources) {
             if (resource.getId() == null) {
@@ -2328,6 +2620,9 @@ public class FHIRRestHelper implements FHIRResourceHelpers {
                                 + context.getPageNumber() + "&", "").replace("_page="
                                         + context.getPageNumber(), "");
 
+                // remove any existing _cursor parameter from the query string
+                nextLinkUrl = removeContinuationToken(nextLinkUrl, context.getContinuationToken());
+
                 if (nextLinkUrl.contains("?")) {
                     if (!nextLinkUrl.endsWith("?")) {
                         // there are other parameters in the query string
@@ -2340,6 +2635,11 @@ public class FHIRRestHelper implements FHIRResourceHelpers {
                 // add new _page parameter to the query string
                 nextLinkUrl += "_page=" + nextPageNumber;
 
+                // add the token which lets the persistence layer continue after this page, if any
+                if (context.getNextContinuationToken() != null) {
+                    nextLinkUrl += "&" + SearchConstants.CURSOR + "=" + context.getNextContinuationToken();
+                }
+
                 // create 'next' link
                 Bundle.Link nextLink =
                         Bundle.Link.builder().relation(string("next")).url(Url.of(nextLinkUrl)).build();
@@ -2358,6 +2658,9 @@ public class FHIRRestHelper implements FHIRResourceHelpers {
                                 + context.getPageNumber() + "&", "").replace("_page="
                                         + context.getPageNumber(), "");
 
+                // the previous page is always found by its page number
+                prevLinkUrl = removeContinuationToken(prevLinkUrl, context.getContinuationToken());
+
                 if (prevLinkUrl.contains("?")) {
                     if (!prevLinkUrl.endsWith("?")) {
                         // there are other parameters in the query string
@@ -2380,6 +2683,17 @@ public class FHIRRestHelper implements FHIRResourceHelpers {
         return bundleBuilder.build();
     }
 
+    /**
+     * Remove the _cursor parameter with the given value from the query string of the given URL
+     */
+    private String removeContinuationToken(String url, String continuationToken) {
+        if (continuationToken == null) {
+            return url;
+        }
+        String parameter = SearchConstants.CURSOR + "=" + continuationToken;
+        return url.replace("&" + parameter, "").replace(parameter + "&", "").replace(parameter, "");
+    }
+
     /**
      * Get the original request URI from either the HttpServletRequest or a configured Header (in case of re-writing proxies).
      *
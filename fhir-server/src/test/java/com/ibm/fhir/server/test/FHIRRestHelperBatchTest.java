@@ -0,0 +1,320 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.server.test;
+
+import static com.ibm.fhir.model.type.String.string;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.ibm.fhir.config.FHIRConfiguration;
+import com.ibm.fhir.config.FHIRRequestContext;
+import com.ibm.fhir.core.HTTPReturnPreference;
+import com.ibm.fhir.model.resource.Bundle;
+import com.ibm.fhir.model.resource.Observation;
+import com.ibm.fhir.model.resource.OperationOutcome;
+import com.ibm.fhir.model.resource.Patient;
+import com.ibm.fhir.model.resource.Resource;
+import com.ibm.fhir.model.type.Code;
+import com.ibm.fhir.model.type.CodeableConcept;
+import com.ibm.fhir.model.type.Coding;
+import com.ibm.fhir.model.type.HumanName;
+import com.ibm.fhir.model.type.Id;
+import com.ibm.fhir.model.type.Instant;
+import com.ibm.fhir.model.type.Meta;
+import com.ibm.fhir.model.type.Reference;
+import com.ibm.fhir.model.type.Uri;
+import com.ibm.fhir.model.type.code.BundleType;
+import com.ibm.fhir.model.type.code.HTTPVerb;
+import com.ibm.fhir.model.type.code.ObservationStatus;
+import com.ibm.fhir.persistence.FHIRPersistence;
+import com.ibm.fhir.persistence.FHIRPersistenceTransaction;
+import com.ibm.fhir.persistence.MultiResourceResult;
+import com.ibm.fhir.persistence.SingleResourceResult;
+import com.ibm.fhir.persistence.context.FHIRPersistenceContext;
+import com.ibm.fhir.persistence.exception.FHIRPersistenceException;
+import com.ibm.fhir.persistence.helper.PersistenceHelper;
+import com.ibm.fhir.server.util.FHIRRestHelper;
+
+/**
+ * Tests the processing of the entries of batch bundles, which are processed concurrently
+ * when fhirServer/core/batchParallelism is greater than 1 (as configured for the default tenant).
+ */
+public class FHIRRestHelperBatchTest {
+    private static final String BASE_URI = "https://localhost:9443/fhir-server/api/v4";
+
+    private InMemoryPersistence persistence;
+
+    @BeforeClass
+    public void setup() {
+        FHIRConfiguration.setConfigHome("target/test-classes");
+    }
+
+    @AfterMethod
+    public void cleanup() {
+        FHIRRequestContext.remove();
+    }
+
+    @Test
+    public void testIndependentEntriesInParallel() throws Exception {
+        setRequestContext("default");
+        persistence = new InMemoryPersistence();
+        // each create waits until all three are in progress, which only happens if they run concurrently
+        persistence.barrier = new CyclicBarrier(3);
+
+        Bundle response = doBundle(createPatient("A"), createPatient("B"), createPatient("C"));
+
+        assertEquals(persistence.maxActive.get(), 3);
+        assertEquals(persistence.barrierTimeouts.get(), 0);
+        assertCreatedPatients(response, "A", "B", "C");
+    }
+
+    @Test
+    public void testLocalReferencesSerialized() throws Exception {
+        setRequestContext("default");
+        persistence = new InMemoryPersistence();
+
+        String patientFullUrl = "urn:uuid:" + UUID.randomUUID();
+        Bundle.Entry patientEntry = createPatient("A").toBuilder().fullUrl(Uri.of(patientFullUrl)).build();
+        Bundle response = doBundle(patientEntry, createObservation(patientFullUrl), createPatient("B"));
+
+        assertEquals(status(response, 0), "201");
+        assertEquals(status(response, 1), "201");
+        assertEquals(status(response, 2), "201");
+        Patient patient = (Patient) response.getEntry().get(0).getResource();
+        Observation observation = (Observation) response.getEntry().get(1).getResource();
+        // the local reference was resolved, so the patient was created before the observation was started
+        assertEquals(observation.getSubject().getReference().getValue(), "Patient/" + patient.getId());
+        assertTrue(persistence.events.indexOf("end Patient A") < persistence.events.indexOf("start Observation"),
+                persistence.events.toString());
+        // an entry which depends on the entries before it is processed on the request thread
+        assertEquals(persistence.threads.get("Observation"), Thread.currentThread().getName());
+    }
+
+    @Test
+    public void testEntryFailure() throws Exception {
+        setRequestContext("default");
+        persistence = new InMemoryPersistence();
+        persistence.failingFamily = "B";
+
+        Bundle response = doBundle(createPatient("A"), createPatient("B"), createPatient("C"));
+
+        assertEquals(status(response, 0), "201");
+        assertEquals(status(response, 1), "500");
+        assertEquals(status(response, 2), "201");
+        assertTrue(response.getEntry().get(1).getResource() instanceof OperationOutcome);
+        assertEquals(family(response.getEntry().get(0).getResource()), "A");
+        assertEquals(family(response.getEntry().get(2).getResource()), "C");
+        assertEquals(persistence.resources.size(), 2);
+    }
+
+    @Test
+    public void testSequential() throws Exception {
+        // batchParallelism is 1 for this tenant
+        setRequestContext("sequential");
+        persistence = new InMemoryPersistence();
+        persistence.failingFamily = "B";
+
+        Bundle response = doBundle(createPatient("A"), createPatient("B"), createPatient("C"));
+
+        assertEquals(persistence.maxActive.get(), 1);
+        assertEquals(persistence.events, Arrays.asList("start Patient A", "end Patient A", "start Patient B",
+                "start Patient C", "end Patient C"));
+        for (String thread : persistence.threads.values()) {
+            assertEquals(thread, Thread.currentThread().getName());
+        }
+        assertEquals(status(response, 0), "201");
+        assertEquals(status(response, 1), "500");
+        assertEquals(status(response, 2), "201");
+        assertEquals(family(response.getEntry().get(0).getResource()), "A");
+        assertEquals(family(response.getEntry().get(2).getResource()), "C");
+    }
+
+    private void setRequestContext(String tenantId) throws Exception {
+        FHIRRequestContext context = new FHIRRequestContext(tenantId);
+        context.setOriginalRequestUri(BASE_URI);
+        context.setReturnPreference(HTTPReturnPreference.REPRESENTATION);
+        FHIRRequestContext.set(context);
+    }
+
+    private Bundle doBundle(Bundle.Entry... entries) throws Exception {
+        Bundle bundle = Bundle.builder()
+                .type(BundleType.BATCH)
+                .entry(entries)
+                .build();
+        FHIRRestHelper helper = new FHIRRestHelper(persistence, new PersistenceHelper() {
+            @Override
+            public FHIRPersistence getFHIRPersistenceImplementation() {
+                return persistence;
+            }
+
+            @Override
+            public FHIRPersistence getFHIRPersistenceImplementation(String factoryPropertyName) {
+                return persistence;
+            }
+        });
+        Bundle response = helper.doBundle(bundle, null);
+        assertEquals(response.getEntry().size(), entries.length);
+        return response;
+    }
+
+    private void assertCreatedPatients(Bundle response, String... families) {
+        for (int i = 0; i < families.length; i++) {
+            assertEquals(status(response, i), "201");
+            assertEquals(family(response.getEntry().get(i).getResource()), families[i]);
+        }
+    }
+
+    private String status(Bundle response, int index) {
+        return response.getEntry().get(index).getResponse().getStatus().getValue();
+    }
+
+    private static String family(Resource resource) {
+        return ((Patient) resource).getName().get(0).getFamily().getValue();
+    }
+
+    private Bundle.Entry createPatient(String family) {
+        Patient patient = Patient.builder()
+                .name(HumanName.builder().family(string(family)).build())
+                .build();
+        return Bundle.Entry.builder()
+                .request(Bundle.Entry.Request.builder().method(HTTPVerb.POST).url(Uri.of("Patient")).build())
+                .resource(patient)
+                .build();
+    }
+
+    private Bundle.Entry createObservation(String subject) {
+        Observation observation = Observation.builder()
+                .status(ObservationStatus.FINAL)
+                .code(CodeableConcept.builder()
+                    .coding(Coding.builder().system(Uri.of("http://loinc.org")).code(Code.of("29463-7")).build())
+                    .build())
+                .subject(Reference.builder().reference(string(subject)).build())
+                .build();
+        return Bundle.Entry.builder()
+                .request(Bundle.Entry.Request.builder().method(HTTPVerb.POST).url(Uri.of("Observation")).build())
+                .resource(observation)
+                .build();
+    }
+
+    /**
+     * Stores the created resources in memory and records how the creates were run.
+     */
+    private static class InMemoryPersistence implements FHIRPersistence {
+        private final Map<String, Resource> resources = new ConcurrentHashMap<>();
+        private final List<String> events = Collections.synchronizedList(new ArrayList<>());
+        // the thread which created each resource, by resource type (and family for patients)
+        private final Map<String, String> threads = new ConcurrentHashMap<>();
+        private final AtomicInteger active = new AtomicInteger();
+        private final AtomicInteger maxActive = new AtomicInteger();
+        private final AtomicInteger barrierTimeouts = new AtomicInteger();
+        private volatile CyclicBarrier barrier;
+        private volatile String failingFamily;
+
+        @Override
+        public <T extends Resource> SingleResourceResult<T> create(FHIRPersistenceContext context, T resource)
+                throws FHIRPersistenceException {
+            String name = resource.getClass().getSimpleName() + (resource instanceof Patient ? " " + family(resource) : "");
+            threads.put(name, Thread.currentThread().getName());
+            events.add("start " + name);
+            int count = active.incrementAndGet();
+            maxActive.accumulateAndGet(count, Math::max);
+            try {
+                if (resource instanceof Patient && family(resource).equals(failingFamily)) {
+                    throw new FHIRPersistenceException("Unable to create " + name);
+                }
+                if (barrier != null) {
+                    try {
+                        barrier.await(10, TimeUnit.SECONDS);
+                    } catch (TimeoutException | BrokenBarrierException e) {
+                        barrierTimeouts.incrementAndGet();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                String id = UUID.randomUUID().toString();
+                @SuppressWarnings("unchecked")
+                T created = (T) resource.toBuilder()
+                        .id(id)
+                        .meta(Meta.builder()
+                            .versionId(Id.of("1"))
+                            .lastUpdated(Instant.now(ZoneOffset.UTC))
+                            .build())
+                        .build();
+                resources.put(id, created);
+                events.add("end " + name);
+                return new SingleResourceResult.Builder<T>()
+                        .success(true)
+                        .resource(created)
+                        .build();
+            } finally {
+                active.decrementAndGet();
+            }
+        }
+
+        @Override
+        public <T extends Resource> SingleResourceResult<T> read(FHIRPersistenceContext context, Class<T> resourceType,
+                String logicalId) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public <T extends Resource> SingleResourceResult<T> vread(FHIRPersistenceContext context, Class<T> resourceType,
+                String logicalId, String versionId) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public <T extends Resource> SingleResourceResult<T> update(FHIRPersistenceContext context, String logicalId,
+                T resource) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public <T extends Resource> MultiResourceResult<T> history(FHIRPersistenceContext context, Class<T> resourceType,
+                String logicalId) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public MultiResourceResult<Resource> search(FHIRPersistenceContext context, Class<? extends Resource> resourceType) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean isTransactional() {
+            return false;
+        }
+
+        @Override
+        public OperationOutcome getHealth() {
+            return null;
+        }
+
+        @Override
+        public FHIRPersistenceTransaction getTransaction() {
+            return null;
+        }
+    }
+}
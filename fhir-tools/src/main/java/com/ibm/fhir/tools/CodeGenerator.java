@@ -257,6 +257,7 @@ public class CodeGenerator {
         generateVisitorInterface(basePath);
         generateDefaultVisitorClass(basePath);
         generateJsonParser(basePath);
+        generateJsonStreamParser(basePath);
         generateXMLParser(basePath);
         generateModelClassesFile(basePath);
     }
@@ -2400,6 +2401,7 @@ public class CodeGenerator {
         cb.newLine();
 
         cb.field(mods("private", "final"), "Stack<java.lang.String>", "stack", _new("Stack<>"));
+        cb.field(mods("private"), "FHIRJsonStreamParser", "streamParser");
         cb.newLine();
 
         cb.constructor(mods(), "FHIRJsonParser");
@@ -2416,6 +2418,9 @@ public class CodeGenerator {
 
         // public <T extends Resource> T parseAndFilter(InputStream in, java.util.List<java.lang.String> elementsToInclude) throws FHIRException
         cb.method(mods("public"), "<T extends Resource> T", "parseAndFilter", params("InputStream in", "Collection<java.lang.String> elementsToInclude"), throwsExceptions("FHIRParserException"))
+            ._if("elementsToInclude == null && isStreaming()")
+                ._return("getStreamParser().parse(in)")
+            ._end()
             ._try("JsonReader jsonReader = JSON_READER_FACTORY.createReader(nonClosingInputStream(in), StandardCharsets.UTF_8)")
                 .assign("JsonObject jsonObject", "jsonReader.readObject()")
                 ._return("parseAndFilter(jsonObject, elementsToInclude)")
@@ -2436,6 +2441,9 @@ public class CodeGenerator {
 
         // public <T extends Resource> T parseAndFilter(Reader reader, java.util.List<java.lang.String> elementsToInclude) throws FHIRException
         cb.method(mods("public"), "<T extends Resource> T", "parseAndFilter", params("Reader reader", "Collection<java.lang.String> elementsToInclude"), throwsExceptions("FHIRParserException"))
+            ._if("elementsToInclude == null && isStreaming()")
+                ._return("getStreamParser().parse(reader)")
+            ._end()
             ._try("JsonReader jsonReader = JSON_READER_FACTORY.createReader(nonClosingReader(reader))")
                 .assign("JsonObject jsonObject", "jsonReader.readObject()")
                 ._return("parseAndFilter(jsonObject, elementsToInclude)")
@@ -2476,13 +2484,27 @@ public class CodeGenerator {
 
         cb.override();
         cb.method(mods("public"), "boolean", "isPropertySupported", params("java.lang.String name"))
-            ._if("FHIRParser.PROPERTY_IGNORE_UNRECOGNIZED_ELEMENTS.equals(name)")
+            ._if("FHIRParser.PROPERTY_IGNORE_UNRECOGNIZED_ELEMENTS.equals(name) || FHIRParser.PROPERTY_JSON_STREAMING.equals(name)")
                 ._return("true")
             ._end()
             ._return("false")
         .end();
         cb.newLine();
 
+        cb.method(mods("private"), "boolean", "isStreaming")
+            ._return("getPropertyOrDefault(FHIRParser.PROPERTY_JSON_STREAMING, java.lang.Boolean.FALSE, java.lang.Boolean.class)")
+        .end();
+        cb.newLine();
+
+        cb.method(mods("private"), "FHIRJsonStreamParser", "getStreamParser")
+            ._if("streamParser == null")
+                .assign("streamParser", "new FHIRJsonStreamParser()")
+            ._end()
+            .invoke("streamParser", "setProperty", args("FHIRParser.PROPERTY_IGNORE_UNRECOGNIZED_ELEMENTS", "getPropertyOrDefault(FHIRParser.PROPERTY_IGNORE_UNRECOGNIZED_ELEMENTS, java.lang.Boolean.FALSE, java.lang.Boolean.class)"))
+            ._return("streamParser")
+        .end();
+        cb.newLine();
+
         cb.method(mods("private"), "Resource", "parseResource", params("java.lang.String elementName", "JsonObject jsonObject", "int elementIndex"));
         cb._if("jsonObject == null");
         cb._return("null");
@@ -2813,6 +2835,507 @@ public class CodeGenerator {
         }
     }
 
+    private void generateJsonStreamParser(String basePath) {
+        CodeBuilder cb = new CodeBuilder();
+
+        String packageName = "com.ibm.fhir.model.parser";
+        cb.lines(HEADER).newLine();
+        cb._package(packageName).newLine();
+
+        cb._importstatic("com.ibm.fhir.model.util.JsonSupport", "checkChoiceElement");
+        cb._importstatic("com.ibm.fhir.model.util.JsonSupport", "getResourceType");
+        cb._importstatic("com.ibm.fhir.model.util.JsonSupport", "getValueType");
+        cb._importstatic("com.ibm.fhir.model.util.JsonSupport", "nextObject");
+        cb._importstatic("com.ibm.fhir.model.util.JsonSupport", "nonClosingInputStream");
+        cb._importstatic("com.ibm.fhir.model.util.JsonSupport", "nonClosingReader");
+        cb._importstatic("com.ibm.fhir.model.util.JsonSupport", "readJsonObject");
+        cb._importstatic("com.ibm.fhir.model.util.JsonSupport", "requireArray");
+        cb._importstatic("com.ibm.fhir.model.util.JsonSupport", "requireObject");
+        cb._importstatic("com.ibm.fhir.model.util.JsonSupport", "skipValue");
+        cb.newLine();
+
+        cb._import("java.io.InputStream");
+        cb._import("java.io.Reader");
+        cb._import("java.nio.charset.StandardCharsets");
+        cb._import("java.util.Stack");
+        cb._import("java.util.StringJoiner");
+        cb._import("java.util.function.Supplier");
+        cb.newLine();
+
+        cb._import("javax.annotation.Generated");
+        cb._import("javax.json.Json");
+        cb._import("javax.json.JsonObject");
+        cb._import("javax.json.stream.JsonParser");
+        cb._import("javax.json.stream.JsonParser.Event");
+        cb._import("javax.json.stream.JsonParserFactory");
+        cb.newLine();
+
+        cb._import("com.ibm.fhir.model.parser.FHIRParser");
+        cb._import("com.ibm.fhir.model.parser.FHIRAbstractParser");
+        cb._import("com.ibm.fhir.model.parser.exception.FHIRParserException");
+        cb._import("com.ibm.fhir.model.resource.*");
+        cb._import("com.ibm.fhir.model.type.*");
+        cb._import("com.ibm.fhir.model.type.code.*");
+        cb._import("com.ibm.fhir.model.type.Boolean");
+        cb._import("com.ibm.fhir.model.type.Integer");
+        cb._import("com.ibm.fhir.model.type.String");
+        cb._import("com.ibm.fhir.model.util.JsonSupport.PrimitiveArray");
+        cb.newLine();
+
+        cb._import("net.jcip.annotations.NotThreadSafe");
+        cb.newLine();
+
+        cb.annotation("NotThreadSafe");
+        cb.annotation("Generated", quote("com.ibm.fhir.tools.CodeGenerator"));
+        cb._class(mods("public"), "FHIRJsonStreamParser", "FHIRAbstractParser");
+        cb.field(mods("public", "static"), "boolean", "DEBUG", "false");
+        cb.field(mods("private", "static", "final"), "JsonParserFactory", "JSON_PARSER_FACTORY", "Json.createParserFactory(null)");
+        cb.newLine();
+
+        cb.field(mods("private", "final"), "Stack<java.lang.String>", "stack", _new("Stack<>"));
+        cb.field(mods("private"), "boolean", "ignoreUnrecognizedElements");
+        cb.newLine();
+
+        cb.constructor(mods(), "FHIRJsonStreamParser");
+        cb.comment("only visible to subclasses or classes/interfaces in the same package (e.g. FHIRJsonParser)");
+        cb.end();
+        cb.newLine();
+
+        // public <T extends Resource> T parse(InputStream in) throws FHIRParserException
+        cb.annotation("SuppressWarnings", quote("unchecked"));
+        cb.override();
+        cb.method(mods("public"), "<T extends Resource> T", "parse", params("InputStream in"), throwsExceptions("FHIRParserException"))
+            ._try("JsonParser parser = JSON_PARSER_FACTORY.createParser(nonClosingInputStream(in), StandardCharsets.UTF_8)")
+                .invoke("reset", args())
+                .assign("Event event", "parser.next()")
+                ._if("event != Event.START_OBJECT")
+                    ._throw(_new("IllegalArgumentException", args("\"Expected: JsonObject but found: \" + getValueType(event)")))
+                ._end()
+                ._return("(T) parseResource(null, parser, -1)")
+            ._catch("Exception e")
+                ._throw(_new("FHIRParserException", args("e.getMessage()", "getPath()", "e")))
+            ._end()
+        .end();
+        cb.newLine();
+
+        // public <T extends Resource> T parse(Reader reader) throws FHIRParserException
+        cb.annotation("SuppressWarnings", quote("unchecked"));
+        cb.override();
+        cb.method(mods("public"), "<T extends Resource> T", "parse", params("Reader reader"), throwsExceptions("FHIRParserException"))
+            ._try("JsonParser parser = JSON_PARSER_FACTORY.createParser(nonClosingReader(reader))")
+                .invoke("reset", args())
+                .assign("Event event", "parser.next()")
+                ._if("event != Event.START_OBJECT")
+                    ._throw(_new("IllegalArgumentException", args("\"Expected: JsonObject but found: \" + getValueType(event)")))
+                ._end()
+                ._return("(T) parseResource(null, parser, -1)")
+            ._catch("Exception e")
+                ._throw(_new("FHIRParserException", args("e.getMessage()", "getPath()", "e")))
+            ._end()
+        .end();
+        cb.newLine();
+
+        cb.method(mods("private"), "void", "reset")
+            .invoke("stack", "clear", args())
+            .assign("ignoreUnrecognizedElements", "getPropertyOrDefault(FHIRParser.PROPERTY_IGNORE_UNRECOGNIZED_ELEMENTS, java.lang.Boolean.FALSE, java.lang.Boolean.class)")
+        .end();
+        cb.newLine();
+
+        cb.override();
+        cb.method(mods("public"), "boolean", "isPropertySupported", params("java.lang.String name"))
+            ._if("FHIRParser.PROPERTY_IGNORE_UNRECOGNIZED_ELEMENTS.equals(name)")
+                ._return("true")
+            ._end()
+            ._return("false")
+        .end();
+        cb.newLine();
+
+        // the parser is positioned just after the start of the resource object
+        cb.method(mods("private"), "Resource", "parseResource", params("java.lang.String elementName", "JsonParser parser", "int elementIndex"))
+            ._if("parser.next() != Event.KEY_NAME")
+                ._throw(_new("IllegalArgumentException", args(quote("Missing required element: 'resourceType'"))))
+            ._end()
+            .assign("java.lang.String key", "parser.getString()")
+            ._if("!\"resourceType\".equals(key)")
+                .comment("resourceType is not the first member so the rest of the object is buffered and parsed from there")
+                .assign("JsonObject jsonObject", "readJsonObject(parser, key)")
+                .assign("JsonParser bufferedParser", "JSON_PARSER_FACTORY.createParser(jsonObject)")
+                .invoke("bufferedParser", "next", args())
+                ._return("parseResource(getResourceType(jsonObject).getSimpleName(), elementName, bufferedParser, elementIndex)")
+            ._end()
+            .assign("Event event", "parser.next()")
+            ._if("event != Event.VALUE_STRING")
+                ._throw(_new("IllegalArgumentException", args("\"Expected: JsonString but found: \" + getValueType(event) + \" for element: resourceType\"")))
+            ._end()
+            ._return("parseResource(parser.getString(), elementName, parser, elementIndex)")
+        .end();
+        cb.newLine();
+
+        cb.method(mods("private"), "Resource", "parseResource", params("java.lang.String resourceType", "java.lang.String elementName", "JsonParser parser", "int elementIndex"));
+        cb._if("elementName == null");
+        cb.assign("elementName", "resourceType");
+        cb._end();
+        cb._switch("resourceType");
+        for (String resourceClassName : resourceClassNames) {
+            if ("Resource".equals(resourceClassName) || "DomainResource".equals(resourceClassName)) {
+                continue;
+            }
+            cb._case(quote(resourceClassName));
+            cb._return("parse" + resourceClassName + "(elementName, parser, elementIndex)");
+        }
+        cb._end();
+        cb._throw(_new("IllegalArgumentException", args("\"Invalid resource type: '\" + resourceType + \"'\"")));
+        cb.end();
+        cb.newLine();
+
+        Collections.sort(generatedClassNames);
+
+        for (String generatedClassName : generatedClassNames) {
+            JsonObject structureDefinition = getStructureDefinition(generatedClassName);
+            if (isPrimitiveType(structureDefinition)) {
+                generatePrimitiveTypeStreamParseMethods(generatedClassName, cb);
+            } else {
+                generateStreamParseMethod(generatedClassName, structureDefinition, cb);
+            }
+        }
+
+        cb.method(mods("private"), "void", "parsePrimitiveElement", params("Element.Builder builder", "java.lang.String elementName", "JsonParser parser", "Event event", "int elementIndex"))
+            ._if("event != Event.START_OBJECT")
+                .invoke("skipValue", args("parser", "event"))
+                ._return()
+            ._end()
+            .invoke("stackPush", args("elementName", "elementIndex"))
+            ._while("parser.next() == Event.KEY_NAME")
+                .assign("java.lang.String key", "parser.getString()")
+                ._switch("key")
+                ._case(quote("id"))
+                    .invoke("builder", "id", args("parseJavaString(\"id\", parser, -1)"))
+                    ._break()
+                ._case(quote("extension"))
+                    .invoke("requireArray", args("parser", quote("extension")))
+                    ._for("int i = 0", "nextObject(parser, \"extension\")", "i++")
+                        .invoke("builder", "extension", args("parseExtension(\"extension\", parser, i)"))
+                    ._end()
+                    ._break()
+                ._default()
+                    .invoke("parseUnrecognizedElement", args("key", "parser"))
+                ._end()
+            ._end()
+            .invoke("stackPop", args())
+        .end().newLine();
+
+        cb.method(mods("private"), "<B extends Element.Builder> PrimitiveArray<B>", "parsePrimitiveElementArray", params("PrimitiveArray<B> array", "Supplier<B> supplier", "java.lang.String elementName", "JsonParser parser"))
+            ._if("array == null")
+                .assign("array", "new PrimitiveArray<>(supplier)")
+            ._end()
+            .invoke("requireArray", args("parser", "\"_\" + elementName"))
+            .assign("int elementIndex", "0")
+            ._for("Event event = parser.next()", "event != Event.END_ARRAY", "event = parser.next(), elementIndex++")
+                .invoke("parsePrimitiveElement", args("array.getBuilder(elementIndex)", "elementName", "parser", "event", "elementIndex"))
+            ._end()
+            .invoke("array", "setElementCount", args("elementIndex"))
+            ._return("array")
+        .end().newLine();
+
+        cb.method(mods("private"), "void", "parseUnrecognizedElement", params("java.lang.String key", "JsonParser parser"))
+            ._if("!ignoreUnrecognizedElements && !\"resourceType\".equals(key) && !\"fhir_comments\".equals(key)")
+                ._throw(_new("IllegalArgumentException", args("\"Unrecognized element: '\" + key + \"'\"")))
+            ._end()
+            .invoke("skipValue", args("parser", "parser.next()"))
+        .end().newLine();
+
+        cb.method(mods("private"), "void", "stackPush", params("java.lang.String elementName", "int elementIndex"))
+            ._if("elementIndex != -1")
+                .invoke("stack", "push", args("elementName + \"[\" + elementIndex + \"]\""))
+            ._else()
+                .invoke("stack", "push", args("elementName"))
+            ._end()
+            ._if("DEBUG")
+                .invoke("System.out", "println", args("getPath()"))
+            ._end()
+        .end().newLine();
+
+        cb.method(mods("private"), "void", "stackPop")
+            .invoke("stack", "pop", args())
+        .end().newLine();
+
+        cb.method(mods("private"), "java.lang.String", "getPath")
+            .assign("StringJoiner joiner", "new StringJoiner(\".\")")
+            ._foreach("java.lang.String s", "stack")
+                .invoke("joiner", "add", args("s"))
+            ._end()
+            ._return("joiner.toString()")
+        .end().newLine();
+
+        cb.method(mods("private"), "java.lang.String", "parseJavaString", params("java.lang.String elementName", "JsonParser parser", "int elementIndex"))
+            .assign("Event event", "parser.next()")
+            ._if("event != Event.VALUE_STRING")
+                ._throw(_new("IllegalArgumentException", args("\"Expected: JsonString but found: \" + getValueType(event) + \" for element: \" + elementName")))
+            ._end()
+            .invoke("stackPush", args("elementName", "elementIndex"))
+            .assign("java.lang.String javaString", "parser.getString()")
+            .invoke("stackPop", args())
+            ._return("javaString")
+        .end();
+
+        cb._end();
+
+        File file = new File(basePath + "/" + packageName.replace(".", "/") + "/FHIRJsonStreamParser.java");
+        try {
+            if (!file.exists()) {
+                file.getParentFile().mkdirs();
+                Files.createFile(file.toPath());
+            }
+        } catch (Exception e) {
+            throw new Error(e);
+        }
+
+        try (FileWriter writer = new FileWriter(file)) {
+            writer.write(cb.toString());
+        } catch (Exception e) {
+            throw new Error(e);
+        }
+    }
+
+    private void generateStreamParseMethod(String generatedClassName, JsonObject structureDefinition, CodeBuilder cb) {
+        if (isAbstract(structureDefinition)) {
+            return;
+        }
+
+        if (isQuantitySubtype(structureDefinition)) {
+            return;
+        }
+
+        String path = titleCase(Arrays.asList(generatedClassName.split("\\.")).stream().map(s -> camelCase(s)).collect(Collectors.joining(".")));
+
+        List<JsonObject> elementDefinitions = getElementDefinitions(structureDefinition, path);
+
+        // the parser is positioned just after the start of the object
+        if ("Quantity".equals(generatedClassName)) {
+            cb.method(mods("private"), "Quantity", "parseQuantity", params("Quantity.Builder builder", "java.lang.String elementName", "JsonParser parser", "int elementIndex"));
+        } else {
+            cb.method(mods("private"), generatedClassName, "parse" + generatedClassName.replace(".", ""), params("java.lang.String elementName", "JsonParser parser", "int elementIndex"));
+        }
+        cb.invoke("stackPush", args("elementName", "elementIndex"));
+
+        if (!"Quantity".equals(generatedClassName)) {
+            cb.assign(generatedClassName + ".Builder builder", generatedClassName + ".builder()");
+        }
+
+        // primitive values and their "_" elements may arrive in either order so they are collected in builders that are built at the end of the object
+        List<String> primitiveElementNames = new ArrayList<>();
+        for (JsonObject elementDefinition : elementDefinitions) {
+            String elementName = getElementName(elementDefinition, path);
+            String fieldType = getStreamFieldType(generatedClassName, structureDefinition, elementDefinition);
+            if (isChoiceElement(elementDefinition)) {
+                cb.assign("java.lang.String " + elementName + "ElementName", "null");
+                if (getChoiceTypeNames(elementDefinition).stream().anyMatch(t -> isPrimitiveType(t) || isCodeSubtype(t))) {
+                    cb.assign("Element.Builder " + elementName + "Builder", "null");
+                    primitiveElementNames.add(elementName);
+                }
+            } else if (isPrimitiveType(fieldType) || isCodeSubtype(fieldType)) {
+                if (isRepeating(elementDefinition)) {
+                    cb.assign("PrimitiveArray<" + fieldType + ".Builder> " + elementName + "Array", "null");
+                } else {
+                    cb.assign(fieldType + ".Builder " + elementName + "Builder", "null");
+                }
+                primitiveElementNames.add(elementName);
+            }
+        }
+
+        cb._while("parser.next() == Event.KEY_NAME");
+        cb.assign("java.lang.String key", "parser.getString()");
+        cb._switch("key");
+
+        for (JsonObject elementDefinition : elementDefinitions) {
+            String elementName = getElementName(elementDefinition, path);
+            String fieldName = getFieldName(elementName);
+            String fieldType = getStreamFieldType(generatedClassName, structureDefinition, elementDefinition);
+            if (isChoiceElement(elementDefinition)) {
+                for (String choiceTypeName : getChoiceTypeNames(elementDefinition)) {
+                    String key = elementName + getConcreteTypeName(choiceTypeName);
+                    if (isPrimitiveType(choiceTypeName) || isCodeSubtype(choiceTypeName)) {
+                        String baseTypeName = getPrimitiveBaseTypeName(choiceTypeName);
+                        cb._case(quote(key))
+                            .assign(elementName + "ElementName", "checkChoiceElement(" + elementName + "ElementName, " + quote(key) + ")")
+                            ._if(elementName + "Builder == null")
+                                .assign(elementName + "Builder", choiceTypeName + ".builder()")
+                            ._end()
+                            .invoke("parse" + baseTypeName + "Value", args("(" + baseTypeName + ".Builder) " + elementName + "Builder", quote(key), "parser", "parser.next()", "-1"))
+                            ._break();
+                        cb._case(quote("_" + key))
+                            .assign(elementName + "ElementName", "checkChoiceElement(" + elementName + "ElementName, " + quote(key) + ")")
+                            ._if(elementName + "Builder == null")
+                                .assign(elementName + "Builder", choiceTypeName + ".builder()")
+                            ._end()
+                            .invoke("parsePrimitiveElement", args(elementName + "Builder", quote(key), "parser", "parser.next()", "-1"))
+                            ._break();
+                    } else {
+                        cb._case(quote(key))
+                            .assign(elementName + "ElementName", "checkChoiceElement(" + elementName + "ElementName, " + quote(key) + ")")
+                            .invoke("requireObject", args("parser", quote(key)))
+                            .invoke("builder", fieldName, args(buildStreamParseMethodInvocation(key, choiceTypeName, "-1")))
+                            ._break();
+                    }
+                }
+            } else if (isJavaString(fieldType)) {
+                cb._case(quote(elementName))
+                    .invoke("builder", fieldName, args("parseJavaString(" + quote(elementName) + ", parser, -1)"))
+                    ._break();
+            } else if (isPrimitiveType(fieldType) || isCodeSubtype(fieldType)) {
+                String baseTypeName = getPrimitiveBaseTypeName(fieldType);
+                if (isRepeating(elementDefinition)) {
+                    cb._case(quote(elementName))
+                        .assign(elementName + "Array", "parse" + baseTypeName + "Array(" + elementName + "Array, " + fieldType + "::builder, " + quote(elementName) + ", parser)")
+                        ._break();
+                    cb._case(quote("_" + elementName))
+                        .assign(elementName + "Array", "parsePrimitiveElementArray(" + elementName + "Array, " + fieldType + "::builder, " + quote(elementName) + ", parser)")
+                        ._break();
+                } else {
+                    cb._case(quote(elementName))
+                        ._if(elementName + "Builder == null")
+                            .assign(elementName + "Builder", fieldType + ".builder()")
+                        ._end()
+                        .invoke("parse" + baseTypeName + "Value", args(elementName + "Builder", quote(elementName), "parser", "parser.next()", "-1"))
+                        ._break();
+                    cb._case(quote("_" + elementName))
+                        ._if(elementName + "Builder == null")
+                            .assign(elementName + "Builder", fieldType + ".builder()")
+                        ._end()
+                        .invoke("parsePrimitiveElement", args(elementName + "Builder", quote(elementName), "parser", "parser.next()", "-1"))
+                        ._break();
+                }
+            } else if (isRepeating(elementDefinition)) {
+                cb._case(quote(elementName))
+                    .invoke("requireArray", args("parser", quote(elementName)))
+                    ._for("int i = 0", "nextObject(parser, " + quote(elementName) + ")", "i++")
+                        .invoke("builder", fieldName, args(buildStreamParseMethodInvocation(elementName, fieldType, "i")))
+                    ._end()
+                    ._break();
+            } else {
+                cb._case(quote(elementName))
+                    .invoke("requireObject", args("parser", quote(elementName)))
+                    .invoke("builder", fieldName, args(buildStreamParseMethodInvocation(elementName, fieldType, "-1")))
+                    ._break();
+            }
+        }
+
+        cb._default()
+            .invoke("parseUnrecognizedElement", args("key", "parser"));
+
+        cb._end();
+        cb._end();
+
+        for (JsonObject elementDefinition : elementDefinitions) {
+            String elementName = getElementName(elementDefinition, path);
+            if (!primitiveElementNames.contains(elementName)) {
+                continue;
+            }
+            String fieldName = getFieldName(elementName);
+            String fieldType = getStreamFieldType(generatedClassName, structureDefinition, elementDefinition);
+            if (!isChoiceElement(elementDefinition) && isRepeating(elementDefinition)) {
+                cb._if(elementName + "Array != null")
+                    ._foreach(fieldType + ".Builder " + elementName + "Builder", elementName + "Array.getBuilders(" + quote(elementName) + ")")
+                        .invoke("builder", fieldName, args(elementName + "Builder.build()"))
+                    ._end()
+                ._end();
+            } else {
+                cb._if(elementName + "Builder != null")
+                    .invoke("builder", fieldName, args(elementName + "Builder.build()"))
+                ._end();
+            }
+        }
+
+        cb.invoke("stackPop", args());
+        cb._return("builder.build()");
+        cb.end().newLine();
+
+        if ("Quantity".equals(generatedClassName)) {
+            cb.method(mods("private"), "Quantity", "parseQuantity", params("java.lang.String elementName", "JsonParser parser", "int elementIndex"));
+            cb._return("parseQuantity(Quantity.builder(), elementName, parser, elementIndex)");
+            cb.end().newLine();
+        }
+    }
+
+    private String getStreamFieldType(String generatedClassName, JsonObject structureDefinition, JsonObject elementDefinition) {
+        String fieldType = getFieldType(structureDefinition, elementDefinition, false)
+                .replace("com.ibm.fhir.model.type.", "")
+                .replace("com.ibm.fhir.model.resource.", "");
+        if (isBackboneElement(elementDefinition)) {
+            fieldType = generatedClassName + "." + fieldType;
+        }
+        return fieldType;
+    }
+
+    private String getPrimitiveBaseTypeName(String className) {
+        if (isStringSubtype(className) || isCodeSubtype(className)) {
+            return "String";
+        }
+        if (isUriSubtype(className)) {
+            return "Uri";
+        }
+        if (isIntegerSubtype(className)) {
+            return "Integer";
+        }
+        return className;
+    }
+
+    private String buildStreamParseMethodInvocation(String elementName, String fieldType, String elementIndex) {
+        if (isQuantitySubtype(fieldType)) {
+            return "(" + fieldType + ") parseQuantity(" + fieldType + ".builder(), " + quote(elementName) + ", parser, " + elementIndex + ")";
+        }
+        return "parse" + fieldType.replace(".", "") + "(" + quote(elementName) + ", parser, " + elementIndex + ")";
+    }
+
+    private void generatePrimitiveTypeStreamParseMethods(String generatedClassName, CodeBuilder cb) {
+        if (isStringSubtype(generatedClassName) || isUriSubtype(generatedClassName) || isCodeSubtype(generatedClassName) || isIntegerSubtype(generatedClassName)) {
+            return;
+        }
+
+        // single values are type checked; values within an array are ignored when they have the wrong type
+        cb.method(mods("private"), "void", "parse" + generatedClassName + "Value", params(generatedClassName + ".Builder builder", "java.lang.String elementName", "JsonParser parser", "Event event", "int elementIndex"));
+        if ("Boolean".equals(generatedClassName)) {
+            cb._if("event != Event.VALUE_TRUE && event != Event.VALUE_FALSE")
+                .invoke("skipValue", args("parser", "event"))
+                ._return()
+            ._end();
+        } else {
+            String expectedEvent = "Integer".equals(generatedClassName) || "Decimal".equals(generatedClassName) ? "VALUE_NUMBER" : "VALUE_STRING";
+            cb._if("event != Event." + expectedEvent)
+                ._if("elementIndex == -1")
+                    ._throw(_new("IllegalArgumentException", args("\"Expected: " + getExpectedType(generatedClassName) + " but found: \" + getValueType(event) + \" for element: \" + elementName")))
+                ._end()
+                .invoke("skipValue", args("parser", "event"))
+                ._return()
+            ._end();
+        }
+        cb.invoke("stackPush", args("elementName", "elementIndex"));
+        if ("Boolean".equals(generatedClassName)) {
+            cb.invoke("builder", "value", args("event == Event.VALUE_TRUE ? java.lang.Boolean.TRUE : java.lang.Boolean.FALSE"));
+        } else if ("Integer".equals(generatedClassName)) {
+            cb.invoke("builder", "value", args("parser.getBigDecimal().intValueExact()"));
+        } else if ("Decimal".equals(generatedClassName)) {
+            cb.invoke("builder", "value", args("parser.getBigDecimal()"));
+        } else {
+            cb.invoke("builder", "value", args("parser.getString()"));
+        }
+        cb.invoke("stackPop", args());
+        cb.end().newLine();
+
+        cb.method(mods("private"), "<B extends " + generatedClassName + ".Builder> PrimitiveArray<B>", "parse" + generatedClassName + "Array", params("PrimitiveArray<B> array", "Supplier<B> supplier", "java.lang.String elementName", "JsonParser parser"))
+            ._if("array == null")
+                .assign("array", "new PrimitiveArray<>(supplier)")
+            ._end()
+            .invoke("requireArray", args("parser", "elementName"))
+            .assign("int elementIndex", "0")
+            ._for("Event event = parser.next()", "event != Event.END_ARRAY", "event = parser.next(), elementIndex++")
+                .invoke("parse" + generatedClassName + "Value", args("array.getBuilder(elementIndex)", "elementName", "parser", "event", "elementIndex"))
+            ._end()
+            .invoke("array", "setValueCount", args("elementIndex"))
+            ._return("array")
+        .end().newLine();
+    }
+
     private void generateCodeSubtypeClasses(JsonObject structureDefinition, String basePath) {
         for (JsonObject elementDefinition : getElementDefinitions(structureDefinition, true)) {
             List<JsonObject> types = getTypes(elementDefinition);
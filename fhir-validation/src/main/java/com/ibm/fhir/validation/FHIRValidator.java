@@ -224,7 +224,6 @@ public class FHIRValidator {
     }
 
     private static class ValidatingNodeVisitor extends FHIRPathDefaultNodeVisitor {
-        private FHIRPathEvaluator evaluator = FHIRPathEvaluator.evaluator();
         private EvaluationContext evaluationContext;
         private boolean includeResourceAssertedProfiles;
         private List<String> profiles;
@@ -309,7 +308,7 @@ public class FHIRValidator {
 
                 Collection<FHIRPathNode> initialContext = singleton(node);
                 if (!Constraint.LOCATION_BASE.equals(constraint.location())) {
-                    initialContext = evaluator.evaluate(evaluationContext, constraint.location(), initialContext);
+                    initialContext = FHIRPathEvaluator.compile(constraint.location()).evaluate(evaluationContext, initialContext);
                     issues.addAll(evaluationContext.getIssues());
                     evaluationContext.clearIssues();
                 }
@@ -319,7 +318,7 @@ public class FHIRValidator {
                 for (FHIRPathNode contextNode : initialContext) {
                     evaluationContext.setExternalConstant("rootResource", getRootResourceNode(contextNode));
                     evaluationContext.setExternalConstant("resource", getResourceNode(contextNode));
-                    Collection<FHIRPathNode> result = evaluator.evaluate(evaluationContext, constraint.expression(), singleton(contextNode));
+                    Collection<FHIRPathNode> result = FHIRPathEvaluator.compile(constraint.expression()).evaluate(evaluationContext, singleton(contextNode));
                     issues.addAll(evaluationContext.getIssues());
                     evaluationContext.clearIssues();
 